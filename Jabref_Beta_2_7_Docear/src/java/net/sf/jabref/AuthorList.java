@@ -1,9 +1,9 @@
 package net.sf.jabref;
 
 import net.sf.jabref.export.layout.format.CreateDocBookAuthors;
+import net.sf.jabref.util.LruCache;
 
 import java.util.Vector;
-import java.util.WeakHashMap;
 
 /**
  * This is an immutable class representing information of either <CODE>author</CODE>
@@ -119,7 +119,8 @@ public class AuthorList {
 	private Vector<Author> authors; 
 
 	// Variables for storing computed strings, so they only need be created
-	// once:
+	// once. Threads computing a string at the same time compute the same
+	// string, so it does not matter whose is kept:
 	private String authorsNatbib = null, authorsFirstFirstAnds = null,
 		authorsAlph = null;
 
@@ -210,7 +211,11 @@ public class AuthorList {
 		tex_names.add("j");
 	}
 
-	static WeakHashMap<String, AuthorList> authorCache = new WeakHashMap<String, AuthorList>();
+	// The number of parsed author fields kept:
+	private static final int CACHE_SIZE = 10000;
+
+	private static final LruCache<String, AuthorList> authorCache =
+		new LruCache<String, AuthorList>(CACHE_SIZE, 16);
 
 	/**
 	 * Parses the parameter strings and stores preformatted author information.
@@ -249,12 +254,38 @@ public class AuthorList {
 	public static AuthorList getAuthorList(String authors) {
 		AuthorList authorList = authorCache.get(authors);
 		if (authorList == null) {
+			// Parsed outside the lock, so threads checking for duplicates
+			// don't wait for each other:
 			authorList = new AuthorList(authors);
 			authorCache.put(authors, authorList);
 		}
 		return authorList;
 	}
 
+	/**
+	 * Returns the share of calls to getAuthorList() that found the authors
+	 * parsed already.
+	 */
+	public static double getCacheHitRate() {
+		return authorCache.getHitRate();
+	}
+
+	/**
+	 * Returns the number of calls to getAuthorList() that found the authors
+	 * parsed already.
+	 */
+	public static long getCacheHits() {
+		return authorCache.getHits();
+	}
+
+	/**
+	 * Returns the number of calls to getAuthorList() that had to parse the
+	 * authors.
+	 */
+	public static long getCacheMisses() {
+		return authorCache.getMisses();
+	}
+
 	/**
 	 * This is a convenience method for getAuthorsFirstFirst()
 	 * 
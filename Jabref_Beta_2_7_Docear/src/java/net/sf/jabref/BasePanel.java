@@ -158,6 +158,20 @@ public class BasePanel extends JPanel implements ClipboardOwner, FileUpdateListe
     // Hashtable that holds as keys the names of the fields where
     // autocomplete is active, and references to the autocompleter objects.
 
+    // Keeps the words of the autocompleters in step with the entries added to
+    // and removed from the database, also when that is undone:
+    private final DatabaseChangeListener autoCompleterUpdater = new DatabaseChangeListener() {
+        public void databaseChanged(DatabaseChangeEvent e) {
+            if (e.getType() == DatabaseChangeEvent.REMOVED_ENTRY) {
+                for (AbstractAutoCompleter autoCompleter : autoCompleters.values())
+                    autoCompleter.removeBibtexEntry(e.getEntry());
+            } else if (e.getType() == DatabaseChangeEvent.ADDED_ENTRY) {
+                // Also when a removal is undone. Adding the words again is harmless:
+                Util.updateCompletersForEntry(autoCompleters, e.getEntry());
+            }
+        }
+    };
+
     // The undo manager.
     public CountingUndoManager undoManager = new CountingUndoManager(this);
     UndoAction undoAction = new UndoAction();
@@ -853,9 +867,9 @@ public class BasePanel extends JPanel implements ClipboardOwner, FileUpdateListe
                     }
 
                     // Finally, set the new keys:
+                    LabelPatternUtil.makeLabels(Globals.prefs.getKeyPattern(), database, entries);
                     for (Iterator<BibtexEntry> i=entries.iterator(); i.hasNext();) {
                         bes = i.next();
-                        bes = LabelPatternUtil.makeLabel(Globals.prefs.getKeyPattern(), database, bes);
                         ce.addEdit(new UndoableKeyChange
                                    (database, bes.getId(), (String)oldvals.get(bes),
                                     bes.getField(BibtexFields.KEY_FIELD)));
@@ -1916,6 +1930,7 @@ public class BasePanel extends JPanel implements ClipboardOwner, FileUpdateListe
         for (BibtexEntry entry : database.getEntries()){
             Util.updateCompletersForEntry(autoCompleters, entry);
         }
+        database.addDatabaseChangeListener(autoCompleterUpdater);
 
         addJournalListToAutoCompleter();
         addContentSelectorValuesToAutoCompleters();
@@ -2517,19 +2532,19 @@ public class BasePanel extends JPanel implements ClipboardOwner, FileUpdateListe
     public void autoGenerateKeysBeforeSaving() {
         if (Globals.prefs.getBoolean("generateKeysBeforeSaving")) {
             NamedCompound ce = new NamedCompound(Globals.lang("autogenerate keys"));
-            boolean any = false;
+            List<BibtexEntry> withoutKey = new ArrayList<BibtexEntry>();
             
             for (BibtexEntry bes : database.getEntries()){
                 String oldKey = bes.getCiteKey();
-                if ((oldKey == null) || (oldKey.equals(""))) {
-                    LabelPatternUtil.makeLabel(Globals.prefs.getKeyPattern(), database, bes);
-                    ce.addEdit(new UndoableKeyChange(database, bes.getId(), null,
-                        bes.getField(BibtexFields.KEY_FIELD)));
-                    any = true;
-                }
+                if ((oldKey == null) || (oldKey.equals("")))
+                    withoutKey.add(bes);
             }
+            LabelPatternUtil.makeLabels(Globals.prefs.getKeyPattern(), database, withoutKey);
+            for (BibtexEntry bes : withoutKey)
+                ce.addEdit(new UndoableKeyChange(database, bes.getId(), null,
+                    bes.getField(BibtexFields.KEY_FIELD)));
             // Store undo information, if any:
-            if (any) {
+            if (!withoutKey.isEmpty()) {
                 ce.end();
                 undoManager.addEdit(ce);
             }
@@ -45,7 +45,6 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -53,6 +52,10 @@ import java.util.Vector;
 
 import javax.swing.JOptionPane;
 
+import net.sf.jabref.export.EntryTextCache;
+import net.sf.jabref.groups.GroupMembership;
+import net.sf.jabref.search.SearchIndex;
+
 public class BibtexDatabase {
     
 	Map<String, BibtexEntry> _entries = new Hashtable<String, BibtexEntry>();
@@ -73,6 +76,28 @@ public class BibtexDatabase {
 	 */
 	private HashMap<String, Integer> allKeys = new HashMap<String, Integer>();
 
+    /*
+     * Secondary indexes for looking up entries by bibtex key, linked file,
+     * url and doi without scanning the whole database.
+     */
+    private final FieldIndex keyIndex = FieldIndex.createKeyIndex();
+    private final FieldIndex fileIndex = FieldIndex.createFileIndex();
+    private final FieldIndex urlIndex = FieldIndex.createUrlIndex();
+    private final FieldIndex doiIndex = FieldIndex.createDoiIndex();
+    private final FieldIndex[] indexes = {keyIndex, fileIndex, urlIndex, doiIndex};
+
+    /*
+     * The word index used by searches, created on the first search.
+     */
+    private SearchIndex searchIndex = null;
+
+    /*
+     * The saved text of the entries, created on the first save.
+     */
+    private EntryTextCache entryTextCache = null;
+
+    private GroupMembership groupMembership = null;
+
     /*
 	 * Entries are stored in a HashMap with the ID as key. What happens if
 	 * someone changes a BibtexEntry's ID after it has been added to this
@@ -116,6 +141,8 @@ public class BibtexDatabase {
                     _entries.put((String) pce.getNewValue(),
                         (BibtexEntry) pce.getSource());
                 } else {
+                    updateIndexes((BibtexEntry)pce.getSource(), pce.getPropertyName(),
+                        (String)pce.getOldValue(), (String)pce.getNewValue());
                     fireDatabaseChanged (new DatabaseChangeEvent(BibtexDatabase.this, DatabaseChangeEvent.CHANGED_ENTRY, (BibtexEntry)pce.getSource()));
                     //Util.pr(pce.getSource().toString()+"\n"+pce.getPropertyName()
                     //    +"\n"+pce.getNewValue());
@@ -173,46 +200,85 @@ public class BibtexDatabase {
      */
     public synchronized BibtexEntry getEntryByKey(String key)
     {
-      BibtexEntry back = null ;
-
-      int keyHash = key.hashCode() ; // key hash for better performance
-
-      Set<String> keySet = _entries.keySet();
-      if (keySet != null)
-      {
-          Iterator<String> it = keySet.iterator();
-          while(it.hasNext())
-          {
-            String entrieID = it.next() ;
-            BibtexEntry entry = getEntryById(entrieID) ;
-            if ((entry != null) && (entry.getCiteKey() != null))
-            {
-              String citeKey = entry.getCiteKey() ;
-              if (citeKey != null)
-              {
-                if (keyHash == citeKey.hashCode() )
-                {
-                  back = entry ;
-                }
-              }
-            }
-          }
-      }
-      return back ;
+        if (key == null)
+            return null;
+        List<BibtexEntry> entries = keyIndex.get(key);
+        return entries.isEmpty() ? null : entries.get(0);
     }
 
     public synchronized BibtexEntry[] getEntriesByKey(String key) {
-        
-    	ArrayList<BibtexEntry> entries = new ArrayList<BibtexEntry>();
-        
-        for (BibtexEntry entry : _entries.values()){
-            if (key.equals(entry.getCiteKey()))
-                entries.add(entry);
-        }
-        
+        List<BibtexEntry> entries = keyIndex.get(key);
         return entries.toArray(new BibtexEntry[entries.size()]);
     }
 
+    /**
+     * Returns the entries linking a file with the same name as the given
+     * path, ignoring directories and case.
+     */
+    public synchronized List<BibtexEntry> getEntriesByFileName(String path) {
+        String name = FieldIndex.normalizeFileName(path);
+        if (name == null)
+            return new ArrayList<BibtexEntry>();
+        return new ArrayList<BibtexEntry>(fileIndex.get(name));
+    }
+
+    /**
+     * Returns the entries with the given url, ignoring its scheme and a trailing slash.
+     */
+    public synchronized List<BibtexEntry> getEntriesByUrl(String url) {
+        String normalized = FieldIndex.normalizeUrl(url);
+        if (normalized == null)
+            return new ArrayList<BibtexEntry>();
+        return new ArrayList<BibtexEntry>(urlIndex.get(normalized));
+    }
+
+    /**
+     * Returns the entries with the given doi, ignoring case and resolver prefixes.
+     */
+    public synchronized List<BibtexEntry> getEntriesByDoi(String doi) {
+        String normalized = FieldIndex.normalizeDoi(doi);
+        if (normalized == null)
+            return new ArrayList<BibtexEntry>();
+        return new ArrayList<BibtexEntry>(doiIndex.get(normalized));
+    }
+
+    /**
+     * Returns the index of the words in the fields of this database, creating
+     * it on first use.
+     */
+    public synchronized SearchIndex getSearchIndex() {
+        if (searchIndex == null)
+            searchIndex = new SearchIndex(this);
+        return searchIndex;
+    }
+
+    /**
+     * Returns the cache of the saved text of the entries, creating it on
+     * first use.
+     */
+    public synchronized EntryTextCache getEntryTextCache() {
+        if (entryTextCache == null)
+            entryTextCache = new EntryTextCache(this);
+        return entryTextCache;
+    }
+
+    /**
+     * Returns the entries of the groups of this database, creating them on
+     * first use.
+     */
+    public synchronized GroupMembership getGroupMembership() {
+        if (groupMembership == null)
+            groupMembership = new GroupMembership(this);
+        return groupMembership;
+    }
+
+    private synchronized void updateIndexes(BibtexEntry entry, String field, String oldValue, String newValue) {
+        for (FieldIndex index : indexes) {
+            if (index.getField().equals(field))
+                index.update(entry, oldValue, newValue);
+        }
+    }
+
     /**
      * Inserts the entry, given that its ID is not already in use.
      * use Util.createId(...) to make up a unique ID for an entry.
@@ -230,6 +296,8 @@ public class BibtexDatabase {
         entry.addPropertyChangeListener(listener);
 
         _entries.put(id, entry);
+        for (FieldIndex index : indexes)
+            index.add(entry);
 
         fireDatabaseChanged(new DatabaseChangeEvent(this, DatabaseChangeEvent.ADDED_ENTRY, entry));
 
@@ -249,6 +317,8 @@ public class BibtexDatabase {
             return null;
         
         removeKeyFromSet(oldValue.getCiteKey());
+        for (FieldIndex index : indexes)
+            index.remove(oldValue);
         oldValue.removePropertyChangeListener(listener);
         fireDatabaseChanged(new DatabaseChangeEvent(this, DatabaseChangeEvent.REMOVED_ENTRY, oldValue));
 
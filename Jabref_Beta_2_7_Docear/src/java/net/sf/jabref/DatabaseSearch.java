@@ -26,15 +26,23 @@
  */
 package net.sf.jabref;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.PatternSyntaxException;
 
 import javax.swing.SwingUtilities;
 
+import net.sf.jabref.util.Parallel;
+
 public class DatabaseSearch extends Thread {
+	// Below this number of entries, a search is not split between threads:
+	private static final int BLOCK_SIZE = 2000;
+
 	BasePanel panel = null;
 	BibtexDatabase thisDatabase = null;
 	SearchRuleSet thisRuleSet = null;
@@ -59,40 +67,29 @@ public class DatabaseSearch extends Thread {
 	}
 
 	public void run() {
-		int searchScore = 0;
 		matches.clear();
-		BibtexEntry bes = null;
 		int hits = 0;
 
-		for (String id : thisDatabase.getKeySet()){
-
-			// 1. search all required fields using searchString
-			bes = thisDatabase.getEntryById(id);
-			if (bes == null)
-				continue;
-			// (thisTableModel.getNameFromNumber(row));
-
-			// 2. add score per each hit
-			try {
-				searchScore = thisRuleSet.applyRule(thisSearchOptions, bes);
-			} catch (PatternSyntaxException ex) {
-				// There is something wrong with the regexp pattern.
-				errorDisplay.reportError("Malformed regular expression", ex);
-				return;
-			}
+		// 1. search all required fields using searchString
+		try {
+			matches.addAll(findMatches(thisDatabase, thisRuleSet, thisSearchOptions));
+		} catch (PatternSyntaxException ex) {
+			// There is something wrong with the regexp pattern.
+			errorDisplay.reportError("Malformed regular expression", ex);
+			return;
+		}
+
+		for (BibtexEntry bes : thisDatabase.getEntries()){
 			// When using float search, it messes up the sort order if we retain
 			// graded search scores, because the table is sorted by the score.
 			// To prevent this, we let the search score saturate at 1.
-			if (searchScore > 0)
-				searchScore = 1;
+			int searchScore = matches.contains(bes) ? 1 : 0;
 
-			// 2.1 set score to search field
+			// 2. set score to search field
 			bes.setField(searchValueField, String.valueOf(searchScore));
 
-			if (searchScore > 0) {
+			if (searchScore > 0)
 				hits++;
-				matches.add(bes);
-			}
 		}
 		final int outputHits = hits;
 		SwingUtilities.invokeLater(new Thread() {
@@ -107,4 +104,49 @@ public class DatabaseSearch extends Thread {
 	public Iterator<BibtexEntry> matches() {
 		return matches.iterator();
 	}
+
+	/**
+	 * Finds the entries of the database the rule gives a score above zero.
+	 * If the rule can name its candidates from the database's search index,
+	 * only these are tested. Large numbers of entries are tested in blocks
+	 * on all processors.
+	 *
+	 * @return the matching entries, in the order they were tested.
+	 */
+	public static List<BibtexEntry> findMatches(BibtexDatabase database, final SearchRule rule,
+			final Map<String, String> searchStrings) {
+		Collection<BibtexEntry> candidates = null;
+		if (rule instanceof IndexedSearchRule)
+			candidates = ((IndexedSearchRule) rule).getCandidates(searchStrings, database);
+		if (candidates == null)
+			candidates = database.getEntries();
+		final BibtexEntry[] entries = candidates.toArray(new BibtexEntry[candidates.size()]);
+
+		if ((entries.length <= BLOCK_SIZE) || (Runtime.getRuntime().availableProcessors() < 2))
+			return findMatches(rule, searchStrings, entries, 0, entries.length);
+
+		List<BibtexEntry> result = new ArrayList<BibtexEntry>();
+		try {
+			for (List<BibtexEntry> matches : Parallel.map(entries.length, BLOCK_SIZE,
+					new Parallel.Block<List<BibtexEntry>, RuntimeException>() {
+						public List<BibtexEntry> process(int start, int end) {
+							return findMatches(rule, searchStrings, entries, start, end);
+						}
+					}))
+				result.addAll(matches);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		return result;
+	}
+
+	private static List<BibtexEntry> findMatches(SearchRule rule, Map<String, String> searchStrings,
+			BibtexEntry[] entries, int start, int end) {
+		List<BibtexEntry> result = new ArrayList<BibtexEntry>();
+		for (int i = start; i < end; i++) {
+			if (rule.applyRule(searchStrings, entries[i]) > 0)
+				result.add(entries[i]);
+		}
+		return result;
+	}
 }
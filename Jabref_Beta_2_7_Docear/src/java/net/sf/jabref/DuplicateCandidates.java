@@ -0,0 +1,277 @@
+package net.sf.jabref;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Finds the entries that may be duplicates of a given entry according to
+ * DuplicateCheck.isDuplicate(), without comparing it to all other entries.
+ *
+ * Two entries can only reach the duplicate threshold if a certain share of
+ * the fields isDuplicate() weighs most (the required fields of their type)
+ * compare equal. So every entry is indexed by the comparison keys of these
+ * fields, and the entries sharing enough keys with the given one are its
+ * candidates. Only for these isDuplicate() has to be called.
+ *
+ * If the threshold is so low that entries without any equal field can be
+ * duplicates, all entries of the same type are candidates.
+ *
+ * Any number of threads may look candidates up at once; only changes of the
+ * database wait for the lookups, and the lookups for the changes.
+ */
+public class DuplicateCandidates implements DatabaseChangeListener {
+
+    // Allows for rounding in the float arithmetic of isDuplicate():
+    private static final double EPSILON = 1e-6;
+
+    /**
+     * How many of which fields must be equal for two entries of one type to be
+     * duplicates.
+     */
+    private static class Rule {
+        // The fields to index, or null if all entries of the type are candidates:
+        String[] fields;
+        // The share of these fields, non-empty in one of the entries, that must be equal:
+        double minRatio;
+        // The field sets the rule has been derived from:
+        String[] required, optional;
+        float threshold;
+    }
+
+    private static class Indexed {
+        final BibtexEntryType type;
+        final String[] keys;
+        final int serial;
+
+        Indexed(BibtexEntryType type, String[] keys, int serial) {
+            this.type = type;
+            this.keys = keys;
+            this.serial = serial;
+        }
+    }
+
+    private final Map<BibtexEntryType, Rule> rules = new ConcurrentHashMap<BibtexEntryType, Rule>();
+    private final Map<String, Set<BibtexEntry>> keys = new HashMap<String, Set<BibtexEntry>>();
+    private final Map<BibtexEntryType, Set<BibtexEntry>> types = new HashMap<BibtexEntryType, Set<BibtexEntry>>();
+    private final Map<BibtexEntry, Indexed> entries = new HashMap<BibtexEntry, Indexed>();
+    private int serial = 0;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Comparator<BibtexEntry> bySerial = new Comparator<BibtexEntry>() {
+        public int compare(BibtexEntry one, BibtexEntry two) {
+            return entries.get(one).serial - entries.get(two).serial;
+        }
+    };
+
+    /**
+     * Indexes the given entries. Candidates are returned in the order of this
+     * collection.
+     */
+    public DuplicateCandidates(Collection<BibtexEntry> entries) {
+        for (BibtexEntry entry : entries)
+            add(entry);
+    }
+
+    /**
+     * Indexes the entries of the given database, and keeps the index up to date
+     * while the database changes.
+     */
+    public DuplicateCandidates(BibtexDatabase database) {
+        lock.writeLock().lock();
+        try {
+            for (BibtexEntry entry : database.getEntries())
+                add(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        database.addDatabaseChangeListener(this);
+    }
+
+    public void databaseChanged(DatabaseChangeEvent e) {
+        BibtexEntry entry = e.getEntry();
+        if (entry == null)
+            return;
+        lock.writeLock().lock();
+        try {
+            if (e.getType() == DatabaseChangeEvent.ADDED_ENTRY)
+                add(entry);
+            else if (e.getType() == DatabaseChangeEvent.REMOVED_ENTRY)
+                remove(entry);
+            else if (e.getType() == DatabaseChangeEvent.CHANGED_ENTRY) {
+                remove(entry);
+                add(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether the index still follows the current duplicate threshold
+     * and field definitions of the given type.
+     */
+    public boolean isValid(BibtexEntryType type) {
+        Rule rule = rules.get(type);
+        return (rule == null) || ((rule.threshold == Globals.duplicateThreshold)
+            && Arrays.equals(rule.required, type.getRequiredFields())
+            && Arrays.equals(rule.optional, type.getOptionalFields()));
+    }
+
+    /**
+     * Returns the indexed entries that may be duplicates of the given entry.
+     * The entry itself is never returned.
+     */
+    public List<BibtexEntry> getCandidates(BibtexEntry entry) {
+        BibtexEntryType type = entry.getType();
+        Rule rule = getRule(type);
+        lock.readLock().lock();
+        try {
+            return getCandidates(entry, type, rule);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<BibtexEntry> getCandidates(BibtexEntry entry, BibtexEntryType type, Rule rule) {
+        List<BibtexEntry> result = new ArrayList<BibtexEntry>();
+        if (rule.fields == null) {
+            Set<BibtexEntry> sameType = types.get(type);
+            if (sameType != null)
+                result.addAll(sameType);
+            result.remove(entry);
+        } else {
+            String[] entryKeys = getKeys(entry, rule);
+            HashMap<BibtexEntry, int[]> counts = new HashMap<BibtexEntry, int[]>();
+            for (String key : entryKeys) {
+                Set<BibtexEntry> others = keys.get(key);
+                if (others == null)
+                    continue;
+                for (BibtexEntry other : others) {
+                    int[] count = counts.get(other);
+                    if (count == null)
+                        counts.put(other, new int[] {1});
+                    else
+                        count[0]++;
+                }
+            }
+            for (Map.Entry<BibtexEntry, int[]> count : counts.entrySet()) {
+                BibtexEntry other = count.getKey();
+                int fields = Math.max(entryKeys.length, entries.get(other).keys.length);
+                if ((other != entry) && (count.getValue()[0] >= rule.minRatio * fields - EPSILON))
+                    result.add(other);
+            }
+        }
+        Collections.sort(result, bySerial);
+        return result;
+    }
+
+    private void add(BibtexEntry entry) {
+        BibtexEntryType type = entry.getType();
+        String[] entryKeys = getKeys(entry, getRule(type));
+        entries.put(entry, new Indexed(type, entryKeys, serial++));
+        put(types, type, entry);
+        for (String key : entryKeys)
+            put(keys, key, entry);
+    }
+
+    private void remove(BibtexEntry entry) {
+        Indexed indexed = entries.remove(entry);
+        if (indexed == null)
+            return;
+        remove(types, indexed.type, entry);
+        for (String key : indexed.keys)
+            remove(keys, key, entry);
+    }
+
+    private String[] getKeys(BibtexEntry entry, Rule rule) {
+        if (rule.fields == null)
+            return new String[0];
+        List<String> result = new ArrayList<String>(rule.fields.length);
+        for (String field : rule.fields) {
+            String value = entry.getField(field);
+            if (value == null)
+                continue;
+            String key = DuplicateCheck.getComparisonKey(field, value);
+            if (key != null)
+                result.add(entry.getType().getName() + '\u0000' + field + '\u0000' + key);
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    /**
+     * Derives from the scoring of isDuplicate() how many fields must be equal
+     * for entries of the given type to be duplicates. isDuplicate() returns
+     * (2 * req + opt) / 3 >= threshold, where req and opt are the shares of
+     * equal fields among the required and optional fields non-empty in either
+     * entry, and 0.5 if there are none. Without required fields it is
+     * opt >= threshold, without optional fields req >= threshold.
+     */
+    private Rule getRule(BibtexEntryType type) {
+        Rule rule = rules.get(type);
+        if (rule != null)
+            return rule;
+        rule = new Rule();
+        rule.required = type.getRequiredFields();
+        rule.optional = type.getOptionalFields();
+        rule.threshold = Globals.duplicateThreshold;
+        double t = rule.threshold;
+        double emptyScore;
+        if ((rule.required != null) && (rule.required.length > 0)) {
+            rule.fields = rule.required;
+            if (rule.optional != null) {
+                // opt is at most 1:
+                rule.minRatio = (3 * t - 1) / 2;
+                emptyScore = (2 * 0.5 + 1) / 3;
+            } else {
+                rule.minRatio = t;
+                emptyScore = 0.5;
+            }
+        } else if ((rule.optional != null) && (rule.optional.length > 0)) {
+            rule.fields = rule.optional;
+            if (rule.required != null) {
+                // No required fields count as req = 0.5:
+                rule.minRatio = 3 * t - 1;
+                emptyScore = (2 * 0.5 + 0.5) / 3;
+            } else {
+                rule.minRatio = t;
+                emptyScore = 0.5;
+            }
+        } else
+            emptyScore = 1;
+        // If entries without equal fields may reach the threshold, nothing can be ruled out:
+        if ((emptyScore >= t - EPSILON) || (rule.minRatio <= 0))
+            rule.fields = null;
+        // Threads deriving the rule of a type at once derive the same one:
+        rules.put(type, rule);
+        return rule;
+    }
+
+    private static <K> void put(Map<K, Set<BibtexEntry>> map, K key, BibtexEntry entry) {
+        Set<BibtexEntry> set = map.get(key);
+        if (set == null) {
+            set = new LinkedHashSet<BibtexEntry>();
+            map.put(key, set);
+        }
+        set.add(entry);
+    }
+
+    private static <K> void remove(Map<K, Set<BibtexEntry>> map, K key, BibtexEntry entry) {
+        Set<BibtexEntry> set = map.get(key);
+        if (set == null)
+            return;
+        set.remove(entry);
+        if (set.isEmpty())
+            map.remove(key);
+    }
+}
@@ -2,12 +2,18 @@ package net.sf.jabref;
 
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * This class contains utility method for duplicate checking of entries.
  */
 public class DuplicateCheck {
 
+    // The candidate indexes of the databases searched by containsDuplicate():
+    private static final Map<BibtexDatabase, DuplicateCandidates> candidates =
+        new WeakHashMap<BibtexDatabase, DuplicateCandidates>();
+
 
     /**
      * Checks if the two entries represent the same publication.
@@ -69,29 +75,32 @@ public class DuplicateCheck {
                 return Util.EMPTY_IN_ONE;
         } else if (s2 == null)
             return Util.EMPTY_IN_TWO;
-        s1 = s1.toLowerCase();
-        s2 = s2.toLowerCase();
-        // Util.pr(field+": '"+s1+"' vs '"+s2+"'");
+        String key1 = getComparisonKey(field, s1), key2 = getComparisonKey(field, s2);
+        if ((key1 != null) && key1.equals(key2))
+            return Util.EQUAL;
+        else
+            return Util.NOT_EQUAL;
+    }
+
+    /**
+     * Reduces a field value to the part compared when checking for duplicates:
+     * two values of a field are considered equal exactly if their keys are equal.
+     *
+     * @return the key, or null if the value can't equal any other.
+     */
+    static String getComparisonKey(String field, String value) {
+        // Harmonise case:
+        value = value.toLowerCase();
         if (field.equals("author") || field.equals("editor")) {
             // Specific for name fields.
-            // Harmonise case:
-            String[] aus1 = AuthorList.fixAuthor_lastNameFirst(s1).split(" and "), aus2 = AuthorList
-                    .fixAuthor_lastNameFirst(s2).split(" and "), au1 = aus1[0].split(","), au2 = aus2[0]
-                    .split(",");
-
             // Can check number of authors, all authors or only the first.
-            if ((aus1.length > 0) && (aus1.length == aus2.length)
-                    && au1[0].trim().equals(au2[0].trim()))
-                return Util.EQUAL;
-            else
-                return Util.NOT_EQUAL;
-        } else {
-            if (s1.trim().equals(s2.trim()))
-                return Util.EQUAL;
-            else
-                return Util.NOT_EQUAL;
-        }
-
+            String[] aus = AuthorList.fixAuthor_lastNameFirst(value).split(" and ");
+            if (aus.length == 0)
+                return null;
+            String[] au = aus[0].split(",");
+            return aus.length + ":" + (au.length > 0 ? au[0].trim() : "");
+        } else
+            return value.trim();
     }
 
     public static double compareEntriesStrictly(BibtexEntry one, BibtexEntry two) {
@@ -117,20 +126,40 @@ public class DuplicateCheck {
     }
 
     /**
-     * Goes through all entries in the given database, and if at least one of
+     * Goes through the entries in the given database, and if at least one of
      * them is a duplicate of the given entry, as per
      * Util.isDuplicate(BibtexEntry, BibtexEntry), the duplicate is returned.
-     * The search is terminated when the first duplicate is found.
+     * The search is terminated when the first duplicate is found. Only the
+     * candidates found by a DuplicateCandidates index, kept per database, are
+     * compared.
      *
      * @param database The database to search.
      * @param entry    The entry of which we are looking for duplicates.
      * @return The first duplicate entry found. null if no duplicates are found.
      */
     public static BibtexEntry containsDuplicate(BibtexDatabase database, BibtexEntry entry) {
-        for (BibtexEntry other : database.getEntries()) {
+        for (BibtexEntry other : getCandidates(database, entry).getCandidates(entry)) {
             if (isDuplicate(entry, other))
                 return other; // Duplicate found.
         }
         return null; // No duplicate found.
 	}
+
+    /**
+     * Returns the candidate index of the given database, creating it on first use.
+     * It is created anew if the duplicate threshold or the fields of the entry's
+     * type have changed since.
+     */
+    private static DuplicateCandidates getCandidates(BibtexDatabase database, BibtexEntry entry) {
+        synchronized (candidates) {
+            DuplicateCandidates result = candidates.get(database);
+            if ((result == null) || !result.isValid(entry.getType())) {
+                if (result != null)
+                    database.removeDatabaseChangeListener(result);
+                result = new DuplicateCandidates(database);
+                candidates.put(database, result);
+            }
+            return result;
+        }
+    }
 }
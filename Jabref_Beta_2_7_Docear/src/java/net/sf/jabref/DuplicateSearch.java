@@ -34,13 +34,17 @@ http://www.gnu.org/copyleft/gpl.ja.html
 package net.sf.jabref;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Vector;
 
 import javax.swing.SwingUtilities;
 
 import net.sf.jabref.undo.NamedCompound;
 import net.sf.jabref.undo.UndoableRemoveEntry;
+import net.sf.jabref.util.Parallel;
 import spin.Spin;
 
 public class DuplicateSearch extends Thread {
@@ -157,26 +161,48 @@ public void run() {
 }
 
 
+/**
+ * Compares each entry to the later entries that DuplicateCandidates finds for it,
+ * instead of to all later entries. The entries are compared in blocks on all
+ * processors, and the pairs found are reported block by block in the order of
+ * the entries, as if compared one after the other.
+ */
 class SearcherThread extends Thread {
 
-  private boolean finished = false;
+  private static final int BLOCK_SIZE = 200;
+
+  private volatile boolean finished = false;
+  private DuplicateCandidates candidates;
+  private final IdentityHashMap<BibtexEntry, Integer> positions =
+    new IdentityHashMap<BibtexEntry, Integer>();
 
   public void run() {
-    for (int i = 0; (i < bes.length - 1) && !finished ; i++) {
-      for (int j = i + 1; (j < bes.length) && !finished ; j++) {
-        boolean eq = DuplicateCheck.isDuplicate(bes[i], bes[j]
-        );
-
-        // If (suspected) duplicates, add them to the duplicates vector.
-        if (eq)
-        {
-          synchronized (duplicates)
-          {
-            duplicates.add( new BibtexEntry[] {bes[i], bes[j]} ) ;
-            duplicates.notifyAll(); // send wake up all
+    candidates = new DuplicateCandidates(Arrays.asList(bes));
+    for (int i = 0; i < bes.length; i++)
+      positions.put(bes[i], i);
+
+    try {
+      Parallel.map(Parallel.getExecutor(), bes.length - 1, BLOCK_SIZE, Integer.MAX_VALUE,
+        new Parallel.Block<List<BibtexEntry[]>, RuntimeException>() {
+          public List<BibtexEntry[]> process(int start, int end) {
+            return search(start, end);
           }
-        }
-      }
+        },
+        new Parallel.Receiver<List<BibtexEntry[]>, RuntimeException>() {
+          public void receive(List<BibtexEntry[]> found) {
+            // If (suspected) duplicates, add them to the duplicates vector.
+            if (!finished && !found.isEmpty())
+            {
+              synchronized (duplicates)
+              {
+                duplicates.addAll(found);
+                duplicates.notifyAll(); // send wake up all
+              }
+            }
+          }
+        });
+    } catch (Exception e) {
+      e.printStackTrace();
     }
     finished = true;
 
@@ -187,6 +213,19 @@ class SearcherThread extends Thread {
     }
   }
 
+  private List<BibtexEntry[]> search(int start, int end) {
+    List<BibtexEntry[]> found = new ArrayList<BibtexEntry[]>();
+    for (int i = start; (i < end) && !finished ; i++) {
+      for (BibtexEntry other : candidates.getCandidates(bes[i])) {
+        if (finished)
+          break;
+        if ((positions.get(other) > i) && DuplicateCheck.isDuplicate(bes[i], other))
+          found.add(new BibtexEntry[] {bes[i], other});
+      }
+    }
+    return found;
+  }
+
   public boolean finished() {
     return finished;
   }
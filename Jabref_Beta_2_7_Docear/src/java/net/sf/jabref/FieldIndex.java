@@ -0,0 +1,179 @@
+package net.sf.jabref;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import net.sf.jabref.gui.FileListTableModel;
+
+/**
+ * Maps the normalized values of one field to the entries containing them.
+ * BibtexDatabase keeps its indexes up to date through the change listener
+ * it registers on every entry.
+ */
+abstract class FieldIndex {
+
+    private static final Pattern URL_SCHEME = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]*:/*");
+    private static final Pattern DOI_PREFIX =
+        Pattern.compile("^(doi:\\s*|https?://(dx\\.)?doi\\.org/)", Pattern.CASE_INSENSITIVE);
+
+    private final String field;
+    private final HashMap<String, List<BibtexEntry>> entries = new HashMap<String, List<BibtexEntry>>();
+
+    FieldIndex(String field) {
+        this.field = field;
+    }
+
+    String getField() {
+        return field;
+    }
+
+    /**
+     * Returns the index keys for the given field content.
+     */
+    abstract Collection<String> getKeys(String value);
+
+    void add(BibtexEntry entry) {
+        add(entry, entry.getField(field));
+    }
+
+    void remove(BibtexEntry entry) {
+        remove(entry, entry.getField(field));
+    }
+
+    void update(BibtexEntry entry, String oldValue, String newValue) {
+        remove(entry, oldValue);
+        add(entry, newValue);
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the entries with the given index key, which must already be normalized.
+     */
+    List<BibtexEntry> get(String key) {
+        List<BibtexEntry> found = entries.get(key);
+        if (found == null)
+            return Collections.emptyList();
+        return found;
+    }
+
+    private void add(BibtexEntry entry, String value) {
+        if (value == null)
+            return;
+        for (String key : getKeys(value)) {
+            List<BibtexEntry> list = entries.get(key);
+            if (list == null) {
+                list = new ArrayList<BibtexEntry>(1);
+                entries.put(key, list);
+            }
+            if (!list.contains(entry))
+                list.add(entry);
+        }
+    }
+
+    private void remove(BibtexEntry entry, String value) {
+        if (value == null)
+            return;
+        for (String key : getKeys(value)) {
+            List<BibtexEntry> list = entries.get(key);
+            if (list == null)
+                continue;
+            list.remove(entry);
+            if (list.isEmpty())
+                entries.remove(key);
+        }
+    }
+
+    private static Collection<String> single(String key) {
+        if (key == null || key.length() == 0)
+            return Collections.emptyList();
+        return Collections.singletonList(key);
+    }
+
+    /**
+     * Index of the bibtex keys.
+     */
+    static FieldIndex createKeyIndex() {
+        return new FieldIndex(BibtexFields.KEY_FIELD) {
+            Collection<String> getKeys(String value) {
+                return single(value);
+            }
+        };
+    }
+
+    /**
+     * Index of the names of linked files, so that relative and absolute
+     * links to the same file are found alike.
+     */
+    static FieldIndex createFileIndex() {
+        return new FieldIndex(GUIGlobals.FILE_FIELD) {
+            Collection<String> getKeys(String value) {
+                ArrayList<String> keys = new ArrayList<String>();
+                for (String link : FileListTableModel.getLinks(value)) {
+                    String key = normalizeFileName(link);
+                    if (key != null && !keys.contains(key))
+                        keys.add(key);
+                }
+                return keys;
+            }
+        };
+    }
+
+    static FieldIndex createUrlIndex() {
+        return new FieldIndex("url") {
+            Collection<String> getKeys(String value) {
+                return single(normalizeUrl(value));
+            }
+        };
+    }
+
+    static FieldIndex createDoiIndex() {
+        return new FieldIndex("doi") {
+            Collection<String> getKeys(String value) {
+                return single(normalizeDoi(value));
+            }
+        };
+    }
+
+    /**
+     * Returns the lower case name of the file, without its directory.
+     */
+    static String normalizeFileName(String path) {
+        if (path == null)
+            return null;
+        String name = path.trim();
+        int separator = Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\'));
+        name = name.substring(separator + 1);
+        if (name.length() == 0)
+            return null;
+        return name.toLowerCase();
+    }
+
+    /**
+     * Removes the scheme and a trailing slash, so that "http://a.org/" and
+     * "https://a.org" are the same, as are "file:/a.pdf" and "file:///a.pdf".
+     */
+    static String normalizeUrl(String url) {
+        if (url == null)
+            return null;
+        String normalized = URL_SCHEME.matcher(url.trim()).replaceFirst("");
+        if (normalized.endsWith("/"))
+            normalized = normalized.substring(0, normalized.length() - 1);
+        return normalized;
+    }
+
+    /**
+     * DOIs are case insensitive and are often given as resolver links.
+     */
+    static String normalizeDoi(String doi) {
+        if (doi == null)
+            return null;
+        return DOI_PREFIX.matcher(doi.trim()).replaceFirst("").toLowerCase();
+    }
+}
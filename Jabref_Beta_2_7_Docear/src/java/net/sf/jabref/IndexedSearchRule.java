@@ -0,0 +1,18 @@
+package net.sf.jabref;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A search rule that can name the entries of a database it may match, using
+ * the database's search index, so that it need not be applied to the others.
+ */
+public interface IndexedSearchRule extends SearchRule {
+
+    /**
+     * @return the entries that may match, or null if the rule can't narrow
+     *         them down.
+     */
+    public Collection<BibtexEntry> getCandidates(Map<String, String> searchStrings,
+        BibtexDatabase database);
+}
@@ -207,6 +207,8 @@ public class JabRefPreferences {
         defaults.put("exportWorkingDirectory", System.getProperty("user.home"));
         defaults.put("importWorkingDirectory", System.getProperty("user.home"));
         defaults.put("fileWorkingDirectory", System.getProperty("user.home"));
+        // The directory JabRef keeps its own files in, such as caches:
+        defaults.put("userDirectory", System.getProperty("user.home")+File.separator+".jabref");
         defaults.put("autoOpenForm", Boolean.TRUE);
         defaults.put("entryTypeFormHeightFactor", new Integer(1));
         defaults.put("entryTypeFormWidth", new Integer(1));
@@ -424,6 +426,11 @@ public class JabRefPreferences {
 
         defaults.put("allowFileAutoOpenBrowse", Boolean.TRUE);
 
+        // The number of rows sent to an SQL database at once, and whether to
+        // write only the entries changed since the last export:
+        defaults.put("sqlBatchSize", new Integer(500));
+        defaults.put("sqlSyncChangedEntries", Boolean.FALSE);
+
         //defaults.put("lastAutodetectedImport", "");
 
         //defaults.put("autoRemoveExactDuplicates", Boolean.FALSE);
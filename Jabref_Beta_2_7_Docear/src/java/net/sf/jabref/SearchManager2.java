@@ -433,25 +433,26 @@ public class SearchManager2 extends SidePaneComponent
         public void run() {
             if (!searchAllBases.isSelected()) {
                 // Search only the current database:
-                for (BibtexEntry entry : panel.getDatabase().getEntries()){
-                    boolean hit = rules.applyRule(searchTerm, entry) > 0;
-                    entry.setSearchHit(hit);
-                    if (hit) hits++;
-                }
+                search(panel.getDatabase());
             }
             else {
                 // Search all databases:
                 for (int i=0; i<frame.getTabbedPane().getTabCount(); i++) {
                     BasePanel p = frame.baseAt(i);
-                    for (BibtexEntry entry : p.getDatabase().getEntries()){
-                        boolean hit = rules.applyRule(searchTerm, entry) > 0;
-                        entry.setSearchHit(hit);
-                        if (hit) hits++;
-                    }
+                    search(p.getDatabase());
                 }
             }
         }
 
+        private void search(BibtexDatabase database) {
+            for (BibtexEntry entry : database.getEntries())
+                entry.setSearchHit(false);
+            for (BibtexEntry entry : DatabaseSearch.findMatches(database, rules, searchTerm)) {
+                entry.setSearchHit(true);
+                hits++;
+            }
+        }
+
         public void update() {
             panel.output(Globals.lang("Searched database. Number of hits")
                     + ": " + hits);
@@ -26,12 +26,14 @@
  */
 package net.sf.jabref;
 
+import java.util.Collection;
 import java.util.Enumeration;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Vector;
 import java.util.regex.PatternSyntaxException;
 
-public class SearchRuleSet implements SearchRule {
+public class SearchRuleSet implements IndexedSearchRule {
     protected Vector<SearchRule> ruleSet = new Vector<SearchRule>();
 
     public void addRule(SearchRule newRule) {
@@ -52,6 +54,25 @@ public class SearchRuleSet implements SearchRule {
         return score;
     }
 
+    /**
+     * An entry matches the set if it matches one of the rules, so the candidates
+     * are those of all rules. If a rule can't name its candidates, neither can the set.
+     */
+    public Collection<BibtexEntry> getCandidates(Map<String, String> searchStrings,
+        BibtexDatabase database) {
+        Collection<BibtexEntry> candidates = new LinkedHashSet<BibtexEntry>();
+        for (SearchRule rule : ruleSet) {
+            if (!(rule instanceof IndexedSearchRule))
+                return null;
+            Collection<BibtexEntry> ruleCandidates =
+                ((IndexedSearchRule)rule).getCandidates(searchStrings, database);
+            if (ruleCandidates == null)
+                return null;
+            candidates.addAll(ruleCandidates);
+        }
+        return candidates;
+    }
+
     public boolean validateSearchStrings(Map<String, String> searchStrings) {
         Enumeration<SearchRule> e = ruleSet.elements();
         while (e.hasMoreElements()) {
@@ -26,11 +26,13 @@
  */
 package net.sf.jabref;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 
 import net.sf.jabref.export.layout.format.RemoveLatexCommands;
 
-public class SimpleSearchRule implements SearchRule {
+public class SimpleSearchRule implements IndexedSearchRule {
 
     final boolean m_caseSensitiveSearch;
     //static RemoveBrackets removeBrackets = new RemoveBrackets();
@@ -44,6 +46,12 @@ public class SimpleSearchRule implements SearchRule {
         return true;
     }
 
+    public Collection<BibtexEntry> getCandidates(Map<String, String> searchStrings,
+        BibtexDatabase database) {
+        String searchString = searchStrings.values().iterator().next();
+        return database.getSearchIndex().getCandidates(Collections.singletonList(searchString));
+    }
+
     public int applyRule(Map<String, String> searchStrings, BibtexEntry bibtexEntry) {
         String searchString = searchStrings.values().iterator().next();
 
@@ -69,6 +69,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -95,6 +96,7 @@ import net.sf.jabref.autocompleter.AbstractAutoCompleter;
 import net.sf.jabref.export.SaveSession;
 import net.sf.jabref.external.ExternalFileType;
 import net.sf.jabref.external.ExternalFileTypeEntryEditor;
+import net.sf.jabref.external.FileIndex;
 import net.sf.jabref.external.UnknownExternalFileType;
 import net.sf.jabref.groups.AbstractGroup;
 import net.sf.jabref.groups.KeywordGroup;
@@ -1050,78 +1052,60 @@ public static boolean openExternalFileUnknown(JabRefFrame frame, BibtexEntry ent
 		// First scan directories
 		Set<File> filesWithExtension = findFiles(extensions, directories);
 		
-		// Initialize Result-Set
+		// Initialize Result-Set, and index the entries by key. Where several
+		// entries have the same key, or several keys match a file, the entry
+		// that comes first wins:
+		List<BibtexEntry> keyed = new ArrayList<BibtexEntry>();
+		Map<String, Integer> keyPositions = new HashMap<String, Integer>();
+		SortedSet<Integer> keyLengths = new TreeSet<Integer>();
 		for (BibtexEntry entry : entries){
 			result.put(entry, new ArrayList<File>());
+			String citeKey = entry.getCiteKey();
+			if ((citeKey != null) && (citeKey.length() > 0) && !keyPositions.containsKey(citeKey)) {
+				keyPositions.put(citeKey, keyed.size());
+				keyed.add(entry);
+				keyLengths.add(citeKey.length());
+			}
 		}
 
         boolean exactOnly = Globals.prefs.getBoolean("autolinkExactKeyOnly");
         // Now look for keys
-		nextFile:
 		for (File file : filesWithExtension){
 			
 			String name = file.getName();
             int dot = name.lastIndexOf('.');
             // First, look for exact matches:
-            for (BibtexEntry entry : entries){
-                String citeKey = entry.getCiteKey();
-                if ((citeKey != null) && (citeKey.length() > 0)) {
-                    if (dot > 0) {
-                        if (name.substring(0, dot).equals(citeKey)) {
-                            result.get(entry).add(file);
-                            continue nextFile;
-                        }
-                    }
-                }
-            }
-            // If we get here, we didn't find any exact matches. If non-exact
-            // matches are allowed, try to find one:
-            if (!exactOnly) {
-                for (BibtexEntry entry : entries){
-                    String citeKey = entry.getCiteKey();
-                    if ((citeKey != null) && (citeKey.length() > 0)) {
-                        if (name.startsWith(citeKey)){
-                            result.get(entry).add(file);
-                            continue nextFile;
-                        }
-                    }
+            Integer match = null;
+            if (dot > 0)
+                match = keyPositions.get(name.substring(0, dot));
+            // If we get here without an exact match, and non-exact matches
+            // are allowed, try to find one among the keys the name starts with:
+            if ((match == null) && !exactOnly) {
+                for (int length : keyLengths.headSet(name.length() + 1)) {
+                    Integer position = keyPositions.get(name.substring(0, length));
+                    if ((position != null) && ((match == null) || (position < match)))
+                        match = position;
                 }
             }
+            if (match != null)
+                result.get(keyed.get(match)).add(file);
 		}
 		
 		return result;
 	}
 	
+	/**
+	 * Returns the files with the given extensions in the given directories
+	 * and all directories below them.
+	 */
 	public static Set<File> findFiles(Collection<String> extensions, Collection<File> directories) {
-		Set<File> result = new HashSet<File>();
-		
-		for (File directory : directories){
-			result.addAll(findFiles(extensions, directory));
-		}
-		
-		return result;
-	}
-
-	private static Collection<? extends File> findFiles(Collection<String> extensions, File directory) {
-		Set<File> result = new HashSet<File>();
+		Set<File> result = new LinkedHashSet<File>();
 		
-		File[] children = directory.listFiles();
-		if (children == null)
-			return result; // No permission?
-
-		for (File child : children){
-			if (child.isDirectory()) {
-				result.addAll(findFiles(extensions, child));
-			} else {
-				
-				String extension = getFileExtension(child);
-					
-				if (extension != null){
-					if (extensions.contains(extension)){
-						result.add(child);
-					}
-				}
-			}
+		FileIndex index = FileIndex.getInstance();
+		index.newSearch();
+		for (FileIndex.IndexedFile file : index.getAllFiles(directories)){
+			if ((file.extension != null) && extensions.contains(file.extension))
+				result.add(file.file);
 		}
 		
 		return result;
@@ -1,7 +1,11 @@
 package net.sf.jabref.autocompleter;
 
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import net.sf.jabref.BibtexEntry;
 
@@ -18,44 +22,49 @@ public abstract class AbstractAutoCompleter {
 
 	public static final int SHORTEST_TO_COMPLETE = 2;
 	public static final int SHORTEST_WORD = 4;
+	// The number of completions offered at most:
+	public static final int MAX_COMPLETIONS = 50;
 
-	private TreeSet<String> _index = new TreeSet<String>();
+	private CompletionTrie _index = new CompletionTrie();
+
+	// The words each entry has added, taken back when the entry is added again
+	// or removed:
+	private Map<BibtexEntry, String[]> _entryWords = new HashMap<BibtexEntry, String[]>();
 
 	/**
 	 * Add a BibtexEntry to this autocompleter. The autocompleter (respectively
 	 * to the concrete implementations of {@link AbstractAutoCompleter}) itself
 	 * decides which information should be stored for later completion.
 	 * 
+	 * Adding an entry again, e.g. after it has been edited, replaces the words
+	 * it added before.
 	 */
 	abstract public void addBibtexEntry(BibtexEntry entry);
 
+	/**
+	 * Takes back the words the given entry has added, e.g. after it has been
+	 * removed from the database.
+	 */
+	public void removeBibtexEntry(BibtexEntry entry) {
+		setEntryWords(entry, Collections.<String>emptyList());
+	}
+
 	abstract public boolean isSingleUnitField();
 
 	/**
 	 * Returns one or more possible completions for a given String. The returned
 	 * completion depends on which informations were stored while adding
 	 * BibtexEntries by the used implementation of {@link AbstractAutoCompleter}
-	 * .
+	 * . The words used most often come first, and at most MAX_COMPLETIONS are
+	 * returned.
 	 * 
 	 * @see AbstractAutoCompleter#addBibtexEntry(BibtexEntry)
 	 */
 	public String[] complete(String str) {
 		if (stringMinLength(str))
 			return null;
-		String ender = incrementLastCharacter(str);
-		SortedSet<String> subset = _index.subSet(str, ender);
-		return subset.toArray(new String[0]);
-	}
-
-	/*
-	 * Increments the last character of a string.
-	 * 
-	 * Example: incrementLastCharacter("abc") returns "abd".
-	 */
-	private static String incrementLastCharacter(String str) {
-		char lastChar = str.charAt(str.length() - 1);
-		String ender = str.substring(0, str.length() - 1) + Character.toString((char) (lastChar + 1));
-		return ender;
+		List<String> completions = _index.complete(str, MAX_COMPLETIONS);
+		return completions.toArray(new String[completions.size()]);
 	}
 
 	private static boolean stringMinLength(String str) {
@@ -67,8 +76,29 @@ public abstract class AbstractAutoCompleter {
 			_index.add(word);
 	}
 
+	/**
+	 * Replaces the words the given entry has added to the index by the given
+	 * words. Each word is counted once per entry, so completions are ranked
+	 * by the number of entries using them.
+	 */
+	protected void setEntryWords(BibtexEntry entry, List<String> words) {
+		String[] old = _entryWords.remove(entry);
+		if (old != null)
+			for (int i = 0; i < old.length; i++)
+				_index.remove(old[i]);
+		Set<String> current = new LinkedHashSet<String>();
+		for (String word : words)
+			if (word.length() >= SHORTEST_WORD)
+				current.add(word);
+		if (current.isEmpty())
+			return;
+		for (String word : current)
+			_index.add(word);
+		_entryWords.put(entry, current.toArray(new String[current.size()]));
+	}
+
 	public boolean indexContainsWord(String word) {
-		return _index.contains(word);
+		return _index.getCount(word) > 0;
 	}
 
     public String getPrefix() {
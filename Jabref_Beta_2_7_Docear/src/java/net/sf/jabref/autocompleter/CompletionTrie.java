@@ -0,0 +1,212 @@
+package net.sf.jabref.autocompleter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A prefix tree of words, counting how often each word has been added, that
+ * finds the most frequent completions of a prefix first.
+ *
+ * Every node keeps the highest count below it, so finding the first few
+ * completions only visits the branches they are in, however many words
+ * start with the prefix.
+ */
+public class CompletionTrie {
+
+	private static final char[] NO_CHARS = new char[0];
+	private static final Node[] NO_NODES = new Node[0];
+
+	private static class Node {
+		// The characters leading to the children, in ascending order:
+		char[] chars = NO_CHARS;
+		Node[] children = NO_NODES;
+		// How often the word ending here has been added, and the highest
+		// count of this node and all nodes below:
+		int count, best;
+
+		Node getChild(char c) {
+			int i = indexOf(c);
+			return i < 0 ? null : children[i];
+		}
+
+		Node addChild(char c) {
+			int i = indexOf(c);
+			if (i >= 0)
+				return children[i];
+			i = -i - 1;
+			char[] newChars = new char[chars.length + 1];
+			Node[] newChildren = new Node[children.length + 1];
+			System.arraycopy(chars, 0, newChars, 0, i);
+			System.arraycopy(children, 0, newChildren, 0, i);
+			System.arraycopy(chars, i, newChars, i + 1, chars.length - i);
+			System.arraycopy(children, i, newChildren, i + 1, children.length - i);
+			newChars[i] = c;
+			newChildren[i] = new Node();
+			chars = newChars;
+			children = newChildren;
+			return children[i];
+		}
+
+		void removeChild(char c) {
+			int i = indexOf(c);
+			if (i < 0)
+				return;
+			if (chars.length == 1) {
+				chars = NO_CHARS;
+				children = NO_NODES;
+				return;
+			}
+			char[] newChars = new char[chars.length - 1];
+			Node[] newChildren = new Node[children.length - 1];
+			System.arraycopy(chars, 0, newChars, 0, i);
+			System.arraycopy(children, 0, newChildren, 0, i);
+			System.arraycopy(chars, i + 1, newChars, i, chars.length - i - 1);
+			System.arraycopy(children, i + 1, newChildren, i, children.length - i - 1);
+			chars = newChars;
+			children = newChildren;
+		}
+
+		private int indexOf(char c) {
+			int low = 0, high = chars.length - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				if (chars[mid] < c)
+					low = mid + 1;
+				else if (chars[mid] > c)
+					high = mid - 1;
+				else
+					return mid;
+			}
+			return -(low + 1);
+		}
+
+		void updateBest() {
+			best = count;
+			for (int i = 0; i < children.length; i++)
+				if (children[i].best > best)
+					best = children[i].best;
+		}
+	}
+
+	/**
+	 * A word, or all words below a node, waiting to be returned in the order
+	 * of their counts.
+	 */
+	private static class Candidate implements Comparable<Candidate> {
+		final String text;
+		final Node node; // null for a word
+		final int count;
+
+		Candidate(String text, Node node, int count) {
+			this.text = text;
+			this.node = node;
+			this.count = count;
+		}
+
+		public int compareTo(Candidate other) {
+			if (count != other.count)
+				return count > other.count ? -1 : 1;
+			// Of words equally frequent, the first in alphabetical order comes
+			// first. The words below a node all start with its text, so its
+			// text is never after them:
+			int result = text.compareTo(other.text);
+			if (result != 0)
+				return result;
+			return (node == null) ? ((other.node == null) ? 0 : -1) : ((other.node == null) ? 1 : 0);
+		}
+	}
+
+	private final Node root = new Node();
+
+	private int size = 0;
+
+	/**
+	 * Counts the word once more.
+	 */
+	public void add(String word) {
+		Node[] path = new Node[word.length() + 1];
+		path[0] = root;
+		for (int i = 0; i < word.length(); i++)
+			path[i + 1] = path[i].addChild(word.charAt(i));
+		if (path[word.length()].count++ == 0)
+			size++;
+		for (int i = word.length(); i >= 0; i--)
+			path[i].updateBest();
+	}
+
+	/**
+	 * Counts the word once less, removing it when its count drops to zero.
+	 */
+	public void remove(String word) {
+		Node[] path = getPath(word);
+		if (path == null)
+			return;
+		Node node = path[word.length()];
+		if (--node.count == 0)
+			size--;
+		for (int i = word.length(); i >= 0; i--) {
+			path[i].updateBest();
+			// Remove the nodes that lead to no word any more:
+			if ((i > 0) && (path[i].best == 0))
+				path[i - 1].removeChild(word.charAt(i - 1));
+		}
+	}
+
+	/**
+	 * Returns how often the word has been added, less the times it has been
+	 * removed.
+	 */
+	public int getCount(String word) {
+		Node[] path = getPath(word);
+		return path == null ? 0 : path[word.length()].count;
+	}
+
+	/**
+	 * Returns the number of different words.
+	 */
+	public int size() {
+		return size;
+	}
+
+	private Node[] getPath(String word) {
+		Node[] path = new Node[word.length() + 1];
+		path[0] = root;
+		for (int i = 0; i < word.length(); i++) {
+			path[i + 1] = path[i].getChild(word.charAt(i));
+			if (path[i + 1] == null)
+				return null;
+		}
+		return path[word.length()].count > 0 ? path : null;
+	}
+
+	/**
+	 * Returns at most max words starting with the prefix, the most frequent
+	 * first, and words equally frequent in alphabetical order.
+	 */
+	public List<String> complete(String prefix, int max) {
+		List<String> result = new ArrayList<String>();
+		Node node = root;
+		for (int i = 0; (node != null) && (i < prefix.length()); i++)
+			node = node.getChild(prefix.charAt(i));
+		if ((node == null) || (node.best == 0))
+			return result;
+
+		PriorityQueue<Candidate> candidates = new PriorityQueue<Candidate>();
+		candidates.add(new Candidate(prefix, node, node.best));
+		while (!candidates.isEmpty() && (result.size() < max)) {
+			Candidate candidate = candidates.poll();
+			if (candidate.node == null) {
+				result.add(candidate.text);
+				continue;
+			}
+			Node n = candidate.node;
+			if (n.count > 0)
+				candidates.add(new Candidate(candidate.text, null, n.count));
+			for (int i = 0; i < n.children.length; i++)
+				candidates.add(new Candidate(candidate.text + n.chars[i], n.children[i],
+					n.children[i].best));
+		}
+		return result;
+	}
+}
@@ -1,5 +1,7 @@
 package net.sf.jabref.autocompleter;
 
+import java.util.Collections;
+
 import net.sf.jabref.BibtexEntry;
 
 /**
@@ -33,7 +35,9 @@ public class CrossrefAutoCompleter extends AbstractAutoCompleter {
 			if (entry != null) {
 				String key = entry.getCiteKey();
 				if (key != null)
-					addWordToIndex(key.trim());
+					setEntryWords(entry, Collections.singletonList(key.trim()));
+				else
+					setEntryWords(entry, Collections.<String>emptyList());
 			}
 		}
 	}
@@ -1,5 +1,7 @@
 package net.sf.jabref.autocompleter;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.StringTokenizer;
 
 import net.sf.jabref.BibtexEntry;
@@ -33,16 +35,16 @@ public class DefaultAutoCompleter extends AbstractAutoCompleter {
 	@Override
 	public void addBibtexEntry(BibtexEntry entry) {
 		if (entry != null) {
+			List<String> words = new ArrayList<String>();
 			String fieldValue = entry.getField(_fieldName);
-			if (fieldValue == null) {
-				return;
-			} else {
+			if (fieldValue != null) {
 				StringTokenizer tok = new StringTokenizer(fieldValue.toString(), " .,\n");
 				while (tok.hasMoreTokens()) {
 					String word = tok.nextToken();
-					addWordToIndex(word);
+					words.add(word);
 				}
 			}
+			setEntryWords(entry, words);
 		}
 	}
 }
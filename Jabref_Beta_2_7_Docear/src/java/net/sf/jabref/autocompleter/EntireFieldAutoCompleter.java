@@ -1,5 +1,7 @@
 package net.sf.jabref.autocompleter;
 
+import java.util.Collections;
+
 import net.sf.jabref.BibtexEntry;
 
 /**
@@ -32,8 +34,9 @@ public class EntireFieldAutoCompleter extends AbstractAutoCompleter {
 		if (entry != null) {
 			String fieldValue = entry.getField(_fieldName);
 			if (fieldValue != null) {
-				addWordToIndex(fieldValue.toString().trim());
-			}
+				setEntryWords(entry, Collections.singletonList(fieldValue.toString().trim()));
+			} else
+				setEntryWords(entry, Collections.<String>emptyList());
 		}
 	}
 }
@@ -1,5 +1,8 @@
 package net.sf.jabref.autocompleter;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import net.sf.jabref.AuthorList;
 import net.sf.jabref.BibtexEntry;
 import net.sf.jabref.Globals;
@@ -47,21 +50,23 @@ public class NameFieldAutoCompleter extends AbstractAutoCompleter {
 
 	public void addBibtexEntry(BibtexEntry entry) {
         if (entry != null) {
+			List<String> words = new ArrayList<String>();
 			String fieldValue = entry.getField(_fieldName);
 			if (fieldValue != null) {
 				AuthorList authorList = AuthorList.getAuthorList(fieldValue);
 				for (int i = 0; i < authorList.size(); i++) {
 					AuthorList.Author author = authorList.getAuthor(i);
                     if (autoCompLF) {
-                        addWordToIndex(author.getLastFirst(true));
-                        addWordToIndex(author.getLastFirst(false));
+                        words.add(author.getLastFirst(true));
+                        words.add(author.getLastFirst(false));
                     }
                     if (autoCompFF) {
-                        addWordToIndex(author.getFirstLast(true));
-                        addWordToIndex(author.getFirstLast(false));
+                        words.add(author.getFirstLast(true));
+                        words.add(author.getFirstLast(false));
                     }
 				}
 			}
+			setEntryWords(entry, words);
 		}
 	}
 
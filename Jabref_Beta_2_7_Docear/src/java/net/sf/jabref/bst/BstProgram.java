@@ -0,0 +1,1201 @@
+package net.sf.jabref.bst;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EmptyStackException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.jabref.AuthorList;
+import net.sf.jabref.AuthorList.Author;
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.util.Parallel;
+
+import org.antlr.runtime.ANTLRFileStream;
+import org.antlr.runtime.ANTLRStringStream;
+import org.antlr.runtime.RecognitionException;
+import org.antlr.runtime.tree.CommonTree;
+import org.antlr.runtime.tree.Tree;
+
+/**
+ * A .bst file compiled for fast, repeated execution. It produces the same
+ * output as the VM, which interprets the parse tree directly.
+ *
+ * Every function body is compiled once into an array of instructions, all
+ * names are resolved to slots of the entry and global variables and the
+ * functions when the style is compiled, and built-in functions are called by
+ * number. Values live on a stack of unboxed integers and strings.
+ *
+ * ITERATE and REVERSE commands whose function cannot write any output are run
+ * on blocks of entries in parallel. Each block gets its own copy of the global
+ * variables and its own stack. A block that read a global variable before
+ * writing it, while the blocks before it changed that variable, or that took
+ * values from the stack it had not put there, is run again once the blocks
+ * before it are done. So the result is the same as running the entries one
+ * after the other.
+ *
+ * A BstProgram may be run several times, but not from several threads at once.
+ */
+public class BstProgram implements Warn {
+
+	// Instructions:
+	private static final int PUSH_STRING = 0, PUSH_INTEGER = 1, PUSH_FUNCTION = 2, LOAD = 3,
+		BUILT_IN = 4;
+
+	// Built-in functions, in the order of their numbers:
+	private static final String[] BUILT_INS = { ">", "<", "=", "+", "-", "*", ":=", "add.period$",
+		"call.type$", "change.case$", "chr.to.int$", "cite$", "duplicate$", "empty$", "format.name$",
+		"if$", "int.to.chr$", "int.to.str$", "missing$", "newline$", "num.names$", "pop$",
+		"preamble$", "purify$", "quote$", "skip$", "stack$", "substring$", "swap$", "text.length$",
+		"text.prefix$", "top$", "type$", "warning$", "while$", "width$", "write$" };
+
+	private static final int GREATER = 0, LESS = 1, EQUALS = 2, PLUS = 3, MINUS = 4, CONCAT = 5,
+		ASSIGN = 6, ADD_PERIOD = 7, CALL_TYPE = 8, CHANGE_CASE = 9, CHR_TO_INT = 10, CITE = 11,
+		DUPLICATE = 12, EMPTY = 13, FORMAT_NAME = 14, IF = 15, INT_TO_CHR = 16, INT_TO_STR = 17,
+		MISSING = 18, NEWLINE = 19, NUM_NAMES = 20, POP = 21, PREAMBLE = 22, PURIFY = 23,
+		QUOTE = 24, SKIP = 25, STACK = 26, SUBSTRING = 27, SWAP = 28, TEXT_LENGTH = 29,
+		TEXT_PREFIX = 30, TOP = 31, TYPE = 32, WARNING = 33, WHILE = 34, WIDTH = 35, WRITE = 36;
+
+	// Built-in functions that write to the output or the console:
+	private static final int[] OUTPUT = { NEWLINE, STACK, TOP, WARNING, WRITE };
+
+	// Entries per block when iterating in parallel:
+	private static final int BLOCK_SIZE = 250;
+
+	// Kinds of stack values. Missing fields are strings that are null:
+	private static final byte INTEGER = 0, STRING = 1, FUNCTION = 2;
+
+	/**
+	 * A name of the style, with the slots it may refer to. Like the VM, a name
+	 * is looked up as an entry field, entry string, entry integer, global
+	 * string, global integer and function, in this order.
+	 */
+	private static class Symbol {
+		final String name;
+		int field = -1, entryString = -1, entryInteger = -1, globalString = -1,
+			globalInteger = -1, function = -1, builtIn = -1;
+		// The function bodies ever defined for this name:
+		final List<Code> definitions = new ArrayList<Code>(1);
+
+		Symbol(String name) {
+			this.name = name;
+		}
+
+		public String toString() {
+			return name;
+		}
+	}
+
+	/**
+	 * A compiled function body. Instruction i is ops[i], with ints[i] or
+	 * args[i] as its operand.
+	 */
+	private static class Code {
+		final int[] ops, ints, lines;
+		final Object[] args;
+
+		Code(int size) {
+			ops = new int[size];
+			ints = new int[size];
+			lines = new int[size];
+			args = new Object[size];
+		}
+	}
+
+	// Commands:
+	private static final int STRINGS = 0, INTEGERS = 1, DEFINE = 2, EXECUTE = 3, ITERATE = 4,
+		REVERSE = 5, SORT = 6, READ = 7;
+
+	private static class Command {
+		final int type;
+		Symbol symbol;
+		Code code;
+		int[] slots;
+		// Whether an ITERATE or REVERSE may run in parallel:
+		boolean parallel;
+
+		Command(int type) {
+			this.type = type;
+		}
+	}
+
+	private final Map<String, Symbol> symbols = new HashMap<String, Symbol>();
+	private final List<Command> commands = new ArrayList<Command>();
+	private final List<String> fieldNames = new ArrayList<String>();
+	private final Set<String> readFields = new HashSet<String>();
+	private int entryStrings = 0, entryIntegers = 0, globalStrings = 0, globalIntegers = 0,
+		functions = 0;
+	private final List<Code> builtInCodes = new ArrayList<Code>();
+	private final int sortKey, entryMax, globalMax;
+	// ITERATE and REVERSE functions that had to be run again, and are not tried in parallel again:
+	private final Set<Symbol> sequential = new HashSet<Symbol>();
+
+	private File file;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int warning = 1;
+	PrintStream out = System.out;
+
+	public BstProgram(File f) throws RecognitionException, IOException {
+		this(VM.charStream2CommonTree(new ANTLRFileStream(f.getPath())));
+		this.file = f;
+	}
+
+	public BstProgram(String s) throws RecognitionException {
+		this(VM.charStream2CommonTree(new ANTLRStringStream(s)));
+	}
+
+	public BstProgram(CommonTree tree) {
+		for (int i = 0; i < BUILT_INS.length; i++)
+			getSymbol(BUILT_INS[i]).builtIn = i;
+		entryMax = declareGlobalInteger("entry.max$");
+		globalMax = declareGlobalInteger("global.max$");
+		sortKey = declareEntryString("sort.key$");
+		declareField("crossref");
+
+		// First declare all names, so function bodies can be compiled:
+		for (int i = 0; i < tree.getChildCount(); i++) {
+			Tree child = tree.getChild(i);
+			switch (child.getType()) {
+			case BstParser.ENTRY:
+				for (int j = 0; j < child.getChild(0).getChildCount(); j++) {
+					String name = child.getChild(0).getChild(j).getText();
+					declareField(name);
+					readFields.add(name);
+				}
+				for (int j = 0; j < child.getChild(1).getChildCount(); j++)
+					declareEntryInteger(child.getChild(1).getChild(j).getText());
+				for (int j = 0; j < child.getChild(2).getChildCount(); j++)
+					declareEntryString(child.getChild(2).getChild(j).getText());
+				break;
+			case BstParser.STRINGS:
+				for (int j = 0; j < child.getChild(0).getChildCount(); j++)
+					declareGlobalString(child.getChild(0).getChild(j).getText());
+				break;
+			case BstParser.INTEGERS:
+				for (int j = 0; j < child.getChild(0).getChildCount(); j++)
+					declareGlobalInteger(child.getChild(0).getChild(j).getText());
+				break;
+			case BstParser.FUNCTION:
+			case BstParser.MACRO:
+				declareFunction(child.getChild(0).getText());
+				break;
+			}
+		}
+
+		for (int i = 0; i < tree.getChildCount(); i++) {
+			Tree child = tree.getChild(i);
+			Command command;
+			switch (child.getType()) {
+			case BstParser.STRINGS:
+				command = new Command(STRINGS);
+				command.slots = getSlots(child.getChild(0), false);
+				break;
+			case BstParser.INTEGERS:
+				command = new Command(INTEGERS);
+				command.slots = getSlots(child.getChild(0), true);
+				break;
+			case BstParser.FUNCTION:
+				command = new Command(DEFINE);
+				command.symbol = getSymbol(child.getChild(0).getText());
+				command.code = compile(child.getChild(1));
+				command.symbol.definitions.add(command.code);
+				break;
+			case BstParser.MACRO:
+				command = new Command(DEFINE);
+				command.symbol = getSymbol(child.getChild(0).getText());
+				command.code = new Code(1);
+				command.code.ops[0] = PUSH_STRING;
+				command.code.args[0] = child.getChild(1).getText();
+				command.symbol.definitions.add(command.code);
+				break;
+			case BstParser.EXECUTE:
+				command = new Command(EXECUTE);
+				command.symbol = getSymbol(child.getChild(0).getText());
+				break;
+			case BstParser.ITERATE:
+				command = new Command(ITERATE);
+				command.symbol = getSymbol(child.getChild(0).getText());
+				break;
+			case BstParser.REVERSE:
+				command = new Command(REVERSE);
+				command.symbol = getSymbol(child.getChild(0).getText());
+				break;
+			case BstParser.SORT:
+				command = new Command(SORT);
+				break;
+			case BstParser.READ:
+				command = new Command(READ);
+				break;
+			default:
+				continue;
+			}
+			commands.add(command);
+		}
+
+		// Only now all function definitions are known:
+		for (Command command : commands) {
+			if ((command.type == ITERATE) || (command.type == REVERSE))
+				command.parallel = !mayWriteOutput(command.symbol);
+		}
+	}
+
+	/**
+	 * Sets how many threads ITERATE and REVERSE commands may use. By default,
+	 * one per processor.
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public String run(BibtexDatabase db) {
+		return run(db.getEntries(), db.getPreamble());
+	}
+
+	public String run(Collection<BibtexEntry> bibtex) {
+		return run(bibtex, null);
+	}
+
+	private String run(Collection<BibtexEntry> bibtex, String preamble) {
+		Machine machine = new Machine(preamble);
+		BstEntry[] entries = new BstEntry[bibtex.size()];
+		int n = 0;
+		for (BibtexEntry entry : bibtex)
+			entries[n++] = new BstEntry(entry);
+
+		for (Command command : commands) {
+			switch (command.type) {
+			case STRINGS:
+				for (int slot : command.slots)
+					machine.strings[slot] = null;
+				break;
+			case INTEGERS:
+				for (int slot : command.slots)
+					machine.integers[slot] = 0;
+				break;
+			case DEFINE:
+				machine.functions[command.symbol.function] = command.code;
+				break;
+			case EXECUTE:
+				machine.load(command.symbol, null);
+				break;
+			case ITERATE:
+			case REVERSE:
+				BstEntry[] order = entries;
+				if (command.type == REVERSE) {
+					order = new BstEntry[entries.length];
+					for (int i = 0; i < entries.length; i++)
+						order[i] = entries[entries.length - 1 - i];
+				}
+				if (command.parallel && (threads > 1) && (order.length > BLOCK_SIZE)
+					&& !sequential.contains(command.symbol))
+					iterateInParallel(machine, command.symbol, order);
+				else {
+					for (BstEntry entry : order)
+						machine.call(command.symbol, entry);
+				}
+				break;
+			case SORT:
+				Arrays.sort(entries, new Comparator<BstEntry>() {
+					public int compare(BstEntry o1, BstEntry o2) {
+						return o1.strings[sortKey].compareTo(o2.strings[sortKey]);
+					}
+				});
+				break;
+			case READ:
+				for (BstEntry entry : entries) {
+					for (int i = 0; i < fieldNames.size(); i++) {
+						if (readFields.contains(fieldNames.get(i)))
+							entry.fields[i] = entry.entry.getField(fieldNames.get(i));
+					}
+				}
+				break;
+			}
+		}
+		return machine.bbl.toString();
+	}
+
+	/**
+	 * Calls the function on blocks of the entries in parallel, and merges the
+	 * results in the order of the entries.
+	 */
+	private void iterateInParallel(final Machine machine, final Symbol function,
+		final BstEntry[] entries) {
+		// Keep the entry variables, in case a block has to be run again:
+		final String[][] strings = new String[entries.length][];
+		final int[][] integers = new int[entries.length][];
+		for (int i = 0; i < entries.length; i++) {
+			strings[i] = entries[i].strings.clone();
+			integers[i] = entries[i].integers.clone();
+		}
+
+		// The globals all blocks start with:
+		final String[] globalStrings = machine.strings.clone();
+		final int[] globalIntegers = machine.integers.clone();
+
+		try {
+			// At most as many blocks in flight as threads were set:
+			Parallel.map(Parallel.getExecutor(), entries.length, BLOCK_SIZE, threads,
+				new Parallel.Block<Machine, RuntimeException>() {
+					public Machine process(int start, int end) {
+						Machine block = new Machine(machine, globalStrings, globalIntegers);
+						try {
+							for (int j = start; j < end; j++)
+								block.call(function, entries[j]);
+						} catch (RuntimeException ex) {
+							// Will be run again, and fail in the right place:
+							block.failed = true;
+						}
+						return block;
+					}
+				}, new Parallel.Receiver<Machine, RuntimeException>() {
+					private int start = 0;
+
+					public void receive(Machine block) {
+						int end = Math.min(start + BLOCK_SIZE, entries.length);
+						if (block.isValidAfter(machine))
+							machine.merge(block);
+						else {
+							sequential.add(function);
+							for (int j = start; j < end; j++) {
+								entries[j].strings = strings[j];
+								entries[j].integers = integers[j];
+								machine.call(function, entries[j]);
+							}
+						}
+						start = end;
+					}
+				});
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new VMException("Interrupted");
+		}
+	}
+
+	public class BstEntry {
+		final BibtexEntry entry;
+		final String[] fields = new String[fieldNames.size()];
+		String[] strings = new String[entryStrings];
+		int[] integers = new int[entryIntegers];
+		Symbol type;
+
+		BstEntry(BibtexEntry entry) {
+			this.entry = entry;
+		}
+
+		public BibtexEntry getBibtexEntry() {
+			return entry;
+		}
+	}
+
+	/**
+	 * Thrown when a block of entries run in parallel takes more values from the
+	 * stack than it put there.
+	 */
+	private static class Underflow extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * The state of one run: the global variables, the functions and the stack.
+	 */
+	private class Machine {
+		final String[] strings;
+		final int[] integers;
+		final Code[] functions;
+		final String preamble;
+		final StringBuffer bbl = new StringBuffer();
+
+		byte[] kinds = new byte[64];
+		int[] values = new int[64];
+		Object[] objects = new Object[64];
+		int sp = 0;
+
+		// For blocks run in parallel: the globals when the block started, the
+		// globals the block wrote and those it read before writing them.
+		final Machine parent;
+		final String[] parentStrings;
+		final int[] parentIntegers;
+		boolean[] written, readFirst;
+		boolean failed = false;
+
+		Machine(String preamble) {
+			this.preamble = preamble;
+			strings = new String[globalStrings];
+			integers = new int[globalIntegers];
+			integers[entryMax] = Integer.MAX_VALUE;
+			integers[globalMax] = Integer.MAX_VALUE;
+			functions = new Code[BstProgram.this.functions];
+			for (int i = 0; i < functions.length; i++)
+				functions[i] = builtInCodes.get(i);
+			parent = null;
+			parentStrings = null;
+			parentIntegers = null;
+		}
+
+		Machine(Machine parent, String[] parentStrings, int[] parentIntegers) {
+			this.parent = parent;
+			preamble = parent.preamble;
+			functions = parent.functions;
+			this.parentStrings = parentStrings;
+			this.parentIntegers = parentIntegers;
+			strings = parentStrings.clone();
+			integers = parentIntegers.clone();
+			written = new boolean[strings.length + integers.length];
+			readFirst = new boolean[written.length];
+		}
+
+		/**
+		 * Checks whether this block computed the same as if it had been run
+		 * with the given machine's globals and stack.
+		 */
+		boolean isValidAfter(Machine machine) {
+			if (failed)
+				return false;
+			for (int i = 0; i < strings.length; i++) {
+				if (readFirst[i] && !equal(parentStrings[i], machine.strings[i]))
+					return false;
+			}
+			for (int i = 0; i < integers.length; i++) {
+				if (readFirst[strings.length + i] && (parentIntegers[i] != machine.integers[i]))
+					return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Takes over the globals written by the given block, and the values it
+		 * left on the stack.
+		 */
+		void merge(Machine block) {
+			for (int i = 0; i < strings.length; i++) {
+				if (block.written[i])
+					strings[i] = block.strings[i];
+			}
+			for (int i = 0; i < integers.length; i++) {
+				if (block.written[strings.length + i])
+					integers[i] = block.integers[i];
+			}
+			for (int i = 0; i < block.sp; i++)
+				push(block.kinds[i], block.values[i], block.objects[i]);
+		}
+
+		private boolean equal(String s1, String s2) {
+			return (s1 == null) ? (s2 == null) : s1.equals(s2);
+		}
+
+		// ---- Stack
+
+		private void push(byte kind, int value, Object object) {
+			if (sp == kinds.length) {
+				byte[] newKinds = new byte[sp * 2];
+				int[] newValues = new int[sp * 2];
+				Object[] newObjects = new Object[sp * 2];
+				System.arraycopy(kinds, 0, newKinds, 0, sp);
+				System.arraycopy(values, 0, newValues, 0, sp);
+				System.arraycopy(objects, 0, newObjects, 0, sp);
+				kinds = newKinds;
+				values = newValues;
+				objects = newObjects;
+			}
+			kinds[sp] = kind;
+			values[sp] = value;
+			objects[sp] = object;
+			sp++;
+		}
+
+		void pushInteger(int value) {
+			push(INTEGER, value, null);
+		}
+
+		void pushString(String value) {
+			push(STRING, 0, value);
+		}
+
+		void pushBoolean(boolean value) {
+			push(INTEGER, value ? 1 : 0, null);
+		}
+
+		/**
+		 * Makes sure there are n values on the stack.
+		 */
+		private void need(int n, String message) {
+			if (sp < n) {
+				if (parent != null)
+					throw new Underflow();
+				throw new VMException(message);
+			}
+		}
+
+		private void need(int n) {
+			if (sp < n) {
+				if (parent != null)
+					throw new Underflow();
+				throw new EmptyStackException();
+			}
+		}
+
+		private boolean isInteger(int depth) {
+			return kinds[sp - depth] == INTEGER;
+		}
+
+		private boolean isString(int depth) {
+			return (kinds[sp - depth] == STRING) && (objects[sp - depth] != null);
+		}
+
+		private boolean isFunction(int depth) {
+			return kinds[sp - depth] == FUNCTION;
+		}
+
+		private int integer(int depth) {
+			return values[sp - depth];
+		}
+
+		private String string(int depth) {
+			return (String) objects[sp - depth];
+		}
+
+		/**
+		 * Pops the top value, boxed as it would be on the VM's stack.
+		 */
+		Object pop() {
+			need(1);
+			sp--;
+			Object o = (kinds[sp] == INTEGER) ? new Integer(values[sp]) : objects[sp];
+			objects[sp] = null;
+			return o;
+		}
+
+		void push(Object o) {
+			if (o instanceof Integer)
+				pushInteger(((Integer) o).intValue());
+			else
+				push(FUNCTION, 0, o);
+		}
+
+		private void drop(int n) {
+			for (int i = 1; i <= n; i++)
+				objects[sp - i] = null;
+			sp -= n;
+		}
+
+		// ---- Globals
+
+		String getString(int slot) {
+			if ((parent != null) && !written[slot])
+				readFirst[slot] = true;
+			return strings[slot];
+		}
+
+		int getInteger(int slot) {
+			if ((parent != null) && !written[strings.length + slot])
+				readFirst[strings.length + slot] = true;
+			return integers[slot];
+		}
+
+		void setString(int slot, String value) {
+			if (parent != null)
+				written[slot] = true;
+			strings[slot] = value;
+		}
+
+		void setInteger(int slot, int value) {
+			if (parent != null)
+				written[strings.length + slot] = true;
+			integers[slot] = value;
+		}
+
+		// ---- Execution
+
+		/**
+		 * Calls the function of the given name, as ITERATE and REVERSE do.
+		 */
+		void call(Symbol symbol, BstEntry context) {
+			Code code = (symbol.function >= 0) ? functions[symbol.function] : null;
+			if (code != null)
+				execute(code, context);
+			else if (symbol.builtIn >= 0)
+				builtIn(symbol.builtIn, context);
+			else
+				throw new VMException("No matching identifier found: " + symbol.name);
+		}
+
+		/**
+		 * Pushes the value of the given name, or executes it if it is a
+		 * function.
+		 */
+		void load(Symbol symbol, BstEntry context) {
+			if (context != null) {
+				if (symbol.field >= 0) {
+					pushString(context.fields[symbol.field]);
+					return;
+				}
+				if (symbol.entryString >= 0) {
+					pushString(context.strings[symbol.entryString]);
+					return;
+				}
+				if (symbol.entryInteger >= 0) {
+					pushInteger(context.integers[symbol.entryInteger]);
+					return;
+				}
+			}
+			if (symbol.globalString >= 0) {
+				pushString(getString(symbol.globalString));
+				return;
+			}
+			if (symbol.globalInteger >= 0) {
+				pushInteger(getInteger(symbol.globalInteger));
+				return;
+			}
+			call(symbol, context);
+		}
+
+		void execute(Code code, BstEntry context) {
+			for (int i = 0; i < code.ops.length; i++) {
+				try {
+					switch (code.ops[i]) {
+					case PUSH_STRING:
+						push(STRING, 0, code.args[i]);
+						break;
+					case PUSH_INTEGER:
+						push(INTEGER, code.ints[i], null);
+						break;
+					case PUSH_FUNCTION:
+						push(FUNCTION, 0, code.args[i]);
+						break;
+					case LOAD:
+						load((Symbol) code.args[i], context);
+						break;
+					default:
+						builtIn(code.ints[i], context);
+					}
+				} catch (VMException e) {
+					if (parent == null) {
+						if (file != null) {
+							System.err.println("ERROR " + e.getMessage() + " (" + file.getPath()
+								+ ":" + code.lines[i] + ")");
+						} else {
+							System.err.println("ERROR " + e.getMessage() + " (" + code.lines[i] + ")");
+						}
+					}
+					throw e;
+				}
+			}
+		}
+
+		/**
+		 * Executes a function value taken from the stack.
+		 */
+		private void executeFunction(byte kind, Object function, BstEntry context) {
+			if (kind != FUNCTION)
+				return;
+			if (function instanceof Code)
+				execute((Code) function, context);
+			else
+				load((Symbol) function, context);
+		}
+
+		private void builtIn(int function, BstEntry context) {
+			switch (function) {
+			case GREATER:
+			case LESS: {
+				need(2, "Not enough operands on stack for operation " + BUILT_INS[function]);
+				if (!isInteger(1) || !isInteger(2))
+					throw new VMException("Can only compare two integers with " + BUILT_INS[function]);
+				int o2 = integer(1), o1 = integer(2);
+				drop(2);
+				pushBoolean(function == GREATER ? o1 > o2 : o1 < o2);
+				break;
+			}
+			case EQUALS: {
+				need(2, "Not enough operands on stack for operation =");
+				boolean equal;
+				if (kinds[sp - 1] != kinds[sp - 2])
+					equal = false;
+				else if (isInteger(1))
+					equal = integer(1) == integer(2);
+				else if (kinds[sp - 1] == STRING)
+					equal = equal(string(1), string(2));
+				else
+					equal = objects[sp - 1] == objects[sp - 2];
+				drop(2);
+				pushBoolean(equal);
+				break;
+			}
+			case PLUS:
+			case MINUS: {
+				need(2, "Not enough operands on stack for operation " + BUILT_INS[function]);
+				if (!isInteger(1) || !isInteger(2))
+					throw new VMException(function == PLUS ? "Can only compare two integers with +"
+						: "Can only subtract two integers with -");
+				int o2 = integer(1), o1 = integer(2);
+				drop(2);
+				pushInteger(function == PLUS ? o1 + o2 : o1 - o2);
+				break;
+			}
+			case CONCAT: {
+				need(2, "Not enough operands on stack for operation *");
+				if (!isString(1) || !isString(2))
+					throw new VMException("Can only concatenate two String with *");
+				String s = string(2).concat(string(1));
+				drop(2);
+				pushString(s);
+				break;
+			}
+			case ASSIGN: {
+				need(2, "Invalid call to operation :=");
+				if (!isFunction(1) || !(objects[sp - 1] instanceof Symbol)
+					|| !(isString(2) || isInteger(2)))
+					throw new VMException("Invalid parameters");
+				Symbol symbol = (Symbol) objects[sp - 1];
+				if (isString(2)) {
+					String value = string(2);
+					if ((context != null) && (symbol.entryString >= 0))
+						context.strings[symbol.entryString] = value;
+					else if (symbol.globalString >= 0)
+						setString(symbol.globalString, value);
+				} else {
+					int value = integer(2);
+					if ((context != null) && (symbol.entryInteger >= 0))
+						context.integers[symbol.entryInteger] = value;
+					else if (symbol.globalInteger >= 0)
+						setInteger(symbol.globalInteger, value);
+				}
+				drop(2);
+				break;
+			}
+			case ADD_PERIOD: {
+				need(1, "Not enough operands on stack for operation add.period$");
+				if (!isString(1))
+					throw new VMException("Can only add a period to a string for add.period$");
+				String s = VM.addPeriod(string(1));
+				drop(1);
+				pushString(s);
+				break;
+			}
+			case CALL_TYPE: {
+				if (context == null) {
+					throw new VMException(
+						"Call.type$ can only be called from within a context (ITERATE or REVERSE).");
+				}
+				if (context.type == null) {
+					String name = context.entry.getType().getName().toLowerCase();
+					context.type = symbols.get(name);
+					if (context.type == null)
+						throw new VMException("No matching identifier found: " + name);
+				}
+				load(context.type, context);
+				break;
+			}
+			case CHANGE_CASE: {
+				need(2, "Not enough operands on stack for operation change.case$");
+				if (!isString(1) || (string(1).length() != 1))
+					throw new VMException("A format string of length 1 is needed for change.case$");
+				if (!isString(2))
+					throw new VMException("A string is needed as second parameter for change.case$");
+				char format = string(1).toLowerCase().charAt(0);
+				String s = BibtexCaseChanger.changeCase(string(2), format, BstProgram.this);
+				drop(2);
+				pushString(s);
+				break;
+			}
+			case CHR_TO_INT: {
+				need(1, "Not enough operands on stack for operation chr.to.int$");
+				if (!isString(1) || (string(1).length() != 1))
+					throw new VMException("Can only perform chr.to.int$ on string with length 1");
+				char c = string(1).charAt(0);
+				drop(1);
+				pushInteger(c);
+				break;
+			}
+			case CITE:
+				pushString(context.entry.getCiteKey());
+				break;
+			case DUPLICATE:
+				need(1, "Not enough operands on stack for operation duplicate$");
+				push(kinds[sp - 1], values[sp - 1], objects[sp - 1]);
+				break;
+			case EMPTY: {
+				need(1, "Not enough operands on stack for operation empty$");
+				boolean empty;
+				if ((kinds[sp - 1] == STRING) && (objects[sp - 1] == null))
+					empty = true;
+				else if (!isString(1))
+					throw new VMException("Operand does not match function empty$");
+				else
+					empty = string(1).trim().equals("");
+				drop(1);
+				pushBoolean(empty);
+				break;
+			}
+			case FORMAT_NAME: {
+				need(3, "Not enough operands on stack for operation format.name$");
+				Object o1 = pop(), o2 = pop(), o3 = pop();
+				if (!(o1 instanceof String) && !(o2 instanceof Integer) && !(o3 instanceof String)) {
+					pushString("");
+					break;
+				}
+				String format = (String) o1;
+				Integer name = (Integer) o2;
+				String names = (String) o3;
+				if (names != null) {
+					AuthorList a = AuthorList.getAuthorList(names);
+					if (name.intValue() > a.size()) {
+						throw new VMException("Author Out of Bounds. Number " + name + " invalid for "
+							+ names);
+					}
+					Author author = a.getAuthor(name.intValue() - 1);
+					pushString(BibtexNameFormatter.formatName(author, format, BstProgram.this));
+				} else {
+					pushString("");
+				}
+				break;
+			}
+			case IF: {
+				need(3, "Not enough operands on stack for operation =");
+				if (!isFunction(1) && isFunction(2) && isInteger(3))
+					throw new VMException("Expecting two functions and an integer for if$.");
+				if (!isInteger(3))
+					throw new VMException("Expecting two functions and an integer for if$.");
+				byte kind = (integer(3) > 0) ? kinds[sp - 2] : kinds[sp - 1];
+				Object toExe = (integer(3) > 0) ? objects[sp - 2] : objects[sp - 1];
+				drop(3);
+				executeFunction(kind, toExe, context);
+				break;
+			}
+			case INT_TO_CHR: {
+				need(1, "Not enough operands on stack for operation int.to.chr$");
+				if (!isInteger(1))
+					throw new VMException("Can only perform operation int.to.chr$ on an Integer");
+				String s = String.valueOf((char) integer(1));
+				drop(1);
+				pushString(s);
+				break;
+			}
+			case INT_TO_STR: {
+				need(1, "Not enough operands on stack for operation int.to.str$");
+				if (!isInteger(1))
+					throw new VMException(
+						"Can only transform an integer to an string using int.to.str$");
+				String s = Integer.toString(integer(1));
+				drop(1);
+				pushString(s);
+				break;
+			}
+			case MISSING: {
+				need(1, "Not enough operands on stack for operation missing$");
+				boolean missing;
+				if ((kinds[sp - 1] == STRING) && (objects[sp - 1] == null))
+					missing = true;
+				else if (!isString(1)) {
+					warn("Not a string or missing field in operation missing$");
+					missing = true;
+				} else
+					missing = false;
+				drop(1);
+				pushBoolean(missing);
+				break;
+			}
+			case NEWLINE:
+				bbl.append('\n');
+				break;
+			case NUM_NAMES: {
+				need(1, "Not enough operands on stack for operation num.names$");
+				if (!isString(1))
+					throw new VMException("Need a string at the top of the stack for num.names$");
+				int names = AuthorList.getAuthorList(string(1)).size();
+				drop(1);
+				pushInteger(names);
+				break;
+			}
+			case POP:
+				need(1);
+				drop(1);
+				break;
+			case PREAMBLE:
+				pushString(preamble != null ? preamble : "");
+				break;
+			case PURIFY: {
+				need(1, "Not enough operands on stack for operation purify$");
+				String s;
+				if (!isString(1)) {
+					warn("A string is needed for purify$");
+					s = "";
+				} else
+					s = BibtexPurify.purify(string(1), BstProgram.this);
+				drop(1);
+				pushString(s);
+				break;
+			}
+			case QUOTE:
+				pushString("\"");
+				break;
+			case SKIP:
+				break;
+			case STACK:
+				while (sp > 0)
+					System.out.println(pop());
+				break;
+			case SUBSTRING: {
+				need(3, "Not enough operands on stack for operation substring$");
+				if (!isInteger(1) || !isInteger(2) || !isString(3))
+					throw new VMException("Expecting two integers and a string for substring$");
+				String s = VM.substring(string(3), integer(2), integer(1));
+				drop(3);
+				pushString(s);
+				break;
+			}
+			case SWAP: {
+				need(2, "Not enough operands on stack for operation swap$");
+				byte kind = kinds[sp - 1];
+				int value = values[sp - 1];
+				Object object = objects[sp - 1];
+				kinds[sp - 1] = kinds[sp - 2];
+				values[sp - 1] = values[sp - 2];
+				objects[sp - 1] = objects[sp - 2];
+				kinds[sp - 2] = kind;
+				values[sp - 2] = value;
+				objects[sp - 2] = object;
+				break;
+			}
+			case TEXT_LENGTH: {
+				need(1, "Not enough operands on stack for operation text.length$");
+				if (!isString(1))
+					throw new VMException("Can only perform operation on a string text.length$");
+				int length = VM.textLength(string(1));
+				drop(1);
+				pushInteger(length);
+				break;
+			}
+			case TEXT_PREFIX: {
+				need(2, "Not enough operands on stack for operation text.prefix$");
+				String s;
+				if (!isInteger(1)) {
+					warn("An integer is needed as first parameter to text.prefix$");
+					s = "";
+				} else if (!isString(2)) {
+					warn("A string is needed as second parameter to text.prefix$");
+					s = "";
+				} else
+					s = BibtexTextPrefix.textPrefix(integer(1), string(2), BstProgram.this);
+				drop(2);
+				pushString(s);
+				break;
+			}
+			case TOP:
+				System.out.println(pop());
+				break;
+			case TYPE:
+				pushString(context.entry.getType().getName());
+				break;
+			case WARNING:
+				out.println("Warning (#" + (warning++) + "): " + pop());
+				break;
+			case WHILE: {
+				need(2, "Not enough operands on stack for operation while$");
+				if (!isFunction(2) && isFunction(1))
+					throw new VMException("Expecting two functions for while$.");
+				byte kind2 = kinds[sp - 1], kind1 = kinds[sp - 2];
+				Object f2 = objects[sp - 1], f1 = objects[sp - 2];
+				drop(2);
+				do {
+					executeFunction(kind1, f1, context);
+					need(1);
+					if (!isInteger(1)) {
+						throw new VMException(
+							"First parameter to while has to return an integer but was " + pop());
+					}
+					int i = integer(1);
+					drop(1);
+					if (i <= 0) {
+						break;
+					}
+					executeFunction(kind2, f2, context);
+				} while (true);
+				break;
+			}
+			case WIDTH: {
+				need(1, "Not enough operands on stack for operation width$");
+				int width;
+				if (!isString(1)) {
+					warn("A string is needed for change.case$");
+					width = 0;
+				} else
+					width = BibtexWidth.width(string(1), BstProgram.this);
+				drop(1);
+				pushInteger(width);
+				break;
+			}
+			case WRITE:
+				bbl.append((String) pop());
+				break;
+			}
+		}
+	}
+
+	// ---- Compilation
+
+	private Symbol getSymbol(String name) {
+		Symbol symbol = symbols.get(name);
+		if (symbol == null) {
+			symbol = new Symbol(name);
+			symbols.put(name, symbol);
+		}
+		return symbol;
+	}
+
+	private void declareField(String name) {
+		Symbol symbol = getSymbol(name);
+		if (symbol.field < 0) {
+			symbol.field = fieldNames.size();
+			fieldNames.add(name);
+		}
+	}
+
+	private int declareEntryString(String name) {
+		Symbol symbol = getSymbol(name);
+		if (symbol.entryString < 0)
+			symbol.entryString = entryStrings++;
+		return symbol.entryString;
+	}
+
+	private void declareEntryInteger(String name) {
+		Symbol symbol = getSymbol(name);
+		if (symbol.entryInteger < 0)
+			symbol.entryInteger = entryIntegers++;
+	}
+
+	private void declareGlobalString(String name) {
+		Symbol symbol = getSymbol(name);
+		if (symbol.globalString < 0)
+			symbol.globalString = globalStrings++;
+	}
+
+	private int declareGlobalInteger(String name) {
+		Symbol symbol = getSymbol(name);
+		if (symbol.globalInteger < 0)
+			symbol.globalInteger = globalIntegers++;
+		return symbol.globalInteger;
+	}
+
+	/**
+	 * Gives a function slot to a name defined by FUNCTION or MACRO. Until the
+	 * definition is run, the slot holds the built-in function of that name, if
+	 * there is one.
+	 */
+	private void declareFunction(String name) {
+		Symbol symbol = getSymbol(name);
+		if (symbol.function >= 0)
+			return;
+		symbol.function = functions++;
+		Code code = null;
+		if (symbol.builtIn >= 0) {
+			code = new Code(1);
+			code.ops[0] = BUILT_IN;
+			code.ints[0] = symbol.builtIn;
+		}
+		builtInCodes.add(code);
+	}
+
+	private int[] getSlots(Tree names, boolean integers) {
+		int[] slots = new int[names.getChildCount()];
+		for (int i = 0; i < slots.length; i++) {
+			Symbol symbol = getSymbol(names.getChild(i).getText());
+			slots[i] = integers ? symbol.globalInteger : symbol.globalString;
+		}
+		return slots;
+	}
+
+	private Code compile(Tree stack) {
+		Code code = new Code(stack.getChildCount());
+		for (int i = 0; i < stack.getChildCount(); i++) {
+			Tree c = stack.getChild(i);
+			code.lines[i] = c.getLine();
+			switch (c.getType()) {
+			case BstParser.STRING: {
+				String s = c.getText();
+				code.ops[i] = PUSH_STRING;
+				code.args[i] = s.substring(1, s.length() - 1);
+				break;
+			}
+			case BstParser.INTEGER:
+				code.ops[i] = PUSH_INTEGER;
+				code.ints[i] = Integer.parseInt(c.getText().substring(1));
+				break;
+			case BstParser.QUOTED:
+				code.ops[i] = PUSH_FUNCTION;
+				code.args[i] = getSymbol(c.getText().substring(1));
+				break;
+			case BstParser.STACK:
+				code.ops[i] = PUSH_FUNCTION;
+				code.args[i] = compile(c);
+				break;
+			default:
+				Symbol symbol = getSymbol(c.getText());
+				if ((symbol.builtIn >= 0) && (symbol.function < 0) && (symbol.field < 0)
+					&& (symbol.entryString < 0) && (symbol.entryInteger < 0)
+					&& (symbol.globalString < 0) && (symbol.globalInteger < 0)) {
+					code.ops[i] = BUILT_IN;
+					code.ints[i] = symbol.builtIn;
+				} else {
+					code.ops[i] = LOAD;
+					code.args[i] = symbol;
+				}
+			}
+		}
+		return code;
+	}
+
+	/**
+	 * Checks whether calling the given function may write to the output or the
+	 * console, in which case it has to be run in order.
+	 */
+	private boolean mayWriteOutput(Symbol function) {
+		Set<Object> visited = new HashSet<Object>();
+		List<Object> pending = new ArrayList<Object>();
+		pending.add(function);
+		while (!pending.isEmpty()) {
+			Object next = pending.remove(pending.size() - 1);
+			if (!visited.add(next))
+				continue;
+			if (next instanceof Symbol) {
+				Symbol symbol = (Symbol) next;
+				pending.addAll(symbol.definitions);
+				if (symbol.builtIn >= 0)
+					pending.add(new Integer(symbol.builtIn));
+			} else if (next instanceof Integer) {
+				int builtIn = ((Integer) next).intValue();
+				for (int output : OUTPUT) {
+					if (builtIn == output)
+						return true;
+				}
+				// Any function may be called for the type of an entry:
+				if (builtIn == CALL_TYPE) {
+					for (Symbol symbol : symbols.values())
+						pending.addAll(symbol.definitions);
+				}
+			} else {
+				Code code = (Code) next;
+				for (int i = 0; i < code.ops.length; i++) {
+					if (code.ops[i] == BUILT_IN)
+						pending.add(new Integer(code.ints[i]));
+					else if (code.args[i] instanceof Symbol || code.args[i] instanceof Code)
+						pending.add(code.args[i]);
+				}
+			}
+		}
+		return false;
+	}
+
+	public void warn(String string) {
+		System.out.println(string);
+	}
+}
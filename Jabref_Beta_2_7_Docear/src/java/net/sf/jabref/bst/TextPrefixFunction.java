@@ -47,7 +47,7 @@ public class TextPrefixFunction implements BstFunction {
 			stack.push("");
 			return;
 		}
-		if (!(o1 instanceof String)) {
+		if (!(o2 instanceof String)) {
 			vm.warn("A string is needed as second parameter to text.prefix$");
 			stack.push("");
 			return;
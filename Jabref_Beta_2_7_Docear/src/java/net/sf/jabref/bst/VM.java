@@ -257,8 +257,6 @@ public class VM implements Warn {
 
 		buildInFunctions.put("add.period$", new BstFunction() {
 
-			Pattern p = Pattern.compile("([^\\.\\?\\!\\}\\s])(\\}|\\s)*$");
-
 			/**
 			 * Pops the top (string) literal, adds a `.' to it if the last non
 			 * '}' character isn't a `.', `?', or `!', and pushes this resulting
@@ -274,20 +272,7 @@ public class VM implements Warn {
 					throw new VMException("Can only add a period to a string for add.period$");
 				}
 
-				String s = (String) o1;
-				Matcher m = p.matcher(s);
-
-				if (m.find()) {
-					StringBuffer sb = new StringBuffer();
-					m.appendReplacement(sb, m.group(1));
-					sb.append('.');
-					String group2 = m.group(2);
-					if (group2 != null)
-						sb.append(m.group(2));
-					stack.push(sb.toString());
-				} else {
-					stack.push(s);
-				}
+				stack.push(addPeriod((String) o1));
 			}
 		});
 
@@ -612,28 +597,7 @@ public class VM implements Warn {
 					throw new VMException("Expecting two integers and a string for substring$");
 				}
 
-				Integer len = (Integer) o1;
-				Integer start = (Integer) o2;
-
-				int lenI = len.intValue();
-				int startI = start.intValue();
-
-				if (lenI > Integer.MAX_VALUE / 2)
-					lenI = Integer.MAX_VALUE / 2;
-
-				if (startI > Integer.MAX_VALUE / 2)
-					startI = Integer.MAX_VALUE / 2;
-
-				if (startI < Integer.MIN_VALUE / 2)
-					startI = -Integer.MIN_VALUE / 2;
-
-				String s = (String) o3;
-
-				if (startI < 0) {
-					startI += s.length() + 1;
-					startI = Math.max(1, startI + 1 - lenI);
-				}
-				stack.push(s.substring(startI - 1, Math.min(startI - 1 + lenI, s.length())));
+				stack.push(substring((String) o3, ((Integer) o2).intValue(), ((Integer) o1).intValue()));
 			}
 		});
 
@@ -680,75 +644,7 @@ public class VM implements Warn {
 					throw new VMException("Can only perform operation on a string text.length$");
 				}
 
-				String s = (String) o1;
-				char[] c = s.toCharArray();
-				int result = 0;
-
-				// Comments from bibtex.web:
-
-				// sp_ptr := str_start[pop_lit1];
-				int i = 0;
-
-				// sp_end := str_start[pop_lit1+1];
-				int n = s.length();
-
-				// sp_brace_level := 0;
-				int braceLevel = 0;
-
-				// while (sp_ptr < sp_end) do begin
-				while (i < n) {
-					// incr(sp_ptr);
-					i++;
-					// if (str_pool[sp_ptr-1] = left_brace) then
-					// begin
-					if (c[i - 1] == '{') {
-						// incr(sp_brace_level);
-						braceLevel++;
-						// if ((sp_brace_level = 1) and (sp_ptr < sp_end)) then
-						if (braceLevel == 1 && i < n)
-							// if (str_pool[sp_ptr] = backslash) then
-							// begin
-							if (c[i] == '\\') {
-								// incr(sp_ptr); {skip over the |backslash|}
-								i++; // skip over backslash
-								// while ((sp_ptr < sp_end) and (sp_brace_level
-								// > 0)) do begin
-								while (i < n && braceLevel > 0) {
-									// if (str_pool[sp_ptr] = right_brace) then
-									if (c[i] == '}')
-										// decr(sp_brace_level)
-										braceLevel--;
-									// else if (str_pool[sp_ptr] = left_brace)
-									// then
-									else if (c[i] == '{')
-
-										// incr(sp_brace_level);
-										braceLevel++;
-									// incr(sp_ptr);
-									i++;
-									// end;
-								}
-								// incr(num_text_chars);
-								result++;
-								// end;
-							}
-						// end
-					}
-					// else if (str_pool[sp_ptr-1] = right_brace) then
-					// begin
-					else if (c[i - 1] == '}') {
-						// if (sp_brace_level > 0) then
-						if (braceLevel > 0)
-							// decr(sp_brace_level);
-							braceLevel--;
-						// end
-					}
-					// else
-					else
-						// incr(num_text_chars);
-						result++;
-				}
-				stack.push(new Integer(result));
+				stack.push(new Integer(textLength((String) o1)));
 			}
 		});
 
@@ -849,6 +745,122 @@ public class VM implements Warn {
 
 	}
 
+	private static final Pattern addPeriodPattern = Pattern.compile("([^\\.\\?\\!\\}\\s])(\\}|\\s)*$");
+
+	/**
+	 * Adds a `.' to the string if the last non '}' character isn't a `.', `?',
+	 * or `!' (add.period$).
+	 */
+	static String addPeriod(String s) {
+		Matcher m = addPeriodPattern.matcher(s);
+
+		if (m.find()) {
+			StringBuffer sb = new StringBuffer();
+			m.appendReplacement(sb, m.group(1));
+			sb.append('.');
+			String group2 = m.group(2);
+			if (group2 != null)
+				sb.append(m.group(2));
+			return sb.toString();
+		} else {
+			return s;
+		}
+	}
+
+	/**
+	 * Returns the (at most) len characters of s starting at the start-th
+	 * character, or ending there counted from the end if start is negative
+	 * (substring$).
+	 */
+	static String substring(String s, int startI, int lenI) {
+		if (lenI > Integer.MAX_VALUE / 2)
+			lenI = Integer.MAX_VALUE / 2;
+		if (startI > Integer.MAX_VALUE / 2)
+			startI = Integer.MAX_VALUE / 2;
+		if (startI < Integer.MIN_VALUE / 2)
+			startI = -Integer.MIN_VALUE / 2;
+		if (startI < 0) {
+			startI += s.length() + 1;
+			startI = Math.max(1, startI + 1 - lenI);
+		}
+		return s.substring(startI - 1, Math.min(startI - 1 + lenI, s.length()));
+	}
+
+	/**
+	 * Returns the number of text characters in s, where a special character
+	 * counts as one and braces do not count (text.length$).
+	 */
+	static int textLength(String s) {
+		char[] c = s.toCharArray();
+		int result = 0;
+
+		// Comments from bibtex.web:
+
+		// sp_ptr := str_start[pop_lit1];
+		int i = 0;
+
+		// sp_end := str_start[pop_lit1+1];
+		int n = s.length();
+
+		// sp_brace_level := 0;
+		int braceLevel = 0;
+
+		// while (sp_ptr < sp_end) do begin
+		while (i < n) {
+			// incr(sp_ptr);
+			i++;
+			// if (str_pool[sp_ptr-1] = left_brace) then
+			// begin
+			if (c[i - 1] == '{') {
+				// incr(sp_brace_level);
+				braceLevel++;
+				// if ((sp_brace_level = 1) and (sp_ptr < sp_end)) then
+				if (braceLevel == 1 && i < n)
+					// if (str_pool[sp_ptr] = backslash) then
+					// begin
+					if (c[i] == '\\') {
+						// incr(sp_ptr); {skip over the |backslash|}
+						i++; // skip over backslash
+						// while ((sp_ptr < sp_end) and (sp_brace_level
+						// > 0)) do begin
+						while (i < n && braceLevel > 0) {
+							// if (str_pool[sp_ptr] = right_brace) then
+							if (c[i] == '}')
+								// decr(sp_brace_level)
+								braceLevel--;
+							// else if (str_pool[sp_ptr] = left_brace)
+							// then
+							else if (c[i] == '{')
+
+								// incr(sp_brace_level);
+								braceLevel++;
+							// incr(sp_ptr);
+							i++;
+							// end;
+						}
+						// incr(num_text_chars);
+						result++;
+						// end;
+					}
+				// end
+			}
+			// else if (str_pool[sp_ptr-1] = right_brace) then
+			// begin
+			else if (c[i - 1] == '}') {
+				// if (sp_brace_level > 0) then
+				if (braceLevel > 0)
+					// decr(sp_brace_level);
+					braceLevel--;
+				// end
+			}
+			// else
+			else
+				// incr(num_text_chars);
+				result++;
+		}
+		return result;
+	}
+
 	protected boolean assign(BstEntry context, Object o1, Object o2) {
 
 		if (!(o1 instanceof Identifier) || !(o2 instanceof String || o2 instanceof Integer))
@@ -2,8 +2,12 @@ package net.sf.jabref.collab;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Vector;
 import java.util.ArrayList;
 
@@ -16,6 +20,8 @@ import net.sf.jabref.export.FileActions;
 import net.sf.jabref.export.SaveException;
 import net.sf.jabref.export.SaveSession;
 import net.sf.jabref.groups.GroupTreeNode;
+import net.sf.jabref.imports.BibtexParser;
+import net.sf.jabref.imports.ImportFormatReader;
 import net.sf.jabref.imports.OpenDatabaseAction;
 import net.sf.jabref.imports.ParserResult;
 
@@ -25,8 +31,12 @@ public class ChangeScanner extends Thread {
     final double MATCH_THRESHOLD = 0.4;
     final String[] sortBy = new String[] {"year", "author", "title" };
     File f;
-    BibtexDatabase inMem, inTemp = null;
-    MetaData mdInMem, mdInTemp;
+    BibtexDatabase inMem, inTemp = null, onDisk;
+    MetaData mdInMem, mdInTemp, mdOnDisk;
+    // The entries to compare. These are all entries of the databases, unless the
+    // files could be compared block by block, in which case only the entries whose
+    // text differs are included:
+    EntrySorter sInTemp, sOnDisk;
     BasePanel panel;
     JabRefFrame frame;
 
@@ -59,30 +69,11 @@ public class ChangeScanner extends Thread {
         try {
             //long startTime = System.currentTimeMillis();
 
-            // Parse the temporary file.
             File tempFile = Globals.fileUpdateMonitor.getTempFile(panel.fileMonitorHandle());
-            ParserResult pr = OpenDatabaseAction.loadDatabase(tempFile,
-            Globals.prefs.get("defaultEncoding"));
-            inTemp = pr.getDatabase();
-            mdInTemp = new MetaData(pr.getMetaData(),inTemp);
-            // Parse the modified file.
-            pr = OpenDatabaseAction.loadDatabase(f, Globals.prefs.get("defaultEncoding"));
-            BibtexDatabase onDisk = pr.getDatabase();
-            MetaData mdOnDisk = new MetaData(pr.getMetaData(),onDisk);
-
-            // Sort both databases according to a common sort key.
-            EntryComparator comp = new EntryComparator(false, true, sortBy[2]);
-            comp = new EntryComparator(false, true, sortBy[1], comp);
-            comp = new EntryComparator(false, true, sortBy[0], comp);
-            EntrySorter sInTemp = inTemp.getSorter(comp);
-            comp = new EntryComparator(false, true, sortBy[2]);
-            comp = new EntryComparator(false, true, sortBy[1], comp);
-            comp = new EntryComparator(false, true, sortBy[0], comp);
-            EntrySorter sOnDisk = onDisk.getSorter(comp);
-            comp = new EntryComparator(false, true, sortBy[2]);
-            comp = new EntryComparator(false, true, sortBy[1], comp);
-            comp = new EntryComparator(false, true, sortBy[0], comp);
-            EntrySorter sInMem = inMem.getSorter(comp);
+            if (!parseChangedEntries(tempFile))
+                parseAll(tempFile);
+
+            EntrySorter sInMem = inMem.getSorter(getComparator());
 
             // Start looking at changes.
             scanMetaData(mdInMem, mdInTemp, mdOnDisk);
@@ -101,6 +92,156 @@ public class ChangeScanner extends Thread {
     }
 
 
+    /**
+     * Parses the temporary file and the modified file completely, comparing all their entries.
+     */
+    private void parseAll(File tempFile) throws IOException {
+        // Parse the temporary file.
+        ParserResult pr = OpenDatabaseAction.loadDatabase(tempFile,
+        Globals.prefs.get("defaultEncoding"));
+        inTemp = pr.getDatabase();
+        mdInTemp = new MetaData(pr.getMetaData(),inTemp);
+        // Parse the modified file.
+        pr = OpenDatabaseAction.loadDatabase(f, Globals.prefs.get("defaultEncoding"));
+        onDisk = pr.getDatabase();
+        mdOnDisk = new MetaData(pr.getMetaData(),onDisk);
+
+        // Sort both databases according to a common sort key.
+        sInTemp = inTemp.getSorter(getComparator());
+        sOnDisk = onDisk.getSorter(getComparator());
+    }
+
+    /**
+     * Compares the temporary file and the modified file block by block, and parses
+     * the entries of the modified file only where their text differs. An entry whose
+     * text is the same in both files can't have changed, so only the remaining entries
+     * need to be matched by scanEntries(). Strings, preamble and metadata are always
+     * parsed from both files.
+     *
+     * @return false if the files could not be split into blocks the parser agrees
+     *  with, in which case they have to be parsed completely.
+     */
+    private boolean parseChangedEntries(File tempFile) {
+        try {
+            EntryBlocks tempBlocks = new EntryBlocks(readFile(tempFile));
+            EntryBlocks diskBlocks = new EntryBlocks(readFile(f));
+
+            // Count the entry blocks of the modified file, and take away those
+            // found unchanged in the temporary file:
+            HashMap<String, Integer> unmatched = new HashMap<String, Integer>();
+            for (String block : diskBlocks.getEntries()) {
+                Integer count = unmatched.get(block);
+                unmatched.put(block, count == null ? 1 : count + 1);
+            }
+            StringBuilder unchanged = getHeaderAndOthers(tempBlocks);
+            StringBuilder changedInTemp = new StringBuilder();
+            int unchangedCount = 0, changedInTempCount = 0;
+            for (String block : tempBlocks.getEntries()) {
+                if (take(unmatched, block)) {
+                    unchanged.append(block).append('\n');
+                    unchangedCount++;
+                } else {
+                    changedInTemp.append(block).append('\n');
+                    changedInTempCount++;
+                }
+            }
+            StringBuilder changedOnDisk = getHeaderAndOthers(diskBlocks);
+            int changedOnDiskCount = 0;
+            for (String block : diskBlocks.getEntries()) {
+                if (take(unmatched, block)) {
+                    changedOnDisk.append(block).append('\n');
+                    changedOnDiskCount++;
+                }
+            }
+
+            // The temporary database consists of the unchanged and the changed entries,
+            // since accepted changes are stored back into the temporary file:
+            ParserResult pr = parse(unchanged);
+            BibtexDatabase tempChanges = parse(changedInTemp).getDatabase();
+            if ((pr.getDatabase().getEntryCount() != unchangedCount)
+                || (tempChanges.getEntryCount() != changedInTempCount))
+                return false;
+            ParserResult prOnDisk = parse(changedOnDisk);
+            if (prOnDisk.getDatabase().getEntryCount() != changedOnDiskCount)
+                return false;
+
+            inTemp = pr.getDatabase();
+            List<BibtexEntry> unchangedEntries = new ArrayList<BibtexEntry>(inTemp.getEntries());
+            List<BibtexEntry> changedEntries = new ArrayList<BibtexEntry>(tempChanges.getEntries());
+            sInTemp = new EntrySorter(new HashMap<String, BibtexEntry>(tempChanges.getEntryMap()),
+                getComparator());
+            for (BibtexEntry entry : changedEntries) {
+                tempChanges.removeEntry(entry.getId());
+                inTemp.insertEntry(entry);
+            }
+            mdInTemp = new MetaData(pr.getMetaData(), inTemp);
+
+            // The database on disk gets copies of the unchanged entries, so that its groups
+            // can be resolved:
+            onDisk = prOnDisk.getDatabase();
+            sOnDisk = new EntrySorter(new HashMap<String, BibtexEntry>(onDisk.getEntryMap()),
+                getComparator());
+            for (BibtexEntry entry : unchangedEntries)
+                onDisk.insertEntry((BibtexEntry)entry.clone());
+            mdOnDisk = new MetaData(prOnDisk.getMetaData(), onDisk);
+            return true;
+        } catch (Exception ex) {
+            // Fall back to comparing the complete files:
+            ex.printStackTrace();
+            return false;
+        }
+    }
+
+    private String readFile(File file) throws IOException {
+        String encoding = OpenDatabaseAction.getSuppliedEncoding(file);
+        if (encoding == null)
+            encoding = Globals.prefs.get("defaultEncoding");
+        Reader reader = ImportFormatReader.getReader(file, encoding);
+        try {
+            StringBuilder text = new StringBuilder((int)file.length());
+            char[] buffer = new char[8192];
+            int n;
+            while ((n = reader.read(buffer)) != -1)
+                text.append(buffer, 0, n);
+            return text.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static StringBuilder getHeaderAndOthers(EntryBlocks blocks) {
+        StringBuilder text = new StringBuilder(blocks.getHeader());
+        for (String block : blocks.getOthers())
+            text.append(block).append('\n');
+        return text;
+    }
+
+    /**
+     * Takes one occurrence of the block from the counts.
+     * @return true if the block was counted.
+     */
+    private static boolean take(HashMap<String, Integer> counts, String block) {
+        Integer count = counts.get(block);
+        if (count == null)
+            return false;
+        if (count == 1)
+            counts.remove(block);
+        else
+            counts.put(block, count - 1);
+        return true;
+    }
+
+    private static ParserResult parse(StringBuilder text) throws IOException {
+        return new BibtexParser(new StringReader(text.toString()),
+            Runtime.getRuntime().availableProcessors()).parse();
+    }
+
+    private EntryComparator getComparator() {
+        EntryComparator comp = new EntryComparator(false, true, sortBy[2]);
+        comp = new EntryComparator(false, true, sortBy[1], comp);
+        return new EntryComparator(false, true, sortBy[0], comp);
+    }
+
     public boolean changesFound() {
         return changes.getChildCount() > 0;
     }
@@ -245,7 +386,7 @@ public class ChangeScanner extends Thread {
                 double bestMatch = 0;
                 double comp = -1;
 
-                if (piv2 < disk.getEntryCount()-1) {
+                if (piv2 < disk.getEntryCount()) {
                     for (int i = piv2; i < disk.getEntryCount(); i++) {
                         if (!used.contains(""+i)) {
                             comp = DuplicateCheck.compareEntriesStrictly(tmp.getEntryAt(piv1),
@@ -0,0 +1,95 @@
+package net.sf.jabref.collab;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the text of a bibtex file into its top level blocks. A block starts
+ * with an @ at the start of a line where all braces opened before are closed,
+ * and runs up to the start of the next block. Text in front of the first block
+ * is kept as header.
+ *
+ * Entries are kept apart from @string, @preamble and @comment blocks, so that
+ * two versions of a file can be compared entry by entry without parsing them.
+ */
+public class EntryBlocks {
+
+    private final String header;
+    private final List<String> entries = new ArrayList<String>();
+    private final List<String> others = new ArrayList<String>();
+
+    public EntryBlocks(String text) {
+        int headerEnd = text.length();
+        int blockStart = -1;
+        int braces = 0;
+        boolean lineStart = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                lineStart = true;
+                continue;
+            }
+            if (c == '{')
+                braces++;
+            else if (c == '}')
+                braces--;
+            else if ((c == '@') && lineStart && (braces <= 0)) {
+                if (blockStart < 0)
+                    headerEnd = i;
+                else
+                    add(text.substring(blockStart, i));
+                blockStart = i;
+                braces = 0;
+            }
+            if (!Character.isWhitespace(c))
+                lineStart = false;
+        }
+        if (blockStart >= 0)
+            add(text.substring(blockStart));
+        header = text.substring(0, headerEnd);
+    }
+
+    /**
+     * @return the text in front of the first block.
+     */
+    public String getHeader() {
+        return header;
+    }
+
+    /**
+     * @return the entry blocks, in the order of the file.
+     */
+    public List<String> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return the @string, @preamble and @comment blocks, in the order of the file.
+     */
+    public List<String> getOthers() {
+        return others;
+    }
+
+    private void add(String block) {
+        // Trailing whitespace does not change the meaning of a block:
+        int end = block.length();
+        while ((end > 0) && Character.isWhitespace(block.charAt(end - 1)))
+            end--;
+        block = block.substring(0, end);
+        if (isEntry(block))
+            entries.add(block);
+        else
+            others.add(block);
+    }
+
+    private static boolean isEntry(String block) {
+        int i = 1;
+        while ((i < block.length()) && Character.isWhitespace(block.charAt(i)))
+            i++;
+        int typeStart = i;
+        while ((i < block.length()) && Character.isLetter(block.charAt(i)))
+            i++;
+        String type = block.substring(typeStart, i).toLowerCase();
+        return !type.equals("string") && !type.equals("preamble") && !type.equals("comment");
+    }
+}
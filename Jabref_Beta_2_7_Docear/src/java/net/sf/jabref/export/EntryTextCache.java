@@ -0,0 +1,143 @@
+package net.sf.jabref.export;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexEntryType;
+import net.sf.jabref.DatabaseChangeEvent;
+import net.sf.jabref.DatabaseChangeListener;
+import net.sf.jabref.GUIGlobals;
+import net.sf.jabref.Globals;
+import net.sf.jabref.util.Parallel;
+
+/**
+ * Keeps the text of the entries of a database as they are saved, so saving
+ * the database again only has to format the entries changed since.
+ *
+ * An entry's text is dropped when the entry changes. All texts are dropped
+ * when the preferences that affect field formatting change. The text of an
+ * entry is also formatted again if the field definitions of its type change.
+ * Entries that need formatting are formatted in parallel.
+ */
+public class EntryTextCache implements DatabaseChangeListener {
+
+    private static final int BLOCK_SIZE = 100;
+
+    private static class Text {
+        // The field definitions of the type the text has been formatted with:
+        final String type;
+        volatile String text;
+
+        Text(String type) {
+            this.type = type;
+        }
+    }
+
+    private final Map<BibtexEntry, Text> texts = new HashMap<BibtexEntry, Text>();
+    // The formatting preferences the texts have been formatted with:
+    private String settings = null;
+
+    public EntryTextCache(BibtexDatabase database) {
+        database.addDatabaseChangeListener(this);
+    }
+
+    public synchronized void databaseChanged(DatabaseChangeEvent e) {
+        BibtexEntry entry = e.getEntry();
+        if ((entry != null) && ((e.getType() == DatabaseChangeEvent.CHANGED_ENTRY)
+            || (e.getType() == DatabaseChangeEvent.REMOVED_ENTRY)))
+            texts.remove(entry);
+    }
+
+    /**
+     * Returns the texts of the given entries, as written by
+     * BibtexEntry.write() followed by a new line, in the order of the list.
+     *
+     * @throws SaveException naming the entry that could not be formatted.
+     */
+    public String[] getTexts(final List<BibtexEntry> entries) throws SaveException {
+        final String[] result = new String[entries.size()];
+        final List<Integer> dirty = new ArrayList<Integer>();
+        final List<Text> dirtyTexts = new ArrayList<Text>();
+        synchronized (this) {
+            String current = getSettings();
+            if (!current.equals(settings)) {
+                texts.clear();
+                settings = current;
+            }
+            Map<BibtexEntryType, String> types = new HashMap<BibtexEntryType, String>();
+            for (int i = 0; i < result.length; i++) {
+                BibtexEntry entry = entries.get(i);
+                String type = types.get(entry.getType());
+                if (type == null) {
+                    type = getFields(entry.getType());
+                    types.put(entry.getType(), type);
+                }
+                Text text = texts.get(entry);
+                if ((text != null) && text.type.equals(type) && (text.text != null))
+                    result[i] = text.text;
+                else {
+                    text = new Text(type);
+                    texts.put(entry, text);
+                    dirty.add(i);
+                    dirtyTexts.add(text);
+                }
+            }
+        }
+
+        try {
+            Parallel.map(dirty.size(), BLOCK_SIZE, new Parallel.Block<Object, SaveException>() {
+                public Object process(int start, int end) throws SaveException {
+                    format(entries, dirty, dirtyTexts, result, start, end);
+                    return null;
+                }
+            });
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SaveException(ex.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Formats the entries at the given positions of the dirty list. The field
+     * formatter keeps state while formatting, so each block has its own.
+     */
+    private static void format(List<BibtexEntry> entries, List<Integer> dirty, List<Text> dirtyTexts,
+            String[] result, int start, int end) throws SaveException {
+        FieldFormatter ff = new LatexFieldFormatter();
+        StringWriter out = new StringWriter(1000);
+        for (int i = start; i < end; i++) {
+            int index = dirty.get(i);
+            BibtexEntry entry = entries.get(index);
+            out.getBuffer().setLength(0);
+            try {
+                entry.write(out, ff, true);
+            } catch (IOException ex) {
+                throw new SaveException(ex.getMessage(), entry);
+            }
+            out.write(Globals.NEWLINE);
+            result[index] = out.toString();
+            dirtyTexts.get(i).text = result[index];
+        }
+    }
+
+    private static String getFields(BibtexEntryType type) {
+        return type.getName() + Arrays.toString(type.getRequiredFields())
+            + Arrays.toString(type.getOptionalFields());
+    }
+
+    private static String getSettings() {
+        return Globals.prefs.get("putBracesAroundCapitals") + '\n'
+            + Globals.prefs.get("nonWrappableFields") + '\n'
+            + Globals.prefs.getBoolean("resolveStringsAllFields") + '\n'
+            + Arrays.toString(Globals.prefs.getStringArray("doNotResolveStringsFor")) + '\n'
+            + GUIGlobals.LINE_LENGTH;
+    }
+}
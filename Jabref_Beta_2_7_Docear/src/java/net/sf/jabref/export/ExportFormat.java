@@ -4,6 +4,7 @@ import net.sf.jabref.BibtexDatabase;
 import net.sf.jabref.BibtexEntry;
 import net.sf.jabref.Globals;
 import net.sf.jabref.MetaData;
+import net.sf.jabref.NameFormatterTab;
 import net.sf.jabref.export.layout.Layout;
 import net.sf.jabref.export.layout.LayoutHelper;
 
@@ -12,6 +13,9 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.util.*;
 
 /**
@@ -31,6 +35,16 @@ public class ExportFormat implements IExportFormat {
 	FileFilter fileFilter;
 	boolean customExport = false;
 
+	// Compiled layouts by the url of their layout file, see getLayout():
+	private static final Map<String, CachedLayout> layoutCache = new HashMap<String, CachedLayout>();
+
+	private static class CachedLayout {
+		long lastModified;
+		// The name formatters the layout has been compiled with:
+		List<Map<String, String>> nameFormatters;
+		Layout layout;
+	}
+
 	/**
 	 * Initialize another export format based on templates stored in dir with
 	 * layoutFile lfFilename.
@@ -124,6 +138,90 @@ public class ExportFormat implements IExportFormat {
 		return FileActions.getReader(dir + filename);
 	}
 
+	/**
+	 * This method should return the url of the given layout file, the way
+	 * {@link #getReader(String)} finds it, or <code>null</code> if the file
+	 * cannot be found. Layouts are only cached if their file has an url, so
+	 * subclasses providing their own reader should provide the url as well.
+	 * 
+	 * @param filename
+	 *            the file name
+	 * @return the url of the file
+	 */
+	protected URL getLayoutUrl(String filename) {
+		String name = customExport ? filename : Globals.LAYOUT_PREFIX
+			+ (directory == null ? "" : directory + "/") + filename;
+		URL url = Globals.class.getResource(name);
+		if (url == null) {
+			File file = new File(name);
+			if (file.exists()) {
+				try {
+					url = file.toURI().toURL();
+				} catch (MalformedURLException ex) {
+					// Then it is read without caching.
+				}
+			}
+		}
+		return url;
+	}
+
+	/**
+	 * Returns the compiled layout of the given layout file. Layouts are
+	 * cached by the url and modification time of their file, so they are only
+	 * read and compiled again if the file or the name formatters have changed.
+	 * 
+	 * @param filename
+	 *            the file name
+	 * @throws IOException
+	 *             if the layout file could not be read
+	 * @throws Exception
+	 *             if the layout could not be compiled
+	 * @return the layout
+	 */
+	protected Layout getLayout(String filename) throws Exception {
+		URL url = getLayoutUrl(filename);
+		if (url == null)
+			return readLayout(filename);
+
+		long lastModified = 0;
+		if ("file".equals(url.getProtocol())) {
+			try {
+				lastModified = new File(url.toURI()).lastModified();
+			} catch (URISyntaxException ex) {
+				return readLayout(filename);
+			}
+		}
+		// Name formatters are resolved while compiling:
+		List<Map<String, String>> nameFormatters = new ArrayList<Map<String, String>>(2);
+		nameFormatters.add(Globals.prefs.customExportNameFormatters);
+		nameFormatters.add(NameFormatterTab.getNameFormatters());
+
+		String key = url.toString();
+		synchronized (layoutCache) {
+			CachedLayout cached = layoutCache.get(key);
+			if ((cached != null) && (cached.lastModified == lastModified)
+				&& cached.nameFormatters.equals(nameFormatters))
+				return cached.layout;
+		}
+		CachedLayout cached = new CachedLayout();
+		cached.lastModified = lastModified;
+		cached.nameFormatters = nameFormatters;
+		cached.layout = readLayout(filename);
+		synchronized (layoutCache) {
+			layoutCache.put(key, cached);
+		}
+		return cached.layout;
+	}
+
+	private Layout readLayout(String filename) throws Exception {
+		Reader reader = getReader(filename);
+		try {
+			return new LayoutHelper(reader).getLayoutFromText(Globals.FORMATTER_PACKAGE);
+		} finally {
+			reader.close();
+		}
+	}
+
 	/**
 	 * Perform the export of {@code database}.
 	 * 
@@ -170,7 +268,6 @@ public class ExportFormat implements IExportFormat {
 		VerifyingWriter ps = ss.getWriter();
 
         Layout beginLayout = null;
-		Reader reader = null;
 
         // Check if this export filter has bundled name formatters:
         HashMap<String,String> customNameFormatters = readFormatterFile(lfFileName);
@@ -181,11 +278,7 @@ public class ExportFormat implements IExportFormat {
 
         // Print header
         try {
-			reader = getReader(lfFileName + ".begin.layout");
-			LayoutHelper layoutHelper = new LayoutHelper(reader);
-			beginLayout = layoutHelper
-				.getLayoutFromText(Globals.FORMATTER_PACKAGE);
-            reader.close();
+			beginLayout = getLayout(lfFileName + ".begin.layout");
 		} catch (IOException ex) {
 			// If an exception was cast, export filter doesn't have a begin
 			// file.
@@ -207,22 +300,17 @@ public class ExportFormat implements IExportFormat {
 			entryIds, false);
 
 		// Load default layout
-		reader = getReader(lfFileName + ".layout");
-
-		LayoutHelper layoutHelper = new LayoutHelper(reader);
-		Layout defLayout = layoutHelper
-			.getLayoutFromText(Globals.FORMATTER_PACKAGE);
-		reader.close();
+		Layout defLayout = getLayout(lfFileName + ".layout");
         if (defLayout != null) {
             missingFormatters.addAll(defLayout.getMissingFormatters());
             System.out.println(defLayout.getMissingFormatters());
         }
 		HashMap<String, Layout> layouts = new HashMap<String, Layout>();
 		Layout layout;
+		List<Layout> entryLayouts = new ArrayList<Layout>(sorted.size());
 
         ExportFormats.entryNumber = 0;
 		for (BibtexEntry entry : sorted) {
-            ExportFormats.entryNumber++; // Increment entry counter.
 			// Get the layout
 			String type = entry.getType().getName().toLowerCase();
 			if (layouts.containsKey(type))
@@ -230,12 +318,7 @@ public class ExportFormat implements IExportFormat {
 			else {
 				try {
 					// We try to get a type-specific layout for this entry.
-					reader = getReader(lfFileName + "." + type + ".layout");
-					layoutHelper = new LayoutHelper(reader);
-					layout = layoutHelper
-						.getLayoutFromText(Globals.FORMATTER_PACKAGE);
-					layouts.put(type, layout);
-					reader.close();
+					layout = getLayout(lfFileName + "." + type + ".layout");
                     if (layout != null)
                         missingFormatters.addAll(layout.getMissingFormatters());
 
@@ -245,22 +328,20 @@ public class ExportFormat implements IExportFormat {
 					// go with the default one.
 					layout = defLayout;
 				}
+				layouts.put(type, layout);
 			}
-
-			// Write the entry
-			ps.write(layout.doLayout(entry, database));
+			entryLayouts.add(layout);
 		}
 
+		// Write the entries, numbering them as they go:
+		Layout.doLayout(sorted, entryLayouts, database, ps);
+
 		// Print footer
 
 		// changed section - begin (arudert)
 		Layout endLayout = null;
 		try {
-			reader = getReader(lfFileName + ".end.layout");
-			layoutHelper = new LayoutHelper(reader);
-			endLayout = layoutHelper
-				.getLayoutFromText(Globals.FORMATTER_PACKAGE);
-			reader.close();
+			endLayout = getLayout(lfFileName + ".end.layout");
 		} catch (IOException ex) {
 			// If an exception was thrown, export filter doesn't have an end
 			// file.
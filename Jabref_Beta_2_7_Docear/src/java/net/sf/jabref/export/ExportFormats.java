@@ -30,6 +30,28 @@ public class ExportFormats {
     // Global variable that is used for counting output entries when exporting:
     public static int entryNumber = 0;
 
+    // The numbers of the entries being laid out on other threads, see Layout.doLayout():
+    private static final ThreadLocal<Integer> threadEntryNumber = new ThreadLocal<Integer>();
+
+    /**
+     * Returns the number of the entry being laid out by the current thread.
+     */
+    public static int getEntryNumber() {
+        Integer number = threadEntryNumber.get();
+        return number != null ? number.intValue() : entryNumber;
+    }
+
+    /**
+     * Sets the number of the entry the current thread lays out, or clears it
+     * if null, so getEntryNumber() falls back on entryNumber.
+     */
+    public static void setThreadEntryNumber(Integer number) {
+        if (number == null)
+            threadEntryNumber.remove();
+        else
+            threadEntryNumber.set(number);
+    }
+
     public static void initAllExports() {
 
         exportFormats.clear();
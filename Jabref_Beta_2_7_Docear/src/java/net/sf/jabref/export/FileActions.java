@@ -205,12 +205,9 @@ public class FileActions
 			// ones. Apart from crossref requirements, entries will be
 			// sorted as they appear on the screen.
 			List<BibtexEntry> sorter = getSortedEntries(database, null, true);
-
-			FieldFormatter ff = new LatexFieldFormatter();
+			List<BibtexEntry> written = new ArrayList<BibtexEntry>(sorter.size());
 
 			for (BibtexEntry be : sorter) {
-				exceptionCause = be;
-
 				// Check if we must write the type definition for this
 				// entry, as well. Our criterion is that all non-standard
 				// types (*not* customized standard types) must be written.
@@ -232,11 +229,16 @@ public class FileActions
 				}
 
 				if (write) {
-					be.write(fw, ff, true);
-					fw.write(Globals.NEWLINE);
+					written.add(be);
 				}
 			}
 
+			// Entries unchanged since the last save keep their text:
+			String[] texts = database.getEntryTextCache().getTexts(written);
+			for (int i = 0; i < texts.length; i++) {
+				fw.write(texts[i]);
+			}
+
 			// Write meta data.
 			if (metaData != null) {
 				metaData.writeMetaData(fw);
@@ -270,6 +272,8 @@ public class FileActions
                         +"have been corrupted. Error message")+": "+e.getMessage());
 
 			}
+			if (ex instanceof SaveException)
+				exceptionCause = ((SaveException) ex).getEntry();
 			throw new SaveException(ex.getMessage(), exceptionCause);
 		}
 
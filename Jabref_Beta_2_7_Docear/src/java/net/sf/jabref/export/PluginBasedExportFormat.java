@@ -1,6 +1,7 @@
 package net.sf.jabref.export;
 
 import java.io.*;
+import java.net.MalformedURLException;
 import java.net.URL;
 
 import net.sf.jabref.Globals;
@@ -71,4 +72,28 @@ public class PluginBasedExportFormat extends ExportFormat {
 		throw new IOException(Globals.lang("Could not find layout file")
 			+ ": '" + filename + "'.");
 	}
+
+	@Override
+	protected URL getLayoutUrl(String filename) {
+		URL reso = extension.getDirAsUrl(filename);
+
+		if (reso != null) {
+			try {
+				reso.openStream().close();
+				return reso;
+			} catch (IOException ex) {
+				// If that didn't work, try below
+			}
+		}
+
+		File file = new File(filename);
+		if (file.exists()) {
+			try {
+				return file.toURI().toURL();
+			} catch (MalformedURLException ex) {
+				// Then it is read without caching.
+			}
+		}
+		return null;
+	}
 }
@@ -4,6 +4,7 @@ import net.sf.jabref.Globals;
 import net.sf.jabref.Util;
 import net.sf.jabref.GUIGlobals;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.FileOutputStream;
@@ -32,6 +33,7 @@ public class SaveSession {
 
     private static final String TEMP_PREFIX = "jabref";
     private static final String TEMP_SUFFIX = "save.bib";
+    private static final int BUFFER_SIZE = 65536;
 
     File file, tmp, backupFile;
     String encoding;
@@ -45,7 +47,8 @@ public class SaveSession {
         useLockFile = Globals.prefs.getBoolean("useLockFiles");
         this.backup = backup;
         this.encoding = encoding;
-        writer = new VerifyingWriter(new FileOutputStream(tmp), encoding);
+        writer = new VerifyingWriter(new BufferedOutputStream(new FileOutputStream(tmp), BUFFER_SIZE),
+            encoding);
     }
 
     public VerifyingWriter getWriter() {
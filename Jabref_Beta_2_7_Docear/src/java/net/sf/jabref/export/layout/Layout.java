@@ -25,12 +25,17 @@ http://www.gnu.org/copyleft/gpl.ja.html
 */
 package net.sf.jabref.export.layout;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Vector;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 import net.sf.jabref.BibtexDatabase;
 import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.export.ExportFormats;
+import net.sf.jabref.util.Parallel;
 import wsi.ra.types.StringInt;
 
 
@@ -42,12 +47,18 @@ import wsi.ra.types.StringInt;
  */
 public class Layout
 {
+    //~ Static fields/initializers /////////////////////////////////////////////
+
+    private static final int BLOCK_SIZE = 50;
+
     //~ Instance fields ////////////////////////////////////////////////////////
 
     private LayoutEntry[] layoutEntries;
 
     private ArrayList<String> missingFormatters = new ArrayList<String>();
 
+    private boolean usesGroups = false;
+
     //~ Constructors ///////////////////////////////////////////////////////////
 
     public Layout(Vector<StringInt> parsedEntries, String classPrefix)  throws Exception
@@ -137,6 +148,8 @@ public class Layout
             if (layoutEntries[i].isInvalidFormatter()) {
                 missingFormatters.addAll(layoutEntries[i].getInvalidFormatters());
             }
+            if (layoutEntries[i].usesGroups())
+                usesGroups = true;
 
             //System.out.println(layoutEntries[i].text);
         }
@@ -228,6 +241,76 @@ public class Layout
     public ArrayList<String> getMissingFormatters() {
         return missingFormatters;
     }
+
+    /**
+     * Writes the given entries, each processed by the layout at the same
+     * position of the layouts list, to the given writer. The entries are
+     * numbered from 1 on for the Number formatter.
+     *
+     * Blocks of entries are processed in parallel, and written in order as
+     * soon as they are done. Layouts with group blocks are processed in order
+     * on the calling thread, since their output depends on the entry before.
+     */
+    public static void doLayout(final List<BibtexEntry> entries, final List<Layout> layouts,
+        final BibtexDatabase database, final Writer out) throws IOException
+    {
+        // With one processor, this still lays out the next block while one is written:
+        boolean parallel = entries.size() > BLOCK_SIZE;
+        for (int i = 0; parallel && (i < layouts.size()); i++)
+            parallel = !layouts.get(i).usesGroups;
+
+        if (!parallel)
+        {
+            for (int i = 0; i < entries.size(); i++)
+            {
+                ExportFormats.entryNumber = i + 1;
+                out.write(layouts.get(i).doLayout(entries.get(i), database));
+            }
+            return;
+        }
+
+        // Keep only a few blocks ahead of the writer, so the output does not pile up:
+        int maxPending = 2 * Runtime.getRuntime().availableProcessors();
+        try
+        {
+            Parallel.map(Parallel.getExecutor(), entries.size(), BLOCK_SIZE, maxPending,
+                new Parallel.Block<String, IOException>() {
+                    public String process(int start, int end) {
+                        return doLayout(entries, layouts, database, start, end);
+                    }
+                },
+                new Parallel.Receiver<String, IOException>() {
+                    public void receive(String text) throws IOException {
+                        out.write(text);
+                    }
+                });
+            ExportFormats.entryNumber = entries.size();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while laying out entries");
+        }
+    }
+
+    private static String doLayout(List<BibtexEntry> entries, List<Layout> layouts,
+        BibtexDatabase database, int start, int end)
+    {
+        StringBuilder sb = new StringBuilder(1000 * (end - start));
+        try
+        {
+            for (int i = start; i < end; i++)
+            {
+                ExportFormats.setThreadEntryNumber(i + 1);
+                sb.append(layouts.get(i).doLayout(entries.get(i), database));
+            }
+        }
+        finally
+        {
+            ExportFormats.setThreadEntryNumber(null);
+        }
+        return sb.toString();
+    }
 }
 ///////////////////////////////////////////////////////////////////////////////
 //  END OF FILE.
@@ -56,6 +56,11 @@ public class LayoutEntry {
 
 	private String text;
 
+	// The fields of a field block, and whether all of them or the first present one count:
+	private String[] fields;
+
+	private boolean allFields;
+
 	private LayoutEntry[] layoutEntries;
 
 	private int type;
@@ -121,6 +126,11 @@ public class LayoutEntry {
 
 		type = layoutType;
 		text = si.s;
+		if (type == LayoutHelper.IS_FIELD_START) {
+			// split the strings along &, && or ; for AND formatter, or along |, || for OR formatter
+			allFields = text.matches(".*(;|(\\&+)).*");
+			fields = text.split(allFields ? "\\s*(;|(\\&+))\\s*" : "\\s*(\\|+)\\s*");
+		}
 
 		for (int i = 1; i < (parsedEntries.size() - 1); i++) {
 			si = parsedEntries.get(i);
@@ -196,25 +206,14 @@ public class LayoutEntry {
             String field;
             if (type == LayoutHelper.IS_GROUP_START) {
                 field = BibtexDatabase.getResolvedField(text, bibtex, database);
-            } else if(text.matches(".*(;|(\\&+)).*")) {
-		// split the strings along &, && or ; for AND formatter
-                String[] parts = text.split("\\s*(;|(\\&+))\\s*");
+            } else {
                 field = null;
-                for (int i = 0; i < parts.length; i++) {
-                    field = BibtexDatabase.getResolvedField(parts[i], bibtex, database);
-                    if (field == null)
+                for (int i = 0; i < fields.length; i++) {
+                    field = BibtexDatabase.getResolvedField(fields[i], bibtex, database);
+                    if ((field == null) == allFields)
                         break;
                 }
-            } else { 
-		// split the strings along |, ||  for OR formatter
-                String[] parts = text.split("\\s*(\\|+)\\s*");
-                field = null;
-                for (int i = 0; i < parts.length; i++) {
-                    field = BibtexDatabase.getResolvedField(parts[i], bibtex, database);
-                    if (field != null)
-                        break;
-                }
-	    }
+            }
 			
 			if ((field == null)
 				|| ((type == LayoutHelper.IS_GROUP_START) && (field.equalsIgnoreCase(LayoutHelper
@@ -353,9 +352,32 @@ public class LayoutEntry {
 
 	// added section - end (arudert)
 
+    /**
+     * Returns whether this entry or one of its blocks is a group block. The
+     * output of a group block depends on the entries laid out before.
+     */
+    public boolean usesGroups() {
+        if (type == LayoutHelper.IS_GROUP_START)
+            return true;
+        if (layoutEntries != null) {
+            for (int i = 0; i < layoutEntries.length; i++) {
+                if (layoutEntries[i].usesGroups())
+                    return true;
+            }
+        }
+        return false;
+    }
+
+	// Filled on first use, under the lock of the class:
 	static Map<String, LayoutFormatter> pluginLayoutFormatter;
+
+    // The formatter classes found for a class prefix and name, null if there is none:
+    private static final Map<String, Class<?>> formatterClasses = new HashMap<String, Class<?>>();
+
+    // The shared instances of the formatters that take no argument:
+    private static final Map<Class<?>, LayoutFormatter> formatters = new HashMap<Class<?>, LayoutFormatter>();
 	
-	public static LayoutFormatter getLayoutFormatterFromPlugins(String formatterName){
+	public static synchronized LayoutFormatter getLayoutFormatterFromPlugins(String formatterName){
 		if (pluginLayoutFormatter == null){
 			pluginLayoutFormatter = new HashMap<String, LayoutFormatter>();
             JabRefPlugin plugin = JabRefPlugin.getInstance(PluginCore.getManager());
@@ -390,23 +412,62 @@ public class LayoutEntry {
 		throws Exception {
 
 		if (className.length() > 0) {
-			try {
-				try {
-					return (LayoutFormatter) Class.forName(classPrefix + className).newInstance();
-				} catch (Throwable ex2) {
-					return (LayoutFormatter) Class.forName(className).newInstance();
-				}
-			} catch (ClassNotFoundException ex) {
+			Class<?> c = getFormatterClass(className, classPrefix);
+			if (c == null)
 				throw new Exception(Globals.lang("Formatter not found") + ": " + className);
-			} catch (InstantiationException ex) {
-				throw new Exception(className + " can not be instantiated.");
-			} catch (IllegalAccessException ex) {
-				throw new Exception(className + " can't be accessed.");
+			// Formatters taking an argument are configured per use, so they are not shared:
+			if (ParamLayoutFormatter.class.isAssignableFrom(c))
+				return newFormatter(c, className);
+			synchronized (formatters) {
+				LayoutFormatter f = formatters.get(c);
+				if (f == null) {
+					f = newFormatter(c, className);
+					formatters.put(c, f);
+				}
+				return f;
 			}
 		}
 		return null;
 	}
 
+	/**
+	 * Looks up the formatter class of the given name, first within the given
+	 * package prefix. Looking up classes by name is slow, especially if there
+	 * is none, so the result is remembered.
+	 */
+	private static Class<?> getFormatterClass(String className, String classPrefix) {
+		String key = classPrefix + '\n' + className;
+		synchronized (formatterClasses) {
+			if (formatterClasses.containsKey(key))
+				return formatterClasses.get(key);
+		}
+		Class<?> c = null;
+		String[] names = { classPrefix + className, className };
+		for (int i = 0; (i < names.length) && (c == null); i++) {
+			try {
+				Class<?> found = Class.forName(names[i]);
+				if (LayoutFormatter.class.isAssignableFrom(found))
+					c = found;
+			} catch (Throwable ex) {
+				// Not found or not loadable, try the next name.
+			}
+		}
+		synchronized (formatterClasses) {
+			formatterClasses.put(key, c);
+		}
+		return c;
+	}
+
+	private static LayoutFormatter newFormatter(Class<?> c, String className) throws Exception {
+		try {
+			return (LayoutFormatter) c.newInstance();
+		} catch (InstantiationException ex) {
+			throw new Exception(className + " can not be instantiated.");
+		} catch (IllegalAccessException ex) {
+			throw new Exception(className + " can't be accessed.");
+		}
+	}
+
 	/**
 	 * Return an array of LayoutFormatters found in the given formatterName
 	 * string (in order of appearance).
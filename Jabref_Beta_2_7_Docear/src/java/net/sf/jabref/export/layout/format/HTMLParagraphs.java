@@ -15,7 +15,7 @@ import net.sf.jabref.export.layout.LayoutFormatter;
  */
 public class HTMLParagraphs implements LayoutFormatter {
 
-	static Pattern beforeNewLines;
+	private static final Pattern beforeNewLines = Pattern.compile("(.*?)\\n\\s*\\n");
 
 	public String format(String fieldText) {
 
@@ -25,10 +25,6 @@ public class HTMLParagraphs implements LayoutFormatter {
 			return fieldText;
 		}
 		
-		if (beforeNewLines == null) {
-			beforeNewLines = Pattern.compile("(.*?)\\n\\s*\\n");
-		}
-
 		Matcher m = beforeNewLines.matcher(fieldText);
 		StringBuffer s = new StringBuffer();
 		while (m.find()) {
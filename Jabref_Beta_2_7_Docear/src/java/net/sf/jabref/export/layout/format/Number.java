@@ -13,6 +13,6 @@ public class Number implements ParamLayoutFormatter {
     }
 
     public String format(String fieldText) {
-        return String.valueOf(ExportFormats.entryNumber);
+        return String.valueOf(ExportFormats.getEntryNumber());
     }
 }
@@ -54,7 +54,19 @@ public class XMLChars implements LayoutFormatter {
 		return s.replaceAll("&|\\\\&", "&#x0026;").replaceAll("--", "&#x2013;");
 	}
 
-	boolean[] forceReplace;
+	// The characters below 126 replaced by their code, filled once, so any
+	// number of threads can share an instance:
+	private static final boolean[] forceReplace = new boolean[126];
+
+	static {
+		for (int i = 0; i < 40; i++){
+			forceReplace[i] = true;
+		}
+		forceReplace[32] = false;
+		for (int i : new int[] { 44, 45, 63, 64, 94, 95, 96, 124 }){
+			forceReplace[i] = true;
+		}
+	}
 	
 	private String restFormat(String toFormat) {
 		
@@ -65,17 +77,6 @@ public class XMLChars implements LayoutFormatter {
 		// AND: this is accepted in the abstract of bibtex files, so are forced
 		// to catch those cases
 
-		if (forceReplace == null){
-			 forceReplace = new boolean[126];
-			 for (int i = 0; i < 40; i++){
-				 forceReplace[i] = true;
-			 }
-			 forceReplace[32] = false;
-			 for (int i : new int[] { 44, 45, 63, 64, 94, 95, 96, 124 }){
-				 forceReplace[i] = true;
-			 }
-		}
-		
 		StringBuffer buffer = new StringBuffer(fieldText.length() * 2);
 		
 		for (int i = 0; i < fieldText.length(); i++) {
@@ -0,0 +1,201 @@
+package net.sf.jabref.external;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.jabref.Util;
+import net.sf.jabref.util.Parallel;
+
+/**
+ * Remembers the contents of the directories searched for files to link, so
+ * linking the files of many entries lists every directory only once.
+ *
+ * Every search starts a new generation by calling newSearch(). A directory
+ * listed before is checked once per generation, and only listed again if its
+ * modification time has changed, which it does whenever files are added to,
+ * removed from or renamed in it.
+ *
+ * Only the directories used most recently are remembered, so searching
+ * large trees now and then does not keep their listings in memory for good.
+ */
+public class FileIndex {
+
+    // Listings taken this close to the directory's modification time may miss
+    // changes made within the resolution of the time stamps:
+    private static final long TIME_RESOLUTION = 2000;
+
+    // The number of directories remembered:
+    private static final int MAX_DIRECTORIES = 10000;
+
+    private static final FileIndex instance = new FileIndex();
+
+    /**
+     * A file or directory in an indexed directory.
+     */
+    public static class IndexedFile {
+        public final File file;
+        public final String name;
+        // The name without its extension, and the extension trimmed and in lower case:
+        public final String stem, extension;
+        public final boolean directory;
+
+        IndexedFile(File file, boolean directory) {
+            this.file = file;
+            this.directory = directory;
+            name = file.getName();
+            int dot = name.lastIndexOf('.');
+            stem = dot > 0 ? name.substring(0, dot) : null;
+            extension = Util.getFileExtension(file);
+        }
+    }
+
+    private static class Directory {
+        final long lastModified, listed;
+        final IndexedFile[] children;
+        final File[] subDirectories;
+        int generation;
+
+        Directory(long lastModified, long listed, IndexedFile[] children, File[] subDirectories) {
+            this.lastModified = lastModified;
+            this.listed = listed;
+            this.children = children;
+            this.subDirectories = subDirectories;
+        }
+    }
+
+    /**
+     * The directories listed, forgetting the least recently used ones beyond
+     * MAX_DIRECTORIES.
+     */
+    private static class DirectoryMap extends LinkedHashMap<File, Directory> {
+        private static final long serialVersionUID = 1L;
+
+        DirectoryMap() {
+            super(16, 0.75f, true); // ordered by access
+        }
+
+        protected boolean removeEldestEntry(Map.Entry<File, Directory> eldest) {
+            return size() > MAX_DIRECTORIES;
+        }
+    }
+
+    private final Map<File, Directory> directories = new DirectoryMap();
+    private int generation = 0;
+
+    public static FileIndex getInstance() {
+        return instance;
+    }
+
+    /**
+     * Starts a new search, so the directories are checked for changes again.
+     */
+    public synchronized void newSearch() {
+        generation++;
+    }
+
+    /**
+     * Returns the files and directories in the given directory, or null if
+     * it cannot be listed.
+     */
+    public IndexedFile[] getChildren(File directory) {
+        Directory dir = getDirectory(directory);
+        return dir == null ? null : dir.children;
+    }
+
+    /**
+     * Returns the directories in the given directory, or null if it cannot be
+     * listed.
+     */
+    public File[] getSubDirectories(File directory) {
+        Directory dir = getDirectory(directory);
+        return dir == null ? null : dir.subDirectories;
+    }
+
+    /**
+     * Returns the files in the given directories and all directories below.
+     * The directories of one level are listed in parallel.
+     */
+    public List<IndexedFile> getAllFiles(Collection<File> roots) {
+        List<IndexedFile> result = new ArrayList<IndexedFile>();
+        List<File> level = new ArrayList<File>(roots);
+        while (!level.isEmpty()) {
+            List<Directory> listed = getDirectories(level);
+            level = new ArrayList<File>();
+            for (Directory dir : listed) {
+                if (dir == null)
+                    continue;
+                for (IndexedFile child : dir.children) {
+                    if (!child.directory)
+                        result.add(child);
+                }
+                for (File sub : dir.subDirectories)
+                    level.add(sub);
+            }
+        }
+        return result;
+    }
+
+    private List<Directory> getDirectories(final List<File> level) {
+        final List<Directory> result = new ArrayList<Directory>(level.size());
+        try {
+            Parallel.map(Parallel.getIoExecutor(), level.size(), 1, Integer.MAX_VALUE,
+                new Parallel.Block<Directory, RuntimeException>() {
+                    public Directory process(int start, int end) {
+                        return getDirectory(level.get(start));
+                    }
+                },
+                new Parallel.Receiver<Directory, RuntimeException>() {
+                    public void receive(Directory directory) {
+                        result.add(directory);
+                    }
+                });
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return result;
+    }
+
+    private Directory getDirectory(File directory) {
+        Directory dir;
+        int current;
+        synchronized (this) {
+            dir = directories.get(directory);
+            current = generation;
+            if ((dir != null) && (dir.generation == current))
+                return dir;
+        }
+        long lastModified = directory.lastModified();
+        if ((dir == null) || (lastModified == 0) || (dir.lastModified != lastModified)
+                || (dir.listed - lastModified < TIME_RESOLUTION))
+            dir = list(directory, lastModified);
+        synchronized (this) {
+            if (dir == null)
+                directories.remove(directory);
+            else {
+                dir.generation = current;
+                directories.put(directory, dir);
+            }
+        }
+        return dir;
+    }
+
+    private static Directory list(File directory, long lastModified) {
+        long listed = System.currentTimeMillis();
+        File[] files = directory.listFiles();
+        if (files == null) // No permission?
+            return null;
+        IndexedFile[] children = new IndexedFile[files.length];
+        List<File> subDirectories = new ArrayList<File>();
+        for (int i = 0; i < files.length; i++) {
+            children[i] = new IndexedFile(files[i], files[i].isDirectory());
+            if (children[i].directory)
+                subDirectories.add(files[i]);
+        }
+        return new Directory(lastModified, listed, children,
+            subDirectories.toArray(new File[subDirectories.size()]));
+    }
+}
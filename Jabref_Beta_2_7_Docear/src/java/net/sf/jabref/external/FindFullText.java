@@ -37,9 +37,25 @@ public class FindFullText {
         finders.add(new SpringerLinkPdfDownload());
     }
 
+    /**
+     * Create a FindFullText using the given finders instead of the default ones.
+     * @param finders The finders to try, in order.
+     */
+    public FindFullText(List<FullTextFinder> finders) {
+        this.finders.addAll(finders);
+    }
+
     public FindResult findFullText(BibtexEntry entry) {
-        String urlText = entry.getField("url");
-        String doiText = entry.getField("doi");
+        return findFullText(entry.getField("doi"), entry.getField("url"));
+    }
+
+    /**
+     * Try to find the full text of an article from its DOI and URL links.
+     * @param doiText The DOI, or null if none.
+     * @param urlText The URL, or null if none.
+     * @return The result, or null if the link couldn't be opened.
+     */
+    public FindResult findFullText(String doiText, String urlText) {
         // First try the DOI link, if defined:
         if ((doiText != null) && (doiText.trim().length() > 0)) {
             FindResult resDoi = lookForFullTextAtURL(Globals.DOI_LOOKUP_PREFIX+doiText);
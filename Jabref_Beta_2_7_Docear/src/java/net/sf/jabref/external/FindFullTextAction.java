@@ -1,20 +1,33 @@
 package net.sf.jabref.external;
 
 import net.sf.jabref.*;
+import net.sf.jabref.undo.NamedCompound;
 import net.sf.jabref.undo.UndoableFieldChange;
 import net.sf.jabref.gui.FileListEntry;
 import net.sf.jabref.gui.FileListTableModel;
 
 import javax.swing.*;
+import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
 
 /**
  * Try to download fulltext PDF for selected entry(ies) by following URL or DOI link.
+ * The documents of several entries are downloaded in parallel to the main file
+ * directory, and linked without asking.
 */
 public class FindFullTextAction extends AbstractWorker {
+    // The number of entries in the pipeline at most, and the milliseconds between
+    // two requests to the same site:
+    private static final int MAX_PENDING = 16;
+    private static final long HOST_INTERVAL = 1000;
+
     private BasePanel basePanel;
     private BibtexEntry entry = null;
     private FindFullText.FindResult result = null;
+    private Map<BibtexEntry, FullTextFetcher.Result> results = null;
+    private String message = null;
 
     public FindFullTextAction(BasePanel basePanel) {
         this.basePanel = basePanel;
@@ -25,12 +38,84 @@ public class FindFullTextAction extends AbstractWorker {
     }
 
     public void run() {
-        entry = basePanel.getSelectedEntries()[0];
+        // The action is reused, so forget the outcome of the previous run:
+        result = null;
+        results = null;
+        message = null;
+        BibtexEntry[] entries = basePanel.getSelectedEntries();
+        if (entries.length > 1) {
+            fetchAll(entries);
+            return;
+        }
+        entry = entries[0];
         FindFullText fft = new FindFullText();
         result = fft.findFullText(entry);
     }
 
+    private void fetchAll(BibtexEntry[] entries) {
+        String fileDir = basePanel.metaData().getFileDirectory(GUIGlobals.FILE_FIELD);
+        if ((fileDir == null) || !new File(fileDir).isDirectory()) {
+            message = Globals.lang("File directory is not set or does not exist.");
+            return;
+        }
+        FullTextFetcher fetcher = new FullTextFetcher(new FindFullText(), new File(fileDir),
+                MAX_PENDING, HOST_INTERVAL);
+        try {
+            results = fetcher.fetch(Arrays.asList(entries), null);
+        } catch (IOException e) {
+            e.printStackTrace();
+            message = Globals.lang("Connection error when trying to find full text document.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Link the downloaded documents to their entries.
+     */
+    private void linkAll() {
+        NamedCompound ce = new NamedCompound(Globals.lang("Download full text documents"));
+        int count = 0;
+        for (Map.Entry<BibtexEntry, FullTextFetcher.Result> e : results.entrySet()) {
+            if ((e.getValue() == null) || (e.getValue().file == null))
+                continue;
+            // The documents are downloaded to the main file directory, so link them by name:
+            String link = e.getValue().file.getName();
+            FileListTableModel tm = new FileListTableModel();
+            String oldValue = e.getKey().getField(GUIGlobals.FILE_FIELD);
+            tm.setContent(oldValue);
+            boolean linked = false;
+            for (int i = 0; i < tm.getRowCount(); i++)
+                linked |= link.equals(tm.getEntry(i).getLink());
+            count++;
+            if (linked)
+                continue;
+            tm.addEntry(tm.getRowCount(), new FileListEntry("", link,
+                    Globals.prefs.getExternalFileTypeByExt("pdf")));
+            String newValue = tm.getStringRepresentation();
+            ce.addEdit(new UndoableFieldChange(e.getKey(), GUIGlobals.FILE_FIELD, oldValue, newValue));
+            e.getKey().setField(GUIGlobals.FILE_FIELD, newValue);
+        }
+        ce.end();
+        if (ce.hasEdits()) {
+            basePanel.undoManager.addEdit(ce);
+            basePanel.markBaseChanged();
+        }
+        basePanel.output(Globals.lang("Downloaded %0 of %1 full text documents.",
+                String.valueOf(count), String.valueOf(results.size())));
+    }
+
     public void update() {
+        if (message != null) {
+            basePanel.output(message);
+            return;
+        }
+        if (results != null) {
+            linkAll();
+            return;
+        }
+        if (result == null) // Interrupted
+            return;
         //pdfURL = new URL("http://geog-www.sbs.ohio-state.edu/faculty/bmark/abbott_etal_ppp03.pdf");
         if (result.url != null) {
             //System.out.println("PDF URL: "+result.url);
@@ -0,0 +1,442 @@
+package net.sf.jabref.external;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.Globals;
+import net.sf.jabref.util.Parallel;
+
+/**
+ * Finds and downloads the full text documents of many entries at once.
+ *
+ * Every entry goes through two stages: resolving its DOI or URL link to the
+ * document's URL with FindFullText, and downloading the document straight to
+ * a file in the download directory. Both stages run on a shared pool of
+ * threads, so documents download while the links of later entries are still
+ * being resolved. At most a given number of links are in the pipeline at
+ * once, and requests to the same host are spaced out by a minimum interval.
+ * Entries with the same links are resolved once, and documents with the same
+ * URL downloaded once.
+ *
+ * Which document each link led to, and which file each document went to, is
+ * kept in a progress file in the download directory. A fetch that was
+ * interrupted therefore picks up where it stopped: downloaded documents are
+ * not fetched again, and partly downloaded ones are continued where the
+ * server supports it.
+ */
+public class FullTextFetcher {
+
+    /**
+     * The name of the progress file in the download directory.
+     */
+    public static final String PROGRESS_FILE = ".jabref-fulltext";
+
+    private static final String PART_SUFFIX = ".part";
+
+    private static final long CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * The outcome of fetching the document of an entry.
+     */
+    public static class Result {
+        /** The outcome of resolving the entry's links. */
+        public final FindFullText.FindResult find;
+        /** The downloaded document, or null if it couldn't be downloaded. */
+        public final File file;
+
+        Result(FindFullText.FindResult find, File file) {
+            this.find = find;
+            this.file = file;
+        }
+    }
+
+    /**
+     * Is told about every entry as soon as its document has been fetched, or
+     * failed to be, on one of the fetching threads.
+     */
+    public interface Listener {
+        public void fetched(BibtexEntry entry, Result result);
+    }
+
+    /**
+     * The entries sharing the same DOI and URL links.
+     */
+    private static class Link {
+        final List<BibtexEntry> entries = new ArrayList<BibtexEntry>();
+        final String doi, url;
+        boolean done = false;
+
+        Link(String doi, String url) {
+            this.doi = doi;
+            this.url = url;
+        }
+    }
+
+    /**
+     * The download of one document, and the links waiting for it.
+     */
+    private static class Download {
+        final URL url;
+        final FindFullText.FindResult find;
+        final List<Link> waiting = new ArrayList<Link>();
+        File file = null;
+        boolean finished = false;
+
+        Download(URL url, FindFullText.FindResult find) {
+            this.url = url;
+            this.find = find;
+        }
+    }
+
+    private final FindFullText finder;
+    private final File directory;
+    private final long hostInterval;
+    private final Semaphore pending;
+
+    // The time from which each host may be sent the next request:
+    private final Map<String, Long> nextRequest = new HashMap<String, Long>();
+    private final Map<String, Download> downloads = new HashMap<String, Download>();
+    private final Properties progress = new Properties();
+
+    private Map<BibtexEntry, Result> results = null;
+    private Listener listener;
+    private CountDownLatch remaining;
+    private volatile boolean cancelled = false;
+
+    /**
+     * @param finder
+     *            Resolves the links of entries to the URLs of their documents.
+     * @param directory
+     *            The directory to download the documents to.
+     * @param maxPending
+     *            The number of links in the pipeline at most.
+     * @param hostInterval
+     *            The time in milliseconds to wait at least between two
+     *            requests to the same host.
+     */
+    public FullTextFetcher(FindFullText finder, File directory, int maxPending, long hostInterval) {
+        this.finder = finder;
+        this.directory = directory;
+        this.hostInterval = hostInterval;
+        pending = new Semaphore(maxPending);
+    }
+
+    /**
+     * Fetches the documents of the given entries, and waits until all are
+     * downloaded or have failed. If the thread is interrupted, the downloads
+     * stop, and the next fetcher for the same directory continues them. A
+     * fetcher can only fetch once.
+     *
+     * @param listener
+     *            Is told about every entry fetched, or null.
+     * @return The result of every entry, in the order given.
+     */
+    public synchronized Map<BibtexEntry, Result> fetch(List<BibtexEntry> entries, Listener listener)
+            throws IOException, InterruptedException {
+        if (results != null)
+            throw new IllegalStateException("Already fetched");
+        results = new LinkedHashMap<BibtexEntry, Result>();
+        for (BibtexEntry entry : entries)
+            results.put(entry, null);
+        this.listener = listener;
+        directory.mkdirs();
+        loadProgress();
+
+        Map<String, Link> links = new LinkedHashMap<String, Link>();
+        for (BibtexEntry entry : entries) {
+            String doi = trim(entry.getField("doi")), url = trim(entry.getField("url"));
+            String key = ((doi == null) ? "" : doi.toLowerCase()) + " " + ((url == null) ? "" : url);
+            Link link = links.get(key);
+            if (link == null) {
+                link = new Link(doi, url);
+                links.put(key, link);
+            }
+            link.entries.add(entry);
+        }
+
+        remaining = new CountDownLatch(links.size());
+        try {
+            for (Map.Entry<String, Link> link : links.entrySet()) {
+                pending.acquire();
+                Parallel.getIoExecutor().execute(resolveTask(link.getKey(), link.getValue()));
+            }
+            remaining.await();
+        } finally {
+            cancelled = true;
+        }
+        return results;
+    }
+
+    private static String trim(String s) {
+        if (s == null)
+            return null;
+        s = s.trim();
+        return s.length() > 0 ? s : null;
+    }
+
+    private Runnable resolveTask(final String key, final Link link) {
+        return new Runnable() {
+            public void run() {
+                Download download = null;
+                try {
+                    if (cancelled)
+                        return;
+                    // The document the link led to last time:
+                    String known = getProgress("link." + key);
+                    FindFullText.FindResult find;
+                    if (known != null)
+                        find = new FindFullText.FindResult(new URL(known), null);
+                    else {
+                        if ((link.doi != null) || (link.url != null))
+                            waitForHost(getHost(link));
+                        find = finder.findFullText(link.doi, link.url);
+                        if (find == null) // The link couldn't be opened
+                            find = new FindFullText.FindResult(FindFullText.IO_EXCEPTION, null);
+                        else if (find.url != null)
+                            setProgress("link." + key, find.url.toExternalForm());
+                    }
+                    if (find.url != null)
+                        download = getDownload(find, link);
+                    else
+                        finish(link, new Result(find, null));
+                } catch (InterruptedException ex) {
+                    cancelled = true;
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                    finish(link, new Result(new FindFullText.FindResult(FindFullText.IO_EXCEPTION, null), null));
+                } finally {
+                    // Count the link as done here unless a download has taken it over:
+                    if (download == null)
+                        finish(link, null);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the download of the document found, adding the link to those
+     * waiting for it, and starts it if it's new.
+     */
+    private Download getDownload(FindFullText.FindResult find, Link link) {
+        String url = find.url.toExternalForm();
+        final Download download;
+        synchronized (downloads) {
+            Download existing = downloads.get(url);
+            if (existing != null) {
+                synchronized (existing) {
+                    if (!existing.finished) {
+                        existing.waiting.add(link);
+                        return existing;
+                    }
+                }
+                finish(link, new Result(find, existing.file));
+                return existing;
+            }
+            download = new Download(find.url, find);
+            download.waiting.add(link);
+            downloads.put(url, download);
+        }
+        Parallel.getIoExecutor().execute(new Runnable() {
+            public void run() {
+                File file = null;
+                Link first;
+                synchronized (download) {
+                    first = download.waiting.get(0);
+                }
+                try {
+                    if (!cancelled)
+                        file = download(download.url, getFile(download.url, first));
+                } catch (InterruptedException ex) {
+                    cancelled = true;
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                }
+                List<Link> waiting;
+                synchronized (download) {
+                    download.file = file;
+                    download.finished = true;
+                    waiting = new ArrayList<Link>(download.waiting);
+                }
+                for (Link l : waiting)
+                    finish(l, cancelled ? null : new Result(download.find, file));
+            }
+        });
+        return download;
+    }
+
+    /**
+     * Records the result of a link's entries, and counts the link as done.
+     * A null result means the link was not fetched, and leaves the results
+     * of its entries null.
+     */
+    private void finish(Link link, Result result) {
+        synchronized (link) {
+            if (link.done)
+                return;
+            link.done = true;
+        }
+        if (result != null) {
+            for (BibtexEntry entry : link.entries) {
+                synchronized (results) {
+                    results.put(entry, result);
+                }
+                if (listener != null)
+                    listener.fetched(entry, result);
+            }
+        }
+        pending.release();
+        remaining.countDown();
+    }
+
+    private String getHost(Link link) throws MalformedURLException {
+        return new URL(link.doi != null ? Globals.DOI_LOOKUP_PREFIX + link.doi : link.url).getHost();
+    }
+
+    /**
+     * Waits until the host may be sent the next request, and reserves the
+     * next interval for this thread.
+     */
+    private void waitForHost(String host) throws InterruptedException {
+        long now = System.currentTimeMillis(), at;
+        synchronized (nextRequest) {
+            Long next = nextRequest.get(host);
+            at = (next == null) ? now : Math.max(now, next.longValue());
+            nextRequest.put(host, at + hostInterval);
+        }
+        if (at > now)
+            Thread.sleep(at - now);
+    }
+
+    /**
+     * Returns the file to download the document to, the same as last time if
+     * it was downloaded to this directory before.
+     */
+    private File getFile(URL url, Link link) {
+        synchronized (progress) {
+            String name = getProgress("file." + url.toExternalForm());
+            if (name != null)
+                return new File(directory, name);
+            String key = link.entries.isEmpty() ? null : link.entries.get(0).getCiteKey();
+            String base = (key != null) ? new DownloadExternalFile(null, null, key).getSuggestedFileName("")
+                : "fulltext-" + Integer.toHexString(url.toExternalForm().hashCode());
+            Set<String> taken = new HashSet<String>();
+            for (Object o : progress.keySet()) {
+                if (((String) o).startsWith("file."))
+                    taken.add(progress.getProperty((String) o));
+            }
+            name = base + ".pdf";
+            for (int i = 2; taken.contains(name) || new File(directory, name).exists()
+                    || new File(directory, name + PART_SUFFIX).exists(); i++)
+                name = base + "-" + i + ".pdf";
+            setProgress("file." + url.toExternalForm(), name);
+            return new File(directory, name);
+        }
+    }
+
+    /**
+     * Downloads the document to the file, unless it is there already. The
+     * document goes to a partial file first, and a partial file left from
+     * last time is continued if the server supports ranges.
+     */
+    private File download(URL url, File file) throws IOException, InterruptedException {
+        if (file.exists())
+            return file;
+        File part = new File(file.getPath() + PART_SUFFIX);
+        waitForHost(url.getHost());
+        URLConnection connection = url.openConnection();
+        connection.setRequestProperty("User-Agent", "Jabref");
+        long start = part.length();
+        if (start > 0)
+            connection.setRequestProperty("Range", "bytes=" + start + "-");
+        InputStream in = connection.getInputStream();
+        try {
+            if ((start > 0) && (!(connection instanceof HttpURLConnection)
+                    || (((HttpURLConnection) connection).getResponseCode() != HttpURLConnection.HTTP_PARTIAL)))
+                start = 0; // The whole document is sent again
+            long length = (connection.getContentLength() < 0) ? -1 : start + connection.getContentLength();
+            FileOutputStream out = new FileOutputStream(part, start > 0);
+            try {
+                FileChannel channel = out.getChannel();
+                ReadableByteChannel source = Channels.newChannel(in);
+                long transferred;
+                while ((transferred = channel.transferFrom(source, start, CHUNK_SIZE)) > 0) {
+                    start += transferred;
+                    if (cancelled || Thread.interrupted())
+                        throw new InterruptedException();
+                }
+            } finally {
+                out.close();
+            }
+            if ((length >= 0) && (start != length))
+                throw new IOException("Incomplete download of " + url);
+        } finally {
+            in.close();
+        }
+        if (!part.renameTo(file))
+            throw new IOException("Could not rename " + part + " to " + file.getName());
+        return file;
+    }
+
+    private String getProgress(String key) {
+        synchronized (progress) {
+            return progress.getProperty(key);
+        }
+    }
+
+    private void setProgress(String key, String value) {
+        synchronized (progress) {
+            progress.setProperty(key, value);
+            try {
+                File temp = new File(directory, PROGRESS_FILE + ".tmp");
+                OutputStream out = new FileOutputStream(temp);
+                try {
+                    progress.store(out, "Full text downloads of JabRef");
+                } finally {
+                    out.close();
+                }
+                File file = new File(directory, PROGRESS_FILE);
+                if ((file.exists() && !file.delete()) || !temp.renameTo(file))
+                    Globals.logger("Could not save full text download progress");
+            } catch (IOException ex) {
+                Globals.logger("Could not save full text download progress: " + ex.getMessage());
+            }
+        }
+    }
+
+    private void loadProgress() throws IOException {
+        synchronized (progress) {
+            progress.clear();
+            File file = new File(directory, PROGRESS_FILE);
+            if (!file.exists())
+                return;
+            InputStream in = new FileInputStream(file);
+            try {
+                progress.load(in);
+            } finally {
+                in.close();
+            }
+        }
+    }
+}
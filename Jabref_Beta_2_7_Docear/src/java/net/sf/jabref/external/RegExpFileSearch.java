@@ -4,7 +4,6 @@ import net.sf.jabref.*;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.FilenameFilter;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.*;
@@ -46,9 +45,12 @@ public class RegExpFileSearch {
     public static Map<BibtexEntry, java.util.List<File>> findFilesForSet(Collection<BibtexEntry> entries,
                  Collection<String> extensions, List<File> directories, String regExp) {
 
+        // All entries are searched for in the same listings of the directories:
+        FileIndex.getInstance().newSearch();
+        String extensionRegExp = getExtensionRegExp(extensions);
         Map<BibtexEntry, java.util.List<File>> res = new HashMap<BibtexEntry, List<File>>();
         for (BibtexEntry entry : entries) {
-            res.put(entry, findFiles(entry, extensions, directories, regExp));
+            res.put(entry, findFile(entry, null, directories, regExp, extensionRegExp, true, false));
         }
         return res;
     }
@@ -65,15 +67,17 @@ public class RegExpFileSearch {
     public static List<File> findFiles(BibtexEntry entry, Collection<String> extensions,
                                        Collection<File> directories, String regularExpression) {
 
+        return findFile(entry, null, directories, regularExpression, getExtensionRegExp(extensions), true);
+    }
+
+    private static String getExtensionRegExp(Collection<String> extensions) {
         StringBuilder sb = new StringBuilder();
         for (Iterator<String> i = extensions.iterator(); i.hasNext();) {
             sb.append(i.next());
             if (i.hasNext())
                     sb.append("|");
         }
-        String extensionRegExp = "("+sb.toString()+")";
-
-        return findFile(entry, null, directories, regularExpression, extensionRegExp, true);
+        return "("+sb.toString()+")";
     }
 
         /**
@@ -118,6 +122,18 @@ public class RegExpFileSearch {
 	 */
 	public static List<File> findFile(BibtexEntry entry, BibtexDatabase database, Collection<File> dirs,
 		String file, String extensionRegExp, boolean relative) {
+        return findFile(entry, database, dirs, file, extensionRegExp, relative, true);
+    }
+
+    /**
+     * @param newSearch
+     *            whether to check the directories listed for earlier searches
+     *            for changes
+     */
+    private static List<File> findFile(BibtexEntry entry, BibtexDatabase database, Collection<File> dirs,
+        String file, String extensionRegExp, boolean relative, boolean newSearch) {
+        if (newSearch)
+            FileIndex.getInstance().newSearch();
         ArrayList<File> res = new ArrayList<File>();
 		for (File directory : dirs) {
             List<File> tmp = findFile(entry, database, directory.getPath(), file, extensionRegExp, relative);
@@ -217,14 +233,12 @@ public class RegExpFileSearch {
                 }
                 if (dirToProcess.equals("*")) { // Do for all direct subdirs
 
-                    File[] subDirs = directory.listFiles();
+                    File[] subDirs = FileIndex.getInstance().getSubDirectories(directory);
                     if (subDirs != null) {
                         String restOfFileString = Util.join(fileParts, "/", i + 1, fileParts.length);
                         for (int sub = 0; sub < subDirs.length; sub++) {
-                            if (subDirs[sub].isDirectory()) {
-                                res.addAll(findFile(entry, database, subDirs[sub],
-                                    restOfFileString, extensionRegExp));
-                            }
+                            res.addAll(findFile(entry, database, subDirs[sub],
+                                restOfFileString, extensionRegExp));
                         }
                     }
                 }
@@ -238,15 +252,13 @@ public class RegExpFileSearch {
                     while (!toDo.isEmpty()) {
 
                         // Get all subdirs of each of the elements found in toDo
-                        File[] subDirs = toDo.remove(0).listFiles();
+                        File[] subDirs = FileIndex.getInstance().getSubDirectories(toDo.remove(0));
                         if (subDirs == null) // No permission?
                             continue;
 
                         toDo.addAll(Arrays.asList(subDirs));
 
                         for (int sub = 0; sub < subDirs.length; sub++) {
-                            if (!subDirs[sub].isDirectory())
-                                continue;
                             res.addAll(findFile(entry, database, subDirs[sub], restOfFileString,
                                     extensionRegExp));
                         }
@@ -264,15 +276,11 @@ public class RegExpFileSearch {
         final Pattern toMatch = Pattern.compile("^"
             + filenameToLookFor.replaceAll("\\\\\\\\", "\\\\") + "$", Pattern.CASE_INSENSITIVE);
 
-        File[] matches = directory.listFiles(new FilenameFilter() {
-            public boolean accept(File arg0, String arg1) {
-                return toMatch.matcher(arg1).matches();
-            }
-        });
-        if (matches != null && (matches.length > 0))
-            for (int i = 0; i < matches.length; i++) {
-                File match = matches[i];
-                res.add(match);
+        FileIndex.IndexedFile[] children = FileIndex.getInstance().getChildren(directory);
+        if (children != null)
+            for (int i = 0; i < children.length; i++) {
+                if (toMatch.matcher(children[i].name).matches())
+                    res.add(children[i].file);
             }
         return res;
     }
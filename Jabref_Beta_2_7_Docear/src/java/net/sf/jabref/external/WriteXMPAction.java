@@ -8,13 +8,15 @@ import java.awt.event.ActionListener;
 import java.io.File;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.swing.*;
 
 import net.sf.jabref.*;
 import net.sf.jabref.gui.FileListTableModel;
 import net.sf.jabref.gui.FileListEntry;
-import net.sf.jabref.util.XMPUtil;
+import net.sf.jabref.util.XMPBatchWriter;
 
 import com.jgoodies.forms.builder.ButtonBarBuilder;
 
@@ -92,6 +94,12 @@ public class WriteXMPAction extends AbstractWorker {
 		if (!goOn)
 			return;
 
+		// Queue the writes of all entries, so several files are written at
+		// once, then report on them in the order of the entries:
+		XMPBatchWriter writer = new XMPBatchWriter(database);
+		List<List<File>> entryFiles = new ArrayList<List<File>>();
+		List<List<Future<Boolean>>> entryWrites = new ArrayList<List<Future<Boolean>>>();
+
 		for (int i = 0; i < entries.length; i++) {
 
 			BibtexEntry entry = entries[i];
@@ -122,14 +130,28 @@ public class WriteXMPAction extends AbstractWorker {
                 }
             }
 
-            optDiag.progressArea.append(entry.getCiteKey() + "\n");
+            List<Future<Boolean>> writes = new ArrayList<Future<Boolean>>();
+            for (File file : files)
+                writes.add(file.exists() ? writer.add(file, entry) : null);
+            entryFiles.add(files);
+            entryWrites.add(writes);
+		}
+		writer.start();
+
+		for (int i = 0; i < entries.length; i++) {
+
+            List<File> files = entryFiles.get(i);
+            List<Future<Boolean>> writes = entryWrites.get(i);
+
+            optDiag.progressArea.append(entries[i].getCiteKey() + "\n");
 
 			if (files.size() == 0) {
 				skipped++;
 				optDiag.progressArea.append("  " + Globals.lang("Skipped - No PDF linked") + ".\n");
 			}
-            else for (File file : files) {
-                if (!file.exists()) {
+            else for (int j = 0; j < files.size(); j++) {
+                File file = files.get(j);
+                if (writes.get(j) == null) {
                     skipped++;
 				    optDiag.progressArea.append("  " + Globals.lang("Skipped - PDF does not exist")
 					    + ":\n");
@@ -138,10 +160,20 @@ public class WriteXMPAction extends AbstractWorker {
 
                 } else {
                     try {
-                        XMPUtil.writeXMP(file, entry, database);
-                        optDiag.progressArea.append("  " + Globals.lang("Ok") + ".\n");
-                        entriesChanged++;
-                    } catch (Exception e) {
+                        if (writes.get(j).get().booleanValue()) {
+                            optDiag.progressArea.append("  " + Globals.lang("Ok") + ".\n");
+                            entriesChanged++;
+                        } else {
+                            optDiag.progressArea.append("  " + Globals.lang("Skipped - XMP-metadata up to date")
+                                + ".\n");
+                            skipped++;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        optDiag.canceled = true;
+                        break;
+                    } catch (ExecutionException ee) {
+                        Throwable e = ee.getCause();
                         optDiag.progressArea.append("  " + Globals.lang("Error while writing") + " '"
                             + file.getPath() + "':\n");
                         optDiag.progressArea.append("    " + e.getLocalizedMessage() + "\n");
@@ -151,6 +183,7 @@ public class WriteXMPAction extends AbstractWorker {
             }
 
             if (optDiag.canceled){
+                writer.cancel();
                 optDiag.progressArea.append("\n"
                     + Globals.lang("Operation canceled.\n"));
                 break;
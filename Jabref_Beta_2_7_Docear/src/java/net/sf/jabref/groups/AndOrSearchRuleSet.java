@@ -26,8 +26,10 @@
  */
 package net.sf.jabref.groups;
 
+import java.util.Collection;
 import java.util.Map;
 
+import net.sf.jabref.BibtexDatabase;
 import net.sf.jabref.BibtexEntry;
 import net.sf.jabref.SearchRule;
 import net.sf.jabref.SearchRuleSet;
@@ -65,4 +67,12 @@ class AndOrSearchRuleSet extends SearchRuleSet {
             return (res ? 0 : 1);
         return (res ? 1 : 0);
     }
+
+    public Collection<BibtexEntry> getCandidates(Map<String, String> searchStrings,
+        BibtexDatabase database) {
+        // An inverted rule set matches the entries its rules don't:
+        if (invert)
+            return null;
+        return super.getCandidates(searchStrings, database);
+    }
 }
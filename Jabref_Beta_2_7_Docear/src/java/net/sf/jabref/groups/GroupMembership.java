@@ -0,0 +1,304 @@
+package net.sf.jabref.groups;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.DatabaseChangeEvent;
+import net.sf.jabref.DatabaseChangeListener;
+import net.sf.jabref.util.Parallel;
+
+/**
+ * Keeps the entries of every group of a database as a bit set over entry
+ * ordinals, so selecting, combining and highlighting groups are bit set
+ * operations instead of testing every entry against every group.
+ *
+ * The bit set of a group is computed the first time it is needed, for all
+ * groups of a tree at once and in parallel. Added and changed entries are
+ * only tested again against the known groups, the next time any bit set is
+ * needed. Explicit groups change without the database noticing, so their
+ * bit sets are built from their entries every time, which is cheap.
+ */
+public class GroupMembership implements DatabaseChangeListener {
+
+    private static final int BLOCK_SIZE = 200;
+
+    private final Map<BibtexEntry, Integer> ordinals = new HashMap<BibtexEntry, Integer>();
+    // The entry of each ordinal, or null where the ordinal is free:
+    private final List<BibtexEntry> entries = new ArrayList<BibtexEntry>();
+    // The ordinals in use, and those of entries not tested since they changed:
+    private final BitSet live = new BitSet(), dirty = new BitSet();
+    private final Map<AbstractGroup, BitSet> members = new IdentityHashMap<AbstractGroup, BitSet>();
+
+    public GroupMembership(BibtexDatabase database) {
+        for (BibtexEntry entry : database.getEntries())
+            add(entry);
+        dirty.clear();
+        database.addDatabaseChangeListener(this);
+    }
+
+    public synchronized void databaseChanged(DatabaseChangeEvent e) {
+        BibtexEntry entry = e.getEntry();
+        if (entry == null)
+            return;
+        Integer ordinal = ordinals.get(entry);
+        if (e.getType() == DatabaseChangeEvent.ADDED_ENTRY) {
+            if (ordinal == null)
+                add(entry);
+        } else if (e.getType() == DatabaseChangeEvent.CHANGED_ENTRY) {
+            if (ordinal != null)
+                dirty.set(ordinal);
+        } else if ((e.getType() == DatabaseChangeEvent.REMOVED_ENTRY) && (ordinal != null)) {
+            ordinals.remove(entry);
+            entries.set(ordinal, null);
+            live.clear(ordinal);
+            dirty.clear(ordinal);
+            for (BitSet bits : members.values())
+                bits.clear(ordinal);
+        }
+    }
+
+    private void add(BibtexEntry entry) {
+        int ordinal = live.nextClearBit(0);
+        if (ordinal == entries.size())
+            entries.add(entry);
+        else
+            entries.set(ordinal, entry);
+        ordinals.put(entry, ordinal);
+        live.set(ordinal);
+        dirty.set(ordinal);
+    }
+
+    /**
+     * Computes the bit sets of all groups in the given tree that are not
+     * known yet, and forgets the bit sets of groups no longer in it.
+     */
+    public synchronized void update(GroupTreeNode root) {
+        flush();
+        Map<AbstractGroup, BitSet> current = new IdentityHashMap<AbstractGroup, BitSet>();
+        List<AbstractGroup> missing = new ArrayList<AbstractGroup>();
+        for (Enumeration<GroupTreeNode> e = root.preorderEnumeration(); e.hasMoreElements();) {
+            AbstractGroup group = e.nextElement().getGroup();
+            if (group instanceof ExplicitGroup)
+                continue;
+            BitSet bits = members.get(group);
+            if (bits == null) {
+                bits = new BitSet();
+                missing.add(group);
+            }
+            current.put(group, bits);
+        }
+        members.clear();
+        members.putAll(current);
+        test(missing, live);
+    }
+
+    /**
+     * Returns the ordinals of the entries the given group contains. The bit
+     * set returned may be modified.
+     */
+    public synchronized BitSet getMembers(AbstractGroup group) {
+        return (BitSet) members(group).clone();
+    }
+
+    /**
+     * Returns the ordinals of the entries the rule of the given node finds,
+     * taking its hierarchical context into account like
+     * GroupTreeNode.getSearchRule().
+     */
+    public synchronized BitSet getMembers(GroupTreeNode node) {
+        return getMembers(node, node.getGroup().getHierarchicalContext());
+    }
+
+    private BitSet getMembers(GroupTreeNode node, int originalContext) {
+        final int context = node.getGroup().getHierarchicalContext();
+        BitSet result = getMembers(node.getGroup());
+        if ((context == AbstractGroup.INCLUDING)
+                && (originalContext != AbstractGroup.REFINING)) {
+            for (int i = 0; i < node.getChildCount(); ++i)
+                result.or(getMembers((GroupTreeNode) node.getChildAt(i), originalContext));
+        } else if ((context == AbstractGroup.REFINING) && !node.isRoot()
+                && (originalContext != AbstractGroup.INCLUDING)) {
+            result.and(getMembers((GroupTreeNode) node.getParent(), originalContext));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ordinals of the entries in all (and) or any (not and) of the
+     * given nodes, or of those not in them if invert is set.
+     */
+    public synchronized BitSet getMembers(GroupTreeNode[] nodes, boolean and, boolean invert) {
+        BitSet result = null;
+        for (int i = 0; i < nodes.length; i++) {
+            BitSet bits = getMembers(nodes[i]);
+            if (result == null)
+                result = bits;
+            else if (and)
+                result.and(bits);
+            else
+                result.or(bits);
+        }
+        if (result == null)
+            result = new BitSet();
+        if (invert) {
+            BitSet inverted = (BitSet) live.clone();
+            inverted.andNot(result);
+            result = inverted;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ordinals of the given entries of the database.
+     */
+    public synchronized BitSet getOrdinals(Collection<BibtexEntry> entries) {
+        BitSet result = new BitSet();
+        for (BibtexEntry entry : entries) {
+            Integer ordinal = ordinals.get(entry);
+            if (ordinal != null)
+                result.set(ordinal);
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if the given bit set contains the ordinal of the entry.
+     */
+    public synchronized boolean contains(BitSet bits, BibtexEntry entry) {
+        Integer ordinal = ordinals.get(entry);
+        return (ordinal != null) && bits.get(ordinal);
+    }
+
+    /**
+     * @return true if the group contains all of the given entries.
+     */
+    public synchronized boolean containsAll(AbstractGroup group, BibtexEntry[] entries) {
+        BitSet bits = members(group);
+        for (int i = 0; i < entries.length; ++i) {
+            Integer ordinal = ordinals.get(entries[i]);
+            if ((ordinal == null) ? !group.contains(entries[i]) : !bits.get(ordinal))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the group contains any of the given entries.
+     */
+    public synchronized boolean containsAny(AbstractGroup group, BibtexEntry[] entries) {
+        BitSet bits = members(group);
+        for (int i = 0; i < entries.length; ++i) {
+            Integer ordinal = ordinals.get(entries[i]);
+            if ((ordinal == null) ? group.contains(entries[i]) : bits.get(ordinal))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the bit set of the group itself, which must not be modified.
+     */
+    private BitSet members(AbstractGroup group) {
+        if (group instanceof ExplicitGroup) {
+            BitSet bits = new BitSet();
+            for (BibtexEntry entry : ((ExplicitGroup) group).getEntries()) {
+                Integer ordinal = ordinals.get(entry);
+                if (ordinal != null)
+                    bits.set(ordinal);
+            }
+            return bits;
+        }
+        flush();
+        BitSet bits = members.get(group);
+        if (bits == null) {
+            bits = new BitSet();
+            members.put(group, bits);
+            List<AbstractGroup> groups = new ArrayList<AbstractGroup>();
+            groups.add(group);
+            test(groups, live);
+        }
+        return bits;
+    }
+
+    /**
+     * Tests the entries changed since the last time against all known groups.
+     */
+    private void flush() {
+        if (dirty.isEmpty())
+            return;
+        test(new ArrayList<AbstractGroup>(members.keySet()), dirty);
+        dirty.clear();
+    }
+
+    /**
+     * Sets the bits of the given ordinals in the bit sets of the given groups,
+     * testing blocks of entries against one group each in parallel.
+     */
+    private void test(final List<AbstractGroup> groups, BitSet which) {
+        if (groups.isEmpty() || which.isEmpty())
+            return;
+        final int[] toTest = new int[which.cardinality()];
+        final BibtexEntry[] toTestEntries = new BibtexEntry[toTest.length];
+        for (int i = 0, ordinal = which.nextSetBit(0); ordinal >= 0; i++, ordinal = which.nextSetBit(ordinal + 1)) {
+            toTest[i] = ordinal;
+            toTestEntries[i] = entries.get(ordinal);
+        }
+
+        if (groups.size() * toTest.length <= BLOCK_SIZE) {
+            for (AbstractGroup group : groups)
+                set(members.get(group), toTest, 0, test(group, toTestEntries, 0, toTest.length));
+            return;
+        }
+
+        // Each item is one block of entries of one group:
+        final int blocksPerGroup = (toTest.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        try {
+            Parallel.map(Parallel.getExecutor(), groups.size() * blocksPerGroup, 1, Integer.MAX_VALUE,
+                new Parallel.Block<boolean[], RuntimeException>() {
+                    public boolean[] process(int item, int end) {
+                        int start = (item % blocksPerGroup) * BLOCK_SIZE;
+                        return test(groups.get(item / blocksPerGroup), toTestEntries, start,
+                            Math.min(start + BLOCK_SIZE, toTest.length));
+                    }
+                },
+                new Parallel.Receiver<boolean[], RuntimeException>() {
+                    private int item = 0;
+
+                    public void receive(boolean[] result) {
+                        set(members.get(groups.get(item / blocksPerGroup)), toTest,
+                            (item % blocksPerGroup) * BLOCK_SIZE, result);
+                        item++;
+                    }
+                });
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            // The bit sets are incomplete, so compute them again next time:
+            for (AbstractGroup group : groups)
+                members.remove(group);
+        } catch (RuntimeException ex) {
+            for (AbstractGroup group : groups)
+                members.remove(group);
+            throw ex;
+        }
+    }
+
+    private static boolean[] test(AbstractGroup group, BibtexEntry[] entries, int start, int end) {
+        boolean[] result = new boolean[end - start];
+        for (int i = start; i < end; i++)
+            result[i - start] = group.contains(entries[i]);
+        return result;
+    }
+
+    private static void set(BitSet bits, int[] ordinals, int start, boolean[] result) {
+        for (int i = 0; i < result.length; i++)
+            bits.set(ordinals[start + i], result[i]);
+    }
+}
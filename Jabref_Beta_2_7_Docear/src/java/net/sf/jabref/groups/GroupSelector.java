@@ -37,13 +37,8 @@ import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.Hashtable;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
 import java.util.Vector;
 
 import javax.swing.AbstractAction;
@@ -82,8 +77,6 @@ import net.sf.jabref.Globals;
 import net.sf.jabref.HelpAction;
 import net.sf.jabref.JabRefFrame;
 import net.sf.jabref.MetaData;
-import net.sf.jabref.SearchRule;
-import net.sf.jabref.SearchRuleSet;
 import net.sf.jabref.SidePaneComponent;
 import net.sf.jabref.SidePaneManager;
 import net.sf.jabref.Util;
@@ -523,9 +516,10 @@ public class GroupSelector extends SidePaneComponent implements
             moveNodeRightPopupAction.setNode(node);
             // add/remove entries to/from group
             BibtexEntry[] selection = frame.basePanel().getSelectedEntries();
+            GroupMembership membership = panel.getDatabase().getGroupMembership();
             if (selection.length > 0) {
-                if (node.getGroup().supportsAdd() && !node.getGroup().
-                        containsAll(selection)) {
+                if (node.getGroup().supportsAdd() && !membership.
+                        containsAll(node.getGroup(), selection)) {
                     addToGroup.setNode(node);
                     addToGroup.setBasePanel(panel);
                     addToGroup.setEnabled(true);
@@ -533,8 +527,8 @@ public class GroupSelector extends SidePaneComponent implements
                     moveToGroup.setBasePanel(panel);
                     moveToGroup.setEnabled(true);
                 }
-                if (node.getGroup().supportsRemove() && node.getGroup().
-                        containsAny(selection)) {
+                if (node.getGroup().supportsRemove() && membership.
+                        containsAny(node.getGroup(), selection)) {
                     removeFromGroup.setNode(node);
                     removeFromGroup.setBasePanel(panel);
                     removeFromGroup.setEnabled(true);
@@ -574,16 +568,14 @@ public class GroupSelector extends SidePaneComponent implements
             frame.output(Globals.lang("Displaying no groups") + ".");
             return;
         }
-        final AndOrSearchRuleSet searchRules = new AndOrSearchRuleSet(andCb
-                .isSelected(), invCb.isSelected());
-
+        GroupTreeNode[] nodes = new GroupTreeNode[selection.length];
         for (int i = 0; i < selection.length; ++i) {
-                        searchRules.addRule(((GroupTreeNode) selection[i]
-                                        .getLastPathComponent()).getSearchRule());
+                        nodes[i] = (GroupTreeNode) selection[i].getLastPathComponent();
                 }
-        Hashtable<String, String> searchOptions = new Hashtable<String, String>();
-        searchOptions.put("option", "dummy");
-        GroupingWorker worker = new GroupingWorker(searchRules, searchOptions);
+        GroupMembership membership = panel.getDatabase().getGroupMembership();
+        membership.update(groupsRoot);
+        GroupingWorker worker = new GroupingWorker(membership,
+                membership.getMembers(nodes, andCb.isSelected(), invCb.isSelected()));
         worker.getWorker().run();
         worker.getCallBack().update();
         /*panel.setGroupMatcher(new SearchMatcher(searchRules, searchOptions));
@@ -598,27 +590,23 @@ public class GroupSelector extends SidePaneComponent implements
     }
 
     class GroupingWorker extends AbstractWorker {
-        private SearchRuleSet rules;
-        private Hashtable<String, String> searchTerm;
-        private ArrayList<BibtexEntry> matches = new ArrayList<BibtexEntry>();
+        private GroupMembership membership;
+        private BitSet matches;
         private boolean showOverlappingGroupsP;
         int hits = 0;
 
-        public GroupingWorker(SearchRuleSet rules, Hashtable<String, String> searchTerm) {
-            this.rules = rules;
-            this.searchTerm = searchTerm;
+        public GroupingWorker(GroupMembership membership, BitSet matches) {
+            this.membership = membership;
+            this.matches = matches;
             showOverlappingGroupsP = showOverlappingGroups.isSelected();
         }
 
         public void run() {
             for (BibtexEntry entry : panel.getDatabase().getEntries()){
-                boolean hit = rules.applyRule(searchTerm, entry) > 0;
+                boolean hit = membership.contains(matches, entry);
                 entry.setGroupHit(hit);
-                if (hit) {
+                if (hit)
                     hits++;
-                    if (showOverlappingGroupsP)
-                        matches.add(entry);
-                }
             }
         }
 
@@ -1291,20 +1279,13 @@ public class GroupSelector extends SidePaneComponent implements
         GroupTreeNode node;
         AbstractGroup group;
         Vector<GroupTreeNode> vec = new Vector<GroupTreeNode>();
+        GroupMembership membership = panel.getDatabase().getGroupMembership();
+        membership.update(groupsRoot);
         for (Enumeration<GroupTreeNode> e = groupsRoot.preorderEnumeration(); e.hasMoreElements(); ) {
             node = e.nextElement();
             group = node.getGroup();
-            int i;
-            for (i = 0; i < entries.length; ++i) {
-                if (requireAll) {
-                    if (!group.contains(entries[i]))
-                        break;
-                } else {
-                    if (group.contains(entries[i]))
-                        vec.add(node);
-                }
-            }
-            if (requireAll && i >= entries.length) // did not break from loop
+            if (requireAll ? membership.containsAll(group, entries)
+                    : membership.containsAny(group, entries))
                 vec.add(node);
         }
         groupsTree.setHighlight3Cells(vec.toArray());
@@ -1319,22 +1300,14 @@ public class GroupSelector extends SidePaneComponent implements
 
     /** Show groups that, if selected, would show at least one
      * of the entries found in the specified search. */
-    protected void showOverlappingGroups(List<BibtexEntry> matches) { //DatabaseSearch search) {
+    protected void showOverlappingGroups(BitSet matches) { //DatabaseSearch search) {
       GroupTreeNode node;
-      SearchRule rule;
-      BibtexEntry entry;
       Vector<GroupTreeNode> vec = new Vector<GroupTreeNode>();
-      Map<String, String> dummyMap = new HashMap<String, String>(); // just because I don't want to use null...
+      GroupMembership membership = panel.getDatabase().getGroupMembership();
       for (Enumeration<GroupTreeNode> e = groupsRoot.depthFirstEnumeration(); e.hasMoreElements(); ) {
           node = e.nextElement();
-          rule = node.getSearchRule();
-          for (Iterator<BibtexEntry> it = matches.iterator(); it.hasNext(); ) {
-              entry = it.next();
-              if (rule.applyRule(dummyMap, entry) == 0)
-                      continue;
+          if (membership.getMembers(node).intersects(matches))
               vec.add(node);
-              break;
-          }
       }
       groupsTree.setHighlight2Cells(vec.toArray());
     }
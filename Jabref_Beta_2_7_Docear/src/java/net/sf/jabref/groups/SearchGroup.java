@@ -55,7 +55,14 @@ public class SearchGroup extends AbstractGroup implements SearchRule {
 
 	private final AST m_ast;
 
-	private static final SearchExpressionTreeParser m_treeParser = new SearchExpressionTreeParser();
+	// The tree parser keeps state while applying the rule, so every thread
+	// testing entries gets its own:
+	private static final ThreadLocal<SearchExpressionTreeParser> m_treeParser =
+		new ThreadLocal<SearchExpressionTreeParser>() {
+			protected SearchExpressionTreeParser initialValue() {
+				return new SearchExpressionTreeParser();
+			}
+		};
 
 	/**
 	 * If m_searchExpression is in valid syntax for advanced search, <b>this
@@ -227,7 +234,7 @@ public class SearchGroup extends AbstractGroup implements SearchRule {
 			return m_searchRule.applyRule(searchOptions, entry);
 		}
 		try {
-			return m_treeParser.apply(m_ast, entry);
+			return m_treeParser.get().apply(m_ast, entry);
 		} catch (RecognitionException e) {
 			return 0; // this should never occur
 		}
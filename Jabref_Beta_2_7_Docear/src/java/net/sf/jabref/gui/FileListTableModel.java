@@ -100,9 +100,28 @@ public class FileListTableModel extends AbstractTableModel {
     }
 
     private FileListEntry setContent(String value, boolean firstOnly, boolean deduceUnknownTypes) {
+        ArrayList<FileListEntry> newList = new ArrayList<FileListEntry>();
+        for (ArrayList<String> contents : split(value, firstOnly)) {
+            if (firstOnly)
+                return decodeEntry(contents, deduceUnknownTypes);
+            newList.add(decodeEntry(contents, deduceUnknownTypes));
+        }
+        synchronized (list) {
+            list.clear();
+            list.addAll(newList);
+        }
+        fireTableChanged(new TableModelEvent(this));
+        return null;
+    }
+
+    /**
+     * Splits the coded file field content into its entries, each given as the list
+     * of its description, link and type.
+     */
+    private static ArrayList<ArrayList<String>> split(String value, boolean firstOnly) {
         if (value == null)
             value = "";
-        ArrayList<FileListEntry> newList = new ArrayList<FileListEntry>();
+        ArrayList<ArrayList<String>> entries = new ArrayList<ArrayList<String>>();
         StringBuilder sb = new StringBuilder();
         ArrayList<String> thisEntry = new ArrayList<String>();
         boolean inXmlChar = false;
@@ -132,31 +151,30 @@ public class FileListTableModel extends AbstractTableModel {
             else if (!escaped && (c == ';') && !inXmlChar) {
                 thisEntry.add(sb.toString());
                 sb = new StringBuilder();
+                entries.add(thisEntry);
                 if (firstOnly)
-                    return decodeEntry(thisEntry, deduceUnknownTypes);
-                else {
-                    newList.add(decodeEntry(thisEntry, deduceUnknownTypes));
-                    thisEntry.clear();
-                }
+                    return entries;
+                thisEntry = new ArrayList<String>();
             }
             else sb.append(c);
             escaped = false;
         }
         if (sb.length() > 0)
             thisEntry.add(sb.toString());
-        if (thisEntry.size() > 0) {
-            if (firstOnly)
-                return decodeEntry(thisEntry, deduceUnknownTypes);
-            else
-                newList.add(decodeEntry(thisEntry, deduceUnknownTypes));
-        }
-          
-        synchronized (list) {
-            list.clear();
-            list.addAll(newList);
-        }
-        fireTableChanged(new TableModelEvent(this));
-        return null;
+        if (thisEntry.size() > 0)
+            entries.add(thisEntry);
+        return entries;
+    }
+
+    /**
+     * Returns the links of all files in the given file field content, without
+     * looking up their file types.
+     */
+    public static ArrayList<String> getLinks(String content) {
+        ArrayList<String> links = new ArrayList<String>();
+        for (ArrayList<String> contents : split(content, false))
+            links.add(getElementIfAvailable(contents, 1));
+        return links;
     }
 
     /**
@@ -201,7 +219,7 @@ public class FileListTableModel extends AbstractTableModel {
     }
 
 
-    private String getElementIfAvailable(ArrayList<String> contents, int index) {
+    private static String getElementIfAvailable(ArrayList<String> contents, int index) {
         if (index < contents.size())
             return contents.get(index);
         else return "";
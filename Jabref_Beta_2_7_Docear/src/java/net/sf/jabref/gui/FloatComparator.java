@@ -0,0 +1,104 @@
+package net.sf.jabref.gui;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexFields;
+import net.sf.jabref.Globals;
+import net.sf.jabref.Util;
+import ca.odell.glazedlists.matchers.Matcher;
+
+/**
+ * Floats entries to the top of the main table in one sort: group hits
+ * first, then search hits, then marked entries by their marking level.
+ * Entries equal in all three keep the order of the table's own sorting.
+ *
+ * The marking level of an entry is parsed from its marked field once and
+ * kept with the field value and the user it was parsed for, so it is only
+ * parsed again when the entry has been marked or unmarked since, or the
+ * default owner has changed.
+ */
+public class FloatComparator implements Comparator<BibtexEntry> {
+
+    private static class Marking {
+        final String field, user;
+        final int level;
+
+        Marking(String field, String user, int level) {
+            this.field = field;
+            this.user = user;
+            this.level = level;
+        }
+    }
+
+    private Matcher<BibtexEntry> groupMatcher = null, searchMatcher = null;
+    private boolean floatMarked = false;
+
+    private final Map<BibtexEntry, Marking> markings = new WeakHashMap<BibtexEntry, Marking>();
+
+    /**
+     * Sets the matcher of the group hits to float, or null to float none.
+     */
+    public void setGroupMatcher(Matcher<BibtexEntry> m) {
+        groupMatcher = m;
+    }
+
+    /**
+     * Sets the matcher of the search hits to float, or null to float none.
+     */
+    public void setSearchMatcher(Matcher<BibtexEntry> m) {
+        searchMatcher = m;
+    }
+
+    public void setFloatMarked(boolean floatMarked) {
+        this.floatMarked = floatMarked;
+    }
+
+    /**
+     * Returns true if this comparator floats any entries at all.
+     */
+    public boolean isFloating() {
+        return floatMarked || (groupMatcher != null) || (searchMatcher != null);
+    }
+
+    public int compare(BibtexEntry e1, BibtexEntry e2) {
+        int result = compareHits(groupMatcher, e1, e2);
+        if (result == 0)
+            result = compareHits(searchMatcher, e1, e2);
+        if ((result == 0) && floatMarked)
+            result = getMarking(e2) - getMarking(e1);
+        return result;
+    }
+
+    private static int compareHits(Matcher<BibtexEntry> m, BibtexEntry e1, BibtexEntry e2) {
+        if (m == null)
+            return 0;
+        boolean hit1 = m.matches(e1), hit2 = m.matches(e2);
+        if (hit1 == hit2)
+            return 0;
+        return hit1 ? -1 : 1;
+    }
+
+    /**
+     * Returns the marking level of the entry, as Util.isMarked() does.
+     */
+    public int getMarking(BibtexEntry entry) {
+        String field = entry.getField(BibtexFields.MARKED);
+        if (field == null)
+            return 0;
+        // Util.isMarked() tells the marks of this user from those of others:
+        String user = Globals.prefs.WRAPPED_USERNAME;
+        synchronized (markings) {
+            Marking marking = markings.get(entry);
+            // Field values and the user name are only ever replaced, so
+            // unchanged values are the same objects:
+            if ((marking == null) || (marking.field != field) || (marking.user != user)) {
+                marking = new Marking(field, user, Util.isMarked(entry));
+                markings.put(entry, marking);
+            }
+            return marking.level;
+        }
+    }
+}
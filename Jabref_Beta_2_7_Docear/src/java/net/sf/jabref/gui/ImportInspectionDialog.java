@@ -70,6 +70,7 @@ import net.sf.jabref.groups.AllEntriesGroup;
 import net.sf.jabref.groups.GroupTreeNode;
 import net.sf.jabref.groups.UndoableChangeAssignment;
 import net.sf.jabref.imports.ImportInspector;
+import net.sf.jabref.labelPattern.LabelGenerator;
 import net.sf.jabref.labelPattern.LabelPatternUtil;
 import net.sf.jabref.undo.NamedCompound;
 import net.sf.jabref.undo.UndoableInsertEntry;
@@ -519,6 +520,7 @@ public class ImportInspectionDialog extends JDialog implements ImportInspector {
         else
             database = new BibtexDatabase();
         List<String> keys = new ArrayList<String>(entries.size());
+        LabelGenerator generator = new LabelGenerator(Globals.prefs.getKeyPattern(), database);
         // Iterate over the entries, add them to the database we are working
         // with,
         // and generate unique keys:
@@ -532,7 +534,7 @@ public class ImportInspectionDialog extends JDialog implements ImportInspector {
                 ex.printStackTrace();
             }
             // }
-            LabelPatternUtil.makeLabel(Globals.prefs.getKeyPattern(), database, entry);
+            generator.makeLabel(entry);
             // Add the generated key to our list:
             keys.add(entry.getCiteKey());
         }
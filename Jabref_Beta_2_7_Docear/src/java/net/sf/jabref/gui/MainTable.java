@@ -16,7 +16,6 @@ import javax.swing.table.TableColumnModel;
 
 import net.sf.jabref.*;
 import net.sf.jabref.groups.EntryTableTransferHandler;
-import net.sf.jabref.search.HitOrMissComparator;
 import ca.odell.glazedlists.EventList;
 import ca.odell.glazedlists.SortedList;
 import ca.odell.glazedlists.event.ListEventListener;
@@ -37,13 +36,12 @@ public class MainTable extends JTable {
 	
     private MainTableFormat tableFormat;
     private BasePanel panel;
-    private SortedList<BibtexEntry> sortedForMarking, sortedForTable, sortedForSearch, sortedForGrouping;
+    private SortedList<BibtexEntry> sortedForTable, sortedForFloat;
     private boolean tableColorCodes, showingFloatSearch=false, showingFloatGrouping=false;
     private EventSelectionModel<BibtexEntry> selectionModel;
     private TableComparatorChooser<BibtexEntry> comparatorChooser;
     private JScrollPane pane;
-    private Comparator<BibtexEntry> searchComparator, groupComparator,
-            markingComparator = new IsMarkedComparator();
+    private final FloatComparator floatComparator = new FloatComparator();
     private Matcher<BibtexEntry> searchMatcher, groupMatcher;
     
     // needed to activate/deactivate the listener
@@ -74,24 +72,19 @@ public class MainTable extends JTable {
         // This SortedList has a Comparator controlled by the TableComparatorChooser
         // we are going to install, which responds to user sorting selctions:
         sortedForTable = new SortedList<BibtexEntry>(list, null);
-        // This SortedList applies afterwards, and floats marked entries:
-        sortedForMarking = new SortedList<BibtexEntry>(sortedForTable, null);
-        // This SortedList applies afterwards, and can float search hits:
-        sortedForSearch = new SortedList<BibtexEntry>(sortedForMarking, null);
-        // This SortedList applies afterwards, and can float grouping hits:
-        sortedForGrouping = new SortedList<BibtexEntry>(sortedForSearch, null);
+        // This SortedList applies afterwards, and floats grouping hits, search
+        // hits and marked entries, in that order, in a single sort:
+        sortedForFloat = new SortedList<BibtexEntry>(sortedForTable, null);
 
 
         searchMatcher = null;
         groupMatcher = null;
-        searchComparator = null;//new HitOrMissComparator(searchMatcher);
-        groupComparator = null;//new HitOrMissComparator(groupMatcher);
 
-        EventTableModel<BibtexEntry> tableModel = new EventTableModel<BibtexEntry>(sortedForGrouping, tableFormat);
+        EventTableModel<BibtexEntry> tableModel = new EventTableModel<BibtexEntry>(sortedForFloat, tableFormat);
         setModel(tableModel);
 
         tableColorCodes = Globals.prefs.getBoolean("tableColorCodesOn");
-        selectionModel = new EventSelectionModel<BibtexEntry>(sortedForGrouping);
+        selectionModel = new EventSelectionModel<BibtexEntry>(sortedForFloat);
         setSelectionModel(selectionModel);
         pane = new JScrollPane(this);
         pane.getViewport().setBackground(Globals.prefs.getColor("tableBackground"));
@@ -124,18 +117,17 @@ public class MainTable extends JTable {
     }
 
     public void refreshSorting() {
-        sortedForMarking.getReadWriteLock().writeLock().lock();
-        if (Globals.prefs.getBoolean("floatMarkedEntries"))
-            sortedForMarking.setComparator(markingComparator);
-        else
-            sortedForMarking.setComparator(null);
-        sortedForMarking.getReadWriteLock().writeLock().unlock();
-        sortedForSearch.getReadWriteLock().writeLock().lock();
-        sortedForSearch.setComparator(searchComparator);
-        sortedForSearch.getReadWriteLock().writeLock().unlock();
-        sortedForGrouping.getReadWriteLock().writeLock().lock();
-        sortedForGrouping.setComparator(groupComparator);
-        sortedForGrouping.getReadWriteLock().writeLock().unlock();
+        sortedForFloat.getReadWriteLock().writeLock().lock();
+        try {
+            // The comparator is changed under the lock, so no change to the
+            // list is sorted in while it is half updated:
+            floatComparator.setFloatMarked(Globals.prefs.getBoolean("floatMarkedEntries"));
+            floatComparator.setSearchMatcher(showingFloatSearch ? searchMatcher : null);
+            floatComparator.setGroupMatcher(showingFloatGrouping ? groupMatcher : null);
+            sortedForFloat.setComparator(floatComparator.isFloating() ? floatComparator : null);
+        } finally {
+            sortedForFloat.getReadWriteLock().writeLock().unlock();
+        }
     }
 
     /**
@@ -145,7 +137,6 @@ public class MainTable extends JTable {
     public void showFloatSearch(Matcher<BibtexEntry> m) {
         showingFloatSearch = true;
         searchMatcher = m;
-        searchComparator = new HitOrMissComparator(m);
         refreshSorting();
         scrollTo(0);
     }
@@ -156,7 +147,6 @@ public class MainTable extends JTable {
     public void stopShowingFloatSearch() {
         showingFloatSearch = false;
         searchMatcher = null;
-        searchComparator = null;
         refreshSorting();
     }
 
@@ -167,7 +157,6 @@ public class MainTable extends JTable {
     public void showFloatGrouping(Matcher<BibtexEntry> m) {
         showingFloatGrouping = true;
         groupMatcher = m;
-        groupComparator = new HitOrMissComparator(m);
         refreshSorting();
     }
 
@@ -182,12 +171,11 @@ public class MainTable extends JTable {
     public void stopShowingFloatGrouping() {
         showingFloatGrouping = false;
         groupMatcher = null;
-        groupComparator = null;
         refreshSorting();
     }
 
     public EventList<BibtexEntry> getTableRows() {
-        return sortedForGrouping;
+        return sortedForFloat;
     }
     public void addSelectionListener(ListEventListener<BibtexEntry> listener) {
         getSelected().addListEventListener(listener);
@@ -286,7 +274,7 @@ public class MainTable extends JTable {
     }
 
     public BibtexEntry getEntryAt(int row) {
-        return sortedForGrouping.get(row);
+        return sortedForFloat.get(row);
     }
 
     public BibtexEntry[] getSelectedEntries() {
@@ -397,7 +385,7 @@ public class MainTable extends JTable {
 
     public int getCellStatus(int row, int col) {
         try {
-            BibtexEntry be = sortedForGrouping.get(row);
+            BibtexEntry be = sortedForFloat.get(row);
             BibtexEntryType type = be.getType();
             String columnName = getColumnName(col).toLowerCase();
             if (columnName.equals(BibtexFields.KEY_FIELD) || type.isRequired(columnName)) {
@@ -418,8 +406,8 @@ public class MainTable extends JTable {
     }
 
     public int findEntry(BibtexEntry entry) {
-        //System.out.println(sortedForGrouping.indexOf(entry));
-        return sortedForGrouping.indexOf(entry);
+        //System.out.println(sortedForFloat.indexOf(entry));
+        return sortedForFloat.indexOf(entry);
     }
 
     public String[] getIconTypeForColumn(int column) {
@@ -427,12 +415,12 @@ public class MainTable extends JTable {
     }
 
     private boolean matches(int row, Matcher<BibtexEntry> m) {
-        return m.matches(sortedForGrouping.get(row));
+        return m.matches(sortedForFloat.get(row));
     }
 
     private boolean isComplete(int row) {
         try {
-            BibtexEntry be = sortedForGrouping.get(row);
+            BibtexEntry be = sortedForFloat.get(row);
             return be.hasAllRequiredFields(panel.database());
         } catch (NullPointerException ex) {
             //System.out.println("Exception: isComplete");
@@ -442,8 +430,8 @@ public class MainTable extends JTable {
 
     private int isMarked(int row) {
         try {
-            BibtexEntry be = sortedForGrouping.get(row);
-            return Util.isMarked(be);
+            BibtexEntry be = sortedForFloat.get(row);
+            return floatComparator.getMarking(be);
         } catch (NullPointerException ex) {
             //System.out.println("Exception: isMarked");
             return 0;
@@ -593,7 +581,7 @@ public class MainTable extends JTable {
         public MyTableComparatorChooser(JTable table, SortedList<BibtexEntry> list,
                                         Object sortingStrategy) {
             super(table, list, sortingStrategy);
-            // We need to reset the stack of sorted list each time sorting order
+            // We need to sort the floated entries again each time sorting order
             // changes, or the sorting breaks down:
             addSortActionListener(new ActionListener() {
                 public void actionPerformed(ActionEvent e) {
@@ -2,7 +2,9 @@ package net.sf.jabref.gui;
 
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.Map;
 import java.util.Vector;
+import java.util.WeakHashMap;
 
 import net.sf.jabref.AuthorList;
 import net.sf.jabref.BasePanel;
@@ -43,6 +45,11 @@ public class MainTableFormat implements TableFormat<BibtexEntry> {
     int[][] nameCols = null;
     boolean namesAsIs, abbr_names, namesNatbib, namesFf, namesLf, namesLastOnly, showShort;
 
+    // The formatted names shown in the name columns, by entry. For each column
+    // the field value is kept next to its formatted names, which are formatted
+    // again only when the value has changed:
+    private final Map<BibtexEntry, Object[]> formattedNames = new WeakHashMap<BibtexEntry, Object[]>();
+
     public MainTableFormat(BasePanel panel) {
         this.panel = panel;
     }
@@ -144,7 +151,7 @@ public class MainTableFormat implements TableFormat<BibtexEntry> {
 
             for (int i = 0; i < nameCols.length; i++) {
                 if ((col - padleft == nameCols[i][0]) && (nameCols[i][1] == j)) {
-                    return formatName(o);
+                    return getFormattedName(be, col, o);
                 }
             }
 
@@ -154,6 +161,29 @@ public class MainTableFormat implements TableFormat<BibtexEntry> {
         return o;
     }
 
+    /**
+     * Returns formatName(o) for the given column of the entry, formatting it
+     * only if the field value has changed since the last time.
+     */
+    private Object getFormattedName(BibtexEntry be, int col, Object o) {
+        if (o == null)
+            return null;
+        synchronized (formattedNames) {
+            Object[] cached = formattedNames.get(be);
+            if ((cached == null) || (cached.length != 2 * getColumnCount())) {
+                cached = new Object[2 * getColumnCount()];
+                formattedNames.put(be, cached);
+            }
+            // Field values are only ever replaced, so an unchanged value is
+            // the same object:
+            if (cached[2 * col] != o) {
+                cached[2 * col + 1] = formatName(o);
+                cached[2 * col] = o;
+            }
+            return cached[2 * col + 1];
+        }
+    }
+
     /**
      * Format a name field for the table, according to user preferences.
      * @param o The contents of the name field.
@@ -198,6 +228,9 @@ public class MainTableFormat implements TableFormat<BibtexEntry> {
         abbr_names = Globals.prefs.getBoolean("abbrAuthorNames"); //MK:
         namesFf = Globals.prefs.getBoolean("namesFf");
         namesLf = !(namesAsIs || namesFf || namesNatbib || namesLastOnly); // None of the above.
+        synchronized (formattedNames) {
+            formattedNames.clear();
+        }
 
         // Set the icon columns, indicating the number of special columns to the left.
         // We add those that are enabled in preferences.
@@ -32,8 +32,11 @@ import java.io.IOException;
 import java.io.PushbackReader;
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -49,6 +52,7 @@ import net.sf.jabref.JabRefPreferences;
 import net.sf.jabref.KeyCollisionException;
 import net.sf.jabref.UnknownEntryType;
 import net.sf.jabref.Util;
+import net.sf.jabref.util.Parallel;
 
 /**
  * Class for importing BibTeX-files.
@@ -65,6 +69,11 @@ import net.sf.jabref.Util;
  * 
  * Can be used stand-alone.
  * 
+ * Large files are better read with new BibtexParser(reader, threads), which
+ * reads the whole input into memory first. With more than one thread the
+ * input is split before top-level @ signs and the parts are parsed in
+ * parallel. The result is the same as when reading from the stream.
+ * 
  * @author David Weitzman
  * @author Nizar N. Batada
  * @author Morten O. Alver
@@ -74,6 +83,33 @@ public class BibtexParser {
 	
 	private PushbackReader _in;
 
+	/**
+	 * The input when reading from memory, otherwise null. The characters
+	 * between position and end are still to be read, after those in pushback.
+	 */
+	private char[] buffer;
+
+	private int start, position, end;
+
+	private char[] pushback;
+
+	private int pushedBack = 0;
+
+	private int threads = 1;
+
+	private int chunkLength = DEFAULT_CHUNK_LENGTH;
+
+	/**
+	 * While parsing a part of the input in parallel, entries, strings,
+	 * preambles and warnings are collected here in the order found, to be
+	 * added to the result afterwards.
+	 */
+	private List<Object> items;
+
+	private boolean skippedEntry = false;
+
+	private boolean readIntoMemory = false;
+
 	private BibtexDatabase _db;
 
 	private HashMap<String, String> _meta;
@@ -90,6 +126,16 @@ public class BibtexParser {
 	
 	private static final Integer LOOKAHEAD = 64;
 
+	private static final int DEFAULT_CHUNK_LENGTH = 1 << 18;
+
+	/**
+	 * Field names shared by all parsers, so that the entries of a large
+	 * database do not each hold their own copies.
+	 */
+	private static final ConcurrentHashMap<String, String> fieldNames = new ConcurrentHashMap<String, String>();
+
+	private static final int MAX_FIELD_NAMES = 1000;
+
 	public BibtexParser(Reader in) {
 
 		if (in == null) {
@@ -101,6 +147,42 @@ public class BibtexParser {
 		_in = new PushbackReader(in, LOOKAHEAD);
 	}
 
+	/**
+	 * Creates a parser that reads all of the input into memory before
+	 * parsing it.
+	 * 
+	 * @param in -
+	 *            Reader to read from
+	 * @param threads -
+	 *            the number of threads to parse large inputs with
+	 */
+	public BibtexParser(Reader in, int threads) {
+		this(in);
+		this.threads = Math.max(1, threads);
+		pushback = new char[LOOKAHEAD];
+		readIntoMemory = true;
+	}
+
+	/**
+	 * Creates a parser for the part of the input between start and end.
+	 */
+	private BibtexParser(char[] buffer, int start, int end, int line) {
+		this.buffer = buffer;
+		this.start = start;
+		this.position = start;
+		this.end = end;
+		this.line = line;
+		pushback = new char[LOOKAHEAD];
+	}
+
+	/**
+	 * Sets the minimum number of characters parsed by one thread. Only
+	 * useful for parsers reading from memory with several threads.
+	 */
+	public void setChunkLength(int chunkLength) {
+		this.chunkLength = Math.max(1, chunkLength);
+	}
+
 	/**
 	 * Shortcut usage to create a Parser and read the input.
 	 * 
@@ -196,7 +278,7 @@ public class BibtexParser {
 
 	private String skipAndRecordWhitespace(int j) throws IOException {
 		int c;
-		StringBuffer sb = new StringBuffer();
+		StringBuilder sb = new StringBuilder();
 		if (j != ' ')
 			sb.append((char) j);
 		while (true) {
@@ -244,6 +326,10 @@ public class BibtexParser {
 		entryTypes = new HashMap<String, BibtexEntryType>(); // To store custem entry types parsed.
 		_pr = new ParserResult(_db, _meta, entryTypes);
 
+		if (readIntoMemory) {
+			readInput();
+		}
+
         // First see if we can find the version number of the JabRef version that
         // wrote the file:
         String versionNum = readJabRefVersionNumber();
@@ -255,151 +341,326 @@ public class BibtexParser {
             // No version number found. However, we have only
         }
 
-        skipWhitespace();
-
 		try {
-			while (!_eof) {
-				boolean found = consumeUncritically('@');
-				if (!found)
-					break;
-				skipWhitespace();
-				String entryType = parseTextToken();
-				BibtexEntryType tp = BibtexEntryType.getType(entryType);
-				boolean isEntry = (tp != null);
-				// Util.pr(tp.getName());
-				if (!isEntry) {
-					// The entry type name was not recognized. This can mean
-					// that it is a string, preamble, or comment. If so,
-					// parse and set accordingly. If not, assume it is an entry
-					// with an unknown type.
-					if (entryType.toLowerCase().equals("preamble")) {
-						_db.setPreamble(parsePreamble());
-					} else if (entryType.toLowerCase().equals("string")) {
-						BibtexString bs = parseString();
-						try {
-							_db.addString(bs);
-						} catch (KeyCollisionException ex) {
-							_pr.addWarning(Globals.lang("Duplicate string name") + ": "
-								+ bs.getName());
-							// ex.printStackTrace();
-						}
-					} else if (entryType.toLowerCase().equals("comment")) {
-						StringBuffer commentBuf = parseBracketedTextExactly();
-						/**
-						 * 
-						 * Metadata are used to store Bibkeeper-specific
-						 * information in .bib files.
-						 * 
-						 * Metadata are stored in bibtex files in the format
-						 * 
-						 * @comment{jabref-meta: type:data0;data1;data2;...}
-						 * 
-						 * Each comment that starts with the META_FLAG is stored
-						 * in the meta HashMap, with type as key. Unluckily, the
-						 * old META_FLAG bibkeeper-meta: was used in JabRef 1.0
-						 * and 1.1, so we need to support it as well. At least
-						 * for a while. We'll always save with the new one.
-						 */
-						String comment = commentBuf.toString().replaceAll("[\\x0d\\x0a]", "");
-						if (comment.substring(0,
-							Math.min(comment.length(), GUIGlobals.META_FLAG.length())).equals(
-							GUIGlobals.META_FLAG)
-							|| comment.substring(0,
-								Math.min(comment.length(), GUIGlobals.META_FLAG_OLD.length()))
-								.equals(GUIGlobals.META_FLAG_OLD)) {
-
-							String rest;
-							if (comment.substring(0, GUIGlobals.META_FLAG.length()).equals(
-								GUIGlobals.META_FLAG))
-								rest = comment.substring(GUIGlobals.META_FLAG.length());
-							else
-								rest = comment.substring(GUIGlobals.META_FLAG_OLD.length());
-
-							int pos = rest.indexOf(':');
-
-							if (pos > 0)
-								_meta.put(rest.substring(0, pos), rest.substring(pos + 1));
-							// We remove all line breaks in the metadata - these
-							// will have been inserted
-							// to prevent too long lines when the file was
-							// saved, and are not part of the data.
-						}
-
-						/**
-						 * A custom entry type can also be stored in a
-						 * 
-						 * @comment:
-						 */
-						if (comment.substring(0,
-							Math.min(comment.length(), GUIGlobals.ENTRYTYPE_FLAG.length())).equals(
-							GUIGlobals.ENTRYTYPE_FLAG)) {
-
-							CustomEntryType typ = CustomEntryType.parseEntryType(comment);
-							entryTypes.put(typ.getName().toLowerCase(), typ);
-
-						}
-					} else {
-						// The entry type was not recognized. This may mean that
-						// it is a custom entry type whose definition will
-						// appear
-						// at the bottom of the file. So we use an
-						// UnknownEntryType
-						// to remember the type name by.
-						tp = new UnknownEntryType(entryType.toLowerCase());
-						// System.out.println("unknown type: "+entryType);
-						isEntry = true;
+			if (!parseInParallel())
+				parseItems();
+
+			// Before returning the database, update entries with unknown type
+			// based on parsed type definitions, if possible.
+			checkEntryTypes(_pr);
+
+			return _pr;
+		} catch (KeyCollisionException kce) {
+			// kce.printStackTrace();
+			throw new IOException("Duplicate ID in bibtex file: " + kce.toString());
+		}
+	}
+
+	/**
+	 * Parses entries, strings, preambles and comments until the end of the
+	 * input.
+	 */
+	private void parseItems() throws IOException {
+		skipWhitespace();
+
+		while (!_eof) {
+			boolean found = consumeUncritically('@');
+			if (!found)
+				break;
+			skipWhitespace();
+			String entryType = parseTextToken();
+			BibtexEntryType tp = BibtexEntryType.getType(entryType);
+			boolean isEntry = (tp != null);
+			// Util.pr(tp.getName());
+			if (!isEntry) {
+				// The entry type name was not recognized. This can mean
+				// that it is a string, preamble, or comment. If so,
+				// parse and set accordingly. If not, assume it is an entry
+				// with an unknown type.
+				if (entryType.toLowerCase().equals("preamble")) {
+					setPreamble(parsePreamble());
+				} else if (entryType.toLowerCase().equals("string")) {
+					addString(parseString());
+				} else if (entryType.toLowerCase().equals("comment")) {
+					StringBuilder commentBuf = parseBracketedTextExactly();
+					/**
+					 * 
+					 * Metadata are used to store Bibkeeper-specific
+					 * information in .bib files.
+					 * 
+					 * Metadata are stored in bibtex files in the format
+					 * 
+					 * @comment{jabref-meta: type:data0;data1;data2;...}
+					 * 
+					 * Each comment that starts with the META_FLAG is stored
+					 * in the meta HashMap, with type as key. Unluckily, the
+					 * old META_FLAG bibkeeper-meta: was used in JabRef 1.0
+					 * and 1.1, so we need to support it as well. At least
+					 * for a while. We'll always save with the new one.
+					 */
+					String comment = commentBuf.toString().replaceAll("[\\x0d\\x0a]", "");
+					if (comment.substring(0,
+						Math.min(comment.length(), GUIGlobals.META_FLAG.length())).equals(
+						GUIGlobals.META_FLAG)
+						|| comment.substring(0,
+							Math.min(comment.length(), GUIGlobals.META_FLAG_OLD.length()))
+							.equals(GUIGlobals.META_FLAG_OLD)) {
+
+						String rest;
+						if (comment.substring(0, GUIGlobals.META_FLAG.length()).equals(
+							GUIGlobals.META_FLAG))
+							rest = comment.substring(GUIGlobals.META_FLAG.length());
+						else
+							rest = comment.substring(GUIGlobals.META_FLAG_OLD.length());
+
+						int pos = rest.indexOf(':');
+
+						if (pos > 0)
+							_meta.put(rest.substring(0, pos), rest.substring(pos + 1));
+						// We remove all line breaks in the metadata - these
+						// will have been inserted
+						// to prevent too long lines when the file was
+						// saved, and are not part of the data.
 					}
-				}
 
-				if (isEntry) // True if not comment, preamble or string.
-				{
 					/**
-					 * Morten Alver 13 Aug 2006: Trying to make the parser more
-					 * robust. If an exception is thrown when parsing an entry,
-					 * drop the entry and try to resume parsing. Add a warning
-					 * for the user.
+					 * A custom entry type can also be stored in a
 					 * 
-					 * An alternative solution is to try rescuing the entry for
-					 * which parsing failed, by returning the entry with the
-					 * exception and adding it before parsing is continued.
+					 * @comment:
 					 */
-					try {
-						BibtexEntry be = parseEntry(tp);
-
-						boolean duplicateKey = _db.insertEntry(be);
-						if (duplicateKey) // JZTODO lyrics
-                            _pr.addDuplicateKey(be.getCiteKey());
-							/*_pr.addWarning(Globals.lang("duplicate BibTeX key") + ": "
-								+ be.getCiteKey() + " ("
-								+ Globals.lang("grouping may not work for this entry") + ")");                        */
-						else if (be.getCiteKey() == null || be.getCiteKey().equals("")) {
-							_pr.addWarning(Globals.lang("empty BibTeX key") + ": "
-								+ be.getAuthorTitleYear(40) + " ("
-								+ Globals.lang("grouping may not work for this entry") + ")");
-						}
-					} catch (IOException ex) {
-						ex.printStackTrace();
-						_pr.addWarning(Globals.lang("Error occured when parsing entry") + ": '"
-							+ ex.getMessage() + "'. " + Globals.lang("Skipped entry."));
+					if (comment.substring(0,
+						Math.min(comment.length(), GUIGlobals.ENTRYTYPE_FLAG.length())).equals(
+						GUIGlobals.ENTRYTYPE_FLAG)) {
+
+						CustomEntryType typ = CustomEntryType.parseEntryType(comment);
+						entryTypes.put(typ.getName().toLowerCase(), typ);
 
 					}
+				} else {
+					// The entry type was not recognized. This may mean that
+					// it is a custom entry type whose definition will
+					// appear
+					// at the bottom of the file. So we use an
+					// UnknownEntryType
+					// to remember the type name by.
+					tp = new UnknownEntryType(entryType.toLowerCase());
+					// System.out.println("unknown type: "+entryType);
+					isEntry = true;
+				}
+			}
+
+			if (isEntry) // True if not comment, preamble or string.
+			{
+				/**
+				 * Morten Alver 13 Aug 2006: Trying to make the parser more
+				 * robust. If an exception is thrown when parsing an entry,
+				 * drop the entry and try to resume parsing. Add a warning
+				 * for the user.
+				 * 
+				 * An alternative solution is to try rescuing the entry for
+				 * which parsing failed, by returning the entry with the
+				 * exception and adding it before parsing is continued.
+				 */
+				try {
+					BibtexEntry be = parseEntry(tp);
+					addEntry(be);
+				} catch (IOException ex) {
+					ex.printStackTrace();
+					skippedEntry = true;
+					addWarning(Globals.lang("Error occured when parsing entry") + ": '"
+						+ ex.getMessage() + "'. " + Globals.lang("Skipped entry."));
+
 				}
+			}
+
+			skipWhitespace();
+		}
+	}
+
+	private void addEntry(BibtexEntry be) {
+		if (items != null) {
+			items.add(be);
+			return;
+		}
+		boolean duplicateKey = _db.insertEntry(be);
+		if (duplicateKey) // JZTODO lyrics
+            _pr.addDuplicateKey(be.getCiteKey());
+			/*_pr.addWarning(Globals.lang("duplicate BibTeX key") + ": "
+				+ be.getCiteKey() + " ("
+				+ Globals.lang("grouping may not work for this entry") + ")");                        */
+		else if (be.getCiteKey() == null || be.getCiteKey().equals("")) {
+			_pr.addWarning(Globals.lang("empty BibTeX key") + ": "
+				+ be.getAuthorTitleYear(40) + " ("
+				+ Globals.lang("grouping may not work for this entry") + ")");
+		}
+	}
 
-				skipWhitespace();
+	private void addString(BibtexString bs) {
+		if (items != null) {
+			items.add(bs);
+			return;
+		}
+		try {
+			_db.addString(bs);
+		} catch (KeyCollisionException ex) {
+			_pr.addWarning(Globals.lang("Duplicate string name") + ": "
+				+ bs.getName());
+			// ex.printStackTrace();
+		}
+	}
+
+	private void setPreamble(String preamble) {
+		if (items != null)
+			items.add(new Preamble(preamble));
+		else
+			_db.setPreamble(preamble);
+	}
+
+	private void addWarning(String warning) {
+		if (items != null)
+			items.add(warning);
+		else
+			_pr.addWarning(warning);
+	}
+
+	private static class Preamble {
+		private final String text;
+
+		Preamble(String text) {
+			this.text = text;
+		}
+	}
+
+	/**
+	 * Splits the rest of the input before top-level @ signs at the start of a
+	 * line, parses the parts in parallel and adds their contents in order.
+	 * 
+	 * If parsing a part fails or skips an entry, nothing is added and false is
+	 * returned, so that the input is parsed in one go and reports the same
+	 * errors it always did.
+	 * 
+	 * @return true if the input has been parsed
+	 */
+	private boolean parseInParallel() throws IOException {
+		if (buffer == null || threads < 2 || pushedBack > 0)
+			return false;
+		final List<BibtexParser> parts = split();
+		if (parts.size() < 2)
+			return false;
+
+		final boolean[] skipped = new boolean[1];
+		try {
+			// At most as many parts in flight as threads were asked for:
+			Parallel.map(Parallel.getExecutor(), parts.size(), 1, threads,
+				new Parallel.Block<Boolean, IOException>() {
+					public Boolean process(int start, int end) throws IOException {
+						parts.get(start).parseItems();
+						return parts.get(start).skippedEntry;
+					}
+				}, new Parallel.Receiver<Boolean, IOException>() {
+					public void receive(Boolean skippedEntry) {
+						skipped[0] |= skippedEntry;
+					}
+				});
+		} catch (IOException e) {
+			return false;
+		} catch (RuntimeException e) {
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		if (skipped[0])
+			return false;
+
+		for (BibtexParser part : parts) {
+			_meta.putAll(part._meta);
+			entryTypes.putAll(part.entryTypes);
+			for (Object item : part.items) {
+				if (item instanceof BibtexEntry) {
+					// Number the entries in file order, as if parsed in one go:
+					BibtexEntry be = (BibtexEntry) item;
+					be.setId(Util.createNeutralId());
+					addEntry(be);
+				} else if (item instanceof BibtexString)
+					addString((BibtexString) item);
+				else if (item instanceof Preamble)
+					setPreamble(((Preamble) item).text);
+				else
+					addWarning((String) item);
 			}
+		}
+		position = end;
+		_eof = true;
+		return true;
+	}
 
-			// Before returning the database, update entries with unknown type
-			// based on parsed type definitions, if possible.
-			checkEntryTypes(_pr);
+	/**
+	 * Creates parsers for parts of the rest of the input of at least
+	 * chunkLength characters. A part ends before an @ at the start of a line
+	 * where all braces opened so far are closed.
+	 */
+	private List<BibtexParser> split() {
+		List<BibtexParser> parts = new ArrayList<BibtexParser>();
+		int partStart = position;
+		int partLine = line;
+		int currentLine = line;
+		int braces = 0;
+		boolean lineStart = false;
+		for (int i = position; i < end; i++) {
+			char c = buffer[i];
+			if (c == '\n') {
+				currentLine++;
+				lineStart = true;
+				continue;
+			}
+			if (c == '{')
+				braces++;
+			else if (c == '}') {
+				braces--;
+				if (braces < 0)
+					break;
+			} else if ((c == '@') && lineStart && (braces == 0) && (i - partStart >= chunkLength)) {
+				parts.add(createPart(partStart, i, partLine));
+				partStart = i;
+				partLine = currentLine;
+			}
+			if (!Character.isWhitespace(c))
+				lineStart = false;
+		}
+		parts.add(createPart(partStart, end, partLine));
+		return parts;
+	}
 
-			return _pr;
-		} catch (KeyCollisionException kce) {
-			// kce.printStackTrace();
-			throw new IOException("Duplicate ID in bibtex file: " + kce.toString());
+	private BibtexParser createPart(int partStart, int partEnd, int partLine) {
+		BibtexParser part = new BibtexParser(buffer, partStart, partEnd, partLine);
+		part._meta = new HashMap<String, String>();
+		part.entryTypes = new HashMap<String, BibtexEntryType>();
+		part.items = new ArrayList<Object>();
+		return part;
+	}
+
+	private void readInput() throws IOException {
+		char[] input = new char[1 << 16];
+		int length = 0;
+		int n;
+		while ((n = _in.read(input, length, input.length - length)) != -1) {
+			length += n;
+			if (length == input.length) {
+				char[] larger = new char[input.length * 2];
+				System.arraycopy(input, 0, larger, 0, length);
+				input = larger;
+			}
 		}
+		buffer = input;
+		start = 0;
+		position = 0;
+		end = length;
 	}
 
 	private int peek() throws IOException {
+		if ((buffer != null) && (pushedBack == 0) && (position < end))
+			return buffer[position];
 		int c = read();
 		unread(c);
 
@@ -407,16 +668,35 @@ public class BibtexParser {
 	}
 
 	private int read() throws IOException {
-		int c = _in.read();
+		int c;
+		if (buffer == null)
+			c = _in.read();
+		else if (pushedBack > 0)
+			c = pushback[--pushedBack];
+		else if (position < end)
+			c = buffer[position++];
+		else
+			c = -1;
 		if (c == '\n')
 			line++;
 		return c;
 	}
 
+	/**
+	 * Pushes back a character. Like PushbackReader, -1 is pushed back as
+	 * '\uFFFF'.
+	 */
 	private void unread(int c) throws IOException {
 		if (c == '\n')
 			line--;
-		_in.unread(c);
+		if (buffer == null)
+			_in.unread(c);
+		else if ((pushedBack == 0) && (position > start) && (buffer[position - 1] == (char) c))
+			position--;
+		else if (pushedBack < pushback.length)
+			pushback[pushedBack++] = (char) c;
+		else
+			throw new IOException("Pushback buffer overflow");
 	}
 
 	public BibtexString parseString() throws IOException {
@@ -508,7 +788,7 @@ public class BibtexParser {
 	}
 
 	private void parseField(BibtexEntry entry) throws IOException {
-		String key = parseTextToken().toLowerCase();
+		String key = fieldName(parseTextToken().toLowerCase());
 		// Util.pr("Field: _"+key+"_");
 		skipWhitespace();
 		consume('=');
@@ -538,9 +818,19 @@ public class BibtexParser {
 		}
 	}
 
+	private static String fieldName(String name) {
+		String shared = fieldNames.get(name);
+		if (shared != null)
+			return shared;
+		if (fieldNames.size() >= MAX_FIELD_NAMES)
+			return name;
+		shared = fieldNames.putIfAbsent(name, name);
+		return shared != null ? shared : name;
+	}
+
 	private String parseFieldContent(String key) throws IOException {
 		skipWhitespace();
-		StringBuffer value = new StringBuffer();
+		StringBuilder value = new StringBuilder();
 		int c = '.';
 
 		while (((c = peek()) != ',') && (c != '}') && (c != ')')) {
@@ -549,7 +839,7 @@ public class BibtexParser {
 				throw new RuntimeException("Error in line " + line + ": EOF in mid-string");
 			}
 			if (c == '"') {
-				StringBuffer text = parseQuotedFieldExactly();
+				StringBuilder text = parseQuotedFieldExactly();
 				value.append(fieldContentParser.format(text));
 				/*
 				 * 
@@ -569,7 +859,7 @@ public class BibtexParser {
 				// Value is a string enclosed in brackets. There can be pairs
 				// of brackets inside of a field, so we need to count the
 				// brackets to know when the string is finished.
-				StringBuffer text = parseBracketedTextExactly();
+				StringBuilder text = parseBracketedTextExactly();
 				value.append(fieldContentParser.format(text, key));
 
 			} else if (Character.isDigit((char) c)) { // value is a number
@@ -664,7 +954,7 @@ public class BibtexParser {
 	 * numbers outside brackets.
 	 */
 	private String parseTextToken() throws IOException {
-		StringBuffer token = new StringBuffer(20);
+		StringBuilder token = new StringBuilder(20);
 
 		while (true) {
 			int c = read();
@@ -745,7 +1035,7 @@ public class BibtexParser {
                         }
 
                         // Finished, now reverse newKey and remove whitespaces:
-                        _pr.addWarning(Globals.lang("Line %0: Found corrupted BibTeX-key.",
+                        addWarning(Globals.lang("Line %0: Found corrupted BibTeX-key.",
                                 String.valueOf(line)));
                         key = newKey.reverse();
                     }
@@ -754,12 +1044,12 @@ public class BibtexParser {
 
             case ',':
 
-                _pr.addWarning(Globals.lang("Line %0: Found corrupted BibTeX-key (contains whitespaces).",
+                addWarning(Globals.lang("Line %0: Found corrupted BibTeX-key (contains whitespaces).",
                         String.valueOf(line)));
 
             case '\n':
 
-                _pr.addWarning(Globals.lang("Line %0: Found corrupted BibTeX-key (comma missing).",
+                addWarning(Globals.lang("Line %0: Found corrupted BibTeX-key (comma missing).",
                         String.valueOf(line)));
 
                 break;
@@ -809,7 +1099,7 @@ public class BibtexParser {
 	 * This method is used to parse the bibtex key for an entry.
 	 */
 	private String parseKey() throws IOException, NoLabelException {
-		StringBuffer token = new StringBuffer(20);
+		StringBuilder token = new StringBuilder(20);
 
 		while (true) {
 			int c = read();
@@ -863,9 +1153,9 @@ public class BibtexParser {
 		}
 	}
 
-	private StringBuffer parseBracketedText() throws IOException {
+	private StringBuilder parseBracketedText() throws IOException {
 		// Util.pr("Parse bracketed text");
-		StringBuffer value = new StringBuffer();
+		StringBuilder value = new StringBuilder();
 
 		consume('{');
 
@@ -915,13 +1205,13 @@ public class BibtexParser {
 		return value;
 	}
 
-	private StringBuffer parseBracketedTextExactly() throws IOException {
+	private StringBuilder parseBracketedTextExactly() throws IOException {
 
-		StringBuffer value = new StringBuffer();
+		StringBuilder value = new StringBuilder();
 
 		consume('{');
 
-		int brackets = 0;
+		int brackets = readBalanced('}', value);
 
 		while (!((peek() == '}') && (brackets == 0))) {
 
@@ -942,13 +1232,13 @@ public class BibtexParser {
 		return value;
 	}
 
-	private StringBuffer parseQuotedFieldExactly() throws IOException {
+	private StringBuilder parseQuotedFieldExactly() throws IOException {
 
-		StringBuffer value = new StringBuffer();
+		StringBuilder value = new StringBuilder();
 
 		consume('"');
 
-		int brackets = 0;
+		int brackets = readBalanced('"', value);
 
 		while (!((peek() == '"') && (brackets == 0))) {
 
@@ -969,6 +1259,35 @@ public class BibtexParser {
 		return value;
 	}
 
+	/**
+	 * When reading from memory, appends the text up to the given closing
+	 * character outside of braces to value in one go. Stops early at the end
+	 * of the input, leaving it to the caller to report.
+	 * 
+	 * @return the number of braces still open
+	 */
+	private int readBalanced(char closing, StringBuilder value) {
+		if ((buffer == null) || (pushedBack > 0))
+			return 0;
+		int brackets = 0;
+		int i = position;
+		while (i < end) {
+			char c = buffer[i];
+			if (((c == closing) && (brackets == 0)) || (c == 65535))
+				break;
+			if (c == '{')
+				brackets++;
+			else if (c == '}')
+				brackets--;
+			else if (c == '\n')
+				line++;
+			i++;
+		}
+		value.append(buffer, position, i - position);
+		position = i;
+		return brackets;
+	}
+
 	private void consume(char expected) throws IOException {
 		int c = read();
 
@@ -1039,7 +1358,7 @@ public class BibtexParser {
      * @throws IOException
      */
     private String readJabRefVersionNumber() throws IOException {
-        StringBuffer headerText = new StringBuffer();
+        StringBuilder headerText = new StringBuilder();
         
         boolean keepon = true;
         int piv = 0;
@@ -13,12 +13,12 @@ public class FieldContentParser {
 
     /**
      * Performs the reformatting
-     * @param content StringBuffer containing the field to format. key contains field name according to field
+     * @param content StringBuilder containing the field to format. key contains field name according to field
      *  was edited by Kuehn/Havalevich
-     * @return The formatted field content. NOTE: the StringBuffer returned may
+     * @return The formatted field content. NOTE: the StringBuilder returned may
      * or may not be the same as the argument given.
      */
-	public StringBuffer format(StringBuffer content, String key) {
+	public StringBuilder format(StringBuilder content, String key) {
 
         /*System.out.println("Content: '"+content+"'");
         byte[] bt = content.toString().getBytes();
@@ -32,10 +32,16 @@ public class FieldContentParser {
 
         int i=0;
 
+        // Most fields contain neither line breaks, tabs nor double spaces, and
+        // are left as they are:
+        if (!needsFormatting(content))
+            return content;
+
         // Remove windows newlines and insert unix ones:
         // TODO: 2005.12.3: Added replace from \r to \n, to work around a reported problem of words stiched together.
         // But: we need to find out why these lone \r characters appear in his file.
-        content = new StringBuffer(content.toString().replaceAll("\r\n","\n").replaceAll("\r", "\n"));
+        if (content.indexOf("\r") >= 0)
+            content = new StringBuilder(content.toString().replaceAll("\r\n","\n").replaceAll("\r", "\n"));
 
         while (i<content.length()) {
 
@@ -134,14 +140,25 @@ public class FieldContentParser {
 
     /**
      * Performs the reformatting
-     * @param content StringBuffer containing the field to format.
-     * @return The formatted field content. NOTE: the StringBuffer returned may
+     * @param content StringBuilder containing the field to format.
+     * @return The formatted field content. NOTE: the StringBuilder returned may
      * or may not be the same as the argument given.
      */
-    public StringBuffer format(StringBuffer content) { 
+    public StringBuilder format(StringBuilder content) { 
     	return format(content, null);
     }
 
+    private static boolean needsFormatting(StringBuilder content) {
+        for (int i=0; i<content.length(); i++) {
+            char c = content.charAt(i);
+            if ((c == '\n') || (c == '\r') || (c == '\t'))
+                return true;
+            if ((c == ' ') && (i>0) && (content.charAt(i-1) == ' '))
+                return true;
+        }
+        return false;
+    }
+
     /**
      * Formats field contents for output. Must be "symmetric" with the parse method above,
      * so stored and reloaded fields are not mangled.
@@ -27,11 +27,15 @@ package net.sf.jabref.imports;
 import java.io.*;
 import net.sf.jabref.util.Pair;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import net.sf.jabref.*;
 import net.sf.jabref.plugin.PluginCore;
 import net.sf.jabref.plugin.core.JabRefPlugin;
 import net.sf.jabref.plugin.core.generated._JabRefPlugin.ImportFormatExtension;
+import net.sf.jabref.util.Parallel;
 
 
 public class ImportFormatReader {
@@ -449,30 +453,57 @@ public class ImportFormatReader {
 
 		Pair<String, ParserResult> result = null;
 		
-		// Cycle through all importers:
+		// Read the file only once for all importers:
+		final byte[] data = readFile(new File(filename));
+
+		// Run all importers at the same time. Most of them give up after the
+		// format check, so only plausible formats are imported in full:
+		List<ImportFormat> importers = new ArrayList<ImportFormat>(getImportFormats());
+		List<Future<List<BibtexEntry>>> imports = new ArrayList<Future<List<BibtexEntry>>>();
+		for (final ImportFormat imFo : importers) {
+			imports.add(Parallel.getExecutor().submit(new Callable<List<BibtexEntry>>() {
+				public List<BibtexEntry> call() throws IOException {
+					List<BibtexEntry> entries = importFromBytes(imFo, data);
+					if (entries != null)
+						purgeEmptyEntries(entries);
+					return entries;
+				}
+			}));
+		}
+
+		// Cycle through all importers, in their order:
 		int bestResult = 0;
 
-        for (ImportFormat imFo : getImportFormats()) {
+		try {
+			for (int i = 0; i < importers.size(); i++) {
 
-            try {
+				try {
 
-                List<BibtexEntry> entries = importFromFile(imFo, filename);
+					List<BibtexEntry> entries = imports.get(i).get();
 
-                if (entries != null)
-                    purgeEmptyEntries(entries);
+					int entryCount = ((entries != null) ? entries.size() : 0);
 
-                int entryCount = ((entries != null) ? entries.size() : 0);
+					if (entryCount > bestResult) {
+						bestResult = entryCount;
 
-                if (entryCount > bestResult) {
-                    bestResult = entryCount;
-
-                    result = new Pair<String, ParserResult>(imFo.getFormatName(),
-                    new ParserResult(entries));
-                }
-            } catch (IOException ex) {
-                // The import didn't succeed. Go on.
-            }
-        }
+						result = new Pair<String, ParserResult>(importers.get(i).getFormatName(),
+							new ParserResult(entries));
+					}
+				} catch (ExecutionException ex) {
+					if (ex.getCause() instanceof RuntimeException)
+						throw (RuntimeException) ex.getCause();
+					if (ex.getCause() instanceof Error)
+						throw (Error) ex.getCause();
+					// The import didn't succeed. Go on.
+				}
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(ex.getMessage());
+		} finally {
+			for (Future<List<BibtexEntry>> imFo : imports)
+				imFo.cancel(true);
+		}
 		
 		if (result != null)
 			return result;
@@ -493,4 +524,31 @@ public class ImportFormatReader {
 
       return null;
 	}
+
+	/**
+	 * Imports the given file contents, if the importer recognizes them.
+	 * 
+	 * @throws IOException if the importer does not recognize the format
+	 */
+	private static List<BibtexEntry> importFromBytes(ImportFormat importer, byte[] data)
+		throws IOException {
+		if (!importer.isRecognizedFormat(new ByteArrayInputStream(data)))
+			throw new IOException(Globals.lang("Wrong file format"));
+		return importer.importEntries(new ByteArrayInputStream(data));
+	}
+
+	private static byte[] readFile(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(file.length() + 1,
+				Integer.MAX_VALUE));
+			byte[] buffer = new byte[65536];
+			int read;
+			while ((read = in.read(buffer)) != -1)
+				out.write(buffer, 0, read);
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
 }
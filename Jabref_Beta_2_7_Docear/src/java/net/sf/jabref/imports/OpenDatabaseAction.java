@@ -438,21 +438,7 @@ public class OpenDatabaseAction extends MnemonicAwareAction {
         // The file looks promising. Reinitialize the reader and go on:
         //reader = getReader(fileToOpen, encoding);
 
-        // We want to check if there is a JabRef signature in the file, because that would tell us
-        // which character encoding is used. However, to read the signature we must be using a compatible
-        // encoding in the first place. Since the signature doesn't contain any fancy characters, we can
-        // read it regardless of encoding, with either UTF8 or UTF-16. That's the hypothesis, at any rate.
-        // 8 bit is most likely, so we try that first:
-        Reader utf8Reader = ImportFormatReader.getReader(fileToOpen, "UTF8");
-        String suppliedEncoding = checkForEncoding(utf8Reader);
-        utf8Reader.close();
-        // Now if that didn't get us anywhere, we check with the 16 bit encoding:
-        if (suppliedEncoding == null) {
-            Reader utf16Reader = ImportFormatReader.getReader(fileToOpen, "UTF-16");
-            suppliedEncoding = checkForEncoding(utf16Reader);
-            utf16Reader.close();
-            //System.out.println("Result of UTF-16 test: "+suppliedEncoding);
-        }
+        String suppliedEncoding = getSuppliedEncoding(fileToOpen);
 
         //System.out.println(suppliedEncoding != null ? "Encoding: '"+suppliedEncoding+"' Len: "+suppliedEncoding.length() : "no supplied encoding");
 
@@ -468,7 +454,8 @@ public class OpenDatabaseAction extends MnemonicAwareAction {
             // We couldn't find a header with info about encoding. Use default:
             reader = ImportFormatReader.getReader(fileToOpen, encoding);
         }        
-        BibtexParser bp = new BibtexParser(reader);
+        // Databases are read into memory, so that large ones can be parsed in parallel:
+        BibtexParser bp = new BibtexParser(reader, Runtime.getRuntime().availableProcessors());
         
         ParserResult pr = bp.parse();
         pr.setEncoding(encoding);
@@ -478,6 +465,29 @@ public class OpenDatabaseAction extends MnemonicAwareAction {
     
     
 
+    /**
+     * Reads the character encoding named in the JabRef signature of the given file.
+     * @return the encoding, or null if the file has no signature naming one.
+     */
+    public static String getSuppliedEncoding(File fileToOpen) throws IOException {
+        // We want to check if there is a JabRef signature in the file, because that would tell us
+        // which character encoding is used. However, to read the signature we must be using a compatible
+        // encoding in the first place. Since the signature doesn't contain any fancy characters, we can
+        // read it regardless of encoding, with either UTF8 or UTF-16. That's the hypothesis, at any rate.
+        // 8 bit is most likely, so we try that first:
+        Reader utf8Reader = ImportFormatReader.getReader(fileToOpen, "UTF8");
+        String suppliedEncoding = checkForEncoding(utf8Reader);
+        utf8Reader.close();
+        // Now if that didn't get us anywhere, we check with the 16 bit encoding:
+        if (suppliedEncoding == null) {
+            Reader utf16Reader = ImportFormatReader.getReader(fileToOpen, "UTF-16");
+            suppliedEncoding = checkForEncoding(utf16Reader);
+            utf16Reader.close();
+            //System.out.println("Result of UTF-16 test: "+suppliedEncoding);
+        }
+        return suppliedEncoding;
+    }
+
     private static String checkForEncoding(Reader reader) {
         String suppliedEncoding = null;
         StringBuffer headerText = new StringBuffer();
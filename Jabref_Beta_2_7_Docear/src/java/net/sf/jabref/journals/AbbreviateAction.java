@@ -37,11 +37,7 @@ public class AbbreviateAction extends AbstractWorker {
         if (entries == null)
             return;
         NamedCompound ce = new NamedCompound("Abbreviate journal names");
-        int count = 0;
-        for (int i = 0; i < entries.length; i++) {
-            if (Globals.journalAbbrev.abbreviate(panel.database(), entries[i], "journal", ce, iso))
-                count++;
-        }
+        int count = Globals.journalAbbrev.abbreviate(panel.database(), entries, "journal", ce, iso);
         if (count > 0) {
             ce.end();
             panel.undoManager.addEdit(ce);
@@ -16,6 +16,7 @@ import javax.swing.undo.UndoManager;
 import net.sf.jabref.*;
 import net.sf.jabref.undo.UndoableFieldChange;
 import net.sf.jabref.util.CaseChanger;
+import net.sf.jabref.util.Parallel;
 
 /**
  * Created by IntelliJ IDEA.
@@ -29,12 +30,15 @@ public class JournalAbbreviations {
     static String TOOLTIPTEXT = "<HTML>"+Globals.lang("Switches between full and abbreviated journal name "
         +"if the journal name is known.")
         +"<BR>"+Globals.lang("To set up, go to <B>Tools -> Manage journal abbreviations</B>")+".</HTML>";
-    TreeMap<String, String> fullNameKeyed = new TreeMap<String, String>();
-    HashMap<String, String> abbrNameKeyed = new HashMap<String, String>();
-    HashMap<String, String> abbrNoDotsToAbbr = new HashMap<String, String>();
-    TreeMap<String, String> all = new TreeMap<String, String>();
+    // The lists read, each overriding those read before:
+    private final List<JournalIndex> lists = new ArrayList<JournalIndex>();
+    // All journals by full name, and the full names in lower case, collected when first needed:
+    private TreeMap<String, String> all = null;
+    private TreeSet<String> fullNames = null;
     CaseChanger caseChanger = new CaseChanger();
 
+    private static final int BLOCK_SIZE = 100;
+
     public JournalAbbreviations() {
         
     }
@@ -52,21 +56,59 @@ public class JournalAbbreviations {
      * @return Iterator for journal full names
      */
     public Iterator<String> fullNameIterator() {
-        return fullNameKeyed.keySet().iterator();
+        return getFullNames().iterator();
+    }
+
+    private synchronized SortedSet<String> getFullNames() {
+        if (fullNames == null) {
+            fullNames = new TreeSet<String>();
+            for (JournalIndex list : lists) {
+                for (int i = 0; i < list.size(); i++)
+                    fullNames.add(list.getFullName(i).toLowerCase());
+            }
+        }
+        return fullNames;
+    }
+
+    /**
+     * Looks the name up in one table of the lists, the last list read first.
+     * @param table The table of JournalIndex to look in.
+     * @param name The name in lower case.
+     * @param full True to return the full name of the journal found, false
+     * to return its abbreviation.
+     * @return The name of the journal found, or null if none.
+     */
+    private String find(int table, String name, boolean full) {
+        for (int i = lists.size() - 1; i >= 0; i--) {
+            JournalIndex list = lists.get(i);
+            int journal = list.find(table, name);
+            if (journal >= 0)
+                return full ? list.getFullName(journal) : list.getAbbreviation(journal);
+        }
+        return null;
+    }
+
+    private boolean contains(int table, String name) {
+        for (int i = lists.size() - 1; i >= 0; i--) {
+            if (lists.get(i).find(table, name) >= 0)
+                return true;
+        }
+        return false;
     }
 
     public boolean isKnownName(String journalName) {
         String s = journalName.toLowerCase();
-        return ((fullNameKeyed.get(s) != null) || (abbrNameKeyed.get(s) != null) || (abbrNoDotsToAbbr.get(s) != null));
+        return (contains(JournalIndex.FULL_NAME, s) || contains(JournalIndex.ABBREVIATION, s)
+            || contains(JournalIndex.ABBREVIATION_NO_DOTS, s));
     }
 
     public boolean isAbbreviatedName(String journalName) {
         String s = journalName.toLowerCase();
-        return ((abbrNameKeyed.get(s) != null) || (abbrNoDotsToAbbr.get(s) != null));
+        return (contains(JournalIndex.ABBREVIATION, s) || contains(JournalIndex.ABBREVIATION_NO_DOTS, s));
     }
 
     public String dotsToNodots(String name) {
-        return name.replaceAll("\\.", " ").replaceAll("  ", " ").trim();
+        return JournalIndex.dotsToNodots(name);
     }
 
     /**
@@ -79,16 +121,14 @@ public class JournalAbbreviations {
      */
     public String getAbbreviatedName(String journalName, boolean withDots) {
         String s = journalName.toLowerCase();
-        String abbr;
-        if (fullNameKeyed.containsKey(s)) {
-            abbr = fullNameKeyed.get(s);
-        }
-        else if (abbrNameKeyed.containsKey(s)) {
-            abbr = journalName;
+        String abbr = find(JournalIndex.FULL_NAME, s, false);
+        if (abbr == null) {
+            if (contains(JournalIndex.ABBREVIATION, s))
+                abbr = journalName;
+            else
+                abbr = find(JournalIndex.ABBREVIATION_NO_DOTS, s, false);
         }
-        else if (abbrNoDotsToAbbr.containsKey(s)) {
-            abbr = abbrNoDotsToAbbr.get(s);
-        } else
+        if (abbr == null)
             return null;
 
         if (!withDots) {
@@ -111,30 +151,38 @@ public class JournalAbbreviations {
 	    s = s.toLowerCase();
 	else
 	    return null;
-        Object o = abbrNameKeyed.get(s);
+        String o = find(JournalIndex.ABBREVIATION, s, true);
         if (o == null) {
-            if (fullNameKeyed.containsKey(s))
+            if (contains(JournalIndex.FULL_NAME, s))
                 o = s;
             else
                 return null;
         }
-        s = (String)o;
-        return s;//caseChanger.changeCase(s, CaseChanger.UPPER_EACH_FIRST);
+        return o;//caseChanger.changeCase(s, CaseChanger.UPPER_EACH_FIRST);
     }
 
     public void readJournalList(String resourceFileName) {
         URL url = JournalAbbreviations.class.getResource(resourceFileName);
         try {
-            readJournalList(new InputStreamReader(url.openStream()));
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
+            add(JournalIndex.load(url));
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Read the given file, which should contain a list of journal names and their
+     * abbreviations. Its index is cached, so reading it again is quick as long as
+     * it doesn't change.
+     */
     public void readJournalList(File file) throws FileNotFoundException {
-        readJournalList(new FileReader(file));
+        try {
+            add(JournalIndex.load(file));
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     /**
@@ -143,47 +191,19 @@ public class JournalAbbreviations {
      * @param in
      */
     public void readJournalList(Reader in) throws FileNotFoundException {
-        BufferedReader reader = new BufferedReader(in);
         try {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                //System.out.println(line);
-                if (line.startsWith("#"))
-                    continue;
-                String[] parts = line.split("=");
-                if (parts.length == 2) {
-                    String fullName = parts[0].trim();
-                    String fullNameLC = fullName.toLowerCase();
-                    String abbrName = parts[1].trim();
-                    if (abbrName.indexOf(';') >= 0) {
-                        String[] restParts = abbrName.split(";");
-                        abbrName = restParts[0];
-                    }
-                    String abbrNameLC = abbrName.toLowerCase();
-                    String abbrNoDots = dotsToNodots(abbrName);
-                    String abbrNoDotsLC = abbrNoDots.toLowerCase();
-                    //System.out.println(abbrNoDots);
-                    if ((fullName.length()>0) && (abbrName.length()>0)) {
-                        //System.out.println("'"+fullName+"' : '"+abbrNoDots+"'");
-                        fullNameKeyed.put(fullNameLC, abbrName);
-                        abbrNameKeyed.put(abbrNameLC, fullName);
-                        abbrNoDotsToAbbr.put(abbrNoDotsLC, abbrName);
-                        all.put(fullName, abbrName);
-                    }
-                }
-            }
-
+            add(JournalIndex.read(in));
         } catch (IOException ex) {
             ex.printStackTrace();
-        } finally {
-            try {
-                reader.close();
-            } catch (IOException ex2) {
-                ex2.printStackTrace();
-            }
         }
     }
 
+    private synchronized void add(JournalIndex list) {
+        lists.add(list);
+        all = null;
+        fullNames = null;
+    }
+
     /**
      * Abbreviate the journal name of the given entry.
      * @param database The database the entry belongs to, or null if no database.
@@ -195,31 +215,11 @@ public class JournalAbbreviations {
      */
     public boolean abbreviate(BibtexDatabase database, BibtexEntry entry,
                               String fieldName, CompoundEdit ce, boolean withDots) {
-        String text = entry.getField(fieldName);
-        if (text == null)
+        String newText = convert(database, entry, fieldName, true, withDots);
+        if (newText == null)
             return false;
-        String origText = text;
-        if (database != null)
-            text = database.resolveForStrings(text);
-        if (isKnownName(text) && !isAbbreviatedName(text)) {
-            String newText = getAbbreviatedName(text, withDots);
-            if (newText == null)
-                return false;
-            entry.setField(fieldName, newText);
-            ce.addEdit(new UndoableFieldChange(entry, fieldName, origText, newText));
-            return true;
-        } else {
-            String unabbr = getFullName(text);
-            if (unabbr != null) {
-                String newText = getAbbreviatedName(unabbr, withDots);
-                if (newText == null)
-                    return false;
-                entry.setField(fieldName, newText);
-                ce.addEdit(new UndoableFieldChange(entry, fieldName, origText, newText));
-                return true;
-            } else
-                return false;
-        }
+        setField(entry, fieldName, newText, ce);
+        return true;
     }
 
     /**
@@ -231,25 +231,96 @@ public class JournalAbbreviations {
      */
     public boolean unabbreviate(BibtexDatabase database, BibtexEntry entry,
                                 String fieldName, CompoundEdit ce) {
+        String newText = convert(database, entry, fieldName, false, false);
+        if (newText == null)
+            return false;
+        setField(entry, fieldName, newText, ce);
+        return true;
+    }
+
+    /**
+     * Abbreviate the journal names of the given entries. The names are looked
+     * up in parallel, and the entries changed afterwards, in order.
+     * @return the number of entries changed.
+     */
+    public int abbreviate(BibtexDatabase database, BibtexEntry[] entries,
+                          String fieldName, CompoundEdit ce, boolean withDots) {
+        return setFields(entries, fieldName, convert(database, entries, fieldName, true, withDots), ce);
+    }
+
+    /**
+     * Unabbreviate the journal names of the given entries. The names are looked
+     * up in parallel, and the entries changed afterwards, in order.
+     * @return the number of entries changed.
+     */
+    public int unabbreviate(BibtexDatabase database, BibtexEntry[] entries,
+                            String fieldName, CompoundEdit ce) {
+        return setFields(entries, fieldName, convert(database, entries, fieldName, false, false), ce);
+    }
+
+    /**
+     * Returns the abbreviated or full journal name the entry should get, or
+     * null if it can't be found.
+     */
+    private String convert(BibtexDatabase database, BibtexEntry entry, String fieldName,
+                           boolean abbreviate, boolean withDots) {
         String text = entry.getField(fieldName);
         if (text == null)
-            return false;
-        String origText = text;
+            return null;
         if (database != null)
             text = database.resolveForStrings(text);
-        if (isKnownName(text) && isAbbreviatedName(text)) {
-            String newText = getFullName(text);
-            if (newText == null)
-                return false;
-            entry.setField(fieldName, newText);
-            ce.addEdit(new UndoableFieldChange(entry, fieldName, origText, newText));
-            return true;
-        } else
-            return false;
+        if (!abbreviate)
+            return (isKnownName(text) && isAbbreviatedName(text)) ? getFullName(text) : null;
+        if (isKnownName(text) && !isAbbreviatedName(text))
+            return getAbbreviatedName(text, withDots);
+        String unabbr = getFullName(text);
+        return (unabbr == null) ? null : getAbbreviatedName(unabbr, withDots);
     }
 
+    private String[] convert(final BibtexDatabase database, final BibtexEntry[] entries, final String fieldName,
+                             final boolean abbreviate, final boolean withDots) {
+        final String[] result = new String[entries.length];
+        try {
+            Parallel.map(entries.length, BLOCK_SIZE, new Parallel.Block<Object, RuntimeException>() {
+                public Object process(int start, int end) {
+                    for (int j = start; j < end; j++)
+                        result[j] = convert(database, entries[j], fieldName, abbreviate, withDots);
+                    return null;
+                }
+            });
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            // Change nothing rather than some of the entries:
+            return new String[entries.length];
+        }
+        return result;
+    }
 
-    public Map<String, String> getJournals() {
+    private static int setFields(BibtexEntry[] entries, String fieldName, String[] newTexts, CompoundEdit ce) {
+        int count = 0;
+        for (int i = 0; i < entries.length; i++) {
+            if (newTexts[i] != null) {
+                setField(entries[i], fieldName, newTexts[i], ce);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void setField(BibtexEntry entry, String fieldName, String newText, CompoundEdit ce) {
+        String origText = entry.getField(fieldName);
+        entry.setField(fieldName, newText);
+        ce.addEdit(new UndoableFieldChange(entry, fieldName, origText, newText));
+    }
+
+    public synchronized Map<String, String> getJournals() {
+        if (all == null) {
+            all = new TreeMap<String, String>();
+            for (JournalIndex list : lists) {
+                for (int i = 0; i < list.size(); i++)
+                    all.put(list.getFullName(i), list.getAbbreviation(i));
+            }
+        }
         return Collections.unmodifiableMap(all);
     }
 
@@ -297,9 +368,10 @@ public class JournalAbbreviations {
     }
 
     public TableModel getTableModel() {
-        Object[][] cells = new Object[fullNameKeyed.size()][2];
+        SortedSet<String> names = getFullNames();
+        Object[][] cells = new Object[names.size()][2];
         int row = 0;
-        for (Iterator<String> i=fullNameIterator(); i.hasNext();) {
+        for (Iterator<String> i=names.iterator(); i.hasNext();) {
             String name = i.next();
             cells[row][0] = getFullName(name);
             cells[row][1] = getAbbreviatedName(name, true);
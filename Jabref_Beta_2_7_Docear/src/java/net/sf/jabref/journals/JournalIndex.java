@@ -0,0 +1,352 @@
+package net.sf.jabref.journals;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+
+/**
+ * One journal list, as a compact table of full names and abbreviations with
+ * three hash tables to look them up: by full name, by abbreviation and by
+ * abbreviation without dots, all ignoring case.
+ *
+ * The index of a list read from a file or resource is stored in the cache
+ * directory the first time, and memory mapped from there afterwards, so
+ * loading a long list neither parses it nor fills the heap. The cached index
+ * is built again whenever the list's modification time or length changes.
+ *
+ * An index is never changed once built, so any number of threads may look
+ * names up at once.
+ */
+public class JournalIndex {
+
+    /** The hash tables of an index. */
+    public static final int FULL_NAME = 0, ABBREVIATION = 1, ABBREVIATION_NO_DOTS = 2;
+
+    private static final int MAGIC = 0x4a414958, // "JAIX"
+        VERSION = 1, HEADER_SIZE = 40;
+
+    // Lists changed this close to the time their index was built may have
+    // changed again within the resolution of the time stamps:
+    private static final long TIME_RESOLUTION = 2000;
+
+    // Null for the journals directory in the configured user directory:
+    private static File cacheDirectory = null;
+
+    /*
+     * The layout of an index, all numbers big-endian:
+     *
+     * int magic, int version, long modification time and long length of the list,
+     * long time the index was built,
+     * int number of journals n, int size of each hash table m (a power of two),
+     * int[n][3] offsets of full name, abbreviation and abbreviation without dots,
+     * int[3][m][2] hash tables of (hash code of the key in lower case, journal + 1),
+     * the names, each as int length and UTF-8 bytes.
+     */
+    private final ByteBuffer buffer;
+    private final int size, tableSize, tablesStart;
+
+    private JournalIndex(ByteBuffer buffer) {
+        this.buffer = buffer;
+        size = buffer.getInt(32);
+        tableSize = buffer.getInt(36);
+        tablesStart = HEADER_SIZE + 12 * size;
+    }
+
+    /**
+     * Sets the directory the indexes of journal lists are cached in, or null
+     * for the "journals" directory in the user directory set in the
+     * preferences.
+     */
+    public static synchronized void setCacheDirectory(File directory) {
+        cacheDirectory = directory;
+    }
+
+    public static synchronized File getCacheDirectory() {
+        if (cacheDirectory != null)
+            return cacheDirectory;
+        return new File(JabRefPreferences.getInstance().get("userDirectory"), "journals");
+    }
+
+    /**
+     * Returns the number of journals in the list, including journals listed
+     * more than once.
+     */
+    public int size() {
+        return size;
+    }
+
+    public String getFullName(int journal) {
+        return getString(buffer.getInt(HEADER_SIZE + 12 * journal));
+    }
+
+    public String getAbbreviation(int journal) {
+        return getString(buffer.getInt(HEADER_SIZE + 12 * journal + 4));
+    }
+
+    /**
+     * Looks a name up in one of the hash tables.
+     *
+     * @param table
+     *            FULL_NAME, ABBREVIATION or ABBREVIATION_NO_DOTS.
+     * @param name
+     *            The name in lower case.
+     * @return The last journal of the list with that name, or -1 if none.
+     */
+    public int find(int table, String name) {
+        int hash = name.hashCode();
+        int start = tablesStart + 8 * table * tableSize;
+        for (int slot = mix(hash) & (tableSize - 1);; slot = (slot + 1) & (tableSize - 1)) {
+            int journal = buffer.getInt(start + 8 * slot + 4) - 1;
+            if (journal < 0)
+                return -1;
+            if ((buffer.getInt(start + 8 * slot) == hash)
+                    && name.equals(getString(buffer.getInt(HEADER_SIZE + 12 * journal + 4 * table)).toLowerCase()))
+                return journal;
+        }
+    }
+
+    private String getString(int offset) {
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        // Duplicate, so concurrent reads don't share a position:
+        ByteBuffer b = buffer.duplicate();
+        b.position(offset + 4);
+        b.get(bytes);
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static int mix(int hash) {
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        return hash ^ (hash >>> 7) ^ (hash >>> 4);
+    }
+
+    public static String dotsToNodots(String name) {
+        return name.replaceAll("\\.", " ").replaceAll("  ", " ").trim();
+    }
+
+    /**
+     * Builds the index of a journal list in memory, without caching it.
+     */
+    public static JournalIndex read(Reader in) throws IOException {
+        return new JournalIndex(ByteBuffer.wrap(build(parse(in), 0, 0)));
+    }
+
+    /**
+     * Returns the index of the given journal list file, from the cache if it
+     * is up to date there.
+     */
+    public static JournalIndex load(File file) throws IOException {
+        if (!file.exists())
+            throw new FileNotFoundException(file.getPath());
+        String source = file.getAbsolutePath();
+        JournalIndex index = getCached(source, file.lastModified(), file.length());
+        if (index != null)
+            return index;
+        return build(source, file.lastModified(), file.length(), new FileInputStream(file));
+    }
+
+    /**
+     * Returns the index of the given journal list resource, from the cache if
+     * it is up to date there.
+     */
+    public static JournalIndex load(URL resource) throws IOException {
+        URLConnection connection = resource.openConnection();
+        String source = resource.toExternalForm();
+        JournalIndex index = getCached(source, connection.getLastModified(), connection.getContentLength());
+        if (index != null)
+            return index;
+        return build(source, connection.getLastModified(), connection.getContentLength(),
+            connection.getInputStream());
+    }
+
+    private static JournalIndex getCached(String source, long lastModified, long length) {
+        try {
+            return map(getCacheFile(source), lastModified, length);
+        } catch (IOException ex) {
+            return null; // Unreadable, so build it again.
+        }
+    }
+
+    /**
+     * Builds the index of the list read from the stream, and caches it.
+     */
+    private static JournalIndex build(String source, long lastModified, long length, InputStream in)
+            throws IOException {
+        File cache = getCacheFile(source);
+        byte[] built;
+        try {
+            built = build(parse(new InputStreamReader(in)), lastModified, length);
+        } finally {
+            in.close();
+        }
+        // Write a new file and rename it, as a mapped file may not be overwritten
+        // on all platforms:
+        File temp = new File(cache.getPath() + ".tmp");
+        try {
+            cache.getParentFile().mkdirs();
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                out.write(built);
+            } finally {
+                out.close();
+            }
+            if ((!cache.exists() || cache.delete()) && temp.renameTo(cache)) {
+                JournalIndex index = map(cache, lastModified, length);
+                if (index != null)
+                    return index;
+            }
+        } catch (IOException ex) {
+            Globals.logger("Could not cache journal list index: " + ex.getMessage());
+        } finally {
+            temp.delete();
+        }
+        return new JournalIndex(ByteBuffer.wrap(built));
+    }
+
+    private static File getCacheFile(String source) {
+        String name = source.substring(Math.max(source.lastIndexOf('/'), source.lastIndexOf('\\')) + 1)
+            .replaceAll("[^A-Za-z0-9._-]", "_");
+        return new File(getCacheDirectory(), name + "-" + Integer.toHexString(source.hashCode()) + ".idx");
+    }
+
+    /**
+     * Maps the cached index, or returns null if there is none for the given
+     * version of the list.
+     */
+    private static JournalIndex map(File cache, long lastModified, long length) throws IOException {
+        if (!cache.exists() || (cache.length() < HEADER_SIZE))
+            return null;
+        RandomAccessFile file = new RandomAccessFile(cache, "r");
+        try {
+            // The mapping stays valid after the file is closed:
+            ByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            if ((buffer.getInt(0) != MAGIC) || (buffer.getInt(4) != VERSION)
+                    || (buffer.getLong(8) != lastModified) || (buffer.getLong(16) != length)
+                    || (buffer.getLong(24) - lastModified < TIME_RESOLUTION))
+                return null;
+            return new JournalIndex(buffer);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Reads the lines of a journal list, each formatted as "Full Journal
+     * Name=Abbr. Journal Name", into pairs of full name and abbreviation.
+     */
+    static List<String[]> parse(Reader in) throws IOException {
+        List<String[]> journals = new ArrayList<String[]>();
+        BufferedReader reader = new BufferedReader(in);
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#"))
+                    continue;
+                String[] parts = line.split("=");
+                if (parts.length == 2) {
+                    String fullName = parts[0].trim();
+                    String abbrName = parts[1].trim();
+                    if (abbrName.indexOf(';') >= 0) {
+                        String[] restParts = abbrName.split(";");
+                        abbrName = restParts[0];
+                    }
+                    if ((fullName.length() > 0) && (abbrName.length() > 0))
+                        journals.add(new String[] { fullName, abbrName });
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return journals;
+    }
+
+    private static byte[] build(List<String[]> journals, long lastModified, long length) throws IOException {
+        int n = journals.size();
+        int tableSize = 16;
+        while (tableSize < 2 * n)
+            tableSize <<= 1;
+        int stringsStart = HEADER_SIZE + 12 * n + 3 * 8 * tableSize;
+
+        int[] offsets = new int[3 * n];
+        int[][] hashes = new int[3][tableSize], slots = new int[3][tableSize];
+        ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        DataOutputStream stringsOut = new DataOutputStream(strings);
+        for (int i = 0; i < n; i++) {
+            String[] journal = journals.get(i);
+            String[] names = new String[] { journal[0], journal[1], dotsToNodots(journal[1]) };
+            for (int table = 0; table < 3; table++) {
+                offsets[3 * i + table] = stringsStart + stringsOut.size();
+                byte[] bytes = names[table].getBytes("UTF-8");
+                stringsOut.writeInt(bytes.length);
+                stringsOut.write(bytes);
+                put(hashes[table], slots[table], names[table].toLowerCase(), i, journals, table);
+            }
+        }
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream(stringsStart + strings.size());
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(result));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(lastModified);
+        out.writeLong(length);
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(n);
+        out.writeInt(tableSize);
+        for (int i = 0; i < offsets.length; i++)
+            out.writeInt(offsets[i]);
+        for (int table = 0; table < 3; table++) {
+            for (int slot = 0; slot < tableSize; slot++) {
+                out.writeInt(hashes[table][slot]);
+                out.writeInt(slots[table][slot]);
+            }
+        }
+        strings.writeTo(out);
+        out.close();
+        return result.toByteArray();
+    }
+
+    /**
+     * Puts the journal into the hash table under the given key, replacing an
+     * earlier journal with the same key, so the last one listed is found.
+     */
+    private static void put(int[] hashes, int[] slots, String key, int journal, List<String[]> journals, int table) {
+        int hash = key.hashCode();
+        for (int slot = mix(hash) & (slots.length - 1);; slot = (slot + 1) & (slots.length - 1)) {
+            if (slots[slot] == 0) {
+                hashes[slot] = hash;
+                slots[slot] = journal + 1;
+                return;
+            }
+            if (hashes[slot] == hash) {
+                String[] other = journals.get(slots[slot] - 1);
+                String otherKey = (table == ABBREVIATION_NO_DOTS) ? dotsToNodots(other[1]) : other[table];
+                if (key.equals(otherKey.toLowerCase())) {
+                    slots[slot] = journal + 1;
+                    return;
+                }
+            }
+        }
+    }
+}
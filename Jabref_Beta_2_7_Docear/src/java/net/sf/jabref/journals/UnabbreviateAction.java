@@ -35,11 +35,7 @@ public class UnabbreviateAction extends AbstractWorker {
         if (entries == null)
             return;
         NamedCompound ce = new NamedCompound("Unabbreviate journal names");
-        int count = 0;
-        for (int i = 0; i < entries.length; i++) {
-            if (Globals.journalAbbrev.unabbreviate(panel.database(), entries[i], "journal", ce))
-                count++;
-        }
+        int count = Globals.journalAbbrev.unabbreviate(panel.database(), entries, "journal", ce);
         if (count > 0) {
             ce.end();
             panel.undoManager.addEdit(ce);
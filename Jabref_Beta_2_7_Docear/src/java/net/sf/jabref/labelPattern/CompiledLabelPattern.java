@@ -0,0 +1,84 @@
+package net.sf.jabref.labelPattern;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.jabref.BibtexEntry;
+
+/**
+ * A label pattern split into its literal parts and its field markers, with
+ * the modifiers of each marker already parsed. Compiled patterns are cached,
+ * so a pattern is only parsed once however many entries it is applied to.
+ */
+public class CompiledLabelPattern {
+
+    private static final Map<List<String>, CompiledLabelPattern> cache =
+        new HashMap<List<String>, CompiledLabelPattern>();
+
+    // For each part, either the literal text or the parsed field marker:
+    private final String[] literals;
+    private final String[][] markers;
+
+    /**
+     * Returns the compiled form of a pattern as produced by
+     * LabelPatternUtil.split().
+     */
+    public static synchronized CompiledLabelPattern compile(ArrayList<String> pattern) {
+        CompiledLabelPattern compiled = cache.get(pattern);
+        if (compiled == null) {
+            compiled = new CompiledLabelPattern(pattern);
+            cache.put(new ArrayList<String>(pattern), compiled);
+        }
+        return compiled;
+    }
+
+    private CompiledLabelPattern(ArrayList<String> pattern) {
+        List<String> literals = new ArrayList<String>();
+        List<String[]> markers = new ArrayList<String[]>();
+        boolean field = false;
+        // The first item is the pattern itself:
+        for (int i = 1; i < pattern.size(); i++) {
+            String val = pattern.get(i);
+            if (val.equals("[")) {
+                field = true;
+            } else if (val.equals("]")) {
+                field = false;
+            } else if (field) {
+                literals.add(null);
+                markers.add(LabelPatternUtil.parseFieldMarker(val));
+            } else {
+                literals.add(val);
+                markers.add(null);
+            }
+        }
+        this.literals = literals.toArray(new String[literals.size()]);
+        this.markers = markers.toArray(new String[markers.size()][]);
+    }
+
+    /**
+     * Applies the pattern to the given entry. The result has not yet been
+     * checked for illegal characters or uniqueness. This method may be called
+     * from several threads at once.
+     */
+    public String expand(BibtexEntry entry) {
+        StringBuffer sb = new StringBuffer();
+        try {
+            for (int i = 0; i < literals.length; i++) {
+                if (markers[i] == null) {
+                    sb.append(literals[i]);
+                } else {
+                    String label = LabelPatternUtil.makeLabel(entry, markers[i][0]);
+                    // apply modifier if present
+                    if (markers[i].length > 1)
+                        label = LabelPatternUtil.applyModifiers(label, markers[i], 1);
+                    sb.append(label);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println(e);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,169 @@
+package net.sf.jabref.labelPattern;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.Globals;
+import net.sf.jabref.Util;
+import net.sf.jabref.util.Parallel;
+
+/**
+ * Generates unique BibTeX keys for the entries of one database.
+ *
+ * The key patterns and key generator preferences are read once, when the
+ * generator is created. Uniqueness is checked against the key count the
+ * database keeps. While generating keys for many entries, the generator
+ * remembers for every label that needed a letter appended how many letters
+ * are already taken, so entries with the same label do not make the run
+ * quadratic.
+ */
+public class LabelGenerator {
+
+    // Below this number of entries, labels are not computed in parallel:
+    private static final int BLOCK_SIZE = 200;
+
+    private final LabelPattern table;
+    private final BibtexDatabase database;
+    private final Map<String, CompiledLabelPattern> patterns = new HashMap<String, CompiledLabelPattern>();
+    private final Pattern regex;
+    private final String replacement;
+    private final boolean alwaysAddLetter, firstLetterA;
+    // For labels that got a letter appended, the first letter number that may be free:
+    private final Map<String, Integer> firstFree = new HashMap<String, Integer>();
+
+    public LabelGenerator(LabelPattern table, BibtexDatabase database) {
+        this.table = table;
+        this.database = database;
+        // Patch by Toralf Senger:
+        // Remove Regular Expressions while generating Keys
+        String regex = Globals.prefs.get("KeyPatternRegex");
+        if ((regex != null) && (regex.trim().length() > 0)) {
+            this.regex = Pattern.compile(regex);
+            replacement = Globals.prefs.get("KeyPatternReplacement");
+        } else {
+            this.regex = null;
+            replacement = null;
+        }
+        alwaysAddLetter = Globals.prefs.getBoolean("keyGenAlwaysAddLetter");
+        firstLetterA = Globals.prefs.getBoolean("keyGenFirstLetterA");
+    }
+
+    /**
+     * Generates the label for the given entry, without making it unique. This
+     * method may be called from several threads at once.
+     */
+    public String generateLabel(BibtexEntry entry) {
+        String label = getPattern(entry.getType().getName().toLowerCase()).expand(entry);
+        // Remove all illegal characters from the key.
+        label = Util.checkLegalKey(label);
+        if (regex != null)
+            label = regex.matcher(label).replaceAll(replacement);
+        return label;
+    }
+
+    /**
+     * Generates a unique label for the given entry and sets it as the entry's
+     * key in the database.
+     *
+     * @return the entry
+     */
+    public BibtexEntry makeLabel(BibtexEntry entry) {
+        firstFree.clear();
+        setUniqueLabel(entry, generateLabel(entry));
+        return entry;
+    }
+
+    /**
+     * Generates unique labels for the given entries. The labels are computed
+     * in parallel, but made unique in the order of the list, so the keys are
+     * the same as if makeLabel() had been called for each entry in turn.
+     */
+    public void makeLabels(List<BibtexEntry> entries) {
+        final BibtexEntry[] array = entries.toArray(new BibtexEntry[entries.size()]);
+        final String[] labels = new String[array.length];
+        firstFree.clear();
+
+        try {
+            Parallel.map(array.length, BLOCK_SIZE, new Parallel.Block<Object, RuntimeException>() {
+                public Object process(int start, int end) {
+                    for (int j = start; j < end; j++)
+                        labels[j] = generateLabel(array[j]);
+                    return null;
+                }
+            });
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        for (int i = 0; i < array.length; i++)
+            setUniqueLabel(array[i], labels[i]);
+    }
+
+    private synchronized CompiledLabelPattern getPattern(String type) {
+        CompiledLabelPattern pattern = patterns.get(type);
+        if (pattern == null) {
+            pattern = CompiledLabelPattern.compile(table.getValue(type));
+            patterns.put(type, pattern);
+        }
+        return pattern;
+    }
+
+    private void setUniqueLabel(BibtexEntry entry, String label) {
+        String oldKey = entry.getCiteKey();
+        int occurences = database.getNumberOfKeyOccurences(label);
+
+        if ((oldKey != null) && oldKey.equals(label))
+            occurences--; // No change, so we can accept one dupe.
+
+        String key;
+        if (!alwaysAddLetter && (occurences == 0)) {
+            // No dupes found, so we can just go ahead.
+            key = label;
+        } else {
+            // The key is already in use, so we must modify it.
+            int number = 0;
+            if (!alwaysAddLetter && !firstLetterA)
+                number = 1;
+            // If the entry already has one of the modified keys, it may keep
+            // it, so we cannot skip the letters known to be taken:
+            Integer known = firstFree.get(label);
+            if ((known != null) && ((oldKey == null) || !oldKey.startsWith(label)))
+                number = Math.max(number, known.intValue());
+
+            key = label + LabelPatternUtil.getAddition(number);
+            occurences = database.getNumberOfKeyOccurences(key);
+            if ((oldKey != null) && oldKey.equals(key))
+                occurences--;
+
+            while (occurences > 0) {
+                number++;
+                key = label + LabelPatternUtil.getAddition(number);
+                occurences = database.getNumberOfKeyOccurences(key);
+                if ((oldKey != null) && oldKey.equals(key))
+                    occurences--;
+            }
+            if (database.getEntryById(entry.getId()) == entry)
+                firstFree.put(label, new Integer(number + 1));
+        }
+
+        if (!key.equals(oldKey)) {
+            database.setCiteKeyForEntry(entry.getId(), key);
+            if (oldKey != null)
+                forget(oldKey);
+        }
+    }
+
+    /**
+     * The given key is no longer in use. If it is a label with letters
+     * appended, these letters may no longer be skipped.
+     */
+    private void forget(String key) {
+        for (int i = key.length() - 1; (i > 0) && (key.charAt(i) >= 'a') && (key.charAt(i) <= 'z'); i--)
+            firstFree.remove(key.substring(0, i));
+    }
+}
@@ -29,8 +29,6 @@ public class LabelPatternUtil {
         updateDefaultPattern();
     }
 
-    private static BibtexDatabase _db;
-
     public static void updateDefaultPattern() {
         DEFAULT_LABELPATTERN = split(JabRefPreferences.getInstance().get("defaultLabelPattern"));
     }
@@ -105,115 +103,20 @@ public class LabelPatternUtil {
      */
     public static BibtexEntry makeLabel(LabelPattern table,
         BibtexDatabase database, BibtexEntry _entry) {
-        _db = database;
-        ArrayList<String> _al;
-        String _label;
-        StringBuffer _sb = new StringBuffer();
-        boolean forceUpper = false, forceLower = false;
-
-        try {
-            // get the type of entry
-            String _type = _entry.getType().getName().toLowerCase();
-            // Get the arrayList corrosponding to the type
-            _al = table.getValue(_type);
-            int _alSize = _al.size();
-            boolean field = false;
-            for (int i = 1; i < _alSize; i++) {
-                String val = _al.get(i).toString();
-                if (val.equals("[")) {
-                    field = true;
-                } else if (val.equals("]")) {
-                    field = false;
-                } else if (field) {
-                    /*
-                     * Edited by Seb Wills <saw27@mrao.cam.ac.uk> on 13-Apr-2004
-                     * Added new pseudo-fields "shortyear" and "veryshorttitle",
-                     * and and ":lower" modifier for all fields (in a way easily
-                     * extended to other modifiers). Helpfile
-                     * help/LabelPatterns.html updated accordingly.
-                     */
-                    // check whether there is a modifier on the end such as
-                    // ":lower"
-                    // String modifier = null;
-                    String[] parts = parseFieldMarker(val);//val.split(":");
-
-                    String label = makeLabel(_entry, parts[0]);
-                    
-                    // apply modifier if present
-                    if (parts.length > 1)
-                        label = applyModifiers(label, parts, 1);
-                    
-                    _sb.append(label);
-
-                } else {
-                    _sb.append(val);
-                }
-            }
-        } catch (Exception e) {
-            System.err.println(e);
-        }
-
-
-        // Remove all illegal characters from the key.
-        _label = Util.checkLegalKey(_sb.toString());
-
-        // Patch by Toralf Senger:
-        // Remove Regular Expressions while generating Keys
-        String regex = Globals.prefs.get("KeyPatternRegex");
-        if ((regex != null) && (regex.trim().length() > 0)) {
-            String replacement = Globals.prefs.get("KeyPatternReplacement");
-            _label = _label.replaceAll(regex, replacement);
-        }
-
-        if (forceUpper) {
-            _label = _label.toUpperCase();
-        }
-        if (forceLower) {
-            _label = _label.toLowerCase();
-        }
-
-        String oldKey = _entry.getCiteKey();
-        int occurences = _db.getNumberOfKeyOccurences(_label);
-
-        if ((oldKey != null) && oldKey.equals(_label))
-            occurences--; // No change, so we can accept one dupe.
-
-        boolean alwaysAddLetter = Globals.prefs.getBoolean("keyGenAlwaysAddLetter"),
-                firstLetterA = Globals.prefs.getBoolean("keyGenFirstLetterA");
-
-        if (!alwaysAddLetter && (occurences == 0)) {
-            // No dupes found, so we can just go ahead.
-            if (!_label.equals(oldKey))
-                _db.setCiteKeyForEntry(_entry.getId(), _label);
-
-        } else {
-            // The key is already in use, so we must modify it.
-            int number = 0;
-            if (!alwaysAddLetter && !firstLetterA)
-                number = 1;
-
-            String moddedKey = _label + getAddition(number);
-            occurences = _db.getNumberOfKeyOccurences(moddedKey);
-
-            if ((oldKey != null) && oldKey.equals(moddedKey))
-                occurences--;
-
-            while (occurences > 0) {
-                number++;
-                moddedKey = _label + getAddition(number);
-
-                occurences = _db.getNumberOfKeyOccurences(moddedKey);
-                if ((oldKey != null) && oldKey.equals(moddedKey))
-                    occurences--;
-            }
-
-            if (!moddedKey.equals(oldKey)) {
-                _db.setCiteKeyForEntry(_entry.getId(), moddedKey);
-            }
-        }
+        return new LabelGenerator(table, database).makeLabel(_entry);
+    }
 
-        return _entry;
-        /** End of edit, Morten Alver 2004.02.04.  */
+    /**
+     * Generates unique BibTeX labels for many entries at once. The keys are
+     * the same as if makeLabel() had been called for each entry in the order
+     * of the list.
+     * @param table a <code>LabelPattern</code>
+     * @param database a <code>BibtexDatabase</code>
+     * @param entries the entries to label
+     */
+    public static void makeLabels(LabelPattern table, BibtexDatabase database,
+        List<BibtexEntry> entries) {
+        new LabelGenerator(table, database).makeLabels(entries);
     }
 
     /**
@@ -442,7 +345,7 @@ public class LabelPatternUtil {
      *            The appendix number.
      * @return The String to append.
      */
-    private static String getAddition(int number) {
+    static String getAddition(int number) {
         if (number >= CHARS.length()) {
             int lastChar = number % CHARS.length();
             return getAddition(number/CHARS.length()-1) + CHARS.substring(lastChar, lastChar+1);
@@ -500,32 +403,13 @@ public class LabelPatternUtil {
 
     /**
      * Tests whether a given label is unique.
+     * @param database a <code>BibtexDatabase</code>
      * @param label a <code>String</code>
      * @return <code>true</code> if and only if the <code>label</code> is unique
      */
-    public static boolean isLabelUnique(String label) {
-        boolean _isUnique = true;
-        BibtexEntry _entry;
-        int _dbSize = _db.getEntryCount();
-        // run through the whole DB and check the key field
-        // if this could be made recursive I would be very happy
-        // it kinda sux that we have to run through the whole db.
-        // The idea here is that if we meet NO match, the _duplicate
-        // field will be true
-
-        for (int i = 0; i < _dbSize; i++) {
-            _entry = _db.getEntryById(String.valueOf(i));
-
-            // oh my! there is a match! we better set the uniqueness to false
-            // and leave this for-loop all together
-            if (_entry.getField(BibtexFields.KEY_FIELD).equals(label)) {
-                _isUnique = false;
-                break;
-            }
-        }
-
-        return _isUnique;
-
+    public static boolean isLabelUnique(BibtexDatabase database, String label) {
+        // the database keeps an index of all keys
+        return database.getEntryByKey(label) == null;
     }
 
     /**
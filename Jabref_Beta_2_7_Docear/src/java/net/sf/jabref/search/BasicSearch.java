@@ -1,23 +1,29 @@
 package net.sf.jabref.search;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
+import net.sf.jabref.BibtexDatabase;
 import net.sf.jabref.BibtexEntry;
-import net.sf.jabref.SearchRule;
+import net.sf.jabref.IndexedSearchRule;
 import net.sf.jabref.export.layout.format.RemoveLatexCommands;
 
 /**
  * Search rule for simple search.
+ *
+ * The query is parsed, and its patterns compiled, once per search string
+ * rather than for every entry. The rule can be applied from several threads
+ * at once.
  */
-public class BasicSearch implements SearchRule {
+public class BasicSearch implements IndexedSearchRule {
     private boolean caseSensitive;
     private boolean regExp;
-    Pattern[] pattern;
+    private volatile Query query = null;
     //static RemoveBrackets removeLatexCommands = new RemoveBrackets();
     static RemoveLatexCommands removeBrackets = new RemoveLatexCommands();
 
@@ -33,47 +39,72 @@ public class BasicSearch implements SearchRule {
         return applyRule(map, bibtexEntry);
     }
 
-    public boolean validateSearchStrings(Map<String, String> searchStrings) {
-        if (regExp) {
-            int flags = 0;
-            String searchString = searchStrings.values().iterator().next();
-            if (!caseSensitive) {
-                searchString = searchString.toLowerCase();
-                flags = Pattern.CASE_INSENSITIVE;
-            }
-            ArrayList<String> words = parseQuery(searchString);
-            try {
-                pattern = new Pattern[words.size()];
-                for (int i = 0; i < pattern.length; i++) {
-                    pattern[i] = Pattern.compile(words.get(i), flags);
-                }
-            } catch (PatternSyntaxException ex) {
-                return false;
-            }
+    /**
+     * The words of a search string, and their patterns for a regular expression search.
+     */
+    private static class Query {
+        final String searchString;
+        final ArrayList<String> words;
+        final Pattern[] pattern;
+
+        Query(String searchString, ArrayList<String> words, Pattern[] pattern) {
+            this.searchString = searchString;
+            this.words = words;
+            this.pattern = pattern;
         }
-        return true;
     }
 
-    public int applyRule(Map<String, String> searchStrings, BibtexEntry bibtexEntry) {
+    private Query getQuery(Map<String, String> searchStrings) throws PatternSyntaxException {
+        String searchString = searchStrings.values().iterator().next();
+        Query current = query;
+        if ((current != null) && current.searchString.equals(searchString))
+            return current;
 
         int flags = 0;
-        String searchString = searchStrings.values().iterator().next();
+        String preparedString = searchString;
         if (!caseSensitive) {
-            searchString = searchString.toLowerCase();
+            preparedString = preparedString.toLowerCase();
             flags = Pattern.CASE_INSENSITIVE;
         }
+        ArrayList<String> words = parseQuery(preparedString);
+        Pattern[] pattern = null;
+        if (regExp) {
+            pattern = new Pattern[words.size()];
+            for (int i = 0; i < pattern.length; i++) {
+                pattern[i] = Pattern.compile(words.get(i), flags);
+            }
+        }
+        current = new Query(searchString, words, pattern);
+        query = current;
+        return current;
+    }
 
-        ArrayList<String> words = parseQuery(searchString);
+    public boolean validateSearchStrings(Map<String, String> searchStrings) {
+        try {
+            getQuery(searchStrings);
+        } catch (PatternSyntaxException ex) {
+            return false;
+        }
+        return true;
+    }
 
+    public Collection<BibtexEntry> getCandidates(Map<String, String> searchStrings,
+        BibtexDatabase database) {
         if (regExp)
-            try {
-                pattern = new Pattern[words.size()];
-                for (int i = 0; i < pattern.length; i++) {
-                    pattern[i] = Pattern.compile(words.get(i), flags);
-                }
-            } catch (PatternSyntaxException ex) {
-                return 0;
-            }
+            return null;
+        return database.getSearchIndex().getCandidates(getQuery(searchStrings).words);
+    }
+
+    public int applyRule(Map<String, String> searchStrings, BibtexEntry bibtexEntry) {
+
+        Query current;
+        try {
+            current = getQuery(searchStrings);
+        } catch (PatternSyntaxException ex) {
+            return 0;
+        }
+        ArrayList<String> words = current.words;
+        Pattern[] pattern = current.pattern;
 
         //print(words);
         // We need match for all words:
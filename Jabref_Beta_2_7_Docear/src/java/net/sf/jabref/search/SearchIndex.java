@@ -0,0 +1,203 @@
+package net.sf.jabref.search;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.DatabaseChangeEvent;
+import net.sf.jabref.DatabaseChangeListener;
+import net.sf.jabref.export.layout.format.RemoveLatexCommands;
+
+/**
+ * An inverted index of the words in the fields of a database, used to find
+ * the entries a search word may occur in without looking at all entries.
+ *
+ * Words are the runs of letters a-z and digits in the lower case field
+ * contents with LaTeX commands removed, as searched by BasicSearch. Any run
+ * of these characters in a search word must then be part of an indexed word
+ * of each entry containing the search word.
+ *
+ * The index is built on the first search, and entries changed afterwards are
+ * indexed again on the next one.
+ */
+public class SearchIndex implements DatabaseChangeListener {
+
+    // Shorter runs are contained in too many words to narrow down the entries:
+    private static final int MIN_RUN_LENGTH = 2;
+
+    private static final RemoveLatexCommands removeLatexCommands = new RemoveLatexCommands();
+
+    private static class Slots {
+        int[] slots = new int[4];
+        int size = 0;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                int[] larger = new int[size * 2];
+                System.arraycopy(slots, 0, larger, 0, size);
+                slots = larger;
+            }
+            slots[size++] = slot;
+        }
+    }
+
+    // Each indexed entry has a slot. Changed and removed entries leave their
+    // slot empty, and their words point to it until the index is rebuilt:
+    private BibtexEntry[] entries = new BibtexEntry[64];
+    private int slotCount = 0, liveCount = 0;
+    private final Map<BibtexEntry, Integer> slotOf = new HashMap<BibtexEntry, Integer>();
+    private final Map<String, Slots> words = new HashMap<String, Slots>();
+    private final Set<BibtexEntry> pending = new LinkedHashSet<BibtexEntry>();
+
+    public SearchIndex(BibtexDatabase database) {
+        synchronized (this) {
+            pending.addAll(database.getEntries());
+        }
+        database.addDatabaseChangeListener(this);
+    }
+
+    public synchronized void databaseChanged(DatabaseChangeEvent e) {
+        BibtexEntry entry = e.getEntry();
+        if (entry == null)
+            return;
+        if (e.getType() == DatabaseChangeEvent.ADDED_ENTRY)
+            pending.add(entry);
+        else if (e.getType() == DatabaseChangeEvent.REMOVED_ENTRY) {
+            pending.remove(entry);
+            clearSlot(entry);
+        } else if (e.getType() == DatabaseChangeEvent.CHANGED_ENTRY) {
+            clearSlot(entry);
+            pending.add(entry);
+        }
+    }
+
+    /**
+     * Returns the entries that may contain all the given search words in one
+     * of their fields, in the order they were indexed.
+     *
+     * @return the entries, or null if none of the words narrows them down.
+     */
+    public synchronized List<BibtexEntry> getCandidates(List<String> searchWords) {
+        update();
+        BitSet result = null;
+        for (String searchWord : searchWords) {
+            String run = getLongestRun(searchWord.toLowerCase());
+            if (run.length() < MIN_RUN_LENGTH)
+                continue;
+            BitSet found = new BitSet(slotCount);
+            for (Map.Entry<String, Slots> word : words.entrySet()) {
+                if (word.getKey().indexOf(run) >= 0) {
+                    Slots slots = word.getValue();
+                    for (int i = 0; i < slots.size; i++)
+                        found.set(slots.slots[i]);
+                }
+            }
+            if (result == null)
+                result = found;
+            else
+                result.and(found);
+        }
+        if (result == null)
+            return null;
+        List<BibtexEntry> candidates = new ArrayList<BibtexEntry>(result.cardinality());
+        for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+            if (entries[i] != null)
+                candidates.add(entries[i]);
+        }
+        return candidates;
+    }
+
+    private void update() {
+        // Rebuild the index when most of the slots are empty:
+        if (slotCount - liveCount > Math.max(liveCount, 1000)) {
+            for (int i = 0; i < slotCount; i++) {
+                if (entries[i] != null)
+                    pending.add(entries[i]);
+            }
+            entries = new BibtexEntry[Math.max(64, pending.size())];
+            slotCount = 0;
+            liveCount = 0;
+            slotOf.clear();
+            words.clear();
+        }
+        for (BibtexEntry entry : pending)
+            add(entry);
+        pending.clear();
+    }
+
+    private void add(BibtexEntry entry) {
+        if (slotCount == entries.length) {
+            BibtexEntry[] larger = new BibtexEntry[slotCount * 2];
+            System.arraycopy(entries, 0, larger, 0, slotCount);
+            entries = larger;
+        }
+        int slot = slotCount++;
+        entries[slot] = entry;
+        slotOf.put(entry, slot);
+        liveCount++;
+        for (String word : getWords(entry)) {
+            Slots slots = words.get(word);
+            if (slots == null) {
+                slots = new Slots();
+                words.put(word, slots);
+            }
+            slots.add(slot);
+        }
+    }
+
+    private void clearSlot(BibtexEntry entry) {
+        Integer slot = slotOf.remove(entry);
+        if (slot != null) {
+            entries[slot] = null;
+            liveCount--;
+        }
+    }
+
+    private static Set<String> getWords(BibtexEntry entry) {
+        Set<String> result = new HashSet<String>();
+        for (String field : entry.getAllFields()) {
+            String content = entry.getField(field);
+            if (content == null)
+                continue;
+            content = removeLatexCommands.format(content).toLowerCase();
+            int start = -1;
+            for (int i = 0; i <= content.length(); i++) {
+                if ((i < content.length()) && isWordChar(content.charAt(i))) {
+                    if (start < 0)
+                        start = i;
+                } else if (start >= 0) {
+                    result.add(content.substring(start, i));
+                    start = -1;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String getLongestRun(String searchWord) {
+        String longest = "";
+        int start = -1;
+        for (int i = 0; i <= searchWord.length(); i++) {
+            if ((i < searchWord.length()) && isWordChar(searchWord.charAt(i))) {
+                if (start < 0)
+                    start = i;
+            } else if (start >= 0) {
+                if (i - start > longest.length())
+                    longest = searchWord.substring(start, i);
+                start = -1;
+            }
+        }
+        return longest;
+    }
+
+    private static boolean isWordChar(char c) {
+        return ((c >= 'a') && (c <= 'z')) || ((c >= '0') && (c <= '9'));
+    }
+}
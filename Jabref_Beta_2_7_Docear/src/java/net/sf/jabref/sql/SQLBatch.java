@@ -0,0 +1,65 @@
+package net.sf.jabref.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Sends the rows of one prepared statement to the database in batches, so
+ * writing a table takes one round trip per batch instead of one per row.
+ */
+class SQLBatch {
+
+    private final PreparedStatement statement;
+    private final int batchSize;
+    private int pending = 0;
+
+    /**
+     * @param sql
+     *          The statement, with a ? for every value of a row
+     * @param batchSize
+     *          The number of rows to send at once
+     */
+    SQLBatch(Connection conn, String sql, int batchSize) throws SQLException {
+        statement = conn.prepareStatement(sql);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Adds a row, sending the batch when it is full. Null values are written
+     * as NULL.
+     */
+    void add(Object... values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null)
+                statement.setNull(i + 1, Types.VARCHAR);
+            else
+                statement.setObject(i + 1, values[i]);
+        }
+        statement.addBatch();
+        if (++pending >= batchSize)
+            flush();
+    }
+
+    /**
+     * Sends the rows added since the last batch.
+     */
+    void flush() throws SQLException {
+        if (pending > 0) {
+            statement.executeBatch();
+            pending = 0;
+        }
+    }
+
+    /**
+     * Sends the remaining rows and closes the statement.
+     */
+    void close() throws SQLException {
+        try {
+            flush();
+        } finally {
+            statement.close();
+        }
+    }
+}
@@ -13,6 +13,9 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
@@ -22,6 +25,7 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -585,33 +589,184 @@ public class SQLutil {
 
         DBTYPE dbtype = getDBType(dbStrings);
 
-        Connection conn = null;
+        Connection conn = SQLutil.connectToDB(dbStrings);
 
         try {
 
-            conn = SQLutil.connectToDB(dbStrings);
+            exportDatabase(database, metaData, keySet, conn, dbtype,
+                Globals.prefs.getBoolean("sqlSyncChangedEntries"),
+                Globals.prefs.getInt("sqlBatchSize"));
 
-            // conn.setAutoCommit(false);
+        } finally {
+            conn.close();
+        }
+    }
+
+    /**
+     * Accepts the BibtexDatabase and MetaData and writes them to the given
+     * connection in a single transaction, sending the rows of each table in
+     * batches of prepared statements. If anything fails, the transaction is
+     * rolled back.
+     *
+     * Only changes to existing tables are undone by the rollback, so only a
+     * sync leaves the tables as they were. When the tables are created anew,
+     * MySQL commits implicitly at every DROP TABLE and CREATE TABLE, so a
+     * failure leaves the new tables empty or partly filled. Tables that do
+     * not support transactions, such as MyISAM tables, keep every statement
+     * written before the failure.
+     *
+     * @param database
+     *          The BibtexDatabase to export
+     * @param metaData
+     *          The MetaData object containing the groups information
+     * @param keySet
+     *          The set of IDs of the entries to export.
+     * @param conn
+     *          The connection to the database
+     * @param syncChangedEntries
+     *          If true, and the tables of an earlier export with the same
+     *          fields are found, only the entries added, changed or removed
+     *          since are written. Strings and groups are written anew.
+     *          Otherwise all tables are created anew.
+     * @param batchSize
+     *          The number of rows to send to the database at once
+     */
+    public static void exportDatabase(final BibtexDatabase database,
+        final MetaData metaData, Set<String> keySet, Connection conn,
+        DBTYPE dbtype, boolean syncChangedEntries, int batchSize)
+        throws Exception {
 
-            exportDatabase_worker(dbtype, database, metaData, keySet, conn);
+        // make sure fields are initialized
+        if (fields==null) {
+            refreshFields();
+        }
+
+        List<BibtexEntry> entries = FileActions.getSortedEntries(database,
+            keySet, false);
+        GroupTreeNode gtn = metaData.getGroups();
+
+        boolean sync = syncChangedEntries && hasExportedTables(conn);
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+
+            if (sync) {
+
+                // the entries are written first, as entry_group refers to them
+                processDML(conn, "DELETE FROM entry_group");
+                batchPopTab_ET(conn, getEntryTypeLabels(conn), batchSize);
+                batchSyncTab_FD(entries, conn, batchSize);
+                processDML(conn, "DELETE FROM strings");
+                processDML(conn, "DELETE FROM groups");
+
+            } else {
+
+                dmlCreateTables(dbtype, conn);
+                batchPopTab_ET(conn, new HashSet<String>(), batchSize);
+                batchPopTab_FD(entries, conn, batchSize);
+                batchPopTab_GT(conn, batchSize);
 
-            if (!conn.getAutoCommit()) {
-                conn.commit();
-                conn.setAutoCommit(true);
             }
 
-            conn.close();
+            batchPopTab_ST(database, conn, batchSize);
+            if (gtn != null) {
+                SQLBatch groups = new SQLBatch(conn, "INSERT INTO groups (groups_id, label, "
+                    + "parent_id, group_types_id, search_field, search_expression, "
+                    + "case_sensitive, reg_exp, hierarchical_context) VALUES (?, ?, ?, "
+                    + "(SELECT group_types_id FROM group_types WHERE label=?), "
+                    + "?, ?, ?, ?, ?)", batchSize);
+                batchPopTab_GP_worker(gtn, 1, 1, groups);
+                groups.close();
+                SQLBatch entryGroups = new SQLBatch(conn, "INSERT INTO entry_group "
+                    + "(entries_id, groups_id) VALUES ((SELECT entries_id FROM entries "
+                    + "WHERE jabref_eid=?), ?)", batchSize);
+                batchPopTab_EG_worker(gtn, 1, 1, entryGroups);
+                entryGroups.close();
+            }
 
-        } catch (SQLException ex) {
+            conn.commit();
+
+        } catch (Exception ex) {
+            conn.rollback();
+            throw ex;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
 
-            if (conn != null) {
-                if (!conn.getAutoCommit()) {
-                    conn.rollback();
+    /**
+     * Returns a hash of the type, key and exported fields of the entry, which
+     * changes whenever the row written for the entry would.
+     */
+    public static String getContentHash(BibtexEntry entry) {
+        if (fields==null) {
+            refreshFields();
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(entry.getType().getName().toLowerCase()).append('\0')
+            .append(entry.getCiteKey());
+        for (int i = 0; i < fields.size(); i++) {
+            String val = entry.getField(fields.get(i));
+            if (val != null)
+                sb.append('\0').append(fields.get(i)).append('=').append(val);
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(
+                sb.toString().getBytes("UTF-8"));
+            StringBuilder hash = new StringBuilder(2 * digest.length);
+            for (int i = 0; i < digest.length; i++) {
+                hash.append(Character.forDigit((digest[i] >> 4) & 0xf, 16))
+                    .append(Character.forDigit(digest[i] & 0xf, 16));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            // every Java platform has MD5
+            throw new RuntimeException(ex);
+        } catch (UnsupportedEncodingException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Returns true if the database holds all tables of an earlier export, with
+     * a column for the content hash and for each of the current fields.
+     */
+    private static boolean hasExportedTables(Connection conn) {
+        String[] probes = new String[] {
+            "SELECT entries_id, jabref_eid, entry_types_id, content_hash, cite_key, "
+                + fieldstr + " FROM entries WHERE 1=0",
+            "SELECT label FROM entry_types WHERE 1=0",
+            "SELECT label FROM group_types WHERE 1=0",
+            "SELECT label, content FROM strings WHERE 1=0",
+            "SELECT groups_id FROM groups WHERE 1=0",
+            "SELECT entries_id, groups_id FROM entry_group WHERE 1=0"};
+        for (int i = 0; i < probes.length; i++) {
+            try {
+                Statement st = conn.createStatement();
+                try {
+                    st.executeQuery(probes[i]);
+                } finally {
+                    st.close();
                 }
+            } catch (SQLException ex) {
+                return false;
             }
+        }
+        return true;
+    }
 
-            throw ex;
+    private static Set<String> getEntryTypeLabels(Connection conn)
+                            throws SQLException {
+        Set<String> labels = new HashSet<String>();
+        Statement st = conn.createStatement();
+        try {
+            ResultSet rs = st.executeQuery("SELECT label FROM entry_types");
+            while (rs.next())
+                labels.add(rs.getString(1));
+        } finally {
+            st.close();
         }
+        return labels;
     }
 
 
@@ -783,6 +938,7 @@ public class SQLutil {
 			+  Util.getMinimumIntegerDigits()
 		    + ")   DEFAULT NULL, \n"
             + "entry_types_id  INT UNSIGNED         DEFAULT NULL, \n"
+            + "content_hash    VARCHAR(32)      DEFAULT NULL, \n"
             + "cite_key        VARCHAR(100)     DEFAULT NULL, \n"
             + dml2
             + ",\n"
@@ -857,6 +1013,7 @@ public class SQLutil {
 			+  Util.getMinimumIntegerDigits()
 		    + ")   DEFAULT NULL, "
             + "entry_types_id  INTEGER         DEFAULT NULL, "
+            + "content_hash    VARCHAR(32)      DEFAULT NULL, "
             + "cite_key        VARCHAR(100)     DEFAULT NULL, "
             + dml2
             + ")");
@@ -1009,7 +1166,7 @@ public class SQLutil {
 
         String dml = "";
         String val = "";
-        String insert = "INSERT INTO entries (jabref_eid, entry_types_id, cite_key, "
+        String insert = "INSERT INTO entries (jabref_eid, entry_types_id, content_hash, cite_key, "
             + fieldstr
             + ") VALUES (";
 
@@ -1021,6 +1178,7 @@ public class SQLutil {
 			      + "\"" + entry.getId() + "\""
 			      + ", (SELECT entry_types_id FROM entry_types WHERE label=\""
 			      + entry.getType().getName().toLowerCase() + "\"), \""
+			      + getContentHash(entry) + "\", \""
                   + entry.getCiteKey() + "\"";
 
             for (int i = 0; i < fields.size(); i++) {
@@ -1204,6 +1362,220 @@ public class SQLutil {
 	    return ID;
 	}
 
+    /**
+     * Adds the entry types not yet in the entry_types table to it, with the
+     * relationship of each field to the type.
+     *
+     * @param existing
+     *          The labels of the entry types already in the table
+     */
+    private static void batchPopTab_ET(Connection conn, Set<String> existing,
+            int batchSize) throws SQLException {
+
+        StringBuilder insert = new StringBuilder(
+            "INSERT INTO entry_types (label, " + fieldstr + ") VALUES (?");
+        for (int i = 0; i < fields.size(); i++)
+            insert.append(", ?");
+        insert.append(")");
+
+        SQLBatch batch = new SQLBatch(conn, insert.toString(), batchSize);
+        ArrayList<String> fieldID = new ArrayList<String>();
+        for (int i = 0; i < fields.size(); i++)
+            fieldID.add(null);
+
+        for (BibtexEntryType val : BibtexEntryType.ALL_TYPES.values()) {
+            String label = val.getName().toLowerCase();
+            if (existing.contains(label))
+                continue;
+
+            for (int i = 0; i < fieldID.size(); i++) {
+                fieldID.set(i, null);
+            }
+            fieldID = setFieldID(fields, fieldID, val.getRequiredFields(),
+                "req");
+            fieldID = setFieldID(fields, fieldID, val.getOptionalFields(),
+                "opt");
+            fieldID = setFieldID(fields, fieldID, val.getGeneralFields(), "gen");
+            fieldID = setFieldID(fields, fieldID, val.getUtilityFields(), "uti");
+
+            Object[] row = new Object[fields.size() + 1];
+            row[0] = label;
+            for (int i = 0; i < fieldID.size(); i++)
+                row[i + 1] = fieldID.get(i);
+            batch.add(row);
+        }
+        batch.close();
+    }
+
+    private static void batchPopTab_GT(Connection conn, int batchSize)
+            throws SQLException {
+        SQLBatch batch = new SQLBatch(conn,
+            "INSERT INTO group_types (label) VALUES (?)", batchSize);
+        batch.add(AllEntriesGroup.ID);
+        batch.add(ExplicitGroup.ID);
+        batch.add(KeywordGroup.ID);
+        batch.add(SearchGroup.ID);
+        batch.close();
+    }
+
+    private static SQLBatch newEntryInsert(Connection conn, int batchSize)
+            throws SQLException {
+        StringBuilder insert = new StringBuilder("INSERT INTO entries (jabref_eid, "
+            + "entry_types_id, content_hash, cite_key, " + fieldstr + ") VALUES (?, "
+            + "(SELECT entry_types_id FROM entry_types WHERE label=?), ?, ?");
+        for (int i = 0; i < fields.size(); i++)
+            insert.append(", ?");
+        insert.append(")");
+        return new SQLBatch(conn, insert.toString(), batchSize);
+    }
+
+    private static void addEntryRow(SQLBatch batch, BibtexEntry entry,
+            String hash) throws SQLException {
+        Object[] row = new Object[fields.size() + 4];
+        row[0] = entry.getId();
+        row[1] = entry.getType().getName().toLowerCase();
+        row[2] = hash;
+        row[3] = entry.getCiteKey();
+        for (int i = 0; i < fields.size(); i++)
+            row[i + 4] = entry.getField(fields.get(i));
+        batch.add(row);
+    }
+
+    /**
+     * Writes all entries to the empty entries table.
+     */
+    private static void batchPopTab_FD(List<BibtexEntry> entries,
+            Connection conn, int batchSize) throws SQLException {
+        SQLBatch batch = newEntryInsert(conn, batchSize);
+        for (BibtexEntry entry : entries)
+            addEntryRow(batch, entry, getContentHash(entry));
+        batch.close();
+    }
+
+    /**
+     * Brings the entries table of an earlier export up to date. Rows whose
+     * content hash matches an entry are kept, only pointed at the entry's
+     * current id; entries without such a row are inserted, and the rows left
+     * over are deleted.
+     */
+    private static void batchSyncTab_FD(List<BibtexEntry> entries,
+            Connection conn, int batchSize) throws SQLException {
+
+        // The entries_id and jabref_eid of the rows, by content hash:
+        HashMap<String, List<String[]>> rows = new HashMap<String, List<String[]>>();
+        Statement st = conn.createStatement();
+        try {
+            ResultSet rs = st.executeQuery(
+                "SELECT entries_id, jabref_eid, content_hash FROM entries");
+            while (rs.next()) {
+                List<String[]> same = rows.get(rs.getString(3));
+                if (same == null) {
+                    same = new ArrayList<String[]>();
+                    rows.put(rs.getString(3), same);
+                }
+                same.add(new String[] {rs.getString(1), rs.getString(2)});
+            }
+        } finally {
+            st.close();
+        }
+
+        SQLBatch insert = newEntryInsert(conn, batchSize);
+        SQLBatch update = new SQLBatch(conn,
+            "UPDATE entries SET jabref_eid=? WHERE entries_id=?", batchSize);
+        for (BibtexEntry entry : entries) {
+            String hash = getContentHash(entry);
+            List<String[]> same = rows.get(hash);
+            if ((same == null) || same.isEmpty()) {
+                addEntryRow(insert, entry, hash);
+                continue;
+            }
+            String[] row = same.remove(same.size() - 1);
+            if (!entry.getId().equals(row[1]))
+                update.add(entry.getId(), row[0]);
+        }
+
+        // Delete the rows of changed and removed entries, so entry_group
+        // finds every id in one row only:
+        SQLBatch delete = new SQLBatch(conn,
+            "DELETE FROM entries WHERE entries_id=?", batchSize);
+        for (List<String[]> left : rows.values()) {
+            for (String[] row : left)
+                delete.add(row[0]);
+        }
+        delete.close();
+        update.close();
+        insert.close();
+    }
+
+    private static void batchPopTab_ST(BibtexDatabase database, Connection conn,
+            int batchSize) throws SQLException {
+        SQLBatch batch = new SQLBatch(conn,
+            "INSERT INTO strings (label, content) VALUES (?, ?)", batchSize);
+        if (database.getPreamble() != null)
+            batch.add("@PREAMBLE", database.getPreamble());
+        for (String key : database.getStringKeySet()) {
+            BibtexString string = database.getString(key);
+            batch.add(string.getName(), string.getContent());
+        }
+        batch.close();
+    }
+
+    /**
+     * Recursive worker adding the groups to the batch, numbered like
+     * dmlPopTab_GP_worker numbers them.
+     */
+    private static int batchPopTab_GP_worker(GroupTreeNode cursor, int parentID,
+            int ID, SQLBatch batch) throws SQLException {
+
+        AbstractGroup group = cursor.getGroup();
+        String searchField = null, searchExpr = null;
+        Boolean caseSensitive = null, reg_exp = null;
+        if (group instanceof KeywordGroup) {
+            searchField = ((KeywordGroup)group).getSearchField();
+            searchExpr = ((KeywordGroup)group).getSearchExpression();
+            caseSensitive = Boolean.valueOf(((KeywordGroup)group).isCaseSensitive());
+            reg_exp = Boolean.valueOf(((KeywordGroup)group).isRegExp());
+        }
+        else if (group instanceof SearchGroup) {
+            searchExpr = ((SearchGroup)group).getSearchExpression();
+            caseSensitive = Boolean.valueOf(((SearchGroup)group).isCaseSensitive());
+            reg_exp = Boolean.valueOf(((SearchGroup)group).isRegExp());
+        }
+
+        // importGroupsTree unquotes these, as the DML export quotes them:
+        if (searchField != null)
+            searchField = Util.quote(searchField, "\"", '\\');
+        if (searchExpr != null)
+            searchExpr = Util.quote(searchExpr, "\"", '\\');
+
+        batch.add(new Integer(ID), group.getName(), new Integer(parentID),
+            group.getTypeId(), searchField, searchExpr, caseSensitive, reg_exp,
+            new Integer(group.getHierarchicalContext()));
+
+        int myID = ID;
+        for (Enumeration<GroupTreeNode> e = cursor.children(); e.hasMoreElements();)
+            ID = batchPopTab_GP_worker(e.nextElement(), myID, ++ID, batch);
+        return ID;
+    }
+
+    /**
+     * Recursive worker adding the entries of the explicit groups to the batch.
+     */
+    private static int batchPopTab_EG_worker(GroupTreeNode cursor, int parentID,
+            int ID, SQLBatch batch) throws SQLException {
+
+        if (cursor.getGroup() instanceof ExplicitGroup) {
+            ExplicitGroup grp = (ExplicitGroup)cursor.getGroup();
+            for (BibtexEntry be : grp.getEntries())
+                batch.add(be.getId(), new Integer(ID));
+        }
+
+        int myID = ID;
+        for (Enumeration<GroupTreeNode> e = cursor.children(); e.hasMoreElements();)
+            ID = batchPopTab_EG_worker(e.nextElement(), myID, ++ID, batch);
+        return ID;
+    }
+
     /**
      * Processes a SQLException, and returns a more user-friendly message
      * 
@@ -0,0 +1,133 @@
+package net.sf.jabref.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of limited size that forgets the least recently used values first,
+ * and that several threads may use at once.
+ *
+ * The cache is split into segments by the hash code of the key, each with
+ * its own lock, so threads looking up different keys seldom wait for each
+ * other. Hits and misses are counted, to tell whether the cache is big
+ * enough.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the cached values.
+ */
+public class LruCache<K, V> {
+
+    private static class Segment<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true); // ordered by access
+            this.capacity = capacity;
+        }
+
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    private final List<Segment<K, V>> segments;
+
+    private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong();
+
+    /**
+     * @param capacity
+     *            The number of values to keep at most.
+     * @param concurrency
+     *            The number of segments, about the number of threads expected
+     *            to use the cache at once. There are never more segments than
+     *            values, so the segments together hold exactly the capacity.
+     */
+    public LruCache(int capacity, int concurrency) {
+        int n = Math.max(1, Math.min(concurrency, capacity));
+        segments = new ArrayList<Segment<K, V>>(n);
+        for (int i = 0; i < n; i++)
+            segments.add(new Segment<K, V>(Math.max(1, capacity / n + (i < capacity % n ? 1 : 0))));
+    }
+
+    private Segment<K, V> getSegment(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments.get((hash & 0x7fffffff) % segments.size());
+    }
+
+    /**
+     * Returns the value cached for the key, or null if there is none.
+     */
+    public V get(K key) {
+        Segment<K, V> segment = getSegment(key);
+        V value;
+        synchronized (segment) {
+            value = segment.get(key);
+        }
+        if (value == null)
+            misses.incrementAndGet();
+        else
+            hits.incrementAndGet();
+        return value;
+    }
+
+    /**
+     * Caches the value for the key, forgetting the least recently used value
+     * of its segment if it is full.
+     */
+    public void put(K key, V value) {
+        Segment<K, V> segment = getSegment(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of values cached.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of lookups that found a value.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups that found no value.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the share of lookups that found a value, or 0 if there have
+     * been none.
+     */
+    public double getHitRate() {
+        long h = hits.get(), total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+}
@@ -0,0 +1,158 @@
+package net.sf.jabref.util;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The thread pools shared by everything JabRef does in parallel, and a way to
+ * process a range of items in blocks on them.
+ *
+ * There are two pools of daemon threads, each created on first use: one with
+ * a thread per processor for work that computes, and one with at least four
+ * threads for work that mostly waits for the disk or the network.
+ *
+ * The blocks of map() called on a thread of either pool are processed on
+ * that thread, so parallel work started from parallel work can not wait for
+ * itself with all threads of a pool taken.
+ */
+public class Parallel {
+
+    /**
+     * Processes the items from start, inclusive, to end, exclusive.
+     *
+     * @param <T> The type of the result of a block.
+     * @param <E> The type of the exception a block may throw.
+     */
+    public interface Block<T, E extends Exception> {
+        T process(int start, int end) throws E;
+    }
+
+    /**
+     * Receives the result of each block, in the order of the blocks.
+     */
+    public interface Receiver<T, E extends Exception> {
+        void receive(T result) throws E;
+    }
+
+    private static class Worker extends Thread {
+        Worker(Runnable r, String name) {
+            super(r, name);
+            setDaemon(true);
+        }
+    }
+
+    private static ExecutorService executor = null, ioExecutor = null;
+
+    /**
+     * Returns the pool for work that computes.
+     */
+    public static synchronized ExecutorService getExecutor() {
+        if (executor == null)
+            executor = newPool(Runtime.getRuntime().availableProcessors(), "Worker");
+        return executor;
+    }
+
+    /**
+     * Returns the pool for work that mostly waits for the disk or the
+     * network, so it uses a few threads even on one processor.
+     */
+    public static synchronized ExecutorService getIoExecutor() {
+        if (ioExecutor == null)
+            ioExecutor = newPool(Math.max(4, Runtime.getRuntime().availableProcessors()), "I/O worker");
+        return ioExecutor;
+    }
+
+    private static ExecutorService newPool(int threads, final String name) {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                return new Worker(r, name);
+            }
+        });
+    }
+
+    /**
+     * Processes the items in blocks in parallel on the pool for work that
+     * computes.
+     *
+     * @param size The number of items.
+     * @param blockSize The number of items one thread processes in one go.
+     * @return The results of the blocks, in order.
+     */
+    public static <T, E extends Exception> List<T> map(int size, int blockSize, Block<T, E> block)
+            throws InterruptedException, E {
+        final List<T> results = new ArrayList<T>();
+        map(getExecutor(), size, blockSize, Integer.MAX_VALUE, block, new Receiver<T, E>() {
+            public void receive(T result) {
+                results.add(result);
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Processes the items in blocks in parallel on the given pool, and hands
+     * the results to the receiver in order as soon as they are done. A single
+     * block is processed on the calling thread.
+     *
+     * If a block or the receiver fails, or the calling thread is interrupted,
+     * the blocks not done yet are cancelled, and the exception is thrown.
+     *
+     * @param executor The pool to use.
+     * @param size The number of items.
+     * @param blockSize The number of items one thread processes in one go.
+     * @param maxPending The number of blocks started at most before their
+     *            results are received, which bounds the results kept waiting.
+     */
+    public static <T, E extends Exception> void map(ExecutorService executor, int size, int blockSize,
+            int maxPending, final Block<T, E> block, Receiver<T, E> receiver) throws InterruptedException, E {
+        if ((size <= blockSize) || (Thread.currentThread() instanceof Worker)) {
+            for (int start = 0; start < size; start += blockSize)
+                receiver.receive(block.process(start, Math.min(start + blockSize, size)));
+            return;
+        }
+        LinkedList<Future<T>> pending = new LinkedList<Future<T>>();
+        int next = 0;
+        try {
+            while ((next < size) || !pending.isEmpty()) {
+                while ((next < size) && (pending.size() < maxPending)) {
+                    final int start = next, end = Math.min(next + blockSize, size);
+                    pending.add(executor.submit(new Callable<T>() {
+                        public T call() throws E {
+                            return block.process(start, end);
+                        }
+                    }));
+                    next = end;
+                }
+                receiver.receive(Parallel.<T, E>get(pending.removeFirst()));
+            }
+        } finally {
+            for (Future<T> f : pending)
+                f.cancel(true);
+        }
+    }
+
+    /**
+     * Waits for the result of a block, throwing what the block has thrown.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T, E extends Exception> T get(Future<T> future) throws InterruptedException, E {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            // Blocks throw nothing else:
+            throw (E) cause;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package net.sf.jabref.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+
+/**
+ * Writes the XMP-metadata of many entries to their PDFs, several files at a
+ * time, leaving the files alone whose metadata are up to date.
+ * 
+ * The writes to one file are done one after the other, in the order they
+ * were added, so the last entry linking to a file is the one it ends up
+ * with, as if all were written in turn.
+ */
+public class XMPBatchWriter {
+
+	private final BibtexDatabase database;
+
+	private final Map<File, List<FutureTask<Boolean>>> writes = new LinkedHashMap<File, List<FutureTask<Boolean>>>();
+
+	private final List<Future<?>> started = new ArrayList<Future<?>>();
+
+	private final List<FutureTask<Boolean>> all = new ArrayList<FutureTask<Boolean>>();
+
+	/**
+	 * @param database
+	 *            maybenull The database used to resolve strings.
+	 */
+	public XMPBatchWriter(BibtexDatabase database) {
+		this.database = database;
+	}
+
+	/**
+	 * Adds writing the entry to the file. The result of the future returned
+	 * is true if the file was written, false if it was up to date; if writing
+	 * fails, it throws an ExecutionException with the cause.
+	 */
+	public synchronized Future<Boolean> add(final File file,
+			final BibtexEntry entry) {
+		FutureTask<Boolean> write = new FutureTask<Boolean>(
+				new Callable<Boolean>() {
+					public Boolean call() throws Exception {
+						return Boolean.valueOf(XMPUtil.writeXMPIfChanged(file,
+								entry, database));
+					}
+				});
+		File key;
+		try {
+			key = file.getCanonicalFile();
+		} catch (IOException ex) {
+			key = file.getAbsoluteFile();
+		}
+		List<FutureTask<Boolean>> l = writes.get(key);
+		if (l == null) {
+			l = new ArrayList<FutureTask<Boolean>>();
+			writes.put(key, l);
+		}
+		l.add(write);
+		all.add(write);
+		return write;
+	}
+
+	/**
+	 * Starts writing the files added so far.
+	 */
+	public synchronized void start() {
+		for (final List<FutureTask<Boolean>> l : writes.values()) {
+			started.add(Parallel.getExecutor().submit(new Runnable() {
+				public void run() {
+					for (FutureTask<Boolean> write : l)
+						write.run();
+				}
+			}));
+		}
+		writes.clear();
+	}
+
+	/**
+	 * Cancels the writes not started yet. A file being written is finished,
+	 * so it is not left half written.
+	 */
+	public synchronized void cancel() {
+		for (Future<?> f : started)
+			f.cancel(false);
+		for (FutureTask<Boolean> write : all)
+			write.cancel(false);
+		started.clear();
+		all.clear();
+		writes.clear();
+	}
+}
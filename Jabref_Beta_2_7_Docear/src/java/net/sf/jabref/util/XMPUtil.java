@@ -1013,10 +1013,37 @@ public class XMPUtil {
 	 * @throws IOException
 	 *             If the file could not be written to or could not be found.
 	 */
-	@SuppressWarnings("unchecked")
 	public static void writeXMP(File file,
 			Collection<BibtexEntry> bibtexEntries, BibtexDatabase databasee,
 			boolean writePDFInfo) throws IOException, TransformerException {
+		writeXMP(file, bibtexEntries, databasee, writePDFInfo, false);
+	}
+
+	/**
+	 * Like writeXMP(File, BibtexEntry, BibtexDatabase), but leaves the file
+	 * untouched if its BibTeX-XMP-data already describe the entry exactly.
+	 * 
+	 * Saving rewrites the whole PDF, so this saves most of the time when
+	 * writing the metadata of many files again, most of which are up to date.
+	 * 
+	 * @return true if the file was written, false if it was up to date.
+	 * @throws TransformerException
+	 *             If the entry was malformed or unsupported.
+	 * @throws IOException
+	 *             If the file could not be written to or could not be found.
+	 */
+	public static boolean writeXMPIfChanged(File file, BibtexEntry entry,
+			BibtexDatabase database) throws IOException, TransformerException {
+		List<BibtexEntry> l = new LinkedList<BibtexEntry>();
+		l.add(entry);
+		return writeXMP(file, l, database, true, true);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static boolean writeXMP(File file,
+			Collection<BibtexEntry> bibtexEntries, BibtexDatabase databasee,
+			boolean writePDFInfo, boolean onlyIfChanged) throws IOException,
+			TransformerException {
 
 		if (databasee != null)
 			bibtexEntries = databasee.resolveForStrings(bibtexEntries, false);
@@ -1030,6 +1057,11 @@ public class XMPUtil {
 						"Error: Cannot add metadata to encrypted document.");
 			}
 
+			if (onlyIfChanged
+					&& describes(document.getDocumentCatalog().getMetadata(),
+							bibtexEntries))
+				return false;
+
 			if (writePDFInfo && bibtexEntries.size() == 1) {
 				writeDocumentInformation(document, bibtexEntries
 						.iterator().next(), null);
@@ -1080,6 +1112,7 @@ public class XMPUtil {
 				throw new TransformerException("Could not write XMP-metadata: "
 						+ e.getLocalizedMessage());
 			}
+			return true;
 
 		} finally {
 			if (document != null) {
@@ -1088,6 +1121,31 @@ public class XMPUtil {
 		}
 	}
 
+	/**
+	 * Returns true if the BibTeX-XMP-data in the given metadata stream are
+	 * those that writing the given (resolved) entries would produce.
+	 */
+	private static boolean describes(PDMetadata metaRaw,
+			Collection<BibtexEntry> bibtexEntries) throws IOException,
+			TransformerException {
+		if (metaRaw == null)
+			return false;
+
+		XMPMetadata meta = new XMPMetadata(XMLUtil.parse(metaRaw
+				.createInputStream()));
+		meta.addXMLNSMapping(XMPSchemaBibtex.NAMESPACE, XMPSchemaBibtex.class);
+		List<BibtexEntry> existing = new LinkedList<BibtexEntry>();
+		Iterator<?> it = meta.getSchemasByNamespaceURI(
+				XMPSchemaBibtex.NAMESPACE).iterator();
+		while (it.hasNext())
+			existing.add(((XMPSchemaBibtex) it.next()).getBibtexEntry());
+		if (existing.size() != bibtexEntries.size())
+			return false;
+
+		// Compare both as written, so values are normalized the same way:
+		return toXMP(existing, null).equals(toXMP(bibtexEntries, null));
+	}
+
 	/**
 	 * Print usage information for the command line tool xmpUtil.
 	 * 
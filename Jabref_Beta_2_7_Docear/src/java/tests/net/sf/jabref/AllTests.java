@@ -9,6 +9,7 @@ public class AllTests {
 		TestSuite suite = new TestSuite("Test for test.net.sf.jabref");
 		//$JUnit-BEGIN$
 		suite.addTestSuite(BibtexDatabaseTest.class);
+		suite.addTestSuite(DuplicateCandidatesTest.class);
 		suite.addTestSuite(JabRefTestCase.class);
 		suite.addTestSuite(UtilFindFileTest.class);
 		suite.addTestSuite(AuthorListTest.class);
@@ -23,6 +24,14 @@ public class AllTests {
 		suite.addTest(tests.net.sf.jabref.export.layout.AllTests.suite());
 		suite.addTest(tests.net.sf.jabref.bst.AllTests.suite());
 		suite.addTest(tests.net.sf.jabref.labelPattern.AllTests.suite());
+		suite.addTest(tests.net.sf.jabref.collab.AllTests.suite());
+		suite.addTest(tests.net.sf.jabref.export.AllTests.suite());
+		suite.addTest(tests.net.sf.jabref.groups.AllTests.suite());
+		suite.addTest(tests.net.sf.jabref.autocompleter.AllTests.suite());
+		suite.addTest(tests.net.sf.jabref.sql.AllTests.suite());
+		suite.addTest(tests.net.sf.jabref.gui.AllTests.suite());
+		suite.addTest(tests.net.sf.jabref.journals.AllTests.suite());
+		suite.addTest(tests.net.sf.jabref.external.AllTests.suite());
 
 		return suite;
 	}
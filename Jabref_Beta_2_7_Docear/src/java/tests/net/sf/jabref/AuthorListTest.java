@@ -33,6 +33,11 @@ public class AuthorListTest extends TestCase {
 		AuthorList al = AuthorList.getAuthorList("John Smith");
 		assertTrue(al == AuthorList.getAuthorList("John Smith"));
 		assertFalse(al == AuthorList.getAuthorList("Smith"));
+
+		long hits = AuthorList.getCacheHits(), misses = AuthorList.getCacheMisses();
+		AuthorList.getAuthorList("John Smith");
+		assertEquals(hits + 1, AuthorList.getCacheHits());
+		assertEquals(misses, AuthorList.getCacheMisses());
 	}
 
 	public void testFixAuthor_firstNameFirstCommas() {
@@ -3,14 +3,29 @@ package tests.net.sf.jabref;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.List;
 
 import junit.framework.TestCase;
 import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexEntryType;
+import net.sf.jabref.BibtexFields;
+import net.sf.jabref.GUIGlobals;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.Util;
 import net.sf.jabref.imports.BibtexParser;
 import net.sf.jabref.imports.ParserResult;
 
 public class BibtexDatabaseTest extends TestCase {
 
+	protected void setUp() throws Exception {
+		super.setUp();
+		if (Globals.prefs == null) {
+			Globals.prefs = JabRefPreferences.getInstance();
+		}
+	}
+
 	/**
 	 * Some basic test cases for resolving strings.
 	 * 
@@ -31,6 +46,61 @@ public class BibtexDatabaseTest extends TestCase {
 		assertEquals("#unknown#", db.resolveForStrings("#unknown#"));
 		
 	}
-	
-	
+
+	private static BibtexEntry createEntry(BibtexDatabase db, String key) {
+		BibtexEntry entry = new BibtexEntry(Util.createNeutralId(), BibtexEntryType.ARTICLE);
+		entry.setField(BibtexFields.KEY_FIELD, key);
+		db.insertEntry(entry);
+		return entry;
+	}
+
+	public void testEntryByKey() {
+		BibtexDatabase db = new BibtexDatabase();
+		BibtexEntry a = createEntry(db, "Smith2001");
+		BibtexEntry b = createEntry(db, "Smith2001");
+
+		assertSame(a, db.getEntryByKey("Smith2001"));
+		assertEquals(2, db.getEntriesByKey("Smith2001").length);
+		assertNull(db.getEntryByKey("Jones2002"));
+		assertNull(db.getEntryByKey(null));
+
+		a.setField(BibtexFields.KEY_FIELD, "Jones2002");
+		assertSame(a, db.getEntryByKey("Jones2002"));
+		assertSame(b, db.getEntryByKey("Smith2001"));
+
+		db.removeEntry(b.getId());
+		assertNull(db.getEntryByKey("Smith2001"));
+		assertEquals(0, db.getEntriesByKey("Smith2001").length);
+	}
+
+	public void testEntriesByFileName() {
+		BibtexDatabase db = new BibtexDatabase();
+		BibtexEntry entry = createEntry(db, "a");
+		entry.setField(GUIGlobals.FILE_FIELD, "Paper:papers/Paper.pdf:PDF;:C\\\\docs\\\\other.pdf:PDF");
+
+		List<BibtexEntry> found = db.getEntriesByFileName("/home/me/papers/paper.PDF");
+		assertEquals(1, found.size());
+		assertSame(entry, found.get(0));
+		assertEquals(1, db.getEntriesByFileName("other.pdf").size());
+		assertEquals(0, db.getEntriesByFileName("missing.pdf").size());
+
+		entry.clearField(GUIGlobals.FILE_FIELD);
+		assertEquals(0, db.getEntriesByFileName("paper.pdf").size());
+	}
+
+	public void testEntriesByUrlAndDoi() {
+		BibtexDatabase db = new BibtexDatabase();
+		BibtexEntry entry = createEntry(db, "a");
+		entry.setField("url", "http://example.org/paper/");
+		entry.setField("doi", "10.1000/ABC");
+
+		assertEquals(1, db.getEntriesByUrl("https://example.org/paper").size());
+		assertEquals(0, db.getEntriesByUrl("http://example.org/other").size());
+		assertEquals(1, db.getEntriesByDoi("http://dx.doi.org/10.1000/abc").size());
+		assertEquals(1, db.getEntriesByDoi("doi:10.1000/Abc").size());
+
+		db.removeEntry(entry.getId());
+		assertEquals(0, db.getEntriesByUrl("http://example.org/paper").size());
+		assertEquals(0, db.getEntriesByDoi("10.1000/abc").size());
+	}
 }
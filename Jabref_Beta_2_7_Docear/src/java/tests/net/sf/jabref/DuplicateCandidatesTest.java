@@ -0,0 +1,134 @@
+package tests.net.sf.jabref;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexEntryType;
+import net.sf.jabref.DuplicateCandidates;
+import net.sf.jabref.DuplicateCheck;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.Util;
+
+/**
+ * Checks that DuplicateCandidates never leaves out an entry that
+ * DuplicateCheck.isDuplicate() considers a duplicate.
+ */
+public class DuplicateCandidatesTest extends TestCase {
+
+    private static final String[] FIELDS = { "author", "editor", "title", "journal", "year",
+        "publisher", "booktitle", "volume", "pages", "note", "howpublished" };
+    private static final String[][] VALUES = {
+        { "Smith, John", "John Smith", "Smith, J. and Doe, Jane", "Doe, Jane and Smith, John", "SMITH, Bob" },
+        { "Smith, John", "Miller, Ann and Roe, R." },
+        { "A title", "a title ", "Another title" },
+        { "Journal", "journal", "Other journal" },
+        { "2001", "2002" },
+        { "ACM", "IEEE" },
+        { "Proceedings", "Workshop" },
+        { "1", "2" },
+        { "1--10", "11--20" },
+        { "note" },
+        { "web" } };
+
+    private BibtexEntryType[] types;
+    private float threshold;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        if (Globals.prefs == null)
+            Globals.prefs = JabRefPreferences.getInstance();
+        types = new BibtexEntryType[] { BibtexEntryType.ARTICLE, BibtexEntryType.BOOK,
+            BibtexEntryType.MISC, BibtexEntryType.INPROCEEDINGS };
+        threshold = Globals.duplicateThreshold;
+    }
+
+    protected void tearDown() throws Exception {
+        Globals.duplicateThreshold = threshold;
+        super.tearDown();
+    }
+
+    private List<BibtexEntry> createEntries(int count, long seed) {
+        Random random = new Random(seed);
+        List<BibtexEntry> entries = new ArrayList<BibtexEntry>();
+        for (int i = 0; i < count; i++) {
+            BibtexEntry entry = new BibtexEntry(Util.createNeutralId(), types[random.nextInt(types.length)]);
+            for (int f = 0; f < FIELDS.length; f++) {
+                if (random.nextInt(3) > 0)
+                    entry.setField(FIELDS[f], VALUES[f][random.nextInt(VALUES[f].length)]);
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private void assertAllDuplicatesFound(List<BibtexEntry> entries) {
+        DuplicateCandidates candidates = new DuplicateCandidates(entries);
+        int duplicates = 0;
+        for (BibtexEntry entry : entries) {
+            List<BibtexEntry> found = candidates.getCandidates(entry);
+            assertFalse(found.contains(entry));
+            int last = -1;
+            for (BibtexEntry other : found) {
+                // Candidates come in the order of the entries:
+                assertTrue(entries.indexOf(other) > last);
+                last = entries.indexOf(other);
+            }
+            for (BibtexEntry other : entries) {
+                if ((other != entry) && DuplicateCheck.isDuplicate(entry, other)) {
+                    assertTrue(entry + " / " + other, found.contains(other));
+                    duplicates++;
+                }
+            }
+        }
+        assertTrue(duplicates > 0);
+    }
+
+    public void testDefaultThreshold() {
+        List<BibtexEntry> entries = createEntries(400, 1);
+        assertAllDuplicatesFound(entries);
+        // Most pairs are ruled out:
+        DuplicateCandidates candidates = new DuplicateCandidates(entries);
+        int total = 0;
+        for (BibtexEntry entry : entries)
+            total += candidates.getCandidates(entry).size();
+        assertTrue(total < entries.size() * entries.size() / 8);
+    }
+
+    public void testOtherThresholds() {
+        Globals.duplicateThreshold = 0.6f;
+        assertAllDuplicatesFound(createEntries(300, 2));
+        Globals.duplicateThreshold = 0.9f;
+        assertAllDuplicatesFound(createEntries(300, 3));
+    }
+
+    public void testDatabase() throws Exception {
+        BibtexDatabase database = new BibtexDatabase();
+        BibtexEntry one = new BibtexEntry(Util.createNeutralId(), BibtexEntryType.ARTICLE);
+        one.setField("author", "Smith, John");
+        one.setField("title", "A title");
+        one.setField("journal", "Journal");
+        one.setField("year", "2001");
+        database.insertEntry(one);
+        BibtexEntry two = new BibtexEntry(Util.createNeutralId(), BibtexEntryType.ARTICLE);
+        two.setField("author", "Smith, J.");
+        two.setField("title", "Another title");
+        two.setField("journal", "Journal");
+        two.setField("year", "2001");
+
+        assertNull(DuplicateCheck.containsDuplicate(database, two));
+        one.setField("title", "another TITLE");
+        assertTrue(DuplicateCheck.isDuplicate(one, two));
+        assertSame(one, DuplicateCheck.containsDuplicate(database, two));
+        one.setType(BibtexEntryType.BOOK);
+        assertNull(DuplicateCheck.containsDuplicate(database, two));
+        one.setType(BibtexEntryType.ARTICLE);
+        assertSame(one, DuplicateCheck.containsDuplicate(database, two));
+        database.removeEntry(one.getId());
+        assertNull(DuplicateCheck.containsDuplicate(database, two));
+    }
+}
@@ -8,6 +8,8 @@ import java.util.List;
 import java.util.Map;
 
 import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexFields;
+import net.sf.jabref.Globals;
 import net.sf.jabref.Util;
 
 /**
@@ -81,6 +83,42 @@ public class UtilFindFileTest extends FileBasedTestCase {
 		assertFalse(results.get(entry).contains(new File(root.getAbsoluteFile() + "/graphicsDir/subDir/testHipKro03test.png")));
 		assertTrue(results.get(entry).contains(new File(root.getAbsoluteFile() + "/pdfs/sub/HipKro03-sub.pdf")));
 	}
+
+	public void testFindAssociatedFilesLongestKey() throws IOException {
+		BibtexEntry other = new BibtexEntry();
+		other.setField(BibtexFields.KEY_FIELD, "HipKro03-sub");
+		Collection<BibtexEntry> entries = Arrays.asList(new BibtexEntry[]{entry, other});
+		Collection<String> extensions = Arrays.asList(new String[]{"pdf"});
+		Collection<File> dirs = Arrays.asList(new File[] { new File(root.getAbsoluteFile() + "/pdfs/") });
+
+		boolean oldExactOnly = Globals.prefs.getBoolean("autolinkExactKeyOnly");
+		Globals.prefs.putBoolean("autolinkExactKeyOnly", false);
+		try {
+			// The exact match wins over the entry whose key is a prefix:
+			Map<BibtexEntry, List<File>> results = Util.findAssociatedFiles(entries, extensions, dirs);
+			assertEquals(0, results.get(entry).size());
+			assertEquals(1, results.get(other).size());
+
+			// Without an exact match, the first entry whose key is a prefix wins:
+			other.setField(BibtexFields.KEY_FIELD, "HipKro03-s");
+			results = Util.findAssociatedFiles(entries, extensions, dirs);
+			assertEquals(1, results.get(entry).size());
+			assertEquals(0, results.get(other).size());
+		} finally {
+			Globals.prefs.putBoolean("autolinkExactKeyOnly", oldExactOnly);
+		}
+	}
+
+	public void testFindAssociatedFilesAdded() throws IOException {
+		Collection<BibtexEntry> entries = Arrays.asList(new BibtexEntry[]{entry});
+		Collection<String> extensions = Arrays.asList(new String[]{"pdf"});
+		Collection<File> dirs = Arrays.asList(new File[] { new File(root.getAbsoluteFile() + "/pdfs/") });
+		assertEquals(0, Util.findAssociatedFiles(entries, extensions, dirs).get(entry).size());
+
+		// Files added since the last search are found by the next one:
+		new File(root, "pdfs/sub/HipKro03.pdf").createNewFile();
+		assertEquals(1, Util.findAssociatedFiles(entries, extensions, dirs).get(entry).size());
+	}
 	
 	public void testFindPdfInMultiple() throws IOException {
 
@@ -0,0 +1,16 @@
+package tests.net.sf.jabref.autocompleter;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+public class AllTests {
+
+	public static Test suite() {
+		TestSuite suite = new TestSuite("Test for tests.net.sf.jabref.autocompleter");
+		//$JUnit-BEGIN$
+		suite.addTestSuite(AutoCompleterTest.class);
+		//$JUnit-END$
+		return suite;
+	}
+
+}
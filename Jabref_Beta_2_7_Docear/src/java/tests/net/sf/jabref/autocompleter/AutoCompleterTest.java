@@ -0,0 +1,96 @@
+package tests.net.sf.jabref.autocompleter;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.autocompleter.AbstractAutoCompleter;
+import net.sf.jabref.autocompleter.AutoCompleterFactory;
+import net.sf.jabref.autocompleter.CompletionTrie;
+
+public class AutoCompleterTest extends TestCase {
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		if (Globals.prefs == null)
+			Globals.prefs = JabRefPreferences.getInstance();
+	}
+
+	public void testTrieRanking() {
+		CompletionTrie trie = new CompletionTrie();
+		trie.add("Journal of Physics");
+		trie.add("Journal of Chemistry");
+		trie.add("Journal of Chemistry");
+		trie.add("Journal");
+		trie.add("Nature");
+		assertEquals(4, trie.size());
+		assertEquals(2, trie.getCount("Journal of Chemistry"));
+		assertEquals(0, trie.getCount("Journal of"));
+
+		// The most frequent first, then in alphabetical order:
+		assertEquals(Arrays.asList(new String[] { "Journal of Chemistry", "Journal",
+			"Journal of Physics" }), trie.complete("Jo", 10));
+		assertEquals(Arrays.asList(new String[] { "Journal of Chemistry" }), trie.complete("Jo", 1));
+		assertEquals(Arrays.asList(new String[] { "Journal of Physics" }), trie.complete("Journal of P", 10));
+		assertTrue(trie.complete("X", 10).isEmpty());
+
+		trie.remove("Journal of Chemistry");
+		trie.remove("Journal of Chemistry");
+		trie.remove("Journal of Chemistry");
+		trie.remove("Nature");
+		assertEquals(2, trie.size());
+		assertEquals(Arrays.asList(new String[] { "Journal", "Journal of Physics" }),
+			trie.complete("Jo", 10));
+		assertTrue(trie.complete("Na", 10).isEmpty());
+	}
+
+	public void testCap() {
+		CompletionTrie trie = new CompletionTrie();
+		for (int i = 0; i < 1000; i++)
+			trie.add("word" + i);
+		trie.add("word500");
+		assertEquals(AbstractAutoCompleter.MAX_COMPLETIONS, trie.complete("wo", AbstractAutoCompleter.MAX_COMPLETIONS).size());
+		assertEquals("word500", trie.complete("wo", 3).get(0));
+		assertEquals("word0", trie.complete("wo", 3).get(1));
+		assertEquals("word1", trie.complete("wo", 3).get(2));
+	}
+
+	public void testEditedEntry() {
+		AbstractAutoCompleter completer = AutoCompleterFactory.getFor("journal");
+		BibtexEntry first = new BibtexEntry("1"), second = new BibtexEntry("2");
+		first.setField("journal", "Physical Review");
+		second.setField("journal", "Physics Letters");
+		completer.addBibtexEntry(first);
+		completer.addBibtexEntry(second);
+		assertEquals(Arrays.asList(new String[] { "Physical Review", "Physics Letters" }),
+			Arrays.asList(completer.complete("Phys")));
+
+		// Adding an edited entry again replaces its words:
+		second.setField("journal", "Physical Review");
+		completer.addBibtexEntry(second);
+		assertFalse(completer.indexContainsWord("Physics Letters"));
+		assertEquals(Arrays.asList(new String[] { "Physical Review" }),
+			Arrays.asList(completer.complete("Phys")));
+	}
+
+	public void testRemovedEntry() {
+		AbstractAutoCompleter completer = AutoCompleterFactory.getFor("journal");
+		BibtexEntry first = new BibtexEntry("1"), second = new BibtexEntry("2");
+		first.setField("journal", "Physical Review");
+		second.setField("journal", "Physical Review");
+		completer.addBibtexEntry(first);
+		completer.addBibtexEntry(second);
+
+		// The word stays as long as one entry uses it:
+		completer.removeBibtexEntry(second);
+		assertTrue(completer.indexContainsWord("Physical Review"));
+		completer.removeBibtexEntry(first);
+		assertFalse(completer.indexContainsWord("Physical Review"));
+		assertEquals(0, completer.complete("Phys").length);
+		// Removing it again changes nothing:
+		completer.removeBibtexEntry(first);
+		assertFalse(completer.indexContainsWord("Physical Review"));
+	}
+}
@@ -14,6 +14,7 @@ public class AllTests {
 		suite.addTestSuite(BibtexWidthTest.class);
 		suite.addTestSuite(TextPrefixFunctionTest.class);
 		suite.addTestSuite(BibtexPurifyTest.class);
+		suite.addTestSuite(BstProgramTest.class);
 		//$JUnit-END$
 		return suite;
 	}
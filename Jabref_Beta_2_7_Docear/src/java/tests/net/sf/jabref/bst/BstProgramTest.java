@@ -0,0 +1,121 @@
+package tests.net.sf.jabref.bst;
+
+import java.io.File;
+import java.util.Random;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexEntryType;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.bst.BstProgram;
+import net.sf.jabref.bst.VM;
+
+/**
+ * Checks that a compiled BstProgram writes the same as the VM, also when
+ * iterating in parallel.
+ */
+public class BstProgramTest extends TestCase {
+
+	private static final String[] AUTHORS = { "Crowston, K. and Annabi, H.", "Jean-Paul Sartre",
+		"Howison, James", "Masango, C. and Howison, J. and Crowston, K.",
+		"Vall{\\'e}e Poussin, Charles de la", "{\\\"U}nderwood, Ulrich" };
+
+	private static final String[] TITLES = { "Effective work practices for floss development",
+		"A model and propositions", "{FLOSS} in {E}urope", "On {\\'e}tudes" };
+
+	private BibtexEntryType[] types;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		if (Globals.prefs == null)
+			Globals.prefs = JabRefPreferences.getInstance();
+		types = new BibtexEntryType[] { BibtexEntryType.ARTICLE, BibtexEntryType.BOOK,
+			BibtexEntryType.INPROCEEDINGS, BibtexEntryType.MISC };
+	}
+
+	private Vector<BibtexEntry> createEntries(int count) {
+		Random random = new Random(count);
+		Vector<BibtexEntry> entries = new Vector<BibtexEntry>();
+		for (int i = 0; i < count; i++) {
+			BibtexEntry entry = new BibtexEntry("id" + i, types[random.nextInt(types.length)]);
+			entry.setField("bibtexkey", "key" + i);
+			entry.setField("author", AUTHORS[random.nextInt(AUTHORS.length)]);
+			entry.setField("title", TITLES[random.nextInt(TITLES.length)]);
+			entry.setField("year", String.valueOf(1990 + random.nextInt(20)));
+			if (random.nextBoolean())
+				entry.setField("journal", "Journal of Things");
+			if (random.nextBoolean())
+				entry.setField("booktitle", "Proceedings");
+			if (random.nextBoolean())
+				entry.setField("publisher", "ACM");
+			if (random.nextBoolean())
+				entry.setField("pages", "1--" + random.nextInt(100));
+			entries.add(entry);
+		}
+		return entries;
+	}
+
+	private void assertSameOutput(String bst, Vector<BibtexEntry> entries) throws Exception {
+		String expected = new VM(bst).run(entries);
+		BstProgram program = new BstProgram(bst);
+		program.setThreads(1);
+		assertEquals(expected, program.run(entries));
+		program = new BstProgram(bst);
+		program.setThreads(4);
+		assertEquals(expected, program.run(entries));
+		// Run again, after having learned which functions cannot run in parallel:
+		assertEquals(expected, program.run(entries));
+	}
+
+	public void testAbbrv() throws Exception {
+		File file = new File("src/tests/net/sf/jabref/bst/abbrv.bst");
+		Vector<BibtexEntry> entries = createEntries(700);
+		String expected = new VM(file).run(entries);
+		assertTrue(expected.indexOf("\\bibitem{key699}") != -1);
+
+		BstProgram program = new BstProgram(file);
+		program.setThreads(1);
+		assertEquals(expected, program.run(entries));
+		program = new BstProgram(file);
+		program.setThreads(4);
+		assertEquals(expected, program.run(entries));
+		assertEquals(expected, program.run(entries));
+	}
+
+	public void testGlobals() throws Exception {
+		// Temporaries are written before they are read, counters are not:
+		assertSameOutput("ENTRY { title } { len } { label } INTEGERS { count longest } "
+			+ "STRINGS { s } "
+			+ "FUNCTION { prepare } { title 's := s text.length$ 'len := "
+			+ "  s \"x\" * 'label := count #1 + 'count := "
+			+ "  len longest > { len 'longest := } 'skip$ if$ } "
+			+ "FUNCTION { out } { label write$ len int.to.str$ write$ newline$ } "
+			+ "READ ITERATE { prepare } REVERSE { prepare } ITERATE { out } "
+			+ "FUNCTION { total } { count int.to.str$ write$ longest int.to.str$ write$ } "
+			+ "EXECUTE { total }", createEntries(1000));
+	}
+
+	public void testStack() throws Exception {
+		// Each entry takes the value the one before left on the stack:
+		assertSameOutput("ENTRY { year } { } { label } "
+			+ "FUNCTION { first } { \"\" } "
+			+ "FUNCTION { chain } { year * duplicate$ #-4 #4 substring$ 'label := } "
+			+ "FUNCTION { out } { label write$ } "
+			+ "READ EXECUTE { first } ITERATE { chain } ITERATE { out } "
+			+ "FUNCTION { last } { text.length$ int.to.str$ write$ } EXECUTE { last }",
+			createEntries(1000));
+	}
+
+	public void testSortAndTypes() throws Exception {
+		assertSameOutput("ENTRY { author title } { } { label } "
+			+ "FUNCTION { article } { \"A\" 'label := } FUNCTION { book } { \"B\" 'label := } "
+			+ "FUNCTION { default.type } { \"D\" 'label := } "
+			+ "FUNCTION { inproceedings } { default.type } FUNCTION { misc } { default.type } "
+			+ "FUNCTION { presort } { call.type$ label author #1 \"{vv~}{ll}\" format.name$ * "
+			+ "  purify$ \"l\" change.case$ title * #1 global.max$ substring$ 'sort.key$ := } "
+			+ "FUNCTION { out } { cite$ write$ sort.key$ write$ newline$ } "
+			+ "READ ITERATE { presort } SORT ITERATE { out }", createEntries(1000));
+	}
+}
@@ -0,0 +1,50 @@
+package tests.net.sf.jabref.collab;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import net.sf.jabref.collab.EntryBlocks;
+
+public class EntryBlocksTest extends TestCase {
+
+	public void testSplit() {
+		EntryBlocks blocks = new EntryBlocks("% This file was created with JabRef 2.7.\n"
+			+ "% Encoding: UTF8\n\n"
+			+ "@PREAMBLE{\"\\newcommand{\\noopsort}[1]{}\"}\n\n"
+			+ "@string (acm = {ACM Press})\n\n"
+			+ "@article{first,\n  email = {john@doe.org},\n  note = {{braced\n@at the start of a line}}\n}\n\n"
+			+ "Text between entries stays with its block.\n"
+			+ "@book(second,\n  title = \"Quoted\"\n)\n  \n"
+			+ "@comment{jabref-meta: selector_keywords:a;b;}\n");
+
+		assertEquals("% This file was created with JabRef 2.7.\n% Encoding: UTF8\n\n", blocks.getHeader());
+		assertEquals(Arrays.asList(new String[] {
+			"@article{first,\n  email = {john@doe.org},\n  note = {{braced\n@at the start of a line}}\n}\n\n"
+				+ "Text between entries stays with its block.",
+			"@book(second,\n  title = \"Quoted\"\n)" }), blocks.getEntries());
+		assertEquals(Arrays.asList(new String[] {
+			"@PREAMBLE{\"\\newcommand{\\noopsort}[1]{}\"}",
+			"@string (acm = {ACM Press})",
+			"@comment{jabref-meta: selector_keywords:a;b;}" }), blocks.getOthers());
+	}
+
+	public void testIndentedBlock() {
+		EntryBlocks blocks = new EntryBlocks("@misc{a}\n  @misc{b}\r\n@misc{c}");
+		assertEquals("", blocks.getHeader());
+		assertEquals(Arrays.asList(new String[] { "@misc{a}", "@misc{b}", "@misc{c}" }),
+			blocks.getEntries());
+	}
+
+	public void testUnbalancedBraces() {
+		EntryBlocks blocks = new EntryBlocks("@misc{a}}\n@misc{b,\n title = {x}\n@misc{c}");
+		assertEquals(Arrays.asList(new String[] { "@misc{a}}", "@misc{b,\n title = {x}\n@misc{c}" }),
+			blocks.getEntries());
+	}
+
+	public void testWithoutBlocks() {
+		EntryBlocks blocks = new EntryBlocks("Just some text\n");
+		assertEquals("Just some text\n", blocks.getHeader());
+		assertTrue(blocks.getEntries().isEmpty());
+		assertTrue(blocks.getOthers().isEmpty());
+	}
+}
@@ -0,0 +1,97 @@
+package tests.net.sf.jabref.export;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexEntryType;
+import net.sf.jabref.BibtexFields;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.export.EntryTextCache;
+import net.sf.jabref.export.LatexFieldFormatter;
+import net.sf.jabref.export.SaveException;
+
+/**
+ * Checks that EntryTextCache returns the text BibtexEntry.write() writes,
+ * also after entries have changed.
+ */
+public class EntryTextCacheTest extends TestCase {
+
+    private BibtexDatabase database;
+    private List<BibtexEntry> entries;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        if (Globals.prefs == null)
+            Globals.prefs = JabRefPreferences.getInstance();
+        database = new BibtexDatabase();
+        entries = new ArrayList<BibtexEntry>();
+        for (int i = 0; i < 300; i++) {
+            BibtexEntry entry = new BibtexEntry("entry" + i,
+                (i % 3 == 0) ? BibtexEntryType.BOOK : BibtexEntryType.ARTICLE);
+            entry.setField(BibtexFields.KEY_FIELD, "key" + i);
+            entry.setField("author", "Smith, John and Doe, Jane");
+            entry.setField("title", "A rather long title that has to be wrapped when it is written, number " + i);
+            entry.setField("year", String.valueOf(1900 + i));
+            entry.setField("note", "#jan#");
+            database.insertEntry(entry);
+            entries.add(entry);
+        }
+    }
+
+    private static String write(BibtexEntry entry) throws Exception {
+        StringWriter out = new StringWriter();
+        entry.write(out, new LatexFieldFormatter(), true);
+        out.write(Globals.NEWLINE);
+        return out.toString();
+    }
+
+    private void assertTexts(String[] texts) throws Exception {
+        assertEquals(entries.size(), texts.length);
+        for (int i = 0; i < texts.length; i++)
+            assertEquals(write(entries.get(i)), texts[i]);
+    }
+
+    public void testChangedEntries() throws Exception {
+        EntryTextCache cache = database.getEntryTextCache();
+        String[] first = cache.getTexts(entries);
+        assertTexts(first);
+
+        entries.get(5).setField("title", "Another title");
+        entries.get(6).setType(BibtexEntryType.MISC);
+        entries.get(7).clearField("year");
+        String[] second = cache.getTexts(entries);
+        assertTexts(second);
+        for (int i = 0; i < first.length; i++) {
+            // Only the changed entries have been formatted again:
+            if ((i < 5) || (i > 7))
+                assertSame(first[i], second[i]);
+            else
+                assertFalse(first[i].equals(second[i]));
+        }
+
+        // In another order, and with a removed entry:
+        database.removeEntry(entries.get(0).getId());
+        entries.remove(0);
+        Collections.reverse(entries);
+        assertTexts(cache.getTexts(entries));
+    }
+
+    public void testError() throws Exception {
+        BibtexEntry entry = entries.get(150);
+        entry.setField("title", "A # character");
+        try {
+            database.getEntryTextCache().getTexts(entries);
+            fail();
+        } catch (SaveException ex) {
+            assertSame(entry, ex.getEntry());
+        }
+        entry.setField("title", "A \\# character");
+        assertTexts(database.getEntryTextCache().getTexts(entries));
+    }
+}
@@ -2,13 +2,21 @@ package tests.net.sf.jabref.export.layout;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 import junit.framework.TestCase;
+import net.sf.jabref.BibtexDatabase;
 import net.sf.jabref.BibtexEntry;
 import net.sf.jabref.Globals;
 import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.export.ExportFormats;
 import net.sf.jabref.export.layout.Layout;
+import net.sf.jabref.export.layout.LayoutEntry;
+import net.sf.jabref.export.layout.LayoutFormatter;
 import net.sf.jabref.export.layout.LayoutHelper;
 import net.sf.jabref.imports.BibtexParser;
 import net.sf.jabref.imports.ParserResult;
@@ -105,4 +113,55 @@ public class LayoutTest extends TestCase {
 			"<font face=\"arial\"><BR><BR><b>Abstract: </b> &ntilde; &ntilde; &iacute; &#305; &#305;</font>",
 			layoutText);
 	}
+
+	/**
+	 * Laying out many entries at once gives the same text as laying them out
+	 * one by one, also if the output depends on the entry before.
+	 */
+	public void testDoLayoutEntries() throws Exception {
+		StringBuffer bib = new StringBuffer();
+		for (int i = 0; i < 300; i++) {
+			bib.append("@article{key" + i + ", author={Author\n" + i + "}, year={" + (2000 + i / 70)
+				+ "}}\n");
+		}
+		BibtexDatabase database = BibtexParser.parse(new StringReader(bib.toString())).getDatabase();
+		List<BibtexEntry> entries = new ArrayList<BibtexEntry>(database.getEntries());
+
+		String[] layoutTexts = {
+			"\\format[Number]{\\author}. \\begin{author}\\format[HTMLChars]{\\author}\\end{author}, \\year\n",
+			"\\begingroup{year}\\year:\n\\endgroup{year}\\author\n" };
+		for (String layoutText : layoutTexts) {
+			Layout layout = new LayoutHelper(new StringReader(layoutText))
+				.getLayoutFromText(Globals.FORMATTER_PACKAGE);
+			StringBuffer expected = new StringBuffer();
+			LayoutHelper.setCurrentGroup(null);
+			for (int i = 0; i < entries.size(); i++) {
+				ExportFormats.entryNumber = i + 1;
+				expected.append(layout.doLayout(entries.get(i), database));
+			}
+			StringWriter out = new StringWriter();
+			LayoutHelper.setCurrentGroup(null);
+			Layout.doLayout(entries, Collections.nCopies(entries.size(), layout), database, out);
+			assertEquals(expected.toString(), out.toString());
+			assertEquals(entries.size(), ExportFormats.entryNumber);
+		}
+	}
+
+	public void testFormatterInstances() throws Exception {
+		LayoutFormatter formatter = LayoutEntry.getLayoutFormatterByClassName("HTMLChars",
+			Globals.FORMATTER_PACKAGE);
+		assertSame(formatter, LayoutEntry.getLayoutFormatterByClassName("HTMLChars",
+			Globals.FORMATTER_PACKAGE));
+		// Formatters taking an argument are configured per use:
+		assertNotSame(LayoutEntry.getLayoutFormatterByClassName("Default", Globals.FORMATTER_PACKAGE),
+			LayoutEntry.getLayoutFormatterByClassName("Default", Globals.FORMATTER_PACKAGE));
+		for (int i = 0; i < 2; i++) {
+			try {
+				LayoutEntry.getLayoutFormatterByClassName("NoSuchFormatter", Globals.FORMATTER_PACKAGE);
+				fail();
+			} catch (Exception ex) {
+				// Expected.
+			}
+		}
+	}
 }
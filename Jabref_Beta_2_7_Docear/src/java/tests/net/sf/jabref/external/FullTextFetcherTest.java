@@ -0,0 +1,251 @@
+package tests.net.sf.jabref.external;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexFields;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.external.FindFullText;
+import net.sf.jabref.external.FullTextFetcher;
+import net.sf.jabref.external.FullTextFinder;
+
+/**
+ * Fetches full text documents from a small HTTP server standing in for the
+ * publishers' sites, serving article pages at /article/<n> and their
+ * documents at /article/<n>.pdf.
+ */
+public class FullTextFetcherTest extends TestCase {
+
+    /**
+     * Answers every request on its own connection, counting the requests per
+     * path and supporting ranges of documents.
+     */
+    private static class Server extends Thread {
+        final ServerSocket socket;
+        final Map<String, Integer> requests = new HashMap<String, Integer>();
+        final List<String> ranges = new ArrayList<String>();
+        // The number of bytes of a document to send before failing, or -1:
+        volatile int failAfter = -1;
+
+        Server() throws IOException {
+            socket = new ServerSocket(0);
+            setDaemon(true);
+        }
+
+        int getPort() {
+            return socket.getLocalPort();
+        }
+
+        synchronized int getRequests(String path) {
+            Integer n = requests.get(path);
+            return n == null ? 0 : n.intValue();
+        }
+
+        public void run() {
+            while (!socket.isClosed()) {
+                try {
+                    final Socket client = socket.accept();
+                    new Thread() {
+                        public void run() {
+                            try {
+                                answer(client);
+                            } catch (IOException ex) {
+                                // The client went away.
+                            }
+                        }
+                    }.start();
+                } catch (IOException ex) {
+                    return; // Closed
+                }
+            }
+        }
+
+        void answer(Socket client) throws IOException {
+            try {
+                BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(),
+                    "ISO-8859-1"));
+                String path = in.readLine().split(" ")[1];
+                String range = null, line;
+                while (((line = in.readLine()) != null) && (line.length() > 0)) {
+                    if (line.toLowerCase().startsWith("range:"))
+                        range = line.substring(6).trim();
+                }
+                synchronized (this) {
+                    requests.put(path, getRequests(path) + 1);
+                    if (range != null)
+                        ranges.add(range);
+                }
+                OutputStream out = client.getOutputStream();
+                if (!path.endsWith(".pdf")) {
+                    byte[] page = "<html>An article</html>".getBytes("ISO-8859-1");
+                    out.write(("HTTP/1.0 200 OK\r\nContent-Type: text/html\r\nContent-Length: " + page.length
+                        + "\r\nConnection: close\r\n\r\n").getBytes("ISO-8859-1"));
+                    out.write(page);
+                    return;
+                }
+                byte[] document = getDocument(path);
+                int start = (range == null) ? 0 : Integer.parseInt(range.substring(6, range.length() - 1));
+                out.write(((range == null ? "HTTP/1.0 200 OK" : "HTTP/1.0 206 Partial Content")
+                    + "\r\nContent-Type: application/pdf\r\nContent-Length: " + (document.length - start)
+                    + "\r\nConnection: close\r\n\r\n").getBytes("ISO-8859-1"));
+                int end = ((failAfter >= 0) && (start == 0)) ? failAfter : document.length;
+                out.write(document, start, end - start);
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    /**
+     * Finds the document of an article page on the stand-in server, also for
+     * pages at /alias/<n>.
+     */
+    private static class Finder implements FullTextFinder {
+        public boolean supportsSite(URL url) {
+            return url.getHost().equals("localhost");
+        }
+
+        public URL findFullTextURL(URL url) throws IOException {
+            return new URL(url.toExternalForm().replace("/alias/", "/article/") + ".pdf");
+        }
+    }
+
+    private Server server;
+    private File directory;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        if (Globals.prefs == null)
+            Globals.prefs = JabRefPreferences.getInstance();
+        server = new Server();
+        server.start();
+        directory = File.createTempFile("fulltext", "");
+        directory.delete();
+    }
+
+    protected void tearDown() throws Exception {
+        server.socket.close();
+        File[] files = directory.listFiles();
+        for (int i = 0; (files != null) && (i < files.length); i++)
+            files[i].delete();
+        directory.delete();
+        super.tearDown();
+    }
+
+    static byte[] getDocument(String path) {
+        byte[] document = new byte[300000];
+        for (int i = 0; i < document.length; i++)
+            document[i] = (byte) (i * 31 + path.hashCode());
+        return document;
+    }
+
+    private BibtexEntry entry(String key, String path) {
+        BibtexEntry entry = new BibtexEntry(key);
+        entry.setField(BibtexFields.KEY_FIELD, key);
+        if (path != null)
+            entry.setField("url", "http://localhost:" + server.getPort() + path);
+        return entry;
+    }
+
+    private FullTextFetcher fetcher(long hostInterval) {
+        return new FullTextFetcher(new FindFullText(Arrays.asList(new FullTextFinder[] { new Finder() })),
+            directory, 2, hostInterval);
+    }
+
+    private static byte[] read(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int n = 0;
+            while (n < bytes.length)
+                n += in.read(bytes, n, bytes.length - n);
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+
+    public void testFetch() throws Exception {
+        BibtexEntry a = entry("a", "/article/1"), b = entry("b", "/article/2"),
+            sameLink = entry("c", "/article/1"), sameDocument = entry("d", "/alias/2"),
+            noLink = entry("e", null);
+        final List<BibtexEntry> told = new ArrayList<BibtexEntry>();
+        Map<BibtexEntry, FullTextFetcher.Result> results = fetcher(0).fetch(
+            Arrays.asList(new BibtexEntry[] { a, b, sameLink, sameDocument, noLink }),
+            new FullTextFetcher.Listener() {
+                public void fetched(BibtexEntry entry, FullTextFetcher.Result result) {
+                    synchronized (told) {
+                        told.add(entry);
+                    }
+                }
+            });
+
+        assertEquals(Arrays.asList(new BibtexEntry[] { a, b, sameLink, sameDocument, noLink }),
+            new ArrayList<BibtexEntry>(results.keySet()));
+        assertEquals(5, told.size());
+        assertEquals(new File(directory, "a.pdf"), results.get(a).file);
+        assertEquals(new File(directory, "b.pdf"), results.get(b).file);
+        assertEquals(results.get(a).file, results.get(sameLink).file);
+        assertEquals(results.get(b).file, results.get(sameDocument).file);
+        assertNull(results.get(noLink).file);
+        assertEquals(FindFullText.NO_URLS_DEFINED, results.get(noLink).find.status);
+        assertTrue(Arrays.equals(getDocument("/article/1.pdf"), read(results.get(a).file)));
+        assertTrue(Arrays.equals(getDocument("/article/2.pdf"), read(results.get(b).file)));
+
+        // Every link resolved once:
+        assertEquals(1, server.getRequests("/article/1"));
+        assertEquals(1, server.getRequests("/article/2"));
+        assertEquals(1, server.getRequests("/alias/2"));
+        assertFalse(new File(directory, "a.pdf.part").exists());
+
+        // Nothing is fetched again:
+        results = fetcher(0).fetch(Arrays.asList(new BibtexEntry[] { a, b }), null);
+        assertEquals(new File(directory, "a.pdf"), results.get(a).file);
+        assertEquals(1, server.getRequests("/article/1"));
+        assertEquals(2, server.getRequests("/article/1.pdf"));
+    }
+
+    public void testResume() throws Exception {
+        BibtexEntry a = entry("a", "/article/1");
+        server.failAfter = 200000;
+        Map<BibtexEntry, FullTextFetcher.Result> results = fetcher(0).fetch(Arrays.asList(new BibtexEntry[] { a }),
+            null);
+        assertNull(results.get(a).file);
+        long partial = new File(directory, "a.pdf.part").length();
+
+        server.failAfter = -1;
+        results = fetcher(0).fetch(Arrays.asList(new BibtexEntry[] { a }), null);
+        assertEquals(new File(directory, "a.pdf"), results.get(a).file);
+        assertTrue(Arrays.equals(getDocument("/article/1.pdf"), read(results.get(a).file)));
+        // The link was not resolved again, and the download continued:
+        assertEquals(1, server.getRequests("/article/1"));
+        if (partial > 0)
+            assertEquals(Arrays.asList(new String[] { "bytes=" + partial + "-" }), server.ranges);
+    }
+
+    public void testHostInterval() throws Exception {
+        List<BibtexEntry> entries = new ArrayList<BibtexEntry>();
+        for (int i = 0; i < 3; i++)
+            entries.add(entry("e" + i, "/article/" + i));
+        long start = System.currentTimeMillis();
+        fetcher(200).fetch(entries, null);
+        // Three pages and three documents, one after another:
+        assertTrue(System.currentTimeMillis() - start >= 5 * 200);
+    }
+}
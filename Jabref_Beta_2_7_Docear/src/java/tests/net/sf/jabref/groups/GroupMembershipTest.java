@@ -0,0 +1,122 @@
+package tests.net.sf.jabref.groups;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.groups.AbstractGroup;
+import net.sf.jabref.groups.AllEntriesGroup;
+import net.sf.jabref.groups.ExplicitGroup;
+import net.sf.jabref.groups.GroupMembership;
+import net.sf.jabref.groups.GroupTreeNode;
+import net.sf.jabref.groups.KeywordGroup;
+import net.sf.jabref.groups.SearchGroup;
+
+/**
+ * Checks that the bit sets of GroupMembership find the entries the search
+ * rules of the groups find, also after entries have changed.
+ */
+public class GroupMembershipTest extends TestCase {
+
+    private BibtexDatabase database;
+    private List<BibtexEntry> entries;
+    private GroupTreeNode root, alpha, smiths, beta, chosen;
+    private ExplicitGroup explicit;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        if (Globals.prefs == null)
+            Globals.prefs = JabRefPreferences.getInstance();
+        database = new BibtexDatabase();
+        entries = new ArrayList<BibtexEntry>();
+        for (int i = 0; i < 500; i++)
+            entries.add(addEntry(i));
+
+        root = new GroupTreeNode(new AllEntriesGroup());
+        alpha = new GroupTreeNode(new KeywordGroup("Alpha", "keywords", "alpha", false, false,
+            AbstractGroup.INDEPENDENT));
+        smiths = new GroupTreeNode(new SearchGroup("Smiths", "author=smith", false, false,
+            AbstractGroup.REFINING));
+        beta = new GroupTreeNode(new KeywordGroup("Beta", "keywords", "beta", false, false,
+            AbstractGroup.INCLUDING));
+        explicit = new ExplicitGroup("Chosen", AbstractGroup.INDEPENDENT);
+        chosen = new GroupTreeNode(explicit);
+        root.add(alpha);
+        alpha.add(smiths);
+        root.add(beta);
+        beta.add(chosen);
+        for (int i = 0; i < entries.size(); i += 7)
+            explicit.addEntry(entries.get(i));
+    }
+
+    private BibtexEntry addEntry(int i) {
+        BibtexEntry entry = new BibtexEntry("entry" + i);
+        entry.setField("author", (i % 3 == 0) ? "Smith, John" : "Doe, Jane");
+        entry.setField("keywords", ((i % 2 == 0) ? "Alpha" : "gamma") + ((i % 5 == 0) ? ", beta" : ""));
+        database.insertEntry(entry);
+        return entry;
+    }
+
+    private void assertMembers(GroupMembership membership) {
+        membership.update(root);
+        for (Enumeration<GroupTreeNode> e = root.preorderEnumeration(); e.hasMoreElements();) {
+            GroupTreeNode node = e.nextElement();
+            BitSet nodeMembers = membership.getMembers(node);
+            BitSet groupMembers = membership.getMembers(node.getGroup());
+            for (BibtexEntry entry : database.getEntries()) {
+                assertEquals(node.getSearchRule().applyRule(new HashMap<String, String>(), entry) > 0,
+                    membership.contains(nodeMembers, entry));
+                assertEquals(node.getGroup().contains(entry), membership.contains(groupMembers, entry));
+            }
+        }
+    }
+
+    public void testMembers() {
+        GroupMembership membership = database.getGroupMembership();
+        assertMembers(membership);
+
+        // Changed, removed and added entries:
+        entries.get(4).setField("keywords", "gamma");
+        entries.get(5).setField("author", "Smith, Adam");
+        entries.get(9).setField("keywords", "alpha beta");
+        database.removeEntry(entries.get(10).getId());
+        for (int i = 500; i < 520; i++)
+            entries.add(addEntry(i));
+        explicit.addEntry(entries.get(515));
+        assertMembers(membership);
+
+        // A new group:
+        GroupTreeNode gamma = new GroupTreeNode(new KeywordGroup("Gamma", "keywords", "gamma", false,
+            false, AbstractGroup.INDEPENDENT));
+        root.add(gamma);
+        assertMembers(membership);
+    }
+
+    public void testSelection() {
+        GroupMembership membership = database.getGroupMembership();
+        membership.update(root);
+        GroupTreeNode[] nodes = new GroupTreeNode[] { smiths, chosen };
+        BitSet and = membership.getMembers(nodes, true, false);
+        BitSet or = membership.getMembers(nodes, false, false);
+        BitSet notOr = membership.getMembers(nodes, false, true);
+        for (BibtexEntry entry : database.getEntries()) {
+            boolean inSmiths = smiths.getSearchRule().applyRule(new HashMap<String, String>(), entry) > 0;
+            boolean inChosen = explicit.contains(entry);
+            assertEquals(inSmiths && inChosen, membership.contains(and, entry));
+            assertEquals(inSmiths || inChosen, membership.contains(or, entry));
+            assertEquals(!(inSmiths || inChosen), membership.contains(notOr, entry));
+        }
+
+        BibtexEntry[] some = new BibtexEntry[] { entries.get(0), entries.get(1) };
+        assertTrue(membership.containsAny(alpha.getGroup(), some));
+        assertFalse(membership.containsAll(alpha.getGroup(), some));
+        assertTrue(membership.containsAll(root.getGroup(), some));
+    }
+}
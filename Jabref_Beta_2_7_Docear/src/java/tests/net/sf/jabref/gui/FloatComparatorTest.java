@@ -0,0 +1,92 @@
+package tests.net.sf.jabref.gui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexFields;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.gui.FloatComparator;
+import net.sf.jabref.gui.IsMarkedComparator;
+import net.sf.jabref.groups.GroupMatcher;
+import net.sf.jabref.search.HitOrMissComparator;
+import net.sf.jabref.search.SearchMatcher;
+
+/**
+ * Checks that floating entries in one sort gives the order the sorts for
+ * marking, search and group hits applied in turn give.
+ */
+public class FloatComparatorTest extends TestCase {
+
+    private List<BibtexEntry> entries;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        if (Globals.prefs == null)
+            Globals.prefs = JabRefPreferences.getInstance();
+        entries = new ArrayList<BibtexEntry>();
+        for (int i = 0; i < 60; i++) {
+            BibtexEntry entry = new BibtexEntry("entry" + i);
+            entry.setSearchHit(i % 2 == 0);
+            entry.setGroupHit(i % 3 == 0);
+            if (i % 5 == 1)
+                entry.setField(BibtexFields.MARKED, "0");
+            else if (i % 5 == 2)
+                entry.setField(BibtexFields.MARKED, "[" + Globals.prefs.get("defaultOwner") + ":3]");
+            entries.add(entry);
+        }
+    }
+
+    public void testSameOrderAsStackedSorts() {
+        List<BibtexEntry> stacked = new ArrayList<BibtexEntry>(entries);
+        Collections.sort(stacked, new IsMarkedComparator());
+        Collections.sort(stacked, new HitOrMissComparator(SearchMatcher.INSTANCE));
+        Collections.sort(stacked, new HitOrMissComparator(GroupMatcher.INSTANCE));
+
+        FloatComparator comparator = new FloatComparator();
+        comparator.setFloatMarked(true);
+        comparator.setSearchMatcher(SearchMatcher.INSTANCE);
+        comparator.setGroupMatcher(GroupMatcher.INSTANCE);
+        assertTrue(comparator.isFloating());
+        List<BibtexEntry> floated = new ArrayList<BibtexEntry>(entries);
+        Collections.sort(floated, comparator);
+
+        assertEquals(stacked, floated);
+    }
+
+    public void testNotFloating() {
+        FloatComparator comparator = new FloatComparator();
+        assertFalse(comparator.isFloating());
+        assertEquals(0, comparator.compare(entries.get(0), entries.get(1)));
+    }
+
+    public void testMarkingFollowsChanges() {
+        FloatComparator comparator = new FloatComparator();
+        BibtexEntry entry = entries.get(0);
+        assertEquals(0, comparator.getMarking(entry));
+        entry.setField(BibtexFields.MARKED, "0");
+        assertEquals(1, comparator.getMarking(entry));
+        entry.setField(BibtexFields.MARKED, "[" + Globals.prefs.get("defaultOwner") + ":2]");
+        assertEquals(2, comparator.getMarking(entry));
+        entry.clearField(BibtexFields.MARKED);
+        assertEquals(0, comparator.getMarking(entry));
+    }
+
+    public void testMarkingFollowsOwner() {
+        FloatComparator comparator = new FloatComparator();
+        BibtexEntry entry = entries.get(0);
+        entry.setField(BibtexFields.MARKED, "[someoneElse]");
+        String wrapped = Globals.prefs.WRAPPED_USERNAME;
+        try {
+            assertEquals(0, comparator.getMarking(entry));
+            Globals.prefs.WRAPPED_USERNAME = "[someoneElse]";
+            assertEquals(1, comparator.getMarking(entry));
+        } finally {
+            Globals.prefs.WRAPPED_USERNAME = wrapped;
+        }
+        assertEquals(0, comparator.getMarking(entry));
+    }
+}
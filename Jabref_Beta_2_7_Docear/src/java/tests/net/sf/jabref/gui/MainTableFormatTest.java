@@ -0,0 +1,40 @@
+package tests.net.sf.jabref.gui;
+
+import junit.framework.TestCase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.gui.MainTableFormat;
+
+/**
+ * Checks that the formatted names shown in the main table follow changes to
+ * the entries.
+ */
+public class MainTableFormatTest extends TestCase {
+
+    private MainTableFormat format;
+    private int authorColumn;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        if (Globals.prefs == null)
+            Globals.prefs = JabRefPreferences.getInstance();
+        format = new MainTableFormat(null);
+        format.updateTableFormat();
+        authorColumn = format.getColumnIndex("author");
+    }
+
+    public void testFormattedNames() {
+        assertTrue(authorColumn >= 0);
+        BibtexEntry entry = new BibtexEntry("entry");
+        assertNull(format.getColumnValue(entry, authorColumn));
+
+        entry.setField("author", "John Smith and Jane Doe");
+        Object names = format.getColumnValue(entry, authorColumn);
+        assertEquals(format.formatName("John Smith and Jane Doe"), names);
+        assertSame(names, format.getColumnValue(entry, authorColumn));
+
+        entry.setField("author", "Adam Smith");
+        assertEquals(format.formatName("Adam Smith"), format.getColumnValue(entry, authorColumn));
+    }
+}
@@ -11,7 +11,9 @@ public class AllTests {
 		suite.addTestSuite(OAI2ImportTest.class);
 		suite.addTestSuite(IsiImporterTest.class);
 		suite.addTestSuite(CopacImporterTest.class);
+		suite.addTestSuite(ImportFormatReaderTest.class);
 		suite.addTestSuite(BibtexParserTest.class);
+		suite.addTestSuite(BibtexParserBufferedTest.class);
 		suite.addTestSuite(GeneralFetcherTest.class);
 		//$JUnit-END$
 		return suite;
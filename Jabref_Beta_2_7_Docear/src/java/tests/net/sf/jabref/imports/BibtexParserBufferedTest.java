@@ -0,0 +1,146 @@
+package tests.net.sf.jabref.imports;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexString;
+import net.sf.jabref.imports.BibtexParser;
+import net.sf.jabref.imports.ParserResult;
+
+/**
+ * Compares the results of the BibtexParser reading from memory, with one and
+ * with several threads, to those of the parser reading from the stream.
+ */
+public class BibtexParserBufferedTest extends TestCase {
+
+	private static final String[] FILES = { "src/tests/net/sf/jabref/util/twente.bib",
+		"src/tests/net/sf/jabref/bibtexFiles/test.bib", "src/help/de/JabRef-UserManual_de.bib" };
+
+	private static final String SAMPLE = "This file was created with JabRef 2.7.\n"
+		+ "Encoding: UTF8\n\n"
+		+ "@PREAMBLE{\"\\newcommand{\\noopsort}[1]{}\"}\n\n"
+		+ "@STRING{acm = {ACM Press}}\n"
+		+ "@string(ieee = \"IEEE\")\n\n"
+		+ "Text between entries is skipped.\n\n"
+		+ "@article{first,\n  author = {Doe, John},\n  author = {Roe, Richard},\n"
+		+ "  title = {A {DNA} title\n\twrapped by JabRef},\n  publisher = acm # { and } # ieee,\n"
+		+ "  email = {john@doe.org},\n  year = 2001\n}\n\n"
+		+ "@book(second,\n  title = \"Quoted {title}\",\n  note = {@inside braces\n@at the start of a line}\n)\n\n"
+		+ "@misc{first,\n  title = {Duplicate key}\n}\n\n"
+		+ "@misc{,\n  title = {No key}\n}\n\n"
+		+ "@article{broken key, title = {Missing comma}}\n\n"
+		+ "@article{withoutcomma\n title = {x}}\n\n"
+		+ "@mytype{custom,\n  title = {Custom type}\n}\n\n"
+		+ "@unknown{other,\n  title = {Unknown type}\n}\n\n"
+		+ "@comment{jabref-meta: selector_keywords:a;b;}\n\n"
+		+ "@comment{jabref-entrytype: Mytype: req[title] opt[]}\n";
+
+	private static ParserResult parse(String input, int threads, int chunkLength) throws IOException {
+		if (threads == 0)
+			return BibtexParser.parse(new StringReader(input));
+		BibtexParser parser = new BibtexParser(new StringReader(input), threads);
+		parser.setChunkLength(chunkLength);
+		return parser.parse();
+	}
+
+	private static String describe(ParserResult result) {
+		BibtexDatabase db = result.getDatabase();
+		List<String> entries = new ArrayList<String>();
+		for (BibtexEntry entry : db.getEntries()) {
+			StringBuilder sb = new StringBuilder(entry.getType().getName());
+			for (String field : new TreeSet<String>(entry.getAllFields()))
+				sb.append('\n').append(field).append('=').append(entry.getField(field));
+			entries.add(sb.toString());
+		}
+		Collections.sort(entries);
+		List<String> strings = new ArrayList<String>();
+		for (String id : db.getStringKeySet()) {
+			BibtexString string = db.getString(id);
+			strings.add(string.getName() + "=" + string.getContent());
+		}
+		Collections.sort(strings);
+		return "version: " + result.getJabrefVersion() + "\npreamble: " + db.getPreamble()
+			+ "\nentries: " + entries + "\nstrings: " + strings + "\nmeta: "
+			+ new TreeMap<String, String>(result.getMetaData()) + "\ntypes: "
+			+ new TreeSet<String>(result.getEntryTypes().keySet()) + "\nwarnings: "
+			+ Arrays.asList(result.warnings()) + "\nduplicates: "
+			+ Arrays.asList(result.getDuplicateKeys());
+	}
+
+	private static void assertSameResult(String input) throws IOException {
+		String expected = describe(parse(input, 0, 0));
+		assertEquals(expected, describe(parse(input, 1, 1)));
+		assertEquals(expected, describe(parse(input, 4, 1)));
+		assertEquals(expected, describe(parse(input, 4, 200)));
+	}
+
+	private static String read(String file) throws IOException {
+		Reader in = new InputStreamReader(new FileInputStream(file), "ISO-8859-1");
+		try {
+			StringBuilder sb = new StringBuilder();
+			char[] buffer = new char[4096];
+			int n;
+			while ((n = in.read(buffer)) != -1)
+				sb.append(buffer, 0, n);
+			return sb.toString();
+		} finally {
+			in.close();
+		}
+	}
+
+	public void testSample() throws IOException {
+		assertSameResult(SAMPLE);
+		assertSameResult(SAMPLE.replaceAll("\n", "\r\n"));
+	}
+
+	public void testFiles() throws IOException {
+		for (String file : FILES)
+			assertSameResult(read(file));
+	}
+
+	public void testSkippedEntry() throws IOException {
+		assertSameResult("@article{a, title = {x}}\n@article{b, title = {x} author = {y}}\n"
+			+ "@article{c, title = {z}}\n");
+	}
+
+	public void testEmptyInput() throws IOException {
+		assertSameResult("");
+		assertSameResult("   \n");
+	}
+
+	public void testSameError() throws IOException {
+		String input = "@article{a, title = {x}}\n@article{b, title = {x},\n@article{c, title = {z}}\n";
+		String expected = null;
+		try {
+			parse(input, 0, 0);
+		} catch (RuntimeException e) {
+			expected = e.getMessage();
+		}
+		assertNotNull(expected);
+		try {
+			parse(input, 4, 1);
+			fail("Should not accept a missing closing brace.");
+		} catch (RuntimeException e) {
+			assertEquals(expected, e.getMessage());
+		}
+	}
+
+	public void testLargeInput() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 2000; i++)
+			sb.append(SAMPLE.substring(SAMPLE.indexOf("@article{first")));
+		assertSameResult(sb.toString());
+	}
+}
@@ -0,0 +1,77 @@
+package tests.net.sf.jabref.imports;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import junit.framework.TestCase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.imports.ImportFormatReader;
+import net.sf.jabref.imports.ParserResult;
+import net.sf.jabref.util.Pair;
+
+/**
+ * Test cases for ImportFormatReader.importUnknownFormat()
+ */
+public class ImportFormatReaderTest extends TestCase {
+
+	private ImportFormatReader reader;
+	private File file;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		if (Globals.prefs == null) {
+			Globals.prefs = JabRefPreferences.getInstance();
+		}
+		reader = new ImportFormatReader();
+		reader.resetImportFormats();
+	}
+
+	protected void tearDown() throws Exception {
+		if (file != null)
+			file.delete();
+		super.tearDown();
+	}
+
+	private String importFile(String contents, String suffix) throws IOException {
+		file = File.createTempFile("jabref", suffix);
+		Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		out.write(contents);
+		out.close();
+		return file.getPath();
+	}
+
+	public void testRis() throws IOException {
+		StringBuffer ris = new StringBuffer();
+		for (int i = 0; i < 50; i++) {
+			ris.append("TY  - JOUR\nT1  - Title " + i + "\nAU  - Harrison, Warren\n"
+				+ "PY  - 2001/09/01/\nER  - \n\n");
+		}
+		Pair<String, ParserResult> result = reader.importUnknownFormat(importFile(ris.toString(), ".ris"));
+		assertEquals("RIS", result.p);
+		assertEquals(50, result.v.getDatabase().getEntryCount());
+		for (BibtexEntry entry : result.v.getDatabase().getEntries())
+			assertEquals("Harrison, Warren", entry.getField("author"));
+	}
+
+	public void testBibtex() throws IOException {
+		Pair<String, ParserResult> result = reader.importUnknownFormat(importFile(
+			"@article{canh05,\n  author = {Crowston, K. and Annabi, H.},\n  title = {Title A}}\n", ".bib"));
+		assertEquals(ImportFormatReader.BIBTEX_FORMAT, result.p);
+		assertEquals(1, result.v.getDatabase().getEntryCount());
+	}
+
+	public void testMissingFile() {
+		try {
+			reader.importUnknownFormat(new File("doesNotExist.ris").getAbsolutePath());
+			fail();
+		} catch (IOException ex) {
+			// Expected.
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package tests.net.sf.jabref.journals;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+public class AllTests {
+
+	public static Test suite() {
+		TestSuite suite = new TestSuite("Test for tests.net.sf.jabref.journals");
+		//$JUnit-BEGIN$
+		suite.addTestSuite(JournalAbbreviationsTest.class);
+		//$JUnit-END$
+		return suite;
+	}
+
+}
@@ -0,0 +1,167 @@
+package tests.net.sf.jabref.journals;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexString;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.journals.JournalAbbreviations;
+import net.sf.jabref.journals.JournalIndex;
+import net.sf.jabref.undo.NamedCompound;
+
+public class JournalAbbreviationsTest extends TestCase {
+
+    private File cacheDirectory;
+    private File list;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        if (Globals.prefs == null)
+            Globals.prefs = JabRefPreferences.getInstance();
+        cacheDirectory = File.createTempFile("journals", "");
+        cacheDirectory.delete();
+        JournalIndex.setCacheDirectory(cacheDirectory);
+        list = File.createTempFile("journals", ".txt");
+        writeList("# A comment\n" + "Journal of Foo=J. Foo\n" + "Physical Review Letters=Phys. Rev. Lett.;PRL\n"
+            + "Broken line\n" + "Journal of Bar=J. Bar\n" + "journal of bar=J. B.\n");
+    }
+
+    protected void tearDown() throws Exception {
+        JournalIndex.setCacheDirectory(null);
+        File[] files = cacheDirectory.listFiles();
+        for (int i = 0; (files != null) && (i < files.length); i++)
+            files[i].delete();
+        cacheDirectory.delete();
+        list.delete();
+        super.tearDown();
+    }
+
+    private void writeList(String text) throws IOException {
+        FileWriter out = new FileWriter(list);
+        out.write(text);
+        out.close();
+        // Old enough for the cached index to be trusted:
+        list.setLastModified(System.currentTimeMillis() - 60000);
+    }
+
+    private void assertLookups(JournalAbbreviations abbrev) {
+        assertTrue(abbrev.isKnownName("journal of FOO"));
+        assertFalse(abbrev.isAbbreviatedName("Journal of Foo"));
+        assertTrue(abbrev.isAbbreviatedName("j. foo"));
+        assertTrue(abbrev.isAbbreviatedName("J Foo"));
+        assertFalse(abbrev.isKnownName("Journal of Baz"));
+
+        assertEquals("J. Foo", abbrev.getAbbreviatedName("Journal of Foo", true));
+        assertEquals("J Foo", abbrev.getAbbreviatedName("Journal of Foo", false));
+        assertEquals("j. foo", abbrev.getAbbreviatedName("j. foo", true));
+        assertEquals("J. Foo", abbrev.getAbbreviatedName("j foo", true));
+        assertEquals("Phys. Rev. Lett.", abbrev.getAbbreviatedName("physical review letters", true));
+        assertNull(abbrev.getAbbreviatedName("PRL", true));
+
+        assertEquals("Journal of Foo", abbrev.getFullName("J Foo"));
+        assertEquals("Physical Review Letters", abbrev.getFullName("Phys. Rev. Lett."));
+        assertNull(abbrev.getFullName("Journal of Baz"));
+
+        // The last line for a name wins, but the abbreviations of the others
+        // are still known:
+        assertEquals("J. B.", abbrev.getAbbreviatedName("Journal of Bar", true));
+        assertEquals("Journal of Bar", abbrev.getFullName("J. Bar"));
+        assertEquals("journal of bar", abbrev.getFullName("J. B."));
+
+        assertEquals(4, abbrev.getJournals().size());
+        assertEquals("journal of bar", abbrev.fullNameIterator().next());
+        assertEquals(3, abbrev.getTableModel().getRowCount());
+    }
+
+    public void testReader() throws Exception {
+        JournalAbbreviations abbrev = new JournalAbbreviations();
+        abbrev.readJournalList(new StringReader("Journal of Foo=J. Foo\n"
+            + "Physical Review Letters=Phys. Rev. Lett.;PRL\n" + "Journal of Bar=J. Bar\n"
+            + "journal of bar=J. B.\n"));
+        assertLookups(abbrev);
+        assertFalse(cacheDirectory.exists());
+    }
+
+    public void testCachedIndex() throws Exception {
+        assertLookups(new JournalAbbreviations(list));
+        File[] cached = cacheDirectory.listFiles();
+        assertEquals(1, cached.length);
+        long built = cached[0].lastModified();
+
+        // Loaded from the cache:
+        assertLookups(new JournalAbbreviations(list));
+        assertEquals(built, cacheDirectory.listFiles()[0].lastModified());
+
+        // Built again when the list changes:
+        writeList("Journal of Baz=J. Baz\n");
+        JournalAbbreviations abbrev = new JournalAbbreviations(list);
+        assertEquals("J. Baz", abbrev.getAbbreviatedName("journal of baz", true));
+        assertFalse(abbrev.isKnownName("Journal of Foo"));
+        assertEquals(1, cacheDirectory.listFiles().length);
+    }
+
+    public void testUrl() throws Exception {
+        JournalIndex index = JournalIndex.load(list.toURI().toURL());
+        int journal = index.find(JournalIndex.ABBREVIATION_NO_DOTS, "phys rev lett");
+        assertEquals("Physical Review Letters", index.getFullName(journal));
+        assertEquals("Phys. Rev. Lett.", index.getAbbreviation(journal));
+        assertEquals(-1, index.find(JournalIndex.FULL_NAME, "phys rev lett"));
+        assertEquals(1, cacheDirectory.listFiles().length);
+        assertEquals(journal, JournalIndex.load(list.toURI().toURL()).find(JournalIndex.ABBREVIATION_NO_DOTS,
+            "phys rev lett"));
+    }
+
+    public void testOverride() throws Exception {
+        JournalAbbreviations abbrev = new JournalAbbreviations(list);
+        abbrev.readJournalList(new StringReader("Journal of Foo=JF\n"));
+        assertEquals("JF", abbrev.getAbbreviatedName("Journal of Foo", true));
+        assertEquals("Journal of Foo", abbrev.getFullName("J. Foo"));
+        assertEquals("JF", abbrev.getJournals().get("Journal of Foo"));
+    }
+
+    public void testAbbreviateEntries() throws Exception {
+        JournalAbbreviations abbrev = new JournalAbbreviations(list);
+        BibtexDatabase database = new BibtexDatabase();
+        database.addString(new BibtexString("s1", "prl", "Physical Review Letters"));
+        String[] journals = new String[] { "Journal of Foo", "J Foo", "#prl#", "Journal of Baz", null };
+        BibtexEntry[] entries = new BibtexEntry[1000];
+        BibtexEntry[] copies = new BibtexEntry[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = new BibtexEntry("e" + i);
+            if (journals[i % journals.length] != null)
+                entries[i].setField("journal", journals[i % journals.length]);
+            copies[i] = (BibtexEntry) entries[i].clone();
+        }
+
+        NamedCompound ce = new NamedCompound("Abbreviate");
+        assertEquals(600, abbrev.abbreviate(database, entries, "journal", ce, false));
+        ce.end();
+        int single = 0;
+        NamedCompound ce2 = new NamedCompound("Abbreviate");
+        for (int i = 0; i < copies.length; i++) {
+            if (abbrev.abbreviate(database, copies[i], "journal", ce2, false))
+                single++;
+            assertEquals(copies[i].getField("journal"), entries[i].getField("journal"));
+        }
+        assertEquals(600, single);
+        assertEquals("J Foo", entries[0].getField("journal"));
+        assertEquals("Phys Rev Lett", entries[2].getField("journal"));
+        assertEquals("Journal of Baz", entries[3].getField("journal"));
+
+        ce = new NamedCompound("Unabbreviate");
+        assertEquals(600, abbrev.unabbreviate(database, entries, "journal", ce));
+        ce.end();
+        assertEquals("Journal of Foo", entries[1].getField("journal"));
+        assertEquals("Physical Review Letters", entries[2].getField("journal"));
+
+        ce.undo();
+        assertEquals("J Foo", entries[1].getField("journal"));
+        assertEquals("Phys Rev Lett", entries[2].getField("journal"));
+    }
+}
@@ -11,6 +11,7 @@ public class AllTests {
             "Test for tests.net.sf.jabref.labelPattern");
         //$JUnit-BEGIN$
         suite.addTestSuite(LabelPatternUtilTest.class);
+        suite.addTestSuite(LabelGeneratorTest.class);
         //$JUnit-END$
         return suite;
     }
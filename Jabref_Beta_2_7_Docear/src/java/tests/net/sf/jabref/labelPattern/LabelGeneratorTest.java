@@ -0,0 +1,129 @@
+package tests.net.sf.jabref.labelPattern;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexEntryType;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.Util;
+import net.sf.jabref.labelPattern.LabelGenerator;
+import net.sf.jabref.labelPattern.LabelPattern;
+import net.sf.jabref.labelPattern.LabelPatternUtil;
+
+/**
+ * Checks that generating keys for many entries at once gives the same keys
+ * as generating them one by one.
+ */
+public class LabelGeneratorTest extends TestCase {
+
+    private static final String[] AUTHORS = { "Smith, John", "Doe, Jane and Smith, John", "Miller, Ann" };
+    private static final String[] YEARS = { "2001", "2002" };
+    private static final String[] KEYS = { null, "Smith2001", "Smith2001b", "Smith2001c", "Doe2002", "Other" };
+
+    private LabelPattern table;
+    private boolean alwaysAddLetter, firstLetterA;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        if (Globals.prefs == null)
+            Globals.prefs = JabRefPreferences.getInstance();
+        alwaysAddLetter = Globals.prefs.getBoolean("keyGenAlwaysAddLetter");
+        firstLetterA = Globals.prefs.getBoolean("keyGenFirstLetterA");
+        table = new LabelPattern();
+        table.addLabelPattern("article", "[auth][year]");
+        table.addLabelPattern("book", "[auth:lower]_[year]");
+    }
+
+    protected void tearDown() throws Exception {
+        Globals.prefs.putBoolean("keyGenAlwaysAddLetter", alwaysAddLetter);
+        Globals.prefs.putBoolean("keyGenFirstLetterA", firstLetterA);
+        super.tearDown();
+    }
+
+    private BibtexDatabase createDatabase(long seed) {
+        Random random = new Random(seed);
+        BibtexDatabase database = new BibtexDatabase();
+        for (int i = 0; i < 1000; i++) {
+            BibtexEntry entry = new BibtexEntry("entry" + i,
+                random.nextBoolean() ? BibtexEntryType.ARTICLE : BibtexEntryType.BOOK);
+            entry.setField("author", AUTHORS[random.nextInt(AUTHORS.length)]);
+            entry.setField("year", YEARS[random.nextInt(YEARS.length)]);
+            String key = KEYS[random.nextInt(KEYS.length)];
+            if (key != null)
+                entry.setField("bibtexkey", key);
+            database.insertEntry(entry);
+        }
+        return database;
+    }
+
+    private void assertSameKeys() {
+        BibtexDatabase one = createDatabase(1), all = createDatabase(1);
+        List<BibtexEntry> entries = new ArrayList<BibtexEntry>();
+        for (BibtexEntry entry : one.getEntries())
+            LabelPatternUtil.makeLabel(table, one, entry);
+        for (BibtexEntry entry : all.getEntries())
+            entries.add(entry);
+        new LabelGenerator(table, all).makeLabels(entries);
+
+        Set<String> keys = new HashSet<String>();
+        for (BibtexEntry entry : entries) {
+            assertEquals(one.getEntryById(entry.getId()).getCiteKey(), entry.getCiteKey());
+            assertTrue(entry.getCiteKey(), keys.add(entry.getCiteKey()));
+        }
+    }
+
+    public void testMakeLabels() {
+        Globals.prefs.putBoolean("keyGenAlwaysAddLetter", false);
+        Globals.prefs.putBoolean("keyGenFirstLetterA", false);
+        assertSameKeys();
+        Globals.prefs.putBoolean("keyGenFirstLetterA", true);
+        assertSameKeys();
+        Globals.prefs.putBoolean("keyGenAlwaysAddLetter", true);
+        assertSameKeys();
+    }
+
+    public void testMakeLabel() {
+        Globals.prefs.putBoolean("keyGenAlwaysAddLetter", false);
+        Globals.prefs.putBoolean("keyGenFirstLetterA", false);
+        BibtexDatabase database = new BibtexDatabase();
+        LabelGenerator generator = new LabelGenerator(table, database);
+        List<BibtexEntry> entries = new ArrayList<BibtexEntry>();
+        for (int i = 0; i < 4; i++) {
+            BibtexEntry entry = new BibtexEntry(Util.createNeutralId(), BibtexEntryType.ARTICLE);
+            entry.setField("author", "Smith, John");
+            entry.setField("year", "2001");
+            database.insertEntry(entry);
+            entries.add(entry);
+        }
+        assertEquals("Smith2001", generator.generateLabel(entries.get(0)));
+        generator.makeLabels(entries);
+        assertEquals("Smith2001", entries.get(0).getCiteKey());
+        assertEquals("Smith2001b", entries.get(1).getCiteKey());
+        assertEquals("Smith2001c", entries.get(2).getCiteKey());
+        assertEquals("Smith2001d", entries.get(3).getCiteKey());
+        // An entry keeps its key if it still fits:
+        generator.makeLabel(entries.get(3));
+        assertEquals("Smith2001d", entries.get(3).getCiteKey());
+        // A freed letter is used again:
+        database.removeEntry(entries.get(1).getId());
+        entries.get(3).clearField("bibtexkey");
+        generator.makeLabel(entries.get(3));
+        assertEquals("Smith2001b", entries.get(3).getCiteKey());
+        entries.get(2).setField("year", "2002");
+        generator.makeLabel(entries.get(2));
+        assertEquals("Smith2002", entries.get(2).getCiteKey());
+        BibtexEntry entry = new BibtexEntry(Util.createNeutralId(), BibtexEntryType.ARTICLE);
+        entry.setField("author", "Smith, John");
+        entry.setField("year", "2001");
+        database.insertEntry(entry);
+        generator.makeLabel(entry);
+        assertEquals("Smith2001c", entry.getCiteKey());
+    }
+}
@@ -0,0 +1,105 @@
+package tests.net.sf.jabref.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexEntryType;
+import net.sf.jabref.DatabaseSearch;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.SearchRule;
+import net.sf.jabref.SearchRuleSet;
+import net.sf.jabref.Util;
+import net.sf.jabref.search.BasicSearch;
+
+/**
+ * Checks that searching through the search index finds the same entries as
+ * testing every entry of the database.
+ */
+public class SearchIndexTest extends TestCase {
+
+    private static final String[] WORDS = { "Marine", "finfish", "larviculture", "in", "Europe",
+        "{\\\"U}ber", "Sch{\\\"o}n", "2001", "2002", "C++", "x" };
+
+    private BibtexDatabase database;
+    private Random random;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        if (Globals.prefs == null)
+            Globals.prefs = JabRefPreferences.getInstance();
+        database = new BibtexDatabase();
+        random = new Random(1);
+        for (int i = 0; i < 3000; i++) {
+            BibtexEntry entry = new BibtexEntry(Util.createNeutralId(), BibtexEntryType.ARTICLE);
+            entry.setField("title", createText());
+            entry.setField("author", createText());
+            database.insertEntry(entry);
+        }
+    }
+
+    private String createText() {
+        StringBuffer text = new StringBuffer();
+        for (int i = random.nextInt(4); i >= 0; i--)
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        return text.toString();
+    }
+
+    private void assertSameMatches(SearchRule rule, String query) {
+        Map<String, String> searchStrings = new HashMap<String, String>();
+        searchStrings.put("option", query);
+        List<BibtexEntry> expected = new ArrayList<BibtexEntry>();
+        for (BibtexEntry entry : database.getEntries()) {
+            if (rule.applyRule(searchStrings, entry) > 0)
+                expected.add(entry);
+        }
+        List<BibtexEntry> found = DatabaseSearch.findMatches(database, rule, searchStrings);
+        assertEquals(query, expected.size(), found.size());
+        assertTrue(query, found.containsAll(expected));
+    }
+
+    private void assertSameMatches(String query) {
+        assertSameMatches(new BasicSearch(false, false), query);
+        assertSameMatches(new BasicSearch(true, false), query);
+        assertSameMatches(new BasicSearch(false, true), query);
+        SearchRuleSet ruleSet = new SearchRuleSet();
+        ruleSet.addRule(new BasicSearch(false, false));
+        assertSameMatches(ruleSet, query);
+    }
+
+    public void testQueries() {
+        assertSameMatches("marine");
+        assertSameMatches("Marine 2001");
+        assertSameMatches("arvi");
+        assertSameMatches("\"finfish larviculture\"");
+        assertSameMatches("uber");
+        assertSameMatches("schon europe");
+        assertSameMatches("c++");
+        assertSameMatches("x");
+        assertSameMatches("nothing");
+        assertSameMatches("e.*pe");
+    }
+
+    public void testChanges() {
+        assertSameMatches("marine");
+        int i = 0;
+        for (BibtexEntry entry : new ArrayList<BibtexEntry>(database.getEntries())) {
+            if (i % 3 == 0)
+                entry.setField("title", createText());
+            else if (i % 3 == 1)
+                database.removeEntry(entry.getId());
+            i++;
+        }
+        BibtexEntry entry = new BibtexEntry(Util.createNeutralId(), BibtexEntryType.BOOK);
+        entry.setField("note", "Marine");
+        database.insertEntry(entry);
+        assertSameMatches("marine");
+        assertSameMatches("larviculture europe");
+    }
+}
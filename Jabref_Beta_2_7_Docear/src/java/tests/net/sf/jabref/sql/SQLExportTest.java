@@ -0,0 +1,307 @@
+package tests.net.sf.jabref.sql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexEntryType;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.MetaData;
+import net.sf.jabref.groups.AbstractGroup;
+import net.sf.jabref.groups.AllEntriesGroup;
+import net.sf.jabref.groups.ExplicitGroup;
+import net.sf.jabref.groups.GroupTreeNode;
+import net.sf.jabref.sql.SQLutil;
+
+/**
+ * Checks the batched export to an SQL database against a stand-in database
+ * that records the statements it is sent.
+ */
+public class SQLExportTest extends TestCase {
+
+    /**
+     * Records the statements executed, the rows of every prepared statement
+     * and the number of batches, and answers queries from the rows given.
+     */
+    private static class FakeDatabase implements InvocationHandler {
+        boolean autoCommit = true, tablesExist = false;
+        int commits = 0, rollbacks = 0;
+        String failOn = null;
+        List<String> executed = new ArrayList<String>();
+        Map<String, List<Object[]>> rows = new HashMap<String, List<Object[]>>();
+        Map<String, Integer> batches = new HashMap<String, Integer>();
+        List<Object[]> entryRows = new ArrayList<Object[]>();
+        List<Object[]> entryTypeRows = new ArrayList<Object[]>();
+
+        Connection getConnection() {
+            return (Connection) proxy(Connection.class, this);
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("getAutoCommit"))
+                return Boolean.valueOf(autoCommit);
+            if (name.equals("setAutoCommit"))
+                autoCommit = ((Boolean) args[0]).booleanValue();
+            else if (name.equals("commit"))
+                commits++;
+            else if (name.equals("rollback"))
+                rollbacks++;
+            else if (name.equals("createStatement"))
+                return proxy(Statement.class, new FakeStatement(null));
+            else if (name.equals("prepareStatement"))
+                return proxy(PreparedStatement.class, new FakeStatement((String) args[0]));
+            return null;
+        }
+
+        int getRowCount(String sqlStart) {
+            int count = 0;
+            for (String sql : rows.keySet())
+                if (sql.startsWith(sqlStart))
+                    count += rows.get(sql).size();
+            return count;
+        }
+
+        int getBatchCount(String sqlStart) {
+            int count = 0;
+            for (String sql : batches.keySet())
+                if (sql.startsWith(sqlStart))
+                    count += batches.get(sql).intValue();
+            return count;
+        }
+
+        List<Object[]> getRows(String sqlStart) {
+            List<Object[]> result = new ArrayList<Object[]>();
+            for (String sql : rows.keySet())
+                if (sql.startsWith(sqlStart))
+                    result.addAll(rows.get(sql));
+            return result;
+        }
+
+        private class FakeStatement implements InvocationHandler {
+            final String sql;
+            Object[] row = new Object[0];
+
+            FakeStatement(String sql) {
+                this.sql = sql;
+            }
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("execute")) {
+                    executed.add((String) args[0]);
+                    return Boolean.FALSE;
+                }
+                if (name.equals("executeQuery"))
+                    return query((String) args[0]);
+                if (name.equals("setNull") || name.equals("setObject")) {
+                    int index = ((Integer) args[0]).intValue();
+                    if (row.length < index) {
+                        Object[] longer = new Object[index];
+                        System.arraycopy(row, 0, longer, 0, row.length);
+                        row = longer;
+                    }
+                    row[index - 1] = name.equals("setNull") ? null : args[1];
+                } else if (name.equals("addBatch")) {
+                    if (!rows.containsKey(sql))
+                        rows.put(sql, new ArrayList<Object[]>());
+                    rows.get(sql).add(row);
+                    row = new Object[row.length];
+                } else if (name.equals("executeBatch")) {
+                    if ((failOn != null) && sql.startsWith(failOn))
+                        throw new SQLException("Failed: " + sql);
+                    Integer count = batches.get(sql);
+                    batches.put(sql, new Integer(count == null ? 1 : count.intValue() + 1));
+                    return new int[0];
+                }
+                return null;
+            }
+        }
+
+        private ResultSet query(String sql) throws SQLException {
+            if (sql.indexOf("1=0") >= 0) {
+                if (!tablesExist)
+                    throw new SQLException("No such table");
+                return result(new ArrayList<Object[]>());
+            }
+            if (sql.indexOf("FROM entry_types") >= 0)
+                return result(entryTypeRows);
+            if (sql.indexOf("FROM entries") >= 0)
+                return result(entryRows);
+            throw new SQLException("Unexpected query: " + sql);
+        }
+
+        private ResultSet result(final List<Object[]> result) {
+            return (ResultSet) proxy(ResultSet.class, new InvocationHandler() {
+                int row = -1;
+
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    if (method.getName().equals("next"))
+                        return Boolean.valueOf(++row < result.size());
+                    if (method.getName().equals("getString")) {
+                        Object value = result.get(row)[((Integer) args[0]).intValue() - 1];
+                        return value == null ? null : value.toString();
+                    }
+                    return null;
+                }
+            });
+        }
+
+        private static Object proxy(Class<?> type, InvocationHandler handler) {
+            return Proxy.newProxyInstance(SQLExportTest.class.getClassLoader(),
+                new Class[] { type }, handler);
+        }
+    }
+
+    private static final String INSERT_ENTRY = "INSERT INTO entries ";
+
+    private BibtexDatabase database;
+    private MetaData metaData;
+    private BibtexEntry first, second;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        if (Globals.prefs == null)
+            Globals.prefs = JabRefPreferences.getInstance();
+        database = new BibtexDatabase();
+        for (int i = 0; i < 5; i++) {
+            BibtexEntry entry = new BibtexEntry("entry" + i, BibtexEntryType.ARTICLE);
+            entry.setField("bibtexkey", "Key" + i);
+            entry.setField("author", "Smith, John and Doe, Jane");
+            entry.setField("title", "Title " + i);
+            database.insertEntry(entry);
+        }
+        first = database.getEntryById("entry0");
+        second = database.getEntryById("entry1");
+
+        GroupTreeNode root = new GroupTreeNode(new AllEntriesGroup());
+        ExplicitGroup chosen = new ExplicitGroup("Chosen", AbstractGroup.INDEPENDENT);
+        chosen.addEntry(first);
+        chosen.addEntry(second);
+        root.add(new GroupTreeNode(chosen));
+        metaData = new MetaData();
+        metaData.initializeNewDatabase();
+        metaData.setGroups(root);
+    }
+
+    public void testFullExport() throws Exception {
+        FakeDatabase db = new FakeDatabase();
+        SQLutil.exportDatabase(database, metaData, null, db.getConnection(),
+            SQLutil.DBTYPE.MYSQL, true, 2);
+
+        // All in one transaction, and the connection left as it was found:
+        assertEquals(1, db.commits);
+        assertEquals(0, db.rollbacks);
+        assertTrue(db.autoCommit);
+
+        // The tables are created anew, and filled by prepared statements in
+        // batches of two rows:
+        assertTrue(db.executed.contains("DROP TABLE IF EXISTS entries;"));
+        for (String sql : db.executed)
+            assertFalse(sql, sql.startsWith("INSERT"));
+        assertEquals(5, db.getRowCount(INSERT_ENTRY));
+        assertEquals(3, db.getBatchCount(INSERT_ENTRY));
+        assertEquals(4, db.getRowCount("INSERT INTO group_types"));
+        assertEquals(2, db.getRowCount("INSERT INTO groups"));
+        assertEquals(2, db.getRowCount("INSERT INTO entry_group"));
+        assertEquals(BibtexEntryType.ALL_TYPES.size(), db.getRowCount("INSERT INTO entry_types"));
+
+        Object[] row = db.getRows(INSERT_ENTRY).get(0);
+        assertEquals(first.getId(), row[0]);
+        assertEquals("article", row[1]);
+        assertEquals(SQLutil.getContentHash(first), row[2]);
+        assertEquals("Key0", row[3]);
+    }
+
+    public void testSyncChangedEntries() throws Exception {
+        FakeDatabase db = new FakeDatabase();
+        db.tablesExist = true;
+        for (BibtexEntryType type : BibtexEntryType.ALL_TYPES.values())
+            db.entryTypeRows.add(new Object[] { type.getName().toLowerCase() });
+        // The rows of an earlier export: one entry unchanged but with another
+        // id, one entry changed since, and one entry removed since. The other
+        // entries are new:
+        db.entryRows.add(new Object[] { "1", "old", SQLutil.getContentHash(first) });
+        db.entryRows.add(new Object[] { "2", second.getId(), SQLutil.getContentHash(second) });
+        db.entryRows.add(new Object[] { "3", "removed", "0123456789abcdef0123456789abcdef" });
+        second.setField("title", "Changed");
+
+        SQLutil.exportDatabase(database, metaData, null, db.getConnection(),
+            SQLutil.DBTYPE.MYSQL, true, 100);
+
+        assertEquals(1, db.commits);
+        for (String sql : db.executed)
+            assertFalse(sql, sql.startsWith("DROP") || sql.startsWith("CREATE"));
+        assertTrue(db.executed.contains("DELETE FROM entry_group"));
+        assertEquals(0, db.getRowCount("INSERT INTO entry_types"));
+        assertEquals(0, db.getRowCount("INSERT INTO group_types"));
+
+        List<Object[]> updated = db.getRows("UPDATE entries");
+        assertEquals(1, updated.size());
+        assertEquals(first.getId(), updated.get(0)[0]);
+        assertEquals("1", updated.get(0)[1]);
+
+        List<Object[]> deleted = db.getRows("DELETE FROM entries");
+        assertEquals(2, deleted.size());
+        List<Object> deletedIds = new ArrayList<Object>();
+        for (Object[] row : deleted)
+            deletedIds.add(row[0]);
+        assertTrue(deletedIds.contains("2"));
+        assertTrue(deletedIds.contains("3"));
+
+        List<Object[]> inserted = db.getRows(INSERT_ENTRY);
+        assertEquals(4, inserted.size());
+        for (Object[] row : inserted)
+            assertFalse(first.getId().equals(row[0]));
+
+        // Strings and groups are written again:
+        assertEquals(2, db.getRowCount("INSERT INTO groups"));
+        assertEquals(2, db.getRowCount("INSERT INTO entry_group"));
+    }
+
+    public void testSyncWithoutTablesExportsAll() throws Exception {
+        FakeDatabase db = new FakeDatabase();
+        SQLutil.exportDatabase(database, metaData, null, db.getConnection(),
+            SQLutil.DBTYPE.MYSQL, true, 100);
+        assertTrue(db.executed.contains("DROP TABLE IF EXISTS entries;"));
+        assertEquals(5, db.getRowCount(INSERT_ENTRY));
+        assertEquals(1, db.getBatchCount(INSERT_ENTRY));
+    }
+
+    public void testRollback() throws Exception {
+        FakeDatabase db = new FakeDatabase();
+        db.failOn = INSERT_ENTRY;
+        try {
+            SQLutil.exportDatabase(database, metaData, null, db.getConnection(),
+                SQLutil.DBTYPE.MYSQL, false, 100);
+            fail();
+        } catch (SQLException ex) {
+            // expected
+        }
+        assertEquals(0, db.commits);
+        assertEquals(1, db.rollbacks);
+        assertTrue(db.autoCommit);
+    }
+
+    public void testContentHash() {
+        String hash = SQLutil.getContentHash(first);
+        assertEquals(32, hash.length());
+        assertEquals(hash, SQLutil.getContentHash(first));
+        assertFalse(hash.equals(SQLutil.getContentHash(second)));
+        first.setField("year", "2001");
+        assertFalse(hash.equals(SQLutil.getContentHash(first)));
+    }
+}
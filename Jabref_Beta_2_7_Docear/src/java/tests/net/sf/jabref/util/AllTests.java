@@ -11,6 +11,7 @@ public class AllTests {
 		suite.addTestSuite(CaseChangerTest.class);
 		suite.addTestSuite(XMPUtilTest.class);
 		suite.addTestSuite(XMPSchemaBibtexTest.class);
+		suite.addTestSuite(LruCacheTest.class);
 		//$JUnit-END$
 		return suite;
 	}
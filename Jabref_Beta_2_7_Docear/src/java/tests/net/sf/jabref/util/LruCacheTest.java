@@ -0,0 +1,83 @@
+package tests.net.sf.jabref.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.sf.jabref.util.LruCache;
+
+public class LruCacheTest extends TestCase {
+
+	public void testEviction() {
+		LruCache<String, Integer> cache = new LruCache<String, Integer>(3, 1);
+		cache.put("a", 1);
+		cache.put("b", 2);
+		cache.put("c", 3);
+		// "a" is now used more recently than "b":
+		assertEquals(Integer.valueOf(1), cache.get("a"));
+		cache.put("d", 4);
+		assertEquals(3, cache.size());
+		assertNull(cache.get("b"));
+		assertEquals(Integer.valueOf(1), cache.get("a"));
+		assertEquals(Integer.valueOf(3), cache.get("c"));
+		assertEquals(Integer.valueOf(4), cache.get("d"));
+
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+	public void testSmallCapacity() {
+		// More segments than values:
+		LruCache<String, Integer> cache = new LruCache<String, Integer>(2, 16);
+		for (int i = 0; i < 100; i++)
+			cache.put("k" + i, i);
+		assertTrue(cache.size() <= 2);
+		assertTrue(cache.size() > 0);
+	}
+
+	public void testHitRate() {
+		LruCache<String, Integer> cache = new LruCache<String, Integer>(100, 4);
+		assertEquals(0.0, cache.getHitRate(), 0.0);
+		cache.put("a", 1);
+		cache.get("a");
+		cache.get("a");
+		cache.get("a");
+		cache.get("b");
+		assertEquals(3, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(0.75, cache.getHitRate(), 0.0);
+	}
+
+	public void testThreads() throws InterruptedException {
+		final LruCache<Integer, Integer> cache = new LruCache<Integer, Integer>(1000, 4);
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int offset = t;
+			threads[t] = new Thread() {
+				public void run() {
+					try {
+						for (int i = 0; i < 10000; i++) {
+							Integer key = (i * 7 + offset) % 3000;
+							Integer value = cache.get(key);
+							if (value == null)
+								cache.put(key, key * 2);
+							else
+								assertEquals(key * 2, value.intValue());
+						}
+					} catch (Throwable e) {
+						synchronized (errors) {
+							errors.add(e);
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		assertTrue(errors.toString(), errors.isEmpty());
+		assertTrue(cache.size() <= 1000);
+		assertEquals(40000, cache.getHits() + cache.getMisses());
+	}
+}
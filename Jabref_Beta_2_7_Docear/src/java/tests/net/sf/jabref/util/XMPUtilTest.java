@@ -19,6 +19,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.Future;
 
 import javax.xml.transform.TransformerException;
 
@@ -32,6 +33,7 @@ import net.sf.jabref.Util;
 import net.sf.jabref.imports.BibtexParser;
 import net.sf.jabref.imports.ParserResult;
 import net.sf.jabref.util.EncryptionNotSupportedException;
+import net.sf.jabref.util.XMPBatchWriter;
 import net.sf.jabref.util.XMPSchemaBibtex;
 import net.sf.jabref.util.XMPUtil;
 
@@ -1614,6 +1616,62 @@ public class XMPUtilTest extends TestCase {
 		}
 	}
 
+	/**
+	 * Files whose XMP-metadata already describe the entry are not written
+	 * again.
+	 */
+	public void testWriteIfChanged() throws Exception {
+		BibtexEntry e = t3BibtexEntry();
+		assertTrue(XMPUtil.writeXMPIfChanged(pdfFile, e, null));
+
+		long written = pdfFile.lastModified() - 10000;
+		assertTrue(pdfFile.setLastModified(written));
+		assertFalse(XMPUtil.writeXMPIfChanged(pdfFile, t3BibtexEntry(), null));
+		assertEquals(written, pdfFile.lastModified());
+
+		e.setField("year", "1983");
+		assertTrue(XMPUtil.writeXMPIfChanged(pdfFile, e, null));
+		List<BibtexEntry> l = XMPUtil.readXMP(pdfFile);
+		assertEquals(1, l.size());
+		assertEquals("1983", l.get(0).getField("year"));
+	}
+
+	/**
+	 * Several files are written at once, and the last entry written to a file
+	 * is the one it ends up with.
+	 */
+	public void testBatchWriter() throws Exception {
+		File otherFile = File.createTempFile("JabRef", ".pdf");
+		try {
+			PDDocument pdf = new PDDocument();
+			try {
+				pdf.addPage(new PDPage());
+				pdf.save(otherFile.getAbsolutePath());
+			} finally {
+				pdf.close();
+			}
+			XMPUtil.writeXMP(otherFile, t2BibtexEntry(), null);
+			XMPBatchWriter writer = new XMPBatchWriter(null);
+			Future<Boolean> first = writer.add(pdfFile, t2BibtexEntry());
+			Future<Boolean> second = writer.add(pdfFile, t3BibtexEntry());
+			Future<Boolean> other = writer.add(otherFile, t2BibtexEntry());
+			writer.start();
+
+			assertTrue(first.get().booleanValue());
+			assertTrue(second.get().booleanValue());
+			assertFalse(other.get().booleanValue());
+
+			List<BibtexEntry> l = XMPUtil.readXMP(pdfFile);
+			assertEquals(1, l.size());
+			assertEquals(t3BibtexEntry(), l.get(0));
+			l = XMPUtil.readXMP(otherFile);
+			assertEquals(1, l.size());
+			assertEquals(t2BibtexEntry(), l.get(0));
+		} finally {
+			otherFile.delete();
+		}
+	}
+
 	/**
 	 * Read the contents of a reader as one string
 	 * 
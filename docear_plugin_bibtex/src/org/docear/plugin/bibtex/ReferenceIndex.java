@@ -0,0 +1,172 @@
+package org.docear.plugin.bibtex;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.DatabaseChangeEvent;
+import net.sf.jabref.DatabaseChangeListener;
+import net.sf.jabref.GUIGlobals;
+
+import org.docear.plugin.bibtex.jabref.JabRefAttributes;
+
+/**
+ * Finds the entries of a bibtex database by the absolute uri of their linked
+ * files, resolved against the database file's directory. Lookups by file
+ * name, url and cite key are answered by the database's own indexes.
+ *
+ * The index is built once per database and kept up to date from the
+ * database's change events, so looking up the reference of a node does not
+ * scan the whole database.
+ */
+public class ReferenceIndex implements DatabaseChangeListener {
+	private final BibtexDatabase database;
+	private final File databaseFile;
+
+	private final Map<URI, List<BibtexEntry>> uris = new HashMap<URI, List<BibtexEntry>>();
+	private final Map<BibtexEntry, List<URI>> entries = new HashMap<BibtexEntry, List<URI>>();
+
+	public ReferenceIndex(BibtexDatabase database, File databaseFile) {
+		this.database = database;
+		this.databaseFile = databaseFile;
+		synchronized (this) {
+			for (BibtexEntry entry : database.getEntries()) {
+				add(entry);
+			}
+		}
+		database.addDatabaseChangeListener(this);
+	}
+
+	public BibtexDatabase getDatabase() {
+		return database;
+	}
+
+	public boolean isIndexOf(BibtexDatabase database, File databaseFile) {
+		if (this.database != database) {
+			return false;
+		}
+		return this.databaseFile == null ? databaseFile == null : this.databaseFile.equals(databaseFile);
+	}
+
+	public void dispose() {
+		database.removeDatabaseChangeListener(this);
+	}
+
+	public synchronized void databaseChanged(DatabaseChangeEvent e) {
+		BibtexEntry entry = e.getEntry();
+		if (entry == null) {
+			return;
+		}
+		if (e.getType() == DatabaseChangeEvent.ADDED_ENTRY) {
+			add(entry);
+		}
+		else if (e.getType() == DatabaseChangeEvent.REMOVED_ENTRY) {
+			remove(entry);
+		}
+		else if (e.getType() == DatabaseChangeEvent.CHANGED_ENTRY) {
+			remove(entry);
+			add(entry);
+		}
+	}
+
+	/**
+	 * @return the entries linking a file with the given name, compared ignoring case
+	 */
+	public List<BibtexEntry> getEntriesByFileName(String fileName) {
+		return database.getEntriesByFileName(fileName);
+	}
+
+	/**
+	 * @return the entries linking the file with the given absolute uri
+	 */
+	public synchronized List<BibtexEntry> getEntriesByUri(URI uri) {
+		if (uri == null) {
+			return Collections.emptyList();
+		}
+		return copy(uris.get(uri.normalize()));
+	}
+
+	/**
+	 * @return the entries whose url field may denote the given url. Urls are
+	 *         compared without their scheme, so callers still have to compare
+	 *         the schemes if they care.
+	 */
+	public List<BibtexEntry> getEntriesByUrl(String url) {
+		return database.getEntriesByUrl(url);
+	}
+
+	public BibtexEntry getEntryByKey(String key) {
+		return database.getEntryByKey(key);
+	}
+
+	private void add(BibtexEntry entry) {
+		List<URI> values = new ArrayList<URI>();
+		String paths = entry.getField(GUIGlobals.FILE_FIELD);
+		if (paths != null && paths.trim().length() > 0) {
+			for (String path : JabRefAttributes.parsePathNames(entry, paths)) {
+				if (path.length() == 0) {
+					continue;
+				}
+				URI uri = getAbsoluteUri(new File(path));
+				if (uri != null && !values.contains(uri)) {
+					values.add(uri);
+					put(uris, uri, entry);
+				}
+			}
+		}
+		entries.put(entry, values);
+	}
+
+	private void remove(BibtexEntry entry) {
+		List<URI> values = entries.remove(entry);
+		if (values == null) {
+			return;
+		}
+		for (URI uri : values) {
+			remove(uris, uri, entry);
+		}
+	}
+
+	private URI getAbsoluteUri(File file) {
+		if (!file.isAbsolute()) {
+			if (databaseFile == null || databaseFile.getParentFile() == null) {
+				return null;
+			}
+			file = new File(databaseFile.getParentFile(), file.getPath());
+		}
+		return file.toURI().normalize();
+	}
+
+	private static <K> void put(Map<K, List<BibtexEntry>> map, K key, BibtexEntry entry) {
+		List<BibtexEntry> list = map.get(key);
+		if (list == null) {
+			list = new ArrayList<BibtexEntry>(1);
+			map.put(key, list);
+		}
+		list.add(entry);
+	}
+
+	private static <K> void remove(Map<K, List<BibtexEntry>> map, K key, BibtexEntry entry) {
+		List<BibtexEntry> list = map.get(key);
+		if (list == null) {
+			return;
+		}
+		list.remove(entry);
+		if (list.isEmpty()) {
+			map.remove(key);
+		}
+	}
+
+	private static List<BibtexEntry> copy(List<BibtexEntry> list) {
+		if (list == null) {
+			return Collections.emptyList();
+		}
+		return new ArrayList<BibtexEntry>(list);
+	}
+}
@@ -4,14 +4,15 @@ import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
 
 import net.sf.jabref.BibtexDatabase;
 import net.sf.jabref.BibtexEntry;
-import net.sf.jabref.GUIGlobals;
 import net.sf.jabref.Globals;
 import net.sf.jabref.export.DocearReferenceUpdateController;
 import net.sf.jabref.labelPattern.LabelPatternUtil;
@@ -42,6 +43,7 @@ public class ReferenceUpdater extends AMindmapUpdater {
 
 	private JabRefAttributes jabRefAttributes;
 	private BibtexDatabase database;
+	private ReferenceIndex referenceIndex;
 	private MapModificationSession session;
 	
 
@@ -86,12 +88,17 @@ public class ReferenceUpdater extends AMindmapUpdater {
     		if (database == null) {
     			return false;
     		}
-    		if (this.pdfReferences.size() == 0) {
-    			buildPdfIndex();
+    		ReferenceIndex index = ReferencesController.getController().getReferenceIndex();
+    		if (index == null) {
+    			return false;
+    		}
+    		if (index != referenceIndex) {
+    			referenceIndex = index;
+    			pdfReferences.clear();
+    			urlReferences.clear();
     		}
-    		if (this.urlReferences.size() == 0) {
-    			buildUrlIndex();
-    		}    		
+    		getIgnoreList(MapModificationSession.FILE_IGNORE_LIST);
+    		getIgnoreList(MapModificationSession.URL_IGNORE_LIST);
     		return updateMap(map);
 		}
 		finally {
@@ -114,81 +121,82 @@ public class ReferenceUpdater extends AMindmapUpdater {
 		}
 	}
 
-	private void buildPdfIndex() {
-		if (session.getSessionObject(MapModificationSession.FILE_IGNORE_LIST) == null) {
-			session.putSessionObject(MapModificationSession.FILE_IGNORE_LIST, new HashSet<String>());
+	private Set<String> getIgnoreList(String name) {
+		Set<String> ignores = (Set<String>) session.getSessionObject(name);
+		if (ignores == null) {
+			ignores = new HashSet<String>();
+			session.putSessionObject(name, ignores);
 		}
-		for (BibtexEntry entry : database.getEntries()) {
-			String paths = entry.getField(GUIGlobals.FILE_FIELD);
-			if (paths == null || paths.trim().length() == 0) {
-				continue;
-			}
-
-			for (String path : JabRefAttributes.parsePathNames(entry, paths)) {
-				if (path.isEmpty()) {
-					continue;
-				}
-				String name = new File(path).getName().toLowerCase();
-				if(((Set<String>) session.getSessionObject(MapModificationSession.FILE_IGNORE_LIST)).contains(name)) {
-					continue;
-				}
-
-				if (entry.getCiteKey() == null) {
-					LabelPatternUtil.makeLabel(Globals.prefs.getKeyPattern(), database, entry);
-				}
+		return ignores;
+	}
 
-				if (this.pdfReferences.get(name) == null) {
-					this.pdfReferences.put(name, entry);
+	/**
+	 * Returns the entry linking a file with the name of the given file. If
+	 * several entries link such a file, the user decides once per update.
+	 */
+	private BibtexEntry getEntryForFile(File file) {
+		String name = file.getName().toLowerCase();
+		if (this.pdfReferences.containsKey(name)) {
+			return this.pdfReferences.get(name);
+		}
+		BibtexEntry entry = null;
+		if (!getIgnoreList(MapModificationSession.FILE_IGNORE_LIST).contains(name)) {
+			List<BibtexEntry> entries = referenceIndex.getEntriesByFileName(name);
+			if (entries.size() == 1) {
+				entry = entries.get(0);
+			}
+			else if (entries.size() > 1) {
+				try {
+					entry = DuplicateResolver.getDuplicateResolver().resolveDuplicateLinks(file);
 				}
-				else {
-					try {
-						BibtexEntry singleEntry = DuplicateResolver.getDuplicateResolver().resolveDuplicateLinks(new File(path));
-						this.pdfReferences.put(name, singleEntry);
-					}
-					catch (ResolveDuplicateEntryAbortedException e) {
-						this.pdfReferences.remove(name);
-						((Set<String>) session.getSessionObject(MapModificationSession.FILE_IGNORE_LIST)).add(e.getFile().getName());
-						LogUtils.info("ignore pdf on mindmap update: " + e.getFile());
-					}
+				catch (ResolveDuplicateEntryAbortedException e) {
+					getIgnoreList(MapModificationSession.FILE_IGNORE_LIST).add(e.getFile().getName());
+					LogUtils.info("ignore pdf on mindmap update: " + e.getFile());
 				}
 			}
 		}
+		generateKey(entry);
+		this.pdfReferences.put(name, entry);
+		return entry;
 	}
 
-	private void buildUrlIndex() {
-		if (session.getSessionObject(MapModificationSession.URL_IGNORE_LIST) == null) {
-			session.putSessionObject(MapModificationSession.URL_IGNORE_LIST, new HashSet<String>());
+	private BibtexEntry getEntryForUrl(String url) {
+		if (this.urlReferences.containsKey(url)) {
+			return this.urlReferences.get(url);
 		}
-		for (BibtexEntry entry : database.getEntries()) {
-			String url = entry.getField("url");
-			if (url == null || url.trim().length() == 0 || ((Set<String>) session.getSessionObject(MapModificationSession.URL_IGNORE_LIST)).contains(url)) {
-				continue;
-			}
-
-			if (entry.getCiteKey() == null) {
-				LabelPatternUtil.makeLabel(Globals.prefs.getKeyPattern(), database, entry);
+		BibtexEntry entry = null;
+		if (!getIgnoreList(MapModificationSession.URL_IGNORE_LIST).contains(url)) {
+			List<BibtexEntry> entries = new ArrayList<BibtexEntry>();
+			for (BibtexEntry candidate : referenceIndex.getEntriesByUrl(url)) {
+				if (url.equals(candidate.getField("url"))) {
+					entries.add(candidate);
+				}
 			}
-
-			
-			if (this.urlReferences.get(url) == null) {			
-				this.urlReferences.put(url, entry);
+			if (entries.size() == 1) {
+				entry = entries.get(0);
 			}
-			else {
+			else if (entries.size() > 1) {
 				try {
-					BibtexEntry singleEntry = DuplicateResolver.getDuplicateResolver().resolveDuplicateLinks(new URL(url));
-					this.urlReferences.put(url, singleEntry);
+					entry = DuplicateResolver.getDuplicateResolver().resolveDuplicateLinks(new URL(url));
 				}
 				catch (MalformedURLException e) {
 					LogUtils.warn(e);
 				}
 				catch (ResolveDuplicateEntryAbortedException e) {
-					this.urlReferences.remove(url);
-					((Set<String>) session.getSessionObject(MapModificationSession.URL_IGNORE_LIST)).add(e.getUrl().toExternalForm());
+					getIgnoreList(MapModificationSession.URL_IGNORE_LIST).add(e.getUrl().toExternalForm());
 					LogUtils.info("ignore url on mindmap update: " + e.getUrl());
 				}
-
 			}
 		}
+		generateKey(entry);
+		this.urlReferences.put(url, entry);
+		return entry;
+	}
+
+	private void generateKey(BibtexEntry entry) {
+		if (entry != null && entry.getCiteKey() == null) {
+			LabelPatternUtil.makeLabel(Globals.prefs.getKeyPattern(), database, entry);
+		}
 	}
 	
 	private boolean isIgnored(Reference reference, NodeModel node) {
@@ -316,15 +324,14 @@ public class ReferenceUpdater extends AMindmapUpdater {
 
 				file = UrlManager.getController().getAbsoluteFile(node.getMap(), uri);
 				if (file != null) {
-					String fileName = file.getName().toLowerCase();
-					BibtexEntry entry = this.pdfReferences.get(fileName);
+					BibtexEntry entry = getEntryForFile(file);
 					if (entry != null) {
 						addReferenceToIndex(node, entry);
 					}
 					return;
 				}
 				
-				BibtexEntry entry = this.urlReferences.get(uri.toURL().toExternalForm());
+				BibtexEntry entry = getEntryForUrl(uri.toURL().toExternalForm());
 				if (entry != null) {
 					addReferenceToIndex(node, entry);
 					return;
@@ -332,7 +339,7 @@ public class ReferenceUpdater extends AMindmapUpdater {
 			}
 
 			if (key != null) {
-				BibtexEntry bibtexEntry = database.getEntryByKey(key);
+				BibtexEntry bibtexEntry = referenceIndex.getEntryByKey(key);
 				addReferenceToIndex(node, bibtexEntry);
 				return;
 			}
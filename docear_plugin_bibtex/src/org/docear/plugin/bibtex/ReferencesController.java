@@ -26,6 +26,7 @@ import javax.swing.event.PopupMenuEvent;
 import javax.swing.event.PopupMenuListener;
 import javax.swing.event.TreeModelEvent;
 
+import net.sf.jabref.BasePanel;
 import net.sf.jabref.BibtexEntry;
 import net.sf.jabref.GUIGlobals;
 import net.sf.jabref.JabRefPreferences;
@@ -134,6 +135,7 @@ public class ReferencesController extends ALanguageController implements IDocear
 	
 	private JabRefAttributes jabRefAttributes;
 	private SplmmAttributes splmmAttributes;
+	private ReferenceIndex referenceIndex;
 	
 	private final NodeAttributeListener attributeListener = new NodeAttributeListener();
 	private final SplmmMapsConvertListener splmmMapsConvertedListener = new SplmmMapsConvertListener();
@@ -190,6 +192,8 @@ public class ReferencesController extends ALanguageController implements IDocear
 		JabRefPreferences.getInstance(JabrefWrapper.class).put("groupAutoShow", "false");
 		JabRefPreferences.getInstance(JabrefWrapper.class).put("searchPanelVisible", "false");
 		JabRefPreferences.getInstance(JabrefWrapper.class).setLabelPatternSavePackage(ILabelPattern.class);
+		JabRefPreferences.getInstance(JabrefWrapper.class).put("userDirectory",
+				new File(ResourceController.getResourceController().getFreeplaneUserDirectory(), "jabref").getPath());
 	}
 	
 	private void adjustDefaultAttributesIcon(NodeModel node) {
@@ -620,6 +624,24 @@ public class ReferencesController extends ALanguageController implements IDocear
 		return jabRefAttributes;
 	}
 	
+	/**
+	 * @return the reference index of the database shown in JabRef, or
+	 *         <code>null</code> if there is none
+	 */
+	public synchronized ReferenceIndex getReferenceIndex() {
+		BasePanel basePanel = jabrefWrapper == null ? null : jabrefWrapper.getBasePanel();
+		if (basePanel == null || basePanel.getDatabase() == null) {
+			return null;
+		}
+		if (referenceIndex == null || !referenceIndex.isIndexOf(basePanel.getDatabase(), basePanel.getFile())) {
+			if (referenceIndex != null) {
+				referenceIndex.dispose();
+			}
+			referenceIndex = new ReferenceIndex(basePanel.getDatabase(), basePanel.getFile());
+		}
+		return referenceIndex;
+	}
+	
 	public SplmmAttributes getSplmmAttributes() {
 		return splmmAttributes;
 	}
@@ -25,6 +25,7 @@ import org.apache.commons.io.FilenameUtils;
 import org.docear.plugin.bibtex.JabRefProjectExtension;
 import org.docear.plugin.bibtex.Reference;
 import org.docear.plugin.bibtex.Reference.Item;
+import org.docear.plugin.bibtex.ReferenceIndex;
 import org.docear.plugin.bibtex.ReferencesController;
 import org.docear.plugin.core.features.DocearMapModelExtension;
 import org.docear.plugin.core.features.MapModificationSession;
@@ -409,8 +410,8 @@ public class JabRefAttributes {
 			}
 		}
 		
-		BibtexDatabase database = ReferencesController.getController().getJabrefWrapper().getDatabase();
-		if (database == null || nodeUri == null) {
+		ReferenceIndex index = ReferencesController.getController().getReferenceIndex();
+		if (index == null || nodeUri == null) {
 			return null;
 		}
 
@@ -445,7 +446,7 @@ public class JabRefAttributes {
 				DuplicateResolver.getDuplicateResolver().resolveDuplicateLinks(nodeUrl);
 			}
 
-			for (BibtexEntry entry : database.getEntries()) {
+			for (BibtexEntry entry : index.getEntriesByUrl(nodeUri.toString())) {
 				String entryUrlField = entry.getField("url");
 				if (entryUrlField != null && !entryUrlField.isEmpty()) {
 					URI entryUri = null;
@@ -510,8 +511,8 @@ public class JabRefAttributes {
 			ReferencesController.getController().getJabrefWrapper().getJabrefFrame().showBasePanel(prjExt.getBaseHandle().getBasePanel());
 		}
 		
-		BibtexDatabase database = ReferencesController.getController().getJabrefWrapper().getDatabase();
-		if (database == null) {
+		ReferenceIndex index = ReferencesController.getController().getReferenceIndex();
+		if (index == null) {
 			return null;
 		}
 		// file name linked in a node
@@ -545,7 +546,11 @@ public class JabRefAttributes {
 				DuplicateResolver.getDuplicateResolver().resolveDuplicateLinks(nodeFile);
 			}
 
-			for (BibtexEntry entry : database.getEntries()) {
+			List<BibtexEntry> entries = index.getEntriesByUri(nodeFile.toURI());
+			if (entries.isEmpty()) {
+				entries = index.getEntriesByFileName(nodeFileName);
+			}
+			for (BibtexEntry entry : entries) {
 				String jabrefFiles = entry.getField(GUIGlobals.FILE_FIELD);
 				if (jabrefFiles != null) {
 					// path linked in jabref
@@ -566,7 +571,7 @@ public class JabRefAttributes {
 			throw e;
 		}
 
-		BibtexEntry entry = database.getEntryByKey(baseName);
+		BibtexEntry entry = index.getEntryByKey(baseName);
 		return entry;
 	}
 
@@ -11,6 +11,8 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -224,7 +226,16 @@ public abstract class JabRefCommons {
 			if (fileName != null && fileName.toLowerCase().endsWith(".pdf")) {
 				BibtexEntry existingEntry = null;
 				URI fileUri = new File(fileName).toURI();
-				for (BibtexEntry entry : database.getEntries()) {
+				// only entries with this url or a file of the same name can match
+				Collection<BibtexEntry> candidates = new LinkedHashSet<BibtexEntry>();
+				try {
+					candidates.addAll(database.getEntriesByUrl(fileUri.toURL().toString()));
+				}
+				catch (MalformedURLException e) {
+					LogUtils.info(fileName + ": " + e.getMessage());
+				}
+				candidates.addAll(database.getEntriesByFileName(fileName));
+				for (BibtexEntry entry : candidates) {
 					URL entryUrl = null;
 					String urlString = entry.getField("url");
 					try {
@@ -627,7 +638,7 @@ public abstract class JabRefCommons {
 		JabrefWrapper wrapper = ReferencesController.getController().getJabrefWrapper();
 		BibtexEntry oldEntry = null;
 		if(file != null) {
-			for(BibtexEntry entry : wrapper.getDatabase().getEntries()) {
+			for(BibtexEntry entry : wrapper.getDatabase().getEntriesByFileName(file.getName())) {
 				Reference ref = new Reference(wrapper.getBasePanel(), entry);
 				if(ref.containsFile(file)) {
 					oldEntry = entry;
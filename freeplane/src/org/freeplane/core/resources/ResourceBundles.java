@@ -138,11 +138,18 @@ public class ResourceBundles extends ResourceBundle {
 
 	@SuppressWarnings({ "unchecked", "rawtypes" })
     private Map<String, String> getLanguageResources(final URL systemResource) throws IOException {
+		final StartupCache startupCache = controller.getStartupCache();
+		final String cacheKey = "translations " + systemResource;
+		final HashMap cachedResources = (HashMap) startupCache.get(cacheKey, systemResource);
+		if (cachedResources != null) {
+			return new HashMap(cachedResources);
+		}
 		InputStream in = null;
 		try {
 			in = new BufferedInputStream(systemResource.openStream());
 			final Properties bundle = new Properties();
 			bundle.load(in);
+			startupCache.put(cacheKey, systemResource, new HashMap(bundle));
 			return new HashMap(bundle);
         }
         finally {
@@ -54,6 +54,7 @@ public abstract class ResourceController {
 
 	final private List<IFreeplanePropertyListener> propertyChangeListeners = new Vector<IFreeplanePropertyListener>();
 	private ResourceBundles resources;
+	private StartupCache startupCache;
     public static final String FREEPLANE_RESOURCE_URL_PROTOCOL = "freeplaneresource";
 	public static final String OBJECT_TYPE = "ObjectType";
 	public ResourceController() {
@@ -185,6 +186,18 @@ public abstract class ResourceController {
 		return getClass().getResource(name);
 	}
 
+	/** Returns the cache for data read on every start */
+	public synchronized StartupCache getStartupCache() {
+		if (startupCache == null) {
+			startupCache = createStartupCache();
+		}
+		return startupCache;
+	}
+
+	protected StartupCache createStartupCache() {
+		return StartupCache.DISABLED;
+	}
+
 	public String getResourceBaseDir() {
 		return "";
 	}
@@ -0,0 +1,278 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2008 Dimitry Polivaev
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.core.resources;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.net.URL;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.freeplane.core.util.Compat;
+import org.freeplane.core.util.FileUtils;
+import org.freeplane.core.util.LogUtils;
+
+/**
+ * Keeps results of startup work which does not change between two runs of the same installation:
+ * merged translations, parsed menu structures and resolved resource urls.
+ *
+ * The cache file is valid for one application version, plugin set and locale. Each entry
+ * additionally remembers modification time and length of its source, so that edited resources are
+ * loaded again. Changed entries are written by {@link #saveLater()} in a background thread.
+ */
+public class StartupCache {
+	private static final String RESOURCE_URLS = "resource urls";
+	public static final StartupCache DISABLED = new StartupCache(null, null, null);
+
+	private static class Entry implements Serializable {
+		private static final long serialVersionUID = 1L;
+		final String stamp;
+		final Serializable value;
+
+		Entry(final String stamp, final Serializable value) {
+			this.stamp = stamp;
+			this.value = value;
+		}
+	}
+
+	private final File file;
+	private final String key;
+	private final URL userResources;
+	private String pluginKey = "";
+	private Map<String, Entry> entries;
+	private HashMap<String, String> resourceUrls;
+	private String resourceUrlsStamp;
+	private boolean modified;
+
+	/**
+	 * @param userResources directory whose changes invalidate the resolved resource urls
+	 */
+	public StartupCache(final File file, final String key, final URL userResources) {
+		this.file = file;
+		this.key = key;
+		this.userResources = userResources;
+	}
+
+	public boolean isEnabled() {
+		return file != null;
+	}
+
+	/**
+	 * Plugins contribute menus and resources, so the cache read for another plugin set is dropped.
+	 */
+	public synchronized void setPlugins(final Collection<String> plugins) {
+		final String newPluginKey = new TreeSet<String>(plugins).toString();
+		if (newPluginKey.equals(pluginKey)) {
+			return;
+		}
+		pluginKey = newPluginKey;
+		entries = null;
+		resourceUrls = null;
+	}
+
+	/**
+	 * @return the value stored for <code>name</code> or null if it is missing or its source has changed since
+	 */
+	public synchronized Serializable get(final String name, final URL source) {
+		if (!isEnabled()) {
+			return null;
+		}
+		final Entry entry = getEntries().get(name);
+		if (entry == null || !entry.stamp.equals(stamp(source))) {
+			return null;
+		}
+		return entry.value;
+	}
+
+	public synchronized void put(final String name, final URL source, final Serializable value) {
+		if (!isEnabled()) {
+			return;
+		}
+		final String stamp = stamp(source);
+		if (stamp == null) {
+			return;
+		}
+		getEntries().put(name, new Entry(stamp, value));
+		modified = true;
+	}
+
+	/**
+	 * Resolves resource names like {@link ResourceController#getResource(String)} does,
+	 * but remembers the results.
+	 */
+	public URL getResource(final String name) {
+		final ResourceController resourceController = ResourceController.getResourceController();
+		if (!isEnabled()) {
+			return resourceController.getResource(name);
+		}
+		synchronized (this) {
+			final String url = getResourceUrls().get(name);
+			if (url != null) {
+				try {
+					return new URL(url);
+				}
+				catch (final IOException e) {
+					resourceUrls.remove(name);
+				}
+			}
+		}
+		final URL resource = resourceController.getResource(name);
+		if (resource != null) {
+			synchronized (this) {
+				getResourceUrls().put(name, resource.toExternalForm());
+				modified = true;
+			}
+		}
+		return resource;
+	}
+
+	@SuppressWarnings("unchecked")
+	private HashMap<String, String> getResourceUrls() {
+		if (resourceUrls == null) {
+			resourceUrlsStamp = stamp(userResources);
+			final Entry entry = getEntries().get(RESOURCE_URLS);
+			if (entry != null && entry.stamp.equals(resourceUrlsStamp)) {
+				resourceUrls = (HashMap<String, String>) entry.value;
+			}
+			else {
+				resourceUrls = new HashMap<String, String>();
+			}
+		}
+		return resourceUrls;
+	}
+
+	/**
+	 * Writes changed entries in a background thread.
+	 */
+	public void saveLater() {
+		final Map<String, Entry> snapshot;
+		final String fileKey;
+		synchronized (this) {
+			if (!isEnabled() || !modified) {
+				return;
+			}
+			snapshot = new HashMap<String, Entry>(getEntries());
+			if (resourceUrls != null && resourceUrlsStamp != null) {
+				snapshot.put(RESOURCE_URLS, new Entry(resourceUrlsStamp, new HashMap<String, String>(resourceUrls)));
+			}
+			fileKey = getFileKey();
+			modified = false;
+		}
+		final Thread writer = new Thread(new Runnable() {
+			public void run() {
+				save(fileKey, snapshot);
+			}
+		}, "startup cache writer");
+		writer.setDaemon(true);
+		writer.setPriority(Thread.MIN_PRIORITY);
+		writer.start();
+	}
+
+	private String getFileKey() {
+		return key + pluginKey;
+	}
+
+	private Map<String, Entry> getEntries() {
+		if (entries == null) {
+			entries = load();
+		}
+		return entries;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Entry> load() {
+		if (!file.exists()) {
+			return new HashMap<String, Entry>();
+		}
+		ObjectInputStream in = null;
+		try {
+			in = new ObjectInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(file))));
+			if (getFileKey().equals(in.readObject())) {
+				return (Map<String, Entry>) in.readObject();
+			}
+			LogUtils.info("startup cache " + file + " is outdated");
+		}
+		catch (final Exception e) {
+			LogUtils.warn("can not read startup cache " + file + ": " + e.getMessage());
+		}
+		finally {
+			FileUtils.silentlyClose(in);
+		}
+		return new HashMap<String, Entry>();
+	}
+
+	private void save(final String fileKey, final Map<String, Entry> snapshot) {
+		final File tempFile = new File(file.getPath() + ".tmp");
+		ObjectOutputStream out = null;
+		try {
+			out = new ObjectOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile))));
+			out.writeObject(fileKey);
+			out.writeObject(snapshot);
+			out.close();
+			out = null;
+			if (!(tempFile.renameTo(file) || file.delete() && tempFile.renameTo(file))) {
+				LogUtils.warn("can not replace startup cache " + file);
+			}
+		}
+		catch (final IOException e) {
+			LogUtils.warn("can not write startup cache " + file + ": " + e.getMessage());
+		}
+		finally {
+			FileUtils.silentlyClose(out);
+			tempFile.delete();
+		}
+	}
+
+	/**
+	 * Stamps a source without opening it: files by their own modification time and length,
+	 * jar entries by those of the jar file. Resources of installed bundles only change
+	 * together with the installation, which is part of the cache key, so they get a fixed stamp.
+	 */
+	private static String stamp(final URL source) {
+		if (source == null) {
+			return "";
+		}
+		try {
+			URL fileUrl = source;
+			if ("jar".equalsIgnoreCase(source.getProtocol())) {
+				final String path = source.getPath();
+				final int separator = path.indexOf("!/");
+				fileUrl = new URL(separator >= 0 ? path.substring(0, separator) : path);
+			}
+			if ("file".equalsIgnoreCase(fileUrl.getProtocol())) {
+				final File sourceFile = Compat.urlToFile(fileUrl);
+				return sourceFile.lastModified() + "/" + sourceFile.length();
+			}
+			return "installed";
+		}
+		catch (final Exception e) {
+			return null;
+		}
+	}
+}
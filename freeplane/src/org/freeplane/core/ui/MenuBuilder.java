@@ -37,6 +37,7 @@ import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
@@ -67,6 +68,7 @@ import org.freeplane.core.io.ReadManager;
 import org.freeplane.core.io.xml.TreeXmlReader;
 import org.freeplane.core.resources.ResourceController;
 import org.freeplane.core.resources.SetBooleanPropertyAction;
+import org.freeplane.core.resources.StartupCache;
 import org.freeplane.core.ui.components.JAutoCheckBoxMenuItem;
 import org.freeplane.core.ui.components.JAutoRadioButtonMenuItem;
 import org.freeplane.core.ui.components.JAutoToggleButton;
@@ -79,7 +81,10 @@ import org.freeplane.core.util.TextUtils;
 import org.freeplane.features.map.MapModel;
 import org.freeplane.features.mode.Controller;
 import org.freeplane.features.mode.ModeController;
+import org.freeplane.n3.nanoxml.IXMLParser;
+import org.freeplane.n3.nanoxml.StdXMLReader;
 import org.freeplane.n3.nanoxml.XMLElement;
+import org.freeplane.n3.nanoxml.XMLParserFactory;
 import org.pushingpixels.flamingo.api.common.AsynchronousLoadListener;
 import org.pushingpixels.flamingo.api.common.icon.ImageWrapperResizableIcon;
 
@@ -351,7 +356,7 @@ public class MenuBuilder extends UIBuilder implements IKeyStrokeProcessor {
 						final String iconResource = ResourceController.getResourceController().getProperty(nameRef + ".icon", null);
 						MenuBuilder.setLabelAndMnemonic(menuItem, TextUtils.getRawText(nameRef));
 						if(iconResource != null){
-							final URL url = ResourceController.getResourceController().getResource(iconResource);
+							final URL url = ResourceController.getResourceController().getStartupCache().getResource(iconResource);
 							menuItem.setIcon(new ImageIcon(url));
 						}
 						addMenuItem(menuPath.parentKey, menuItem, menuPath.key, MenuBuilder.AS_CHILD);
@@ -393,6 +398,21 @@ public class MenuBuilder extends UIBuilder implements IKeyStrokeProcessor {
 		}
 
 		public void processMenu(final URL menu) {
+			final StartupCache startupCache = ResourceController.getResourceController().getStartupCache();
+			if (!startupCache.isEnabled()) {
+				loadMenu(menu);
+				return;
+			}
+			final String cacheKey = "menu " + menu;
+			XMLElement menuStructure = (XMLElement) startupCache.get(cacheKey, menu);
+			if (menuStructure == null) {
+				menuStructure = parseMenu(menu);
+				startupCache.put(cacheKey, menu, menuStructure);
+			}
+			buildMenu(null, menuStructure);
+		}
+
+		private void loadMenu(final URL menu) {
 			InputStreamReader streamReader = null;
 			try {
 				streamReader = new InputStreamReader(new BufferedInputStream(menu.openStream()));
@@ -406,6 +426,47 @@ public class MenuBuilder extends UIBuilder implements IKeyStrokeProcessor {
 	        	FileUtils.silentlyClose(streamReader);
 	        }
 		}
+
+		private XMLElement parseMenu(final URL menu) {
+			InputStreamReader streamReader = null;
+			try {
+				streamReader = new InputStreamReader(new BufferedInputStream(menu.openStream()));
+				final IXMLParser parser = XMLParserFactory.createDefaultXMLParser();
+				parser.setReader(new StdXMLReader(streamReader));
+				return (XMLElement) parser.parse();
+			}
+			catch (final Exception e) {
+				throw new RuntimeException(e);
+			}
+	        finally {
+	        	FileUtils.silentlyClose(streamReader);
+	        }
+		}
+
+		/** calls the element handlers for a parsed menu structure the same way as TreeXmlReader does */
+		private void buildMenu(final Object parent, final XMLElement element) {
+			final String tag = element.getName();
+			if (tag == null) {
+				return;
+			}
+			final List<IElementHandler> handlers = readManager.getElementHandlers().list(tag);
+			if (handlers == null) {
+				return;
+			}
+			Object menuPath = null;
+			if (handlers.size() == 1) {
+				menuPath = handlers.get(0).createElement(parent, tag, null);
+			}
+			for (int i = 0; menuPath == null && i < handlers.size(); i++) {
+				menuPath = handlers.get(i).createElement(parent, tag, element);
+			}
+			if (menuPath == null) {
+				return;
+			}
+			for (final XMLElement child : element.getChildren()) {
+				buildMenu(menuPath, child);
+			}
+		}
 	}
 
 	private static Insets nullInsets = new Insets(0, 0, 0, 0);
@@ -19,6 +19,8 @@
  */
 package org.freeplane.core.undo;
 
+import java.io.IOException;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.ListIterator;
 
@@ -29,7 +31,7 @@ import java.util.ListIterator;
  * 
  * @author Robert Ladstaetter
  */
-public class CompoundActor implements IActor {
+public class CompoundActor implements IMeasurableActor, ISpillableActor {
 	final private LinkedList<IActor> actors;
 
 	public CompoundActor() {
@@ -72,6 +74,32 @@ public class CompoundActor implements IActor {
 		}
 	}
 
+	public long estimateSize() {
+		long size = UndoHandler.ACTOR_SIZE;
+		for (final IActor a : actors) {
+			size += UndoHandler.estimateSize(a);
+		}
+		return size;
+	}
+
+	public long spill(final UndoSpillFile file, final long minSize) throws IOException {
+		long released = 0;
+		for (final IActor a : actors) {
+			if (a instanceof ISpillableActor) {
+				released += ((ISpillableActor) a).spill(file, minSize);
+			}
+		}
+		return released;
+	}
+
+	public void collectSpilledEntries(final Collection<UndoSpillFile.Entry> entries) {
+		for (final IActor a : actors) {
+			if (a instanceof ISpillableActor) {
+				((ISpillableActor) a).collectSpilledEntries(entries);
+			}
+		}
+	}
+
 	public boolean isEmpty() {
 		return actors.size() == 0;
 	}
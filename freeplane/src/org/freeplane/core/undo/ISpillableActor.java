@@ -0,0 +1,37 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2008 Dimitry Polivaev
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.core.undo;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Actor which can move its undo data out of memory.
+ */
+public interface ISpillableActor extends IActor {
+	/**
+	 * Moves payloads of at least minSize bytes into the spill file.
+	 * @return number of bytes released from memory
+	 */
+	long spill(UndoSpillFile file, long minSize) throws IOException;
+
+	/**
+	 * Adds the entries of the spill file this actor still reads its payloads from.
+	 */
+	void collectSpilledEntries(Collection<UndoSpillFile.Entry> entries);
+}
@@ -66,4 +66,11 @@ public interface IUndoHandler extends IExtension {
 	
 	public int getTransactionLevel();
 
+	public UndoMemoryInfo getMemoryInfo();
+
+	/**
+	 * Releases temporary resources when the history is no longer needed.
+	 */
+	public void dispose();
+
 }
@@ -22,13 +22,19 @@ package org.freeplane.core.undo;
 import java.awt.EventQueue;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
 
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
+import org.freeplane.core.resources.ResourceController;
 import org.freeplane.core.util.LogUtils;
 import org.freeplane.features.mode.Controller;
 import org.freeplane.features.ui.ViewController;
@@ -60,6 +66,10 @@ public class UndoHandler implements IUndoHandler {
 	 */
 	private static final int MAX_ENTRIES = 100;
 	private static final long TIME_TO_BEGIN_NEW_ACTION = 100;
+	/** size assumed for actors not implementing IMeasurableActor */
+	static final long ACTOR_SIZE = 64;
+	private static final String MEMORY_LIMIT_PROPERTY = "undo_memory_limit";
+	private static final String SPILL_THRESHOLD_PROPERTY = "undo_spill_threshold";
 	private boolean actionFrameStarted;
 	private ListIterator<IActor> actorIterator;
 	private ActorList actorList;
@@ -71,8 +81,25 @@ public class UndoHandler implements IUndoHandler {
 	final private ActionListener undoAction;
 	private boolean deactivated;
 	private final ChangeEvent event;
+	private final long memoryLimit;
+	private final long spillThreshold;
+	private Map<IActor, Long> actorSizes;
+	private UndoSpillFile spillFile;
+	private int mergedEntries;
+	private int droppedEntries;
 
 	public UndoHandler() {
+		this(getSizeProperty(MEMORY_LIMIT_PROPERTY, 64) * 1024 * 1024, getSizeProperty(SPILL_THRESHOLD_PROPERTY, 256) * 1024);
+	}
+
+	/**
+	 * @param memoryLimit bytes the history may keep in memory, 0 for no limit
+	 * @param spillThreshold minimal size of undo data moved to a temporary file, 0 to keep everything in memory
+	 */
+	public UndoHandler(final long memoryLimit, final long spillThreshold) {
+		this.memoryLimit = memoryLimit;
+		this.spillThreshold = spillThreshold;
+		actorSizes = new IdentityHashMap<IActor, Long>();
 		actionFrameStarted = false;
 		deactivated = false;
 		listeners = new LinkedList<ChangeListener>();
@@ -137,11 +164,158 @@ public class UndoHandler implements IUndoHandler {
 				actorIterator = actorList.listIterator(actorList.size());
 			}
 		}
+		if (transactionList.isEmpty()) {
+			limitMemory();
+			releaseSpilledEntries();
+		}
 		startActionFrame();
 		timeOfLastAdd = currentTime;
 		fireStateChanged();
 	}
 
+	private static long getSizeProperty(final String key, final int defaultValue) {
+		final ResourceController resourceController = ResourceController.getResourceController();
+		if (resourceController == null) {
+			return defaultValue;
+		}
+		return Math.max(0, resourceController.getLongProperty(key, defaultValue));
+	}
+
+	static long estimateSize(final IActor actor) {
+		if (actor instanceof IMeasurableActor) {
+			return ((IMeasurableActor) actor).estimateSize();
+		}
+		return ACTOR_SIZE;
+	}
+
+	/**
+	 * Estimates memory of the given steps. Sizes of all steps but the last are cached,
+	 * because only the last one can still grow.
+	 */
+	private long estimateMemory(final List<IActor> actors) {
+		final Map<IActor, Long> sizes = new IdentityHashMap<IActor, Long>();
+		long sum = 0;
+		final IActor last = actors.isEmpty() ? null : actors.get(actors.size() - 1);
+		for (final IActor actor : actors) {
+			if (actor == last) {
+				sum += estimateSize(actor);
+				continue;
+			}
+			Long size = actorSizes.get(actor);
+			if (size == null) {
+				size = Long.valueOf(estimateSize(actor));
+			}
+			sizes.put(actor, size);
+			sum += size.longValue();
+		}
+		actorSizes = sizes;
+		return sum;
+	}
+
+	/**
+	 * Keeps the history within the memory limit. The most recent step is never touched.
+	 * First consecutive mergeable steps are merged, then large payloads are moved to
+	 * the spill file, and finally the oldest steps are dropped.
+	 */
+	private void limitMemory() {
+		if (memoryLimit <= 0 || estimateMemory(actorList) <= memoryLimit) {
+			return;
+		}
+		mergeActors();
+		if (estimateMemory(actorList) > memoryLimit) {
+			spillActors();
+		}
+		while (actorList.size() > 1 && estimateMemory(actorList) > memoryLimit) {
+			actorList.removeFirst();
+			droppedEntries++;
+		}
+		actorIterator = actorList.listIterator(actorList.size());
+	}
+
+	private void mergeActors() {
+		final ListIterator<IActor> iterator = actorList.listIterator();
+		IActor previous = null;
+		while (iterator.nextIndex() < actorList.size() - 1) {
+			final IActor actor = iterator.next();
+			if (previous instanceof IMergeableActor) {
+				final IActor merged = ((IMergeableActor) previous).merge(actor);
+				if (merged != null) {
+					iterator.remove();
+					iterator.previous();
+					iterator.set(merged);
+					iterator.next();
+					actorSizes.remove(previous);
+					previous = merged;
+					mergedEntries++;
+					continue;
+				}
+			}
+			previous = actor;
+		}
+	}
+
+	private void spillActors() {
+		if (spillThreshold <= 0) {
+			return;
+		}
+		if (spillFile == null) {
+			spillFile = new UndoSpillFile();
+		}
+		final ListIterator<IActor> iterator = actorList.listIterator();
+		while (iterator.nextIndex() < actorList.size() - 1) {
+			final IActor actor = iterator.next();
+			if (!(actor instanceof ISpillableActor)) {
+				continue;
+			}
+			try {
+				if (((ISpillableActor) actor).spill(spillFile, spillThreshold) > 0) {
+					actorSizes.remove(actor);
+				}
+			}
+			catch (final IOException e) {
+				LogUtils.warn("can not write undo data to temporary file", e);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Releases the spilled payloads of steps which have left the history, being dropped,
+	 * merged or replaced by a new step.
+	 */
+	private void releaseSpilledEntries() {
+		if (spillFile == null || spillFile.isEmpty()) {
+			return;
+		}
+		final Set<UndoSpillFile.Entry> usedEntries = new HashSet<UndoSpillFile.Entry>();
+		for (final IActor actor : actorList) {
+			if (actor instanceof ISpillableActor) {
+				((ISpillableActor) actor).collectSpilledEntries(usedEntries);
+			}
+		}
+		try {
+			spillFile.retain(usedEntries);
+		}
+		catch (final IOException e) {
+			LogUtils.warn("can not compact temporary file of undo data", e);
+		}
+	}
+
+	public UndoMemoryInfo getMemoryInfo() {
+		final ActorList history = transactionList.isEmpty() ? actorList : transactionList.getFirst();
+		final long spilledBytes = spillFile != null ? spillFile.getSpilledBytes() : 0;
+		final long spillFileSize = spillFile != null ? spillFile.getFileSize() : 0;
+		return new UndoMemoryInfo(history.size(), estimateMemory(history), memoryLimit, spilledBytes, spillFileSize,
+		    mergedEntries, droppedEntries);
+	}
+
+	public void dispose() {
+		if (spillFile != null) {
+			spillFile.delete();
+			spillFile = null;
+		}
+	}
+
 	private void fireStateChanged() {
 		for (final ChangeListener listener : listeners) {
 			listener.stateChanged(event);
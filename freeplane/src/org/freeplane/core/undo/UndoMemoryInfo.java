@@ -0,0 +1,81 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2008 Dimitry Polivaev
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.core.undo;
+
+/**
+ * Snapshot of the memory used by an undo history.
+ */
+public class UndoMemoryInfo {
+	private final int entryCount;
+	private final long usedBytes;
+	private final long limitBytes;
+	private final long spilledBytes;
+	private final long spillFileSize;
+	private final int mergedEntries;
+	private final int droppedEntries;
+
+	public UndoMemoryInfo(final int entryCount, final long usedBytes, final long limitBytes, final long spilledBytes,
+	                      final long spillFileSize, final int mergedEntries, final int droppedEntries) {
+		this.entryCount = entryCount;
+		this.usedBytes = usedBytes;
+		this.limitBytes = limitBytes;
+		this.spilledBytes = spilledBytes;
+		this.spillFileSize = spillFileSize;
+		this.mergedEntries = mergedEntries;
+		this.droppedEntries = droppedEntries;
+	}
+
+	public int getEntryCount() {
+		return entryCount;
+	}
+
+	/** estimated bytes kept in memory by all undo and redo steps */
+	public long getUsedBytes() {
+		return usedBytes;
+	}
+
+	/** configured limit, 0 if the history is not limited */
+	public long getLimitBytes() {
+		return limitBytes;
+	}
+
+	public long getSpilledBytes() {
+		return spilledBytes;
+	}
+
+	public long getSpillFileSize() {
+		return spillFileSize;
+	}
+
+	/** number of steps merged into their predecessor to save memory */
+	public int getMergedEntries() {
+		return mergedEntries;
+	}
+
+	/** number of oldest steps removed to stay within the limit */
+	public int getDroppedEntries() {
+		return droppedEntries;
+	}
+
+	@Override
+	public String toString() {
+		return "UndoMemoryInfo [entries=" + entryCount + ", used=" + usedBytes + ", limit=" + limitBytes
+		        + ", spilled=" + spilledBytes + ", spillFile=" + spillFileSize + ", merged=" + mergedEntries
+		        + ", dropped=" + droppedEntries + "]";
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2008 Dimitry Polivaev
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.core.undo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Temporary file keeping compressed undo payloads which are too large to stay in memory.
+ *
+ * Entries are appended. Entries no longer used by the undo history are released by
+ * {@link #retain(Collection)}, which copies the remaining entries to a new file once most of
+ * the file is unused, and deletes the file when no entry is left. The file is also deleted
+ * when the undo history is disposed.
+ */
+public class UndoSpillFile {
+	private static final String CHARSET = "UTF-8";
+
+	public class Entry {
+		private long offset;
+		private final int length;
+		private final long releasedBytes;
+
+		private Entry(final long offset, final int length, final long releasedBytes) {
+			this.offset = offset;
+			this.length = length;
+			this.releasedBytes = releasedBytes;
+		}
+
+		public String loadString() {
+			try {
+				final byte[] compressed = read(this);
+				final InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed));
+				final ByteArrayOutputStream out = new ByteArrayOutputStream(length * 4);
+				final byte[] buffer = new byte[8192];
+				int count;
+				while ((count = in.read(buffer)) != -1) {
+					out.write(buffer, 0, count);
+				}
+				in.close();
+				return out.toString(CHARSET);
+			}
+			catch (final IOException e) {
+				throw new IllegalStateException("can not read undo data from " + file, e);
+			}
+		}
+	}
+
+	private File file;
+	private RandomAccessFile access;
+	/** entries in the order of their offsets */
+	private final Set<Entry> entries = new LinkedHashSet<Entry>();
+	private long usedFileBytes;
+	private long spilledBytes;
+
+	public synchronized Entry store(final String text) throws IOException {
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		final GZIPOutputStream out = new GZIPOutputStream(compressed);
+		out.write(text.getBytes(CHARSET));
+		out.close();
+		final byte[] bytes = compressed.toByteArray();
+		final RandomAccessFile access = open();
+		final long offset = access.length();
+		access.seek(offset);
+		access.write(bytes);
+		final Entry entry = new Entry(offset, bytes.length, 2L * text.length());
+		entries.add(entry);
+		usedFileBytes += entry.length;
+		spilledBytes += entry.releasedBytes;
+		return entry;
+	}
+
+	private synchronized byte[] read(final Entry entry) throws IOException {
+		final byte[] bytes = new byte[entry.length];
+		final RandomAccessFile access = open();
+		access.seek(entry.offset);
+		access.readFully(bytes);
+		return bytes;
+	}
+
+	private RandomAccessFile open() throws IOException {
+		if (access == null) {
+			file = File.createTempFile("freeplane-undo", ".tmp");
+			file.deleteOnExit();
+			access = new RandomAccessFile(file, "rw");
+		}
+		return access;
+	}
+
+	public synchronized boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	/**
+	 * Releases all entries but the given ones. The space of released entries is reclaimed
+	 * as soon as they take more of the file than the entries still used.
+	 */
+	public synchronized void retain(final Collection<Entry> usedEntries) throws IOException {
+		final Iterator<Entry> iterator = entries.iterator();
+		while (iterator.hasNext()) {
+			final Entry entry = iterator.next();
+			if (!usedEntries.contains(entry)) {
+				iterator.remove();
+				usedFileBytes -= entry.length;
+				spilledBytes -= entry.releasedBytes;
+			}
+		}
+		if (entries.isEmpty()) {
+			delete();
+		}
+		else if (access.length() - usedFileBytes > usedFileBytes) {
+			compact();
+		}
+	}
+
+	/**
+	 * Copies the used entries to a new file and replaces the old file by it.
+	 */
+	private void compact() throws IOException {
+		final File newFile = File.createTempFile("freeplane-undo", ".tmp");
+		newFile.deleteOnExit();
+		final RandomAccessFile newAccess = new RandomAccessFile(newFile, "rw");
+		try {
+			for (final Entry entry : entries) {
+				newAccess.write(read(entry));
+			}
+		}
+		catch (final IOException e) {
+			newAccess.close();
+			newFile.delete();
+			throw e;
+		}
+		closeAndDelete();
+		file = newFile;
+		access = newAccess;
+		long offset = 0;
+		for (final Entry entry : entries) {
+			entry.offset = offset;
+			offset += entry.length;
+		}
+	}
+
+	private void closeAndDelete() {
+		try {
+			access.close();
+		}
+		catch (final IOException e) {
+		}
+		file.delete();
+		access = null;
+		file = null;
+	}
+
+	/**
+	 * @return memory released by spilling, counted as the size of the strings kept in the file
+	 */
+	public synchronized long getSpilledBytes() {
+		return spilledBytes;
+	}
+
+	public synchronized long getFileSize() {
+		return file != null ? file.length() : 0;
+	}
+
+	public synchronized void delete() {
+		entries.clear();
+		usedFileBytes = 0;
+		spilledBytes = 0;
+		if (access != null) {
+			closeAndDelete();
+		}
+	}
+}
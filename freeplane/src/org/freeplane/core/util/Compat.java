@@ -20,6 +20,7 @@ import javax.swing.JFrame;
 import org.freeplane.core.resources.ResourceController;
 import org.freeplane.core.ui.MenuBuilder;
 import org.freeplane.features.mode.Controller;
+import org.freeplane.features.mode.ModeController;
 
 /**
  * Provides methods and constants which are dependend on the underlying java version
@@ -146,8 +147,11 @@ public class Compat {
 		final Controller controller = Controller.getCurrentController();
 		final Set<String> modes = controller .getModes();
 		for (final String mode : modes) {
-			final MenuBuilder builder = controller.getModeController(mode).getUserInputListenerFactory()
-			    .getMenuBuilder();
+			final ModeController modeController = controller.getModeController(mode);
+			if (modeController.hasDeferredMenus()) {
+				continue;
+			}
+			final MenuBuilder builder = modeController.getUserInputListenerFactory().getMenuBuilder();
 			final String[] keys = { 
 					"MB_ToggleMenubarAction", 
 					"MP_ToggleMenubarAction", 
@@ -0,0 +1,76 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2008 Dimitry Polivaev
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.core.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects durations of startup phases and writes them to the log once the first map is shown.
+ */
+public class StartupTimeline {
+	private static final List<String> entries = new ArrayList<String>();
+	private static boolean finished = false;
+
+	/**
+	 * @return time stamp to be passed to {@link #record(String, long)} when the phase ends
+	 */
+	public static long start() {
+		return System.currentTimeMillis();
+	}
+
+	public static void record(final String phase, final long startTime) {
+		final long now = System.currentTimeMillis();
+		synchronized (entries) {
+			if (finished) {
+				return;
+			}
+			entries.add(phase + ": " + (now - startTime) + " ms (at " + sinceJvmStart(now) + " ms)");
+		}
+	}
+
+	/**
+	 * Logs all recorded phases. Later calls are ignored.
+	 */
+	public static void finish(final String milestone) {
+		final long now = System.currentTimeMillis();
+		final StringBuilder timeline = new StringBuilder("startup timeline:");
+		synchronized (entries) {
+			if (finished) {
+				return;
+			}
+			finished = true;
+			for (final String entry : entries) {
+				timeline.append("\n  ").append(entry);
+			}
+			entries.clear();
+		}
+		timeline.append("\n  ").append(milestone).append(" after ").append(sinceJvmStart(now)).append(" ms");
+		LogUtils.info(timeline.toString());
+	}
+
+	private static long sinceJvmStart(final long now) {
+		try {
+			return now - ManagementFactory.getRuntimeMXBean().getStartTime();
+		}
+		catch (final Exception e) {
+			return -1;
+		}
+	}
+}
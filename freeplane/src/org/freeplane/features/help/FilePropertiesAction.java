@@ -39,6 +39,8 @@ import javax.swing.SwingConstants;
 
 import org.freeplane.core.resources.ResourceController;
 import org.freeplane.core.ui.AFreeplaneAction;
+import org.freeplane.core.undo.IUndoHandler;
+import org.freeplane.core.undo.UndoMemoryInfo;
 import org.freeplane.core.util.TextUtils;
 import org.freeplane.features.filter.Filter;
 import org.freeplane.features.filter.condition.ICondition;
@@ -196,6 +198,22 @@ class FilePropertiesAction extends AFreeplaneAction {
 		final JLabel fileChangesSinceSaveLabel = new JLabel(String.valueOf(fileChangesSinceSave));
 		gridbag.setConstraints(fileChangesSinceSaveLabel, c);
 		panel.add(fileChangesSinceSaveLabel);
+		//undoMemory
+		final IUndoHandler undoHandler = map.getExtension(IUndoHandler.class);
+		if (undoHandler != null) {
+			final UndoMemoryInfo undoMemory = undoHandler.getMemoryInfo();
+			c.gridy++;
+			c.gridx = 1;
+			final JLabel undoMemoryText = new JLabel(TextUtils.getText("FileProperties_UndoMemory"));
+			gridbag.setConstraints(undoMemoryText, c);
+			panel.add(undoMemoryText);
+			c.gridx = 2;
+			final JLabel undoMemoryLabel = new JLabel(TextUtils.format("FileProperties_UndoMemoryUsage",
+			    undoMemory.getEntryCount(), undoMemory.getUsedBytes() / 1024, undoMemory.getLimitBytes() / 1024,
+			    undoMemory.getSpillFileSize() / 1024));
+			gridbag.setConstraints(undoMemoryLabel, c);
+			panel.add(undoMemoryLabel);
+		}
 		//Separator
 		c.gridy++;
 		c.gridx = 0;
@@ -27,7 +27,6 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 
 import org.freeplane.core.extension.ExtensionContainer;
 import org.freeplane.core.extension.IExtension;
@@ -40,8 +39,6 @@ import org.freeplane.features.mode.Controller;
 import org.freeplane.features.mode.ModeController;
 
 public class MapModel {
-	private static Random ran = new Random();
-	private static final int UNDEFINED_NODE_ID = 2000000000;
 	/**
 	 * denotes the amount of changes since the last save. The initial value is
 	 * zero, such that new models are not to be saved.
@@ -52,6 +49,7 @@ public class MapModel {
 	final private IconRegistry iconRegistry;
 	final private List<IMapChangeListener> listeners;
 	final private Map<String, NodeModel> nodes;
+	final private NodeIdAllocator idAllocator;
 	private boolean readOnly = false;
 	private NodeModel root;
 	private URL url;
@@ -61,6 +59,7 @@ public class MapModel {
 		this.root = null;
 		listeners = new LinkedList<IMapChangeListener>();
 		nodes = new HashMap<String, NodeModel>();
+		idAllocator = new NodeIdAllocator(nodes);
 		final FilterController filterController = FilterController.getCurrentFilterController();
 		if (filterController != null) {
 			filter = filterController.createTransparentFilter();
@@ -110,16 +109,14 @@ public class MapModel {
 		if (proposedID != null && !"".equals(proposedID) && getNodeForID(proposedID) == null) {
 			return proposedID;
 		}
-		String returnValue;
-		do {
-			final String prefix = "ID_";
-			/*
-			 * The prefix is to enable the id to be an ID in the sense of
-			 * XML/DTD.
-			 */
-			returnValue = prefix + Integer.toString(ran.nextInt(UNDEFINED_NODE_ID));
-		} while (nodes.containsKey(returnValue));
-		return returnValue;
+		return idAllocator.nextID();
+	}
+
+	/**
+	 * Reserves a block of node ids for operations creating many nodes at once.
+	 */
+	public NodeIdRange reserveNodeIDs(final int count) {
+		return new NodeIdRange(idAllocator, idAllocator.reserve(count), count);
 	}
 
 	public <T extends IExtension> T getExtension(final Class<T> clazz) {
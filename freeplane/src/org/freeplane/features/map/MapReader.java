@@ -22,7 +22,9 @@ package org.freeplane.features.map;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.freeplane.core.io.IElementDOMHandler;
 import org.freeplane.core.io.ReadManager;
@@ -39,10 +41,14 @@ import org.freeplane.n3.nanoxml.XMLException;
  */
 public class MapReader implements IElementDOMHandler {
 	public class NodeTreeCreator {
+		private static final int RESERVED_ID_COUNT = 256;
 		private MapModel createdMap;
 		private final Map<Object, Object> hints;
 		private NodeModel mapChild = null;
 		private final Map<String, String> newIds;
+		private NodeIdRange reservedIds = null;
+		/** ids given to nodes of this tree, which are not registered in the map yet */
+		private final Set<String> issuedIds = new HashSet<String>();
 
 		public NodeTreeCreator() {
 			this(new HashMap<Object, Object>());
@@ -85,6 +91,8 @@ public class MapReader implements IElementDOMHandler {
 				nodeTreeCreator = this;
 				readManager.readingCompleted(node, newIds);
 				newIds.clear();
+				reservedIds = null;
+				issuedIds.clear();
 				createdMap = null;
 			}
 			finally {
@@ -125,6 +133,25 @@ public class MapReader implements IElementDOMHandler {
 		public void substituteNodeID(final String value, final String realId) {
 			newIds.put(value, realId);
 		}
+
+		/**
+		 * Keeps proposed id if it is free, otherwise takes one from a block reserved for this tree.
+		 * Ids already given to other nodes of this tree are not free, even if the map does not know them yet.
+		 */
+		String generateNodeID(final String proposedID) {
+			if (proposedID != null && !"".equals(proposedID) && createdMap.getNodeForID(proposedID) == null
+			        && issuedIds.add(proposedID)) {
+				return proposedID;
+			}
+			String id;
+			do {
+				if (reservedIds == null || reservedIds.remaining() == 0) {
+					reservedIds = createdMap.reserveNodeIDs(RESERVED_ID_COUNT);
+				}
+				id = reservedIds.nextID();
+			} while (!issuedIds.add(id));
+			return id;
+		}
 	}
 
 	private final NodeBuilder nodeBuilder;
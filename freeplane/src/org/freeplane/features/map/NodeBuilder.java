@@ -205,7 +205,7 @@ public class NodeBuilder implements IElementDOMHandler {
 		reader.addAttributeHandler(NodeBuilder.XML_NODE, "ID", new IAttributeHandler() {
 			public void setAttribute(final Object userObject, final String value) {
 				final NodeModel node = (NodeModel) userObject;
-				final String realId = getMap().generateNodeID(value);
+				final String realId = mapReader.getCurrentNodeTreeCreator().generateNodeID(value);
 				node.setID(realId);
 				if (!realId.equals(value)) {
 					mapReader.getCurrentNodeTreeCreator().substituteNodeID(value, realId);
@@ -0,0 +1,82 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2008 Dimitry Polivaev
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.map;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Hands out node ids of the form <code>ID_&lt;number&gt;</code> for one map.
+ *
+ * Every map starts at a random position of the id space and then counts up,
+ * so ids of different maps rarely meet while ids inside a map are found
+ * without retrying random numbers. Ids already known to the map are skipped.
+ */
+class NodeIdAllocator {
+	/**
+	 * The prefix is to enable the id to be an ID in the sense of XML/DTD.
+	 */
+	static final String PREFIX = "ID_";
+	/** keeps at least two digits after the prefix */
+	private static final int MIN_NODE_ID = 10;
+	private static final int MAX_NODE_ID = 2000000000;
+	private static final Random ran = new Random();
+	private final Map<String, ?> usedIds;
+	private int next;
+
+	NodeIdAllocator(final Map<String, ?> usedIds) {
+		this.usedIds = usedIds;
+		next = MIN_NODE_ID + ran.nextInt(MAX_NODE_ID - MIN_NODE_ID);
+	}
+
+	String nextID() {
+		for (;;) {
+			final String id = PREFIX + Integer.toString(next);
+			advance(1);
+			if (!usedIds.containsKey(id)) {
+				return id;
+			}
+		}
+	}
+
+	boolean isFree(final String id) {
+		return !usedIds.containsKey(id);
+	}
+
+	/**
+	 * Reserves <code>count</code> consecutive numbers and returns the first one.
+	 */
+	int reserve(final int count) {
+		if (count <= 0 || count > MAX_NODE_ID - MIN_NODE_ID) {
+			throw new IllegalArgumentException("can not reserve " + count + " node ids");
+		}
+		if (next > MAX_NODE_ID - count) {
+			next = MIN_NODE_ID;
+		}
+		final int first = next;
+		advance(count);
+		return first;
+	}
+
+	private void advance(final int count) {
+		next += count;
+		if (next >= MAX_NODE_ID) {
+			next = MIN_NODE_ID;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2008 Dimitry Polivaev
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.map;
+
+/**
+ * A block of node ids reserved at once by {@link MapModel#reserveNodeIDs(int)}.
+ *
+ * Used when many nodes get new ids in one go (paste, import), so the map's
+ * allocator is touched only once per block. If the block is used up or one
+ * of its ids is already taken, ids are drawn from the map again.
+ */
+public class NodeIdRange {
+	private final NodeIdAllocator allocator;
+	private int next;
+	private final int end;
+
+	NodeIdRange(final NodeIdAllocator allocator, final int first, final int count) {
+		this.allocator = allocator;
+		this.next = first;
+		this.end = first + count;
+	}
+
+	public String nextID() {
+		while (next < end) {
+			final String id = NodeIdAllocator.PREFIX + Integer.toString(next++);
+			if (allocator.isFree(id)) {
+				return id;
+			}
+		}
+		return allocator.nextID();
+	}
+
+	public int remaining() {
+		return end - next;
+	}
+}
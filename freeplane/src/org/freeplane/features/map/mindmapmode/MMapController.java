@@ -43,6 +43,7 @@ import org.freeplane.core.resources.ResourceController;
 import org.freeplane.core.ui.AFreeplaneAction;
 import org.freeplane.core.ui.components.UITools;
 import org.freeplane.core.undo.IActor;
+import org.freeplane.core.undo.IMeasurableActor;
 import org.freeplane.core.util.Compat;
 import org.freeplane.core.util.LogUtils;
 import org.freeplane.core.util.TextUtils;
@@ -81,6 +82,7 @@ public class MMapController extends MapController {
 	public static final int NEW_SIBLING_BEFORE = 4;
 	public static final int NEW_SIBLING_BEHIND = 3;
 	public static final String RESOURCES_CONVERT_TO_CURRENT_VERSION = "convert_to_current_version";
+	private static final long NODE_SIZE = 512;
 
 	public MMapController(ModeController modeController) {
 		super(modeController);
@@ -290,7 +292,9 @@ public class MMapController extends MapController {
 	public void deleteNode(final NodeModel node) {
 		final NodeModel parentNode = node.getParentNode();
 		final int index = parentNode.getIndex(node);
-		final IActor actor = new IActor() {
+		final IActor actor = new IMeasurableActor() {
+        	private long size = -1;
+
         	public void act() {
         		deleteWithoutUndo(node);
         	}
@@ -298,6 +302,13 @@ public class MMapController extends MapController {
         	public String getDescription() {
         		return "delete";
         	}
+
+        	public long estimateSize() {
+        		if (size < 0) {
+        			size = estimateBranchSize(node);
+        		}
+        		return size;
+        	}
         
         	public void undo() {
         		(Controller.getCurrentModeController().getMapController()).insertNodeIntoWithoutUndo(node, parentNode, index);
@@ -306,6 +317,17 @@ public class MMapController extends MapController {
 		Controller.getCurrentModeController().execute(actor, node.getMap());
 	}
 
+	/**
+	 * Rough memory estimate of a branch kept alive by the undo history.
+	 */
+	private static long estimateBranchSize(final NodeModel node) {
+		long size = NODE_SIZE + 2L * node.getText().length();
+		for (final NodeModel child : node.getChildren()) {
+			size += estimateBranchSize(child);
+		}
+		return size;
+	}
+
 	/**
 	 */
 	public void deleteWithoutUndo(final NodeModel selectedNode) {
@@ -348,7 +370,9 @@ public class MMapController extends MapController {
 	}
 
 	public void insertNode(final NodeModel node, final NodeModel parentNode, final int index) {
-		final IActor actor = new IActor() {
+		final IActor actor = new IMeasurableActor() {
+			private long size = -1;
+
 			public void act() {
 				(Controller.getCurrentModeController().getMapController()).insertNodeIntoWithoutUndo(node, parentNode, index);
 			}
@@ -357,6 +381,13 @@ public class MMapController extends MapController {
 				return "insertNode";
 			}
 
+			public long estimateSize() {
+				if (size < 0) {
+					size = estimateBranchSize(node);
+				}
+				return size;
+			}
+
 			public void undo() {
 				((MMapController) Controller.getCurrentModeController().getMapController()).deleteWithoutUndo(node);
 			}
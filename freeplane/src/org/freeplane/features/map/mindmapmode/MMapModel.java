@@ -76,6 +76,10 @@ public class MMapModel extends MapModel {
 		if (getTimerForAutomaticSaving() != null) {
 			getTimerForAutomaticSaving().cancel();
 		}
+		final IUndoHandler undoHandler = getExtension(IUndoHandler.class);
+		if (undoHandler != null) {
+			undoHandler.dispose();
+		}
 		super.destroy();
 	}
 
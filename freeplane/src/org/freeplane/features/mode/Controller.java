@@ -157,6 +157,7 @@ public class Controller extends AController {
 		}
 		LogUtils.info("requesting mode: " + newModeController.getModeName());
 		modeController = newModeController;
+		newModeController.buildDeferredMenus();
 		viewController.selectMode(oldModeController, newModeController);
 		getMapViewManager().changeToMode(newModeController.getModeName());
 		newModeController.startup();
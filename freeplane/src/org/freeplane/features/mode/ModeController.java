@@ -32,12 +32,15 @@ import java.util.TreeMap;
 
 import org.freeplane.core.extension.ExtensionContainer;
 import org.freeplane.core.extension.IExtension;
+import org.freeplane.core.resources.ResourceController;
 import org.freeplane.core.ui.AFreeplaneAction;
 import org.freeplane.core.ui.IMenuContributor;
 import org.freeplane.core.ui.IUserInputListenerFactory;
 import org.freeplane.core.ui.MenuBuilder;
 import org.freeplane.core.undo.IActor;
 import org.freeplane.core.undo.IUndoHandler;
+import org.freeplane.core.util.Compat;
+import org.freeplane.core.util.StartupTimeline;
 import org.freeplane.features.map.IExtensionCopier;
 import org.freeplane.features.map.ITooltipProvider;
 import org.freeplane.features.map.MapController;
@@ -70,6 +73,7 @@ public class ModeController extends AController {
 	 * links).
 	 */
 	private IUserInputListenerFactory userInputListenerFactory;
+	private Runnable deferredMenuBuilder = null;
 	final private Controller controller;
 
 	/**
@@ -369,6 +373,40 @@ public class ModeController extends AController {
 	public void startup() {
 	}
 
+	/**
+	 * Postpones building the menus until this mode is selected for the first time.
+	 */
+	public void updateMenusLater(final String menuStructure, final Set<String> plugins) {
+		deferredMenuBuilder = new Runnable() {
+			public void run() {
+				updateMenus(menuStructure, plugins);
+			}
+		};
+	}
+
+	public void buildDeferredMenus() {
+		if (deferredMenuBuilder == null) {
+			return;
+		}
+		final Runnable menuBuilder = deferredMenuBuilder;
+		deferredMenuBuilder = null;
+		final long startTime = StartupTimeline.start();
+		controller.selectModeForBuild(this);
+		try {
+			menuBuilder.run();
+		}
+		finally {
+			controller.selectModeForBuild(null);
+		}
+		Compat.macMenuChanges();
+		StartupTimeline.record("deferred menus of " + getModeName(), startTime);
+		ResourceController.getResourceController().getStartupCache().saveLater();
+	}
+
+	public boolean hasDeferredMenus() {
+		return deferredMenuBuilder != null;
+	}
+
 	public void updateMenus(String menuStructure, final Set<String> plugins) {
 		final IUserInputListenerFactory userInputListenerFactory = getUserInputListenerFactory();
 		userInputListenerFactory.updateMenus(menuStructure, plugins);
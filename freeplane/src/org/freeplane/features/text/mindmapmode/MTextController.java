@@ -418,25 +418,7 @@ public class MTextController extends TextController {
 			return;
 		}
 		
-		final IActor actor = new IActor() {
-			public void act() {
-				if (!oldText.equals(newObject)) {
-					node.setUserObject(newObject);
-					Controller.getCurrentModeController().getMapController().nodeChanged(node, NodeModel.NODE_TEXT, oldText, newObject);
-				}
-			}
-
-			public String getDescription() {
-				return "setNodeText";
-			}
-
-			public void undo() {
-				if (!oldText.equals(newObject)) {
-					node.setUserObject(oldText);
-					Controller.getCurrentModeController().getMapController().nodeChanged(node, NodeModel.NODE_TEXT, newObject, oldText);
-				}
-			}
-		};
+		final IActor actor = new SetNodeObjectActor(node, oldText, newObject);
 		Controller.getCurrentModeController().execute(actor, node.getMap());
 	}
 
@@ -0,0 +1,130 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2008 Dimitry Polivaev
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.text.mindmapmode;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import org.freeplane.core.undo.IActor;
+import org.freeplane.core.undo.IMeasurableActor;
+import org.freeplane.core.undo.IMergeableActor;
+import org.freeplane.core.undo.ISpillableActor;
+import org.freeplane.core.undo.UndoSpillFile;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.mode.Controller;
+
+/**
+ * Undoable change of a node's user object.
+ *
+ * Consecutive changes of the same node can be merged, and large texts can be
+ * moved to the undo spill file while the change is only kept for undo.
+ */
+class SetNodeObjectActor implements IMeasurableActor, IMergeableActor, ISpillableActor {
+	private static final long OBJECT_SIZE = 64;
+	private final NodeModel node;
+	private Object oldObject;
+	private Object newObject;
+	private UndoSpillFile.Entry spilledOldObject;
+	private UndoSpillFile.Entry spilledNewObject;
+
+	SetNodeObjectActor(final NodeModel node, final Object oldObject, final Object newObject) {
+		this.node = node;
+		this.oldObject = oldObject;
+		this.newObject = newObject;
+	}
+
+	private Object getOldObject() {
+		return spilledOldObject != null ? spilledOldObject.loadString() : oldObject;
+	}
+
+	private Object getNewObject() {
+		return spilledNewObject != null ? spilledNewObject.loadString() : newObject;
+	}
+
+	public void act() {
+		final Object oldText = getOldObject();
+		final Object newText = getNewObject();
+		if (!oldText.equals(newText)) {
+			node.setUserObject(newText);
+			Controller.getCurrentModeController().getMapController().nodeChanged(node, NodeModel.NODE_TEXT, oldText, newText);
+		}
+	}
+
+	public String getDescription() {
+		return "setNodeText";
+	}
+
+	public void undo() {
+		final Object oldText = getOldObject();
+		final Object newText = getNewObject();
+		if (!oldText.equals(newText)) {
+			node.setUserObject(oldText);
+			Controller.getCurrentModeController().getMapController().nodeChanged(node, NodeModel.NODE_TEXT, newText, oldText);
+		}
+	}
+
+	public long estimateSize() {
+		return OBJECT_SIZE + sizeOf(oldObject) + sizeOf(newObject);
+	}
+
+	private static long sizeOf(final Object object) {
+		if (object instanceof String) {
+			return OBJECT_SIZE + 2L * ((String) object).length();
+		}
+		return object == null ? 0 : OBJECT_SIZE;
+	}
+
+	public IActor merge(final IActor next) {
+		if (!(next instanceof SetNodeObjectActor)) {
+			return null;
+		}
+		final SetNodeObjectActor nextActor = (SetNodeObjectActor) next;
+		if (nextActor.node != node) {
+			return null;
+		}
+		return new SetNodeObjectActor(node, getOldObject(), nextActor.getNewObject());
+	}
+
+	public long spill(final UndoSpillFile file, final long minSize) throws IOException {
+		long released = 0;
+		if (isLargeString(oldObject, minSize)) {
+			released += sizeOf(oldObject);
+			spilledOldObject = file.store((String) oldObject);
+			oldObject = null;
+		}
+		if (isLargeString(newObject, minSize)) {
+			released += sizeOf(newObject);
+			spilledNewObject = file.store((String) newObject);
+			newObject = null;
+		}
+		return released;
+	}
+
+	public void collectSpilledEntries(final Collection<UndoSpillFile.Entry> entries) {
+		if (spilledOldObject != null) {
+			entries.add(spilledOldObject);
+		}
+		if (spilledNewObject != null) {
+			entries.add(spilledNewObject);
+		}
+	}
+
+	private static boolean isLargeString(final Object object, final long minSize) {
+		return object instanceof String && sizeOf(object) >= minSize;
+	}
+}
@@ -27,7 +27,6 @@ import java.io.BufferedInputStream;
 import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -468,10 +467,18 @@ public class MFileManager extends UrlManager implements IMapViewChangeListener {
 	}
 
 	
+	/**
+	 * Loads the tree like {@link #loadTree(MapModel, File)}, but passes errors to the caller.
+	 */
+	public NodeModel readTree(final MapModel map, final File file) throws IOException, XMLException,
+	        MapConversionException {
+		return loadTreeImpl(map, file);
+	}
+
 	//DOCEAR
 	private NodeModel loadTreeImpl(final MapModel map, final File f) throws FileNotFoundException, IOException,
 	        XMLException, MapConversionException {
-		final BufferedInputStream file = new BufferedInputStream(new FileInputStream(f));
+		final BufferedInputStream file = new BufferedInputStream(MapFilePrefetcher.open(f));
 		int versionInfoLength = 1000;
 		final byte[] buffer = new byte[versionInfoLength];
 		final int readCount = file.read(buffer);
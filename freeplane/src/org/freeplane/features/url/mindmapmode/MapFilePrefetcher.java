@@ -0,0 +1,138 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2008 Dimitry Polivaev
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.url.mindmapmode;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.freeplane.core.util.FileUtils;
+import org.freeplane.core.util.LogUtils;
+
+/**
+ * Reads map files in the background while the user interface is being built,
+ * so that opening them at the end of the startup does not wait for the disk.
+ *
+ * Each prefetched content is used only once and only if the file was not
+ * modified after it has been read.
+ */
+public class MapFilePrefetcher {
+	private static final long MAX_FILE_SIZE = 32 * 1024 * 1024;
+
+	private static class Content {
+		final byte[] bytes;
+		final long lastModified;
+
+		Content(final byte[] bytes, final long lastModified) {
+			this.bytes = bytes;
+			this.lastModified = lastModified;
+		}
+	}
+
+	private static final Map<File, Future<Content>> prefetched = new ConcurrentHashMap<File, Future<Content>>();
+	private static ExecutorService reader;
+
+	public static void prefetch(final Collection<File> files) {
+		prefetch(files, 1);
+	}
+
+	/**
+	 * @param threadCount number of reading threads, used only by the first call
+	 */
+	public static synchronized void prefetch(final Collection<File> files, final int threadCount) {
+		if (reader == null) {
+			reader = Executors.newFixedThreadPool(Math.max(1, threadCount), new ThreadFactory() {
+				public Thread newThread(final Runnable r) {
+					final Thread thread = Executors.defaultThreadFactory().newThread(r);
+					thread.setName("map prefetcher");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		for (final File file : files) {
+			final File key = file.getAbsoluteFile();
+			if (prefetched.containsKey(key) || !key.isFile() || key.length() > MAX_FILE_SIZE) {
+				continue;
+			}
+			prefetched.put(key, reader.submit(new Callable<Content>() {
+				public Content call() throws Exception {
+					final long lastModified = key.lastModified();
+					final InputStream in = new FileInputStream(key);
+					try {
+						final byte[] bytes = new byte[(int) key.length()];
+						int offset = 0;
+						int count;
+						while (offset < bytes.length && (count = in.read(bytes, offset, bytes.length - offset)) != -1) {
+							offset += count;
+						}
+						return offset == bytes.length ? new Content(bytes, lastModified) : null;
+					}
+					finally {
+						FileUtils.silentlyClose(in);
+					}
+				}
+			}));
+		}
+	}
+
+	/**
+	 * Opens the file, using prefetched content if there is one.
+	 */
+	public static InputStream open(final File file) throws FileNotFoundException {
+		final Future<Content> future = prefetched.remove(file.getAbsoluteFile());
+		if (future != null) {
+			try {
+				final Content content = future.get();
+				if (content != null && content.lastModified == file.lastModified()
+				        && content.bytes.length == file.length()) {
+					return new ByteArrayInputStream(content.bytes);
+				}
+			}
+			catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			catch (final ExecutionException e) {
+				LogUtils.warn("prefetching " + file + " failed", e.getCause());
+			}
+		}
+		return new FileInputStream(file);
+	}
+
+	/**
+	 * Drops contents which were not opened.
+	 */
+	public static void clear() {
+		for (final Future<Content> future : prefetched.values()) {
+			future.cancel(false);
+		}
+		prefetched.clear();
+	}
+}
@@ -36,6 +36,7 @@ import java.util.Properties;
 import org.freeplane.core.resources.IFreeplanePropertyListener;
 import org.freeplane.core.resources.ResourceBundles;
 import org.freeplane.core.resources.ResourceController;
+import org.freeplane.core.resources.StartupCache;
 import org.freeplane.core.util.Compat;
 import org.freeplane.core.util.FileUtils;
 import org.freeplane.core.util.FreeplaneVersion;
@@ -110,6 +111,23 @@ public class ApplicationResourceController extends ResourceController {
 		}
 	}
 
+	@Override
+	protected StartupCache createStartupCache() {
+		if (!getBooleanProperty("use_startup_cache")) {
+			return StartupCache.DISABLED;
+		}
+		final File userDir = new File(getFreeplaneUserDirectory());
+		final String key = FreeplaneVersion.getVersion() + " " + FreeplaneVersion.getVersion().getRevision() + " "
+		        + getProperty(ResourceBundles.RESOURCE_LANGUAGE) + " " + Locale.getDefault();
+		try {
+			return new StartupCache(new File(userDir, "startup.cache"), key, Compat.fileToUrl(new File(userDir,
+			    "resources/images/icons")));
+		}
+		catch (final MalformedURLException e) {
+			return StartupCache.DISABLED;
+		}
+	}
+
 	@Override
 	public String getDefaultProperty(final String key) {
 		return defProps.getProperty(key);
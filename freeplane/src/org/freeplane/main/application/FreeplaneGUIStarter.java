@@ -39,6 +39,7 @@ import org.freeplane.core.util.FileUtils;
 import org.freeplane.core.util.FreeplaneVersion;
 import org.freeplane.core.util.LogUtils;
 import org.freeplane.core.util.MenuUtils;
+import org.freeplane.core.util.StartupTimeline;
 import org.freeplane.features.attribute.ModelessAttributeController;
 import org.freeplane.features.filter.FilterController;
 import org.freeplane.features.filter.NextNodeAction;
@@ -64,6 +65,7 @@ import org.freeplane.features.text.TextController;
 import org.freeplane.features.time.TimeController;
 import org.freeplane.features.ui.FrameController;
 import org.freeplane.features.url.mindmapmode.MFileManager;
+import org.freeplane.features.url.mindmapmode.MapFilePrefetcher;
 import org.freeplane.main.addons.AddOnsController;
 import org.freeplane.main.application.CommandLineParser.Options;
 import org.freeplane.main.browsemode.BModeControllerFactory;
@@ -168,6 +170,9 @@ public class FreeplaneGUIStarter implements FreeplaneStarter {
 			MapController.install();
 
 			NodeHistory.install(controller);
+			if (!dontLoadLastMaps) {
+				applicationResourceController.getLastOpenedList().prefetchMapsOnStart();
+			}
 			return controller;
 		}
 		catch (final Exception e) {
@@ -189,8 +194,9 @@ public class FreeplaneGUIStarter implements FreeplaneStarter {
 	public void buildMenus(final Controller controller, final Set<String> plugins) {
 	    buildMenus(controller, plugins, MModeController.MODENAME, "/xml/mindmapmodemenu.xml");
 	    LoadAcceleratorPresetsAction.install();
-	    buildMenus(controller, plugins, BModeController.MODENAME, "/xml/browsemodemenu.xml");
-	    buildMenus(controller, plugins, FModeController.MODENAME, "/xml/filemodemenu.xml");
+	    // modes not shown at startup get their menus when they are selected first
+	    controller.getModeController(BModeController.MODENAME).updateMenusLater("/xml/browsemodemenu.xml", plugins);
+	    controller.getModeController(FModeController.MODENAME).updateMenusLater("/xml/filemodemenu.xml", plugins);
     }
 
 	private void buildMenus(final Controller controller, final Set<String> plugins, String mode, String xml) {
@@ -209,7 +215,11 @@ public class FreeplaneGUIStarter implements FreeplaneStarter {
 		EventQueue.invokeLater(new Runnable() {
 			public void run() {
 			    final Options options = CommandLineParser.parse(args);
+				long startTime = StartupTimeline.start();
 				loadMaps(options.getFilesToOpenAsArray());
+				MapFilePrefetcher.clear();
+				StartupTimeline.record("load maps", startTime);
+				startTime = StartupTimeline.start();
 				viewController.init(Controller.getCurrentController());
 				splash.toBack();
 				final Frame frame = viewController.getFrame();
@@ -221,6 +231,9 @@ public class FreeplaneGUIStarter implements FreeplaneStarter {
 				splash.dispose();
 				splash = null;
 				frame.toFront();
+				StartupTimeline.record("show frame", startTime);
+				StartupTimeline.finish("first map shown");
+				ResourceController.getResourceController().getStartupCache().saveLater();
 				startupFinished = true;
 		        System.setProperty("nonInteractive", Boolean.toString(options.isNonInteractive()));
 		        try {
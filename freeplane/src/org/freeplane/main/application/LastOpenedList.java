@@ -24,9 +24,12 @@ import java.awt.Frame;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLDecoder;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -58,6 +61,7 @@ import org.freeplane.features.mode.mindmapmode.MModeController;
 import org.freeplane.features.ui.IMapViewChangeListener;
 import org.freeplane.features.ui.IMapViewManager;
 import org.freeplane.features.url.UrlManager;
+import org.freeplane.features.url.mindmapmode.MapFilePrefetcher;
 import org.freeplane.n3.nanoxml.XMLException;
 
 /**
@@ -217,15 +221,50 @@ public class LastOpenedList implements IMapViewChangeListener, IMapChangeListene
 			if (token.hasMoreTokens()) {
 				final String mode = token.nextToken();
 				Controller.getCurrentController().selectMode(mode);
-				String fileName = token.nextToken("").substring(1);
-				if (PORTABLE_APP && fileName.startsWith(":") && USER_DRIVE.endsWith(":")) {
-					fileName = USER_DRIVE + fileName.substring(1);
-				}
+				final String fileName = getFileName(token.nextToken("").substring(1));
 				Controller.getCurrentModeController().getMapController().newMap(Compat.fileToUrl(new File(fileName)));
 			}
 		}
 	}
 
+	private String getFileName(final String restoredFileName) {
+		if (PORTABLE_APP && restoredFileName.startsWith(":") && USER_DRIVE.endsWith(":")) {
+			return USER_DRIVE + restoredFileName.substring(1);
+		}
+		return restoredFileName;
+	}
+
+	/**
+	 * Starts reading the maps which are going to be opened by {@link #openMapsOnStart()}.
+	 */
+	void prefetchMapsOnStart() {
+		final List<String> startList = new LinkedList<String>();
+		if (ResourceController.getResourceController().getBooleanProperty(LOAD_LAST_MAPS)) {
+			restoreList(OPENED_NOW, startList);
+		}
+		else if (ResourceController.getResourceController().getBooleanProperty(LOAD_LAST_MAP)
+		        && !lastOpenedList.isEmpty()) {
+			try {
+				// decoded like in openMapsOnStart(), where '+' stays as it is
+				startList.add(URLDecoder.decode(lastOpenedList.get(0).replace("+", "%2B"), "UTF-8"));
+			}
+			catch (final UnsupportedEncodingException e) {
+				LogUtils.severe(e);
+			}
+			catch (final IllegalArgumentException e) {
+				// not prefetched, openMapsOnStart() reports it
+			}
+		}
+		final List<File> files = new ArrayList<File>(startList.size());
+		for (final String restoreable : startList) {
+			final int separatorPosition = restoreable.indexOf(':');
+			if (separatorPosition != -1) {
+				files.add(new File(getFileName(restoreable.substring(separatorPosition + 1))));
+			}
+		}
+		MapFilePrefetcher.prefetch(files);
+	}
+
 	public void openMapsOnStart() {
 		final boolean loadLastMap = ResourceController.getResourceController().getBooleanProperty(LOAD_LAST_MAP);
 		final String lastMap;
@@ -24,6 +24,7 @@ import org.freeplane.core.ui.components.UITools;
 import org.freeplane.core.util.FreeplaneVersion;
 import org.freeplane.core.util.TextUtils;
 import org.freeplane.features.mode.Controller;
+import org.freeplane.features.mode.ModeController;
 import org.freeplane.features.ui.IMapViewChangeListener;
 
 /**
@@ -107,11 +108,11 @@ class UpdateCheckAction extends AFreeplaneAction {
 		Controller controller = Controller.getCurrentController();
 		final Set<String> modes = controller.getModes();
 		for (final String mode : modes) {
-			final MenuBuilder menuBuilder = controller.getModeController(mode).getUserInputListenerFactory()
-			    .getMenuBuilder();
+			final ModeController modeController = controller.getModeController(mode);
+			final MenuBuilder menuBuilder = modeController.getUserInputListenerFactory().getMenuBuilder();
 			if (lastVersion == null || lastVersion.compareTo(FreeplaneVersion.getVersion()) <= 0) {
 				ResourceController.getResourceController().setProperty(LAST_UPDATE_VERSION, "");
-				if (menuBuilder.get(UPDATE_BUTTON_PATH) != null) {
+				if (!modeController.hasDeferredMenus() && menuBuilder.get(UPDATE_BUTTON_PATH) != null) {
 					menuBuilder.removeElement(UPDATE_BUTTON_PATH);
 				}
 				continue;
@@ -121,6 +122,7 @@ class UpdateCheckAction extends AFreeplaneAction {
 			controller.getViewController().out(updateAvailable);
 			putValue(SHORT_DESCRIPTION, updateAvailable);
 			putValue(LONG_DESCRIPTION, updateAvailable);
+			modeController.buildDeferredMenus();
 			if (menuBuilder.get(UPDATE_BUTTON_PATH) == null) {
 				menuBuilder.addAction(UPDATE_BUTTON_LOCATION, UPDATE_BUTTON_PATH, UpdateCheckAction.this,
 				    MenuBuilder.AS_CHILD);
@@ -0,0 +1,385 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2008 Dimitry Polivaev
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.main.headlessmode;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.swing.filechooser.FileFilter;
+
+import org.freeplane.core.resources.ResourceController;
+import org.freeplane.core.util.FileUtils;
+import org.freeplane.core.util.LogUtils;
+import org.freeplane.features.export.mindmapmode.ExportController;
+import org.freeplane.features.export.mindmapmode.IExportEngine;
+import org.freeplane.features.map.MapController;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.map.mindmapmode.MMapController;
+import org.freeplane.features.map.mindmapmode.MMapModel;
+import org.freeplane.features.mapio.MapIO;
+import org.freeplane.features.mapio.mindmapmode.MMapIO;
+import org.freeplane.features.mode.Controller;
+import org.freeplane.features.mode.ModeController;
+import org.freeplane.features.mode.mindmapmode.MModeController;
+import org.freeplane.features.script.IScriptStarter;
+import org.freeplane.features.text.TextController;
+import org.freeplane.features.url.mindmapmode.MFileManager;
+import org.freeplane.features.url.mindmapmode.MapFilePrefetcher;
+
+/**
+ * Processes many maps without user interface: loads each map, optionally selects it by a filter,
+ * runs a script, exports and saves it, and prints throughput figures at the end.
+ *
+ * Only the bytes of the map files are read ahead, by the threads of MapFilePrefetcher. Parsing,
+ * filtering, scripting and writing are done one map after another with the single mindmap mode
+ * controller, because the controllers work on the current map.
+ */
+class BatchProcessor {
+	static final String BATCH_OPTION = "--batch";
+	private static final String MAP_EXTENSION = ".mm";
+	private static final String HELP_MESSAGE = "Use:\n\tfreeplane --batch [options] file|directory ..." //
+	        + "\n --script <file>: execute the script for the root node of each map" //
+	        + "\n --filter <regex>: process only maps containing a node whose text matches <regex>" //
+	        + "\n --export <type>: export each map, <type> is a file extension or an export description" //
+	        + "\n --save: save each map in the current file format" //
+	        + "\n --output <dir>: write results into <dir> instead of next to the maps" //
+	        + "\n --threads <n>: number of threads reading map files ahead (default: number of processors)";
+
+	static class Options {
+		private final List<File> inputs = new ArrayList<File>();
+		private File script;
+		private Pattern filter;
+		private String exportType;
+		private boolean save;
+		private File outputDirectory;
+		private int threadCount = Runtime.getRuntime().availableProcessors();
+		private boolean helpRequested;
+
+		public List<File> getInputs() {
+			return inputs;
+		}
+
+		public File getScript() {
+			return script;
+		}
+
+		public Pattern getFilter() {
+			return filter;
+		}
+
+		public String getExportType() {
+			return exportType;
+		}
+
+		public boolean isSave() {
+			return save;
+		}
+
+		public File getOutputDirectory() {
+			return outputDirectory;
+		}
+
+		public int getThreadCount() {
+			return threadCount;
+		}
+
+		public boolean isHelpRequested() {
+			return helpRequested;
+		}
+
+		@Override
+		public String toString() {
+			return "BatchOptions(inputs: " + inputs + ", script: " + script + ", filter: " + filter + ", export: "
+			        + exportType + ", save: " + save + ", output: " + outputDirectory + ", threads: " + threadCount
+			        + ")";
+		}
+	}
+
+	static boolean isBatchCall(final String[] args) {
+		return args != null && args.length > 0 && BATCH_OPTION.equals(args[0]);
+	}
+
+	static Options parse(final String[] args) {
+		final Options options = new Options();
+		for (int i = 1; i < args.length; i++) {
+			final String arg = args[i];
+			if (arg.equals("--script") && i + 1 < args.length) {
+				options.script = new File(args[++i]);
+			}
+			else if (arg.equals("--filter") && i + 1 < args.length) {
+				options.filter = Pattern.compile(args[++i]);
+			}
+			else if (arg.equals("--export") && i + 1 < args.length) {
+				options.exportType = args[++i];
+			}
+			else if (arg.equals("--save")) {
+				options.save = true;
+			}
+			else if (arg.equals("--output") && i + 1 < args.length) {
+				options.outputDirectory = new File(args[++i]);
+			}
+			else if (arg.equals("--threads") && i + 1 < args.length) {
+				options.threadCount = Integer.parseInt(args[++i]);
+			}
+			else if (arg.equals("-h") || arg.equals("--help")) {
+				options.helpRequested = true;
+			}
+			else if (arg.startsWith("--")) {
+				throw new IllegalArgumentException("unknown or incomplete option " + arg);
+			}
+			else {
+				options.inputs.add(new File(arg));
+			}
+		}
+		return options;
+	}
+
+	private static class Job {
+		final File file;
+		final File outputDirectory;
+
+		Job(final File file, final File outputDirectory) {
+			this.file = file;
+			this.outputDirectory = outputDirectory;
+		}
+	}
+
+	private final Options options;
+	private final List<Job> jobs = new ArrayList<Job>();
+	private String script;
+	private IExportEngine exportEngine;
+	private String exportExtension;
+	private int processedCount;
+	private int skippedCount;
+	private int failedCount;
+	private long byteCount;
+	private long loadTime;
+	private long processTime;
+	private long writeTime;
+
+	BatchProcessor(final Options options) {
+		this.options = options;
+	}
+
+	/**
+	 * @return the number of maps which could not be processed, or -1 if the options were wrong
+	 */
+	int run() {
+		if (options.isHelpRequested() || options.getInputs().isEmpty()) {
+			System.out.println(HELP_MESSAGE);
+			return options.isHelpRequested() ? 0 : -1;
+		}
+		LogUtils.info(options.toString());
+		final ModeController modeController = Controller.getCurrentController().getModeController(
+		    MModeController.MODENAME);
+		Controller.getCurrentController().selectModeForBuild(modeController);
+		if (!prepare(modeController)) {
+			return -1;
+		}
+		for (final File input : options.getInputs()) {
+			addJobs(input, options.getOutputDirectory());
+		}
+		// old maps are converted without asking
+		ResourceController.getResourceController().setProperty(MMapController.RESOURCES_CONVERT_TO_CURRENT_VERSION,
+		    "true");
+		final long startTime = System.currentTimeMillis();
+		final int readAhead = 2 * Math.max(1, options.getThreadCount());
+		prefetch(0, readAhead);
+		for (int i = 0; i < jobs.size(); i++) {
+			prefetch(i + readAhead, 1);
+			process(modeController, jobs.get(i));
+		}
+		MapFilePrefetcher.clear();
+		printStatistics(System.currentTimeMillis() - startTime);
+		return failedCount;
+	}
+
+	private boolean prepare(final ModeController modeController) {
+		if (options.getScript() != null) {
+			if (modeController.getExtension(IScriptStarter.class) == null) {
+				System.err.println("scripting plugin is not available");
+				return false;
+			}
+			try {
+				script = FileUtils.slurpFile(options.getScript());
+			}
+			catch (final Exception e) {
+				System.err.println("can not read script " + options.getScript() + ": " + e.getMessage());
+				return false;
+			}
+		}
+		final String exportType = options.getExportType();
+		if (exportType != null) {
+			final ExportController exportController = ExportController.getController(modeController);
+			final File sample = new File("map." + exportType);
+			for (final FileFilter fileFilter : exportController.getFileFilters()) {
+				if (fileFilter.getDescription().equalsIgnoreCase(exportType)
+				        || exportEngine == null && fileFilter.accept(sample)) {
+					exportEngine = exportController.getFilterMap().get(fileFilter);
+					exportExtension = getExtension(fileFilter, exportType);
+				}
+			}
+			if (exportEngine == null) {
+				System.err.println("unknown export type " + exportType + ", available are:");
+				for (final FileFilter fileFilter : exportController.getFileFilters()) {
+					System.err.println("\t" + fileFilter.getDescription());
+				}
+				return false;
+			}
+		}
+		final File outputDirectory = options.getOutputDirectory();
+		if (outputDirectory != null && !outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+			System.err.println("can not create output directory " + outputDirectory);
+			return false;
+		}
+		return true;
+	}
+
+	private String getExtension(final FileFilter fileFilter, final String exportType) {
+		if (fileFilter.accept(new File("map." + exportType))) {
+			return exportType;
+		}
+		final String description = fileFilter.getDescription();
+		final int extensionStart = description.lastIndexOf("*.");
+		if (extensionStart != -1) {
+			return description.substring(extensionStart + 2).replaceAll("[^\\w].*", "");
+		}
+		return exportType;
+	}
+
+	private void addJobs(final File input, final File outputDirectory) {
+		if (input.isDirectory()) {
+			final File[] children = input.listFiles();
+			if (children == null) {
+				return;
+			}
+			Arrays.sort(children);
+			for (final File child : children) {
+				if (!child.isDirectory() && !child.getName().endsWith(MAP_EXTENSION)) {
+					continue;
+				}
+				addJobs(child, outputDirectory == null || !child.isDirectory() ? outputDirectory : new File(
+				    outputDirectory, child.getName()));
+			}
+		}
+		else if (input.isFile()) {
+			jobs.add(new Job(input.getAbsoluteFile(), outputDirectory));
+		}
+		else {
+			System.err.println("not found: " + input);
+			failedCount++;
+		}
+	}
+
+	private void prefetch(final int first, final int count) {
+		final List<File> files = new ArrayList<File>(count);
+		for (int i = first; i < first + count && i < jobs.size(); i++) {
+			files.add(jobs.get(i).file);
+		}
+		if (!files.isEmpty()) {
+			MapFilePrefetcher.prefetch(files, options.getThreadCount());
+		}
+	}
+
+	private void process(final ModeController modeController, final Job job) {
+		final MapController mapController = modeController.getMapController();
+		final MFileManager fileManager = MFileManager.getController(modeController);
+		final File file = job.file;
+		boolean opened = false;
+		try {
+			long startTime = System.currentTimeMillis();
+			final MapModel map = new MMapModel();
+			fileManager.setFile(map, file);
+			fileManager.readTree(map, file);
+			if (map.getRootNode() == null) {
+				throw new IllegalStateException("map has no root node");
+			}
+			mapController.fireMapCreated(map);
+			mapController.newMapView(map);
+			opened = true;
+			byteCount += file.length();
+			loadTime += System.currentTimeMillis() - startTime;
+			startTime = System.currentTimeMillis();
+			if (options.getFilter() != null && !containsMatchingNode(map.getRootNode())) {
+				skippedCount++;
+				return;
+			}
+			if (script != null) {
+				modeController.getExtension(IScriptStarter.class).executeScript(map.getRootNode(), script);
+			}
+			processTime += System.currentTimeMillis() - startTime;
+			startTime = System.currentTimeMillis();
+			final File outputDirectory = job.outputDirectory != null ? job.outputDirectory : file.getParentFile();
+			if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+				throw new IllegalStateException("can not create directory " + outputDirectory);
+			}
+			if (exportEngine != null) {
+				final String name = file.getName();
+				final String baseName = name.endsWith(MAP_EXTENSION) ? name.substring(0, name.length()
+				        - MAP_EXTENSION.length()) : name;
+				exportEngine.export(map, new File(outputDirectory, baseName + "." + exportExtension));
+			}
+			if (options.isSave()) {
+				final File savedFile = new File(outputDirectory, file.getName());
+				((MMapIO) modeController.getExtension(MapIO.class)).writeToFile(map, savedFile);
+				map.setSaved(true);
+			}
+			writeTime += System.currentTimeMillis() - startTime;
+			processedCount++;
+			System.out.println("processed " + file);
+		}
+		catch (final Throwable e) {
+			failedCount++;
+			System.err.println("failed " + file + ": " + e);
+			LogUtils.warn("batch processing of " + file + " failed", e);
+		}
+		finally {
+			if (opened) {
+				mapController.close(true);
+				Controller.getCurrentController().getMapViewManager().close(true);
+			}
+		}
+	}
+
+	private boolean containsMatchingNode(final NodeModel node) {
+		final String text = TextController.getController().getPlainTextContent(node);
+		if (text != null && options.getFilter().matcher(text).find()) {
+			return true;
+		}
+		for (final NodeModel child : node.getChildren()) {
+			if (containsMatchingNode(child)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void printStatistics(final long totalTime) {
+		final int mapCount = processedCount + skippedCount + failedCount;
+		final double seconds = Math.max(totalTime, 1) / 1000.0;
+		System.out.println(String.format("%d maps (%d processed, %d skipped, %d failed) in %.1f s: %.1f maps/s, %.1f KB/s",
+		    mapCount, processedCount, skippedCount, failedCount, seconds, mapCount / seconds, byteCount / 1024.0
+		            / seconds));
+		System.out.println(String.format("load %d ms, filter and script %d ms, export and save %d ms", loadTime,
+		    processTime, writeTime));
+	}
+}
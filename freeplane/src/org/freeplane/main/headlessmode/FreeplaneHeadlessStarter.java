@@ -106,6 +106,23 @@ public class FreeplaneHeadlessStarter implements FreeplaneStarter {
 		Controller controller = Controller.getCurrentController();
 		ModeController modeController = controller.getModeController(MModeController.MODENAME);
 		controller.selectModeForBuild(modeController);
+		if (BatchProcessor.isBatchCall(args)) {
+			runBatch(args);
+		}
+	}
+
+	private void runBatch(final String[] args) {
+		int exitCode;
+		try {
+			final int failedCount = new BatchProcessor(BatchProcessor.parse(args)).run();
+			exitCode = failedCount == 0 ? 0 : failedCount < 0 ? 2 : 1;
+		}
+		catch (final Exception e) {
+			LogUtils.severe(e);
+			System.err.println(e.getMessage());
+			exitCode = 2;
+		}
+		System.exit(exitCode);
 	}
 	
 	/**
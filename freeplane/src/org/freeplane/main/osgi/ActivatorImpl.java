@@ -23,6 +23,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.LinkedList;
@@ -34,6 +36,7 @@ import org.freeplane.core.resources.ResourceController;
 import org.freeplane.core.util.Compat;
 import org.freeplane.core.util.FileUtils;
 import org.freeplane.core.util.LogUtils;
+import org.freeplane.core.util.StartupTimeline;
 import org.freeplane.features.filter.FilterController;
 import org.freeplane.features.mode.Controller;
 import org.freeplane.features.mode.ModeController;
@@ -44,6 +47,7 @@ import org.freeplane.main.headlessmode.FreeplaneHeadlessStarter;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.url.URLConstants;
@@ -57,6 +61,36 @@ class ActivatorImpl implements BundleActivator {
 	private static final String HEADLESS_RUN_PROPERTY_NAME = FreeplaneStarter.class.getName() + ".headless";
 	private FreeplaneStarter starter;
 
+	/**
+	 * Orders service references by the installation order of their bundles, so that
+	 * extensions are installed in the same order however the plugins were started.
+	 */
+	private static void sortByInstallation(final ServiceReference[] references) {
+		Arrays.sort(references, new Comparator<ServiceReference>() {
+			public int compare(final ServiceReference r1, final ServiceReference r2) {
+				final int result = compareLongs(bundleId(r1), bundleId(r2));
+				if (result != 0) {
+					return result;
+				}
+				return compareLongs(serviceId(r1), serviceId(r2));
+			}
+
+			private long bundleId(final ServiceReference reference) {
+				final Bundle bundle = reference.getBundle();
+				return bundle == null ? Long.MAX_VALUE : bundle.getBundleId();
+			}
+
+			private long serviceId(final ServiceReference reference) {
+				final Object id = reference.getProperty(Constants.SERVICE_ID);
+				return id instanceof Long ? ((Long) id).longValue() : Long.MAX_VALUE;
+			}
+
+			private int compareLongs(final long l1, final long l2) {
+				return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+			}
+		});
+	}
+
 	private String[] getCallParameters() {
 		String param;
 		final LinkedList<String> parameters = new LinkedList<String>();
@@ -95,15 +129,12 @@ class ActivatorImpl implements BundleActivator {
 		loadPlugins(context, new File(baseDir, "plugins"), loadedPlugins);
 		final String freeplaneUserDirectory = Compat.getApplicationUserDirectory();
 		loadPlugins(context, new File(freeplaneUserDirectory), loadedPlugins);
-		for(Bundle plugin:loadedPlugins){
-			try{
-				plugin.start();
-				System.out.println("Started: " + plugin.getLocation() + " (id#" + plugin.getBundleId() + ")");
-			}
-			catch(Exception e){
-				e.printStackTrace();
-			}
+		final List<String> installedBundles = new LinkedList<String>();
+		for (final Bundle bundle : context.getBundles()) {
+			installedBundles.add(bundle.getSymbolicName() + " " + bundle.getHeaders().get("Bundle-Version"));
 		}
+		ResourceController.getResourceController().getStartupCache().setPlugins(installedBundles);
+		new PluginStarter(loadedPlugins).startPlugins();
 	}
 
 	private void loadPlugins(final BundleContext context, final File file, List<Bundle> loadedPlugins) {
@@ -165,22 +196,33 @@ class ActivatorImpl implements BundleActivator {
 		}
 		// initialize ApplicationController - SingleInstanceManager needs the configuration
 		starter =  createStarter();
-		final SingleInstanceManager singleInstanceManager = new SingleInstanceManager(starter);
-		singleInstanceManager.start(getCallParameters());
-		if (singleInstanceManager.isSlave()) {
-			LogUtils.info("opened files in master - exiting now");
-			System.exit(0);
-		}
-		else if (singleInstanceManager.isMasterPresent()) {
-			starter.setDontLoadLastMaps();
+		// headless runs process their arguments themselves and never hand them to a running instance
+		if (!Boolean.getBoolean(HEADLESS_RUN_PROPERTY_NAME)) {
+			final SingleInstanceManager singleInstanceManager = new SingleInstanceManager(starter);
+			singleInstanceManager.start(getCallParameters());
+			if (singleInstanceManager.isSlave()) {
+				LogUtils.info("opened files in master - exiting now");
+				System.exit(0);
+			}
+			else if (singleInstanceManager.isMasterPresent()) {
+				starter.setDontLoadLastMaps();
+			}
 		}
+		long startTime = StartupTimeline.start();
 		loadPlugins(context);
+		StartupTimeline.record("install and start plugins", startTime);
+		startTime = StartupTimeline.start();
 		final Controller controller = starter.createController();
+		StartupTimeline.record("create controller", startTime);
+		startTime = StartupTimeline.start();
 		starter.createModeControllers(controller);
+		StartupTimeline.record("create mode controllers", startTime);
+		startTime = StartupTimeline.start();
 		try {
 			final ServiceReference[] controllerProviders = context.getServiceReferences(
 			    IControllerExtensionProvider.class.getName(), null);
 			if (controllerProviders != null) {
+				sortByInstallation(controllerProviders);
 				for (int i = 0; i < controllerProviders.length; i++) {
 					final ServiceReference controllerProvider = controllerProviders[i];
 					final IControllerExtensionProvider service = (IControllerExtensionProvider) context
@@ -201,6 +243,7 @@ class ActivatorImpl implements BundleActivator {
 				if (modeControllerProviders != null) {
 					final ModeController modeController = controller.getModeController(modeName);
 					Controller.getCurrentController().selectModeForBuild(modeController);
+					sortByInstallation(modeControllerProviders);
 					for (int i = 0; i < modeControllerProviders.length; i++) {
 						final ServiceReference modeControllerProvider = modeControllerProviders[i];
 						final IModeControllerExtensionProvider service = (IModeControllerExtensionProvider) context
@@ -214,6 +257,7 @@ class ActivatorImpl implements BundleActivator {
 		catch (final InvalidSyntaxException e) {
 			e.printStackTrace();
 		}
+		StartupTimeline.record("install plugin extensions", startTime);
 		if ("true".equals(System.getProperty("org.freeplane.exit_on_start", null))) {
 			controller.getViewController().invokeLater(new Runnable() {
 				public void run() {
@@ -235,8 +279,12 @@ class ActivatorImpl implements BundleActivator {
 					plugins.add(bundle.getSymbolicName());
 				}
 				FilterController.getController(controller).loadDefaultConditions();
+				long startTime = StartupTimeline.start();
 				starter.buildMenus(controller, plugins);
+				StartupTimeline.record("build menus", startTime);
+				startTime = StartupTimeline.start();
 				starter.createFrame(getCallParameters());
+				StartupTimeline.record("create frame", startTime);
 			}
 		});
 	}
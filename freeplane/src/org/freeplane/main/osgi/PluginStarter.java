@@ -0,0 +1,165 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2008 Dimitry Polivaev
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.main.osgi;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.freeplane.core.util.LogUtils;
+import org.freeplane.core.util.StartupTimeline;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
+
+/**
+ * Starts plugin bundles one after another in installation order.
+ *
+ * Set system property <code>org.freeplane.plugins.concurrent_start=true</code>
+ * to start them in waves instead: all bundles whose required bundles are already
+ * started are started concurrently, then the next wave follows.
+ */
+class PluginStarter {
+	private static final String CONCURRENT_START_PROPERTY = "org.freeplane.plugins.concurrent_start";
+	private final List<Bundle> plugins;
+
+	PluginStarter(final List<Bundle> plugins) {
+		this.plugins = plugins;
+	}
+
+	void startPlugins() {
+		if (!Boolean.getBoolean(CONCURRENT_START_PROPERTY) || plugins.size() < 2) {
+			for (final Bundle plugin : plugins) {
+				startPlugin(plugin);
+			}
+			return;
+		}
+		final int threadCount = Math.min(plugins.size(), Math.max(2, Runtime.getRuntime().availableProcessors()));
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			final Set<String> pluginNames = new HashSet<String>();
+			for (final Bundle plugin : plugins) {
+				pluginNames.add(plugin.getSymbolicName());
+			}
+			final Set<String> started = new HashSet<String>();
+			final List<Bundle> waiting = new LinkedList<Bundle>(plugins);
+			while (!waiting.isEmpty()) {
+				final List<Bundle> wave = new ArrayList<Bundle>();
+				for (final Bundle plugin : waiting) {
+					if (isStartable(plugin, pluginNames, started)) {
+						wave.add(plugin);
+					}
+				}
+				if (wave.isEmpty()) {
+					// cyclic requirements, keep the installation order
+					wave.add(waiting.get(0));
+				}
+				startConcurrently(executor, wave);
+				waiting.removeAll(wave);
+				for (final Bundle plugin : wave) {
+					started.add(plugin.getSymbolicName());
+				}
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	private boolean isStartable(final Bundle plugin, final Set<String> pluginNames, final Set<String> started) {
+		for (final String requiredBundle : getRequiredBundles(plugin)) {
+			if (pluginNames.contains(requiredBundle) && !started.contains(requiredBundle)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void startConcurrently(final ExecutorService executor, final Collection<Bundle> wave) {
+		final List<Future<?>> results = new ArrayList<Future<?>>(wave.size());
+		for (final Bundle plugin : wave) {
+			results.add(executor.submit(new Callable<Object>() {
+				public Object call() {
+					startPlugin(plugin);
+					return null;
+				}
+			}));
+		}
+		for (final Future<?> result : results) {
+			try {
+				result.get();
+			}
+			catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			catch (final ExecutionException e) {
+				e.getCause().printStackTrace();
+			}
+		}
+	}
+
+	private void startPlugin(final Bundle plugin) {
+		try {
+			final long startTime = StartupTimeline.start();
+			plugin.start();
+			StartupTimeline.record("start " + plugin.getSymbolicName(), startTime);
+			LogUtils.info("Started: " + plugin.getLocation() + " (id#" + plugin.getBundleId() + ")");
+		}
+		catch (final Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @return symbolic names listed in the Require-Bundle header
+	 */
+	static List<String> getRequiredBundles(final Bundle bundle) {
+		final List<String> names = new ArrayList<String>();
+		final Object header = bundle.getHeaders().get(Constants.REQUIRE_BUNDLE);
+		if (header == null) {
+			return names;
+		}
+		final String value = header.toString();
+		boolean quoted = false;
+		int clauseStart = 0;
+		for (int i = 0; i <= value.length(); i++) {
+			final char c = i < value.length() ? value.charAt(i) : ',';
+			if (c == '"') {
+				quoted = !quoted;
+			}
+			else if (c == ',' && !quoted) {
+				final String clause = value.substring(clauseStart, i);
+				final int attributeStart = clause.indexOf(';');
+				final String name = (attributeStart == -1 ? clause : clause.substring(0, attributeStart)).trim();
+				if (name.length() > 0) {
+					names.add(name);
+				}
+				clauseStart = i + 1;
+			}
+		}
+		return names;
+	}
+}